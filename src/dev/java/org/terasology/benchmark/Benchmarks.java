@@ -50,7 +50,7 @@ public final class Benchmarks {
         for (int reps : repetitions) {
             repsTotal += reps;
         }
-        int repsPart = repsTotal / 20;
+        int repsPart = Math.max(1, repsTotal / 20);
         
         int repIndex = 0;
         boolean aborted = false;
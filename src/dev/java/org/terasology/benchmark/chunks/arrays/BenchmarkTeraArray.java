@@ -17,18 +17,27 @@ public abstract class BenchmarkTeraArray extends Benchmark {
 
     protected TeraArray array;
     
+    private final int warmupRepetitions;
+    private final int[] repetitions;
+    
     public BenchmarkTeraArray(TeraArray array) {
+        this(array, 10000, new int[] {500, 5000, 50000, 100000});
+    }
+    
+    public BenchmarkTeraArray(TeraArray array, int warmupRepetitions, int[] repetitions) {
         this.array = Preconditions.checkNotNull(array);
+        this.warmupRepetitions = warmupRepetitions;
+        this.repetitions = Preconditions.checkNotNull(repetitions);
     }
 
     @Override
     public int getWarmupRepetitions() {
-        return 10000;
+        return warmupRepetitions;
     }
     
     @Override
     public int[] getRepetitions() {
-        return new int[] {500, 5000, 50000, 100000};
+        return repetitions;
     }
 
     @Override
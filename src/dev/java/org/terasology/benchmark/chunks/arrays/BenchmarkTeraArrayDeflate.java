@@ -0,0 +1,61 @@
+package org.terasology.benchmark.chunks.arrays;
+
+import org.terasology.benchmark.BasicBenchmarkResult;
+import org.terasology.benchmark.BenchmarkResult;
+import org.terasology.world.chunks.blockdata.TeraArray;
+import org.terasology.world.chunks.deflate.TeraDeflator;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * BenchmarkTeraArrayDeflate measures how long a deflator takes to deflate a tera array and reports the memory
+ * consumption of the array before and after deflation.
+ */
+public class BenchmarkTeraArrayDeflate extends BenchmarkTeraArray {
+
+    private final TeraDeflator deflator;
+    private TeraArray deflated;
+
+    public BenchmarkTeraArrayDeflate(TeraDeflator deflator, TeraArray array) {
+        super(array, 100, new int[] {100, 1000});
+        this.deflator = Preconditions.checkNotNull(deflator);
+    }
+
+    @Override
+    public String getTitle() {
+        return array.getClass().getSimpleName() + " deflation with " + deflator.getClass().getSimpleName();
+    }
+
+    @Override
+    public BenchmarkResult createResult() {
+        final BasicBenchmarkResult result = new BasicBenchmarkResult(this);
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Left, "Deflated class") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return deflated.getClass().getSimpleName();
+            }
+        });
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Bytes before") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return String.valueOf(array.getEstimatedMemoryConsumptionInBytes());
+            }
+        });
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Bytes after") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return String.valueOf(deflated.getEstimatedMemoryConsumptionInBytes());
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public int run(final int index, final int repetitions, final BenchmarkResult result) {
+        for (int i = 0; i < repetitions; i++) {
+            deflated = deflator.deflate(array);
+        }
+        return deflated.getEstimatedMemoryConsumptionInBytes();
+    }
+
+}
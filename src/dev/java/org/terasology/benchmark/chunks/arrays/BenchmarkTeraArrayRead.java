@@ -15,6 +15,10 @@ public class BenchmarkTeraArrayRead extends BenchmarkTeraArray {
         super(array);
     }
     
+    public BenchmarkTeraArrayRead(TeraArray array, int warmupRepetitions, int[] repetitions) {
+        super(array, warmupRepetitions, repetitions);
+    }
+    
     @Override
     public String getTitle() {
         return array.getClass().getSimpleName() + " read performance";
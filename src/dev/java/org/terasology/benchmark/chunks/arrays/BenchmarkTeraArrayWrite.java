@@ -14,6 +14,10 @@ public class BenchmarkTeraArrayWrite extends BenchmarkTeraArray {
     public BenchmarkTeraArrayWrite(TeraArray array) {
         super(array);
     }
+    
+    public BenchmarkTeraArrayWrite(TeraArray array, int warmupRepetitions, int[] repetitions) {
+        super(array, warmupRepetitions, repetitions);
+    }
 
     @Override
     public String getTitle() {
@@ -0,0 +1,86 @@
+package org.terasology.benchmark.chunks.arrays;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.Benchmarks;
+import org.terasology.benchmark.PrintToConsoleCallback;
+import org.terasology.utilities.FastRandom;
+import org.terasology.world.chunks.blockdata.TeraArray;
+import org.terasology.world.chunks.blockdata.TeraDenseArray8Bit;
+import org.terasology.world.chunks.blockdata.TeraPaletteArray8Bit;
+import org.terasology.world.chunks.deflate.TeraPaletteDeflator;
+import org.terasology.world.chunks.deflate.TeraStandardDeflator;
+
+/**
+ * TeraPaletteArrayBenchmark compares the memory consumption per chunk and the read and write performance of
+ * palette arrays with dense and sparse 8-bit arrays, using block data resembling generated terrain.
+ */
+public final class TeraPaletteArrayBenchmark {
+
+    private static final int SIZE_X = 16;
+    private static final int SIZE_Y = 256;
+    private static final int SIZE_Z = 16;
+
+    private static final byte AIR = 0;
+    private static final byte STONE = 1;
+    private static final byte DIRT = 2;
+    private static final byte GRASS = 3;
+    private static final byte WATER = 4;
+    private static final byte[] ORES = {5, 6, 7, 8};
+
+    private TeraPaletteArrayBenchmark() {}
+
+    private static TeraArray createTerrain(long seed) {
+        final FastRandom random = new FastRandom(seed);
+        final TeraArray array = new TeraDenseArray8Bit(SIZE_X, SIZE_Y, SIZE_Z);
+        for (int x = 0; x < SIZE_X; x++) {
+            for (int z = 0; z < SIZE_Z; z++) {
+                final int height = 60 + (int) (8 * Math.sin(x * 0.3) * Math.cos(z * 0.2)) + random.randomIntAbs(3);
+                for (int y = 0; y < SIZE_Y; y++) {
+                    final byte block;
+                    if (y < height - 4)
+                        block = random.randomIntAbs(40) == 0 ? ORES[random.randomIntAbs(ORES.length)] : STONE;
+                    else if (y < height)
+                        block = DIRT;
+                    else if (y == height)
+                        block = height < 62 ? DIRT : GRASS;
+                    else if (y < 62)
+                        block = WATER;
+                    else
+                        block = AIR;
+                    array.set(x, y, z, block);
+                }
+            }
+        }
+        return array;
+    }
+
+    public static void main(String[] args) {
+
+        final List<Benchmark> benchmarks = new LinkedList<Benchmark>();
+
+        final TeraArray dense = createTerrain(42);
+        final TeraArray sparse = new TeraStandardDeflator().deflate(dense);
+        final TeraArray palette = new TeraPaletteDeflator().deflate(dense);
+
+        benchmarks.add(new BenchmarkTeraArrayDeflate(new TeraStandardDeflator(), dense));
+        benchmarks.add(new BenchmarkTeraArrayDeflate(new TeraPaletteDeflator(), dense));
+        benchmarks.add(new BenchmarkTeraArrayDeflate(new TeraPaletteDeflator(), new TeraPaletteArray8Bit(palette)));
+
+        final int warmup = 100;
+        final int[] repetitions = {100, 1000};
+
+        benchmarks.add(new BenchmarkTeraArrayRead(dense, warmup, repetitions));
+        benchmarks.add(new BenchmarkTeraArrayRead(sparse, warmup, repetitions));
+        benchmarks.add(new BenchmarkTeraArrayRead(palette, warmup, repetitions));
+
+        benchmarks.add(new BenchmarkTeraArrayWrite(dense.copy(), warmup, repetitions));
+        benchmarks.add(new BenchmarkTeraArrayWrite(sparse.copy(), warmup, repetitions));
+        benchmarks.add(new BenchmarkTeraArrayWrite(palette.copy(), warmup, repetitions));
+
+        Benchmarks.execute(benchmarks, new PrintToConsoleCallback());
+
+    }
+}
@@ -1,56 +1,196 @@
 package org.terasology.benchmark.chunks.cache;
 
+import java.io.File;
+
+import org.terasology.benchmark.BasicBenchmarkResult;
 import org.terasology.benchmark.Benchmark;
 import org.terasology.benchmark.BenchmarkResult;
-
+import org.terasology.world.chunks.Chunk;
+import org.terasology.world.chunks.ChunkStore;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * BenchmarkChunkCache measures the save or load throughput of a chunk store and the space
+ * the stored chunks occupy, either on disk or in memory.
+ * <p/>
+ * Stores which compress chunks on background threads are flushed through {@code ChunkStore.dispose()},
+ * the time this takes is reported separately.
+ */
 public class BenchmarkChunkCache extends Benchmark {
 
-    public BenchmarkChunkCache() {
+    public static enum Mode {
+        Save, Load
+    }
+
+    public static interface StoreFactory {
+
+        public String getName();
+
+        /**
+         * @param directory An empty directory which can be used by file based stores
+         */
+        public ChunkStore create(File directory);
+
+        /**
+         * @return True if the chunks are stored inside of the supplied directory
+         */
+        public boolean usesDirectory();
+    }
+
+    private final StoreFactory factory;
+    private final Mode mode;
+    private final Chunk[] chunks;
+    private final File directory;
+
+    private ChunkStore store;
+    private int next;
+    private final long[] flushTime;
+    private final double[] footprint;
+
+    public BenchmarkChunkCache(StoreFactory factory, Mode mode, Chunk[] chunks, File directory) {
+        this.factory = Preconditions.checkNotNull(factory);
+        this.mode = Preconditions.checkNotNull(mode);
+        this.chunks = Preconditions.checkNotNull(chunks);
+        this.directory = Preconditions.checkNotNull(directory);
+        Preconditions.checkArgument(chunks.length > 0, "The parameter 'chunks' must not be empty");
+        this.flushTime = new long[getRepetitions().length];
+        this.footprint = new double[getRepetitions().length];
     }
 
     @Override
     public String getTitle() {
-        return null;
+        return factory.getName() + " " + mode.toString().toLowerCase() + " performance (" + chunks.length + " chunks)";
     }
 
     @Override
     public int getWarmupRepetitions() {
-        return 1;
+        return chunks.length;
     }
-    
+
     @Override
     public int[] getRepetitions() {
-        return new int[] {1, 10};
+        return new int[] {chunks.length, 4 * chunks.length};
     }
 
     @Override
     public BenchmarkResult createResult() {
-        return null;
+        final BasicBenchmarkResult result = new BasicBenchmarkResult(this);
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Chunks per second") {
+            @Override
+            protected String getValueInternal(int rep) {
+                final long time = owner.getRunTime(rep) + flushTime[rep];
+                return time == 0 ? "-" : String.valueOf(owner.getRepetitions(rep) * 1000L / time);
+            }
+        });
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Flush in ms") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return String.valueOf(flushTime[rep]);
+            }
+        });
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Footprint in MB") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return String.format("%.2f", footprint[rep]);
+            }
+        });
+        return result;
     }
 
     @Override
     public void setup() {
-
+        store = createStore();
+        for (Chunk chunk : chunks) {
+            store.put(chunk);
+        }
+        flush(-1);
     }
 
     @Override
     public void prerun(int index) {
-
+        next = 0;
+        if (mode == Mode.Save) {
+            store.dispose();
+            store = createStore();
+        }
     }
 
     @Override
     public int run(int index, int repetitions, BenchmarkResult result) {
-        return 0;
+        int bogus = 0;
+        for (int i = 0; i < repetitions; i++) {
+            final Chunk chunk = chunks[next];
+            next = (next + 1) % chunks.length;
+            if (mode == Mode.Save) {
+                store.put(chunk);
+            } else {
+                bogus += store.get(chunk.getPos()).getPos().x;
+            }
+        }
+        return bogus;
     }
 
     @Override
     public void postrun(int index, BenchmarkResult result) {
-
+        if (mode == Mode.Save) {
+            flush(index);
+        } else {
+            footprint[index] = computeFootprint();
+        }
     }
 
     @Override
     public void finish(boolean aborted) {
+        if (store != null) {
+            store.dispose();
+            store = null;
+        }
+        deleteDirectory(directory);
+    }
+
+    private ChunkStore createStore() {
+        deleteDirectory(directory);
+        return factory.create(directory);
+    }
 
+    private void flush(int index) {
+        final long start = System.nanoTime();
+        store.dispose();
+        final long time = (System.nanoTime() - start) / 1000000;
+        if (index >= 0) {
+            flushTime[index] = time;
+            footprint[index] = computeFootprint();
+        }
     }
 
+    private double computeFootprint() {
+        if (factory.usesDirectory()) {
+            return (double) directorySize(directory) / (1 << 20);
+        }
+        return store.size();
+    }
+
+    private static long directorySize(File dir) {
+        long size = 0;
+        final File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                size += file.isDirectory() ? directorySize(file) : file.length();
+            }
+        }
+        return size;
+    }
+
+    private static void deleteDirectory(File dir) {
+        final File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    deleteDirectory(file);
+                }
+                file.delete();
+            }
+        }
+    }
 }
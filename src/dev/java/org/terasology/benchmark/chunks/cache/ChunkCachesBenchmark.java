@@ -1,11 +1,151 @@
 package org.terasology.benchmark.chunks.cache;
 
-public class ChunkCachesBenchmark {
+import java.io.File;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.terasology.TerasologyDevelopment;
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.Benchmarks;
+import org.terasology.benchmark.PrintToConsoleCallback;
+import org.terasology.config.Config;
+import org.terasology.game.CoreRegistry;
+import org.terasology.math.Vector3i;
+import org.terasology.utilities.FastRandom;
+import org.terasology.world.chunks.Chunk;
+import org.terasology.world.chunks.ChunkStore;
+import org.terasology.world.chunks.blockdata.TeraArray;
+import org.terasology.world.chunks.blockdata.TeraDenseArray4Bit;
+import org.terasology.world.chunks.blockdata.TeraDenseArray8Bit;
+import org.terasology.world.chunks.store.ChunkStoreFileSystem;
+import org.terasology.world.chunks.store.ChunkStoreGZip;
+import org.terasology.world.chunks.store.ChunkStoreProtobuf;
+import org.terasology.world.chunks.store.ChunkStoreRegionFile;
+
+/**
+ * ChunkCachesBenchmark compares the save and load throughput and the footprint of the chunk stores.
+ */
+public final class ChunkCachesBenchmark {
+
+    private static final String SUB_FOLDER = ChunkCachesBenchmark.class.getSimpleName();
+    private static final int CHUNKS_PER_AXIS = 16;
 
     private ChunkCachesBenchmark() {}
 
     public static void main(String[] args) {
+        CoreRegistry.put(Config.class, new Config());
+
+        final Chunk[] chunks = createChunks(CHUNKS_PER_AXIS, 0xdeadbeef);
+        final File directory = TerasologyDevelopment.getOutputFolder(SUB_FOLDER);
+        directory.mkdirs();
+
+        final List<BenchmarkChunkCache.StoreFactory> factories = new LinkedList<BenchmarkChunkCache.StoreFactory>();
+        factories.add(new BenchmarkChunkCache.StoreFactory() {
+            @Override
+            public String getName() {
+                return ChunkStoreRegionFile.class.getSimpleName();
+            }
+
+            @Override
+            public ChunkStore create(File directory) {
+                return new ChunkStoreRegionFile(directory);
+            }
+
+            @Override
+            public boolean usesDirectory() {
+                return true;
+            }
+        });
+        factories.add(new BenchmarkChunkCache.StoreFactory() {
+            @Override
+            public String getName() {
+                return ChunkStoreFileSystem.class.getSimpleName();
+            }
+
+            @Override
+            public ChunkStore create(File directory) {
+                return new ChunkStoreFileSystem(directory);
+            }
 
+            @Override
+            public boolean usesDirectory() {
+                return true;
+            }
+        });
+        factories.add(new BenchmarkChunkCache.StoreFactory() {
+            @Override
+            public String getName() {
+                return ChunkStoreProtobuf.class.getSimpleName();
+            }
+
+            @Override
+            public ChunkStore create(File directory) {
+                return new ChunkStoreProtobuf();
+            }
+
+            @Override
+            public boolean usesDirectory() {
+                return false;
+            }
+        });
+        factories.add(new BenchmarkChunkCache.StoreFactory() {
+            @Override
+            public String getName() {
+                return ChunkStoreGZip.class.getSimpleName();
+            }
+
+            @Override
+            public ChunkStore create(File directory) {
+                return new ChunkStoreGZip();
+            }
+
+            @Override
+            public boolean usesDirectory() {
+                return false;
+            }
+        });
+
+        final List<Benchmark> benchmarks = new LinkedList<Benchmark>();
+        for (BenchmarkChunkCache.StoreFactory factory : factories) {
+            benchmarks.add(new BenchmarkChunkCache(factory, BenchmarkChunkCache.Mode.Save, chunks, directory));
+            benchmarks.add(new BenchmarkChunkCache(factory, BenchmarkChunkCache.Mode.Load, chunks, directory));
+        }
+
+        Benchmarks.execute(benchmarks, new PrintToConsoleCallback());
     }
 
+    /**
+     * Creates chunks with a layered terrain which resembles generated chunks close enough to get meaningful
+     * compression ratios: stone with scattered ores below a noisy surface, a few blocks of dirt, air above and
+     * full sunlight in the air.
+     */
+    public static Chunk[] createChunks(int chunksPerAxis, long seed) {
+        final FastRandom random = new FastRandom(seed);
+        final Chunk[] chunks = new Chunk[chunksPerAxis * chunksPerAxis];
+        int index = 0;
+        for (int cx = 0; cx < chunksPerAxis; cx++) {
+            for (int cz = 0; cz < chunksPerAxis; cz++) {
+                final TeraArray blocks = new TeraDenseArray8Bit(Chunk.SIZE_X, Chunk.SIZE_Y, Chunk.SIZE_Z);
+                final TeraArray sunlight = new TeraDenseArray4Bit(Chunk.SIZE_X, Chunk.SIZE_Y, Chunk.SIZE_Z);
+                final TeraArray light = new TeraDenseArray4Bit(Chunk.SIZE_X, Chunk.SIZE_Y, Chunk.SIZE_Z);
+                final TeraArray extra = new TeraDenseArray4Bit(Chunk.SIZE_X, Chunk.SIZE_Y, Chunk.SIZE_Z);
+                for (int x = 0; x < Chunk.SIZE_X; x++) {
+                    for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                        final int height = 64 + random.randomIntAbs(8);
+                        for (int y = 0; y < Chunk.SIZE_Y; y++) {
+                            if (y < height - 4) {
+                                blocks.set(x, y, z, random.randomIntAbs(32) == 0 ? 2 + random.randomIntAbs(4) : 1);
+                            } else if (y < height) {
+                                blocks.set(x, y, z, 6);
+                            } else {
+                                sunlight.set(x, y, z, Chunk.MAX_LIGHT);
+                            }
+                        }
+                    }
+                }
+                chunks[index++] = new Chunk(new Vector3i(cx, 0, cz), Chunk.State.COMPLETE, blocks, sunlight, light, extra);
+            }
+        }
+        return chunks;
+    }
 }
@@ -0,0 +1,138 @@
+package org.terasology.benchmark.chunks.lookup;
+
+import java.lang.management.ManagementFactory;
+
+import org.terasology.benchmark.BasicBenchmarkResult;
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.BenchmarkResult;
+import org.terasology.world.chunks.Chunk;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * BenchmarkChunkLookup measures how many chunk lookups by integer coordinates a chunk index serves per second
+ * and how many bytes it allocates per lookup. Lookups sweep the grid of chunks plus a border of missing chunks.
+ * <p/>
+ * The allocation rate is taken from the HotSpot thread allocation counter, it is reported as "-" on other VMs.
+ * In this tight loop the JIT can scalar replace temporary keys, run with {@code -XX:-DoEscapeAnalysis} to see
+ * the allocations which remain in the deeper call chains of the game.
+ */
+public class BenchmarkChunkLookup extends Benchmark {
+
+    public static interface ChunkIndex {
+
+        public String getName();
+
+        public void add(Chunk chunk);
+
+        public Chunk get(int x, int y, int z);
+    }
+
+    private static final int BORDER = 2;
+
+    private final ChunkIndex index;
+    private final Chunk[] chunks;
+    private final int chunksPerAxis;
+
+    private final long[] allocated;
+    private long allocatedBefore;
+    private int x;
+    private int z;
+
+    public BenchmarkChunkLookup(ChunkIndex index, Chunk[] chunks, int chunksPerAxis) {
+        this.index = Preconditions.checkNotNull(index);
+        this.chunks = Preconditions.checkNotNull(chunks);
+        this.chunksPerAxis = chunksPerAxis;
+        this.allocated = new long[getRepetitions().length];
+    }
+
+    @Override
+    public String getTitle() {
+        return index.getName() + " lookup performance (" + chunks.length + " chunks)";
+    }
+
+    @Override
+    public int getWarmupRepetitions() {
+        return 1000000;
+    }
+
+    @Override
+    public int[] getRepetitions() {
+        return new int[] {1000000, 10000000, 50000000};
+    }
+
+    @Override
+    public BenchmarkResult createResult() {
+        final BasicBenchmarkResult result = new BasicBenchmarkResult(this);
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Lookups per second") {
+            @Override
+            protected String getValueInternal(int rep) {
+                final long time = owner.getRunTime(rep);
+                return time == 0 ? "-" : String.valueOf(owner.getRepetitions(rep) * 1000L / time);
+            }
+        });
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Bytes per lookup") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return allocated[rep] < 0 ? "-" : String.format("%.2f", (double) allocated[rep] / owner.getRepetitions(rep));
+            }
+        });
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "MB allocated per second") {
+            @Override
+            protected String getValueInternal(int rep) {
+                final long time = owner.getRunTime(rep);
+                return allocated[rep] < 0 || time == 0 ? "-" : String.format("%.1f", (double) allocated[rep] / (1 << 20) * 1000 / time);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void setup() {
+        for (Chunk chunk : chunks) {
+            index.add(chunk);
+        }
+    }
+
+    @Override
+    public void prerun(int rep) {
+        x = -BORDER;
+        z = -BORDER;
+        allocatedBefore = getAllocatedBytes();
+    }
+
+    @Override
+    public int run(int rep, int repetitions, BenchmarkResult result) {
+        int found = 0;
+        for (int i = 0; i < repetitions; i++) {
+            if (index.get(x, 0, z) != null) {
+                found++;
+            }
+            if (++x == chunksPerAxis + BORDER) {
+                x = -BORDER;
+                if (++z == chunksPerAxis + BORDER) {
+                    z = -BORDER;
+                }
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public void postrun(int rep, BenchmarkResult result) {
+        final long allocatedAfter = getAllocatedBytes();
+        allocated[rep] = allocatedBefore < 0 || allocatedAfter < 0 ? -1 : allocatedAfter - allocatedBefore;
+    }
+
+    @Override
+    public void finish(boolean aborted) {
+    }
+
+    private static long getAllocatedBytes() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,77 @@
+package org.terasology.benchmark.chunks.lookup;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.Benchmarks;
+import org.terasology.benchmark.PrintToConsoleCallback;
+import org.terasology.config.Config;
+import org.terasology.game.CoreRegistry;
+import org.terasology.math.Vector3i;
+import org.terasology.world.chunks.Chunk;
+import org.terasology.world.chunks.ChunkMap;
+
+import com.google.common.collect.Maps;
+
+/**
+ * ChunkLookupBenchmark compares chunk lookups through a {@code ChunkMap} with lookups through a
+ * {@code ConcurrentMap} keyed by {@code Vector3i}, as the chunk provider used to do.
+ */
+public final class ChunkLookupBenchmark {
+
+    private static final int CHUNKS_PER_AXIS = 32;
+
+    private ChunkLookupBenchmark() {}
+
+    public static void main(String[] args) {
+        CoreRegistry.put(Config.class, new Config());
+
+        final Chunk[] chunks = new Chunk[CHUNKS_PER_AXIS * CHUNKS_PER_AXIS];
+        for (int x = 0; x < CHUNKS_PER_AXIS; x++) {
+            for (int z = 0; z < CHUNKS_PER_AXIS; z++) {
+                chunks[x * CHUNKS_PER_AXIS + z] = new Chunk(x, 0, z);
+            }
+        }
+
+        final List<Benchmark> benchmarks = new LinkedList<Benchmark>();
+        benchmarks.add(new BenchmarkChunkLookup(new BenchmarkChunkLookup.ChunkIndex() {
+            private final ChunkMap map = new ChunkMap();
+
+            @Override
+            public String getName() {
+                return ChunkMap.class.getSimpleName();
+            }
+
+            @Override
+            public void add(Chunk chunk) {
+                map.putIfAbsent(chunk);
+            }
+
+            @Override
+            public Chunk get(int x, int y, int z) {
+                return map.get(x, y, z);
+            }
+        }, chunks, CHUNKS_PER_AXIS));
+        benchmarks.add(new BenchmarkChunkLookup(new BenchmarkChunkLookup.ChunkIndex() {
+            private final ConcurrentMap<Vector3i, Chunk> map = Maps.newConcurrentMap();
+
+            @Override
+            public String getName() {
+                return "ConcurrentMap<Vector3i, Chunk>";
+            }
+
+            @Override
+            public void add(Chunk chunk) {
+                map.putIfAbsent(chunk.getPos(), chunk);
+            }
+
+            @Override
+            public Chunk get(int x, int y, int z) {
+                return map.get(new Vector3i(x, y, z));
+            }
+        }, chunks, CHUNKS_PER_AXIS));
+        Benchmarks.execute(benchmarks, new PrintToConsoleCallback());
+    }
+}
@@ -0,0 +1,162 @@
+package org.terasology.benchmark.chunks.tasks;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.terasology.benchmark.BasicBenchmarkResult;
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.BenchmarkResult;
+import org.terasology.math.Vector3i;
+import org.terasology.world.chunks.ChunkProvider;
+import org.terasology.world.localChunkProvider.AbstractChunkTask;
+import org.terasology.world.localChunkProvider.ChunkTask;
+import org.terasology.world.localChunkProvider.ShutdownTask;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * BenchmarkChunkTaskQueue measures the throughput of a chunk task queue with one producer and several
+ * consumer threads. The producer moves the regions every {@code MOVE_INTERVAL} tasks.
+ */
+public class BenchmarkChunkTaskQueue extends Benchmark {
+
+    public static interface TaskQueue {
+
+        public String getName();
+
+        public void offer(ChunkTask task);
+
+        public ChunkTask take() throws InterruptedException;
+
+        public void moveRegions(int offset);
+    }
+
+    public static final int MOVE_INTERVAL = 1024;
+
+    private final TaskQueue queue;
+    private final int consumers;
+    private final Vector3i[] positions;
+
+    private ExecutorService consumerThreads;
+    private volatile CountDownLatch remaining;
+    private final AtomicInteger enacted = new AtomicInteger();
+
+    public BenchmarkChunkTaskQueue(TaskQueue queue, int consumers, Vector3i[] positions) {
+        this.queue = Preconditions.checkNotNull(queue);
+        this.consumers = consumers;
+        this.positions = Preconditions.checkNotNull(positions);
+        Preconditions.checkArgument(consumers > 0, "The parameter 'consumers' must be greater than zero");
+    }
+
+    @Override
+    public String getTitle() {
+        return queue.getName() + " throughput (" + consumers + " consumers)";
+    }
+
+    @Override
+    public int getWarmupRepetitions() {
+        return 100000;
+    }
+
+    @Override
+    public int[] getRepetitions() {
+        return new int[] {100000, 500000, 1000000};
+    }
+
+    @Override
+    public BenchmarkResult createResult() {
+        final BasicBenchmarkResult result = new BasicBenchmarkResult(this);
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Tasks per second") {
+            @Override
+            protected String getValueInternal(int rep) {
+                final long time = owner.getRunTime(rep);
+                return time == 0 ? "-" : String.valueOf(owner.getRepetitions(rep) * 1000L / time);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void setup() {
+        consumerThreads = Executors.newFixedThreadPool(consumers);
+        for (int i = 0; i < consumers; i++) {
+            consumerThreads.execute(new Runnable() {
+                @Override
+                public void run() {
+                    while (true) {
+                        try {
+                            ChunkTask task = queue.take();
+                            if (task.isShutdownRequest()) {
+                                break;
+                            }
+                            task.enact();
+                        } catch (InterruptedException e) {
+                            break;
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    @Override
+    public void prerun(int index) {
+        enacted.set(0);
+    }
+
+    @Override
+    public int run(int index, int repetitions, BenchmarkResult result) {
+        remaining = new CountDownLatch(repetitions);
+        for (int i = 0; i < repetitions; i++) {
+            if (i % MOVE_INTERVAL == 0) {
+                queue.moveRegions(i / MOVE_INTERVAL);
+            }
+            queue.offer(new Task(positions[i % positions.length]));
+        }
+        queue.moveRegions(0);
+        try {
+            remaining.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        return enacted.get();
+    }
+
+    @Override
+    public void postrun(int index, BenchmarkResult result) {
+    }
+
+    @Override
+    public void finish(boolean aborted) {
+        for (int i = 0; i < consumers; i++) {
+            queue.offer(new ShutdownTask());
+        }
+        consumerThreads.shutdown();
+        try {
+            consumerThreads.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            consumerThreads.shutdownNow();
+        }
+    }
+
+    private class Task extends AbstractChunkTask {
+
+        public Task(Vector3i position) {
+            super(position, (ChunkProvider) null);
+        }
+
+        @Override
+        public void enact() {
+            enacted.incrementAndGet();
+            remaining.countDown();
+        }
+
+        @Override
+        public void cancel() {
+            remaining.countDown();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.terasology.benchmark.chunks.tasks;
+
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.Benchmarks;
+import org.terasology.benchmark.PrintToConsoleCallback;
+import org.terasology.math.Region3i;
+import org.terasology.math.Vector3i;
+import org.terasology.world.localChunkProvider.ChunkTask;
+import org.terasology.world.localChunkProvider.ChunkTaskQueue;
+
+import com.google.common.collect.Lists;
+
+/**
+ * ChunkTaskQueueBenchmark compares the {@code ChunkTaskQueue} with a {@code PriorityBlockingQueue} ordered by a
+ * comparator which locks and scans the regions on every comparison, as the chunk provider used to do.
+ */
+public final class ChunkTaskQueueBenchmark {
+
+    private static final int CONSUMERS = 8;
+    private static final int REGIONS = 2;
+    private static final int GRID_SIZE = 32;
+    private static final Vector3i KEEP_EXTENTS = new Vector3i(14, 0, 14);
+
+    private ChunkTaskQueueBenchmark() {}
+
+    public static void main(String[] args) {
+        final Vector3i[] positions = new Vector3i[GRID_SIZE * GRID_SIZE];
+        for (int x = 0; x < GRID_SIZE; x++) {
+            for (int z = 0; z < GRID_SIZE; z++) {
+                positions[x * GRID_SIZE + z] = new Vector3i(x - GRID_SIZE / 2, 0, z - GRID_SIZE / 2);
+            }
+        }
+
+        final List<Benchmark> benchmarks = new LinkedList<Benchmark>();
+        benchmarks.add(new BenchmarkChunkTaskQueue(new RingQueue(), CONSUMERS, positions));
+        benchmarks.add(new BenchmarkChunkTaskQueue(new ComparatorQueue(), CONSUMERS, positions));
+        Benchmarks.execute(benchmarks, new PrintToConsoleCallback());
+    }
+
+    private static Vector3i getCenter(int region, int offset) {
+        return new Vector3i(region * 4 - 2 + offset % 4, 0, offset % 3);
+    }
+
+    private static class RingQueue implements BenchmarkChunkTaskQueue.TaskQueue {
+        private final ChunkTaskQueue queue = new ChunkTaskQueue();
+
+        @Override
+        public String getName() {
+            return ChunkTaskQueue.class.getSimpleName();
+        }
+
+        @Override
+        public void offer(ChunkTask task) {
+            queue.offer(task);
+        }
+
+        @Override
+        public ChunkTask take() throws InterruptedException {
+            return queue.take();
+        }
+
+        @Override
+        public void moveRegions(int offset) {
+            final List<Region3i> regions = Lists.newArrayList();
+            final List<Vector3i> centers = Lists.newArrayList();
+            for (int i = 0; i < REGIONS; i++) {
+                final Vector3i center = getCenter(i, offset);
+                centers.add(center);
+                regions.add(Region3i.createFromCenterExtents(center, KEEP_EXTENTS));
+            }
+            queue.setRegions(regions, centers);
+        }
+    }
+
+    private static class ComparatorQueue implements BenchmarkChunkTaskQueue.TaskQueue {
+        private final ReadWriteLock regionLock = new ReentrantReadWriteLock();
+        private final List<Vector3i> centers = Lists.newArrayList();
+        private final PriorityBlockingQueue<ChunkTask> queue = new PriorityBlockingQueue<ChunkTask>(128, new Comparator<ChunkTask>() {
+            @Override
+            public int compare(ChunkTask o1, ChunkTask o2) {
+                return score(o1.getPosition()) - score(o2.getPosition());
+            }
+
+            private int score(Vector3i chunk) {
+                int score = Integer.MAX_VALUE;
+                regionLock.readLock().lock();
+                try {
+                    for (Vector3i center : centers) {
+                        int dist = chunk.gridDistance(center);
+                        if (dist < score) {
+                            score = dist;
+                        }
+                    }
+                    return score;
+                } finally {
+                    regionLock.readLock().unlock();
+                }
+            }
+        });
+
+        @Override
+        public String getName() {
+            return PriorityBlockingQueue.class.getSimpleName();
+        }
+
+        @Override
+        public void offer(ChunkTask task) {
+            queue.offer(task);
+        }
+
+        @Override
+        public ChunkTask take() throws InterruptedException {
+            return queue.take();
+        }
+
+        @Override
+        public void moveRegions(int offset) {
+            regionLock.writeLock().lock();
+            try {
+                centers.clear();
+                for (int i = 0; i < REGIONS; i++) {
+                    centers.add(getCenter(i, offset));
+                }
+            } finally {
+                regionLock.writeLock().unlock();
+            }
+        }
+    }
+}
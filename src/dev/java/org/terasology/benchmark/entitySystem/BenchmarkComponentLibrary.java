@@ -0,0 +1,143 @@
+package org.terasology.benchmark.entitySystem;
+
+import javax.vecmath.Vector3f;
+
+import org.terasology.benchmark.BasicBenchmarkResult;
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.BenchmarkResult;
+import org.terasology.components.HealthComponent;
+import org.terasology.components.SimpleAIComponent;
+import org.terasology.components.world.LocationComponent;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.entitySystem.PersistableEntityManager;
+import org.terasology.entitySystem.Prefab;
+import org.terasology.entitySystem.persistence.EntityPersisterHelper;
+import org.terasology.entitySystem.persistence.EntityPersisterHelperImpl;
+import org.terasology.game.CoreRegistry;
+import org.terasology.game.bootstrap.EntitySystemBuilder;
+import org.terasology.logic.mod.ModManager;
+import org.terasology.physics.CollisionGroupManager;
+import org.terasology.physics.character.CharacterMovementComponent;
+import org.terasology.protobuf.EntityData;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * BenchmarkComponentLibrary measures the operations which create, copy, serialize and deserialize components
+ * field by field through their metadata, using mob entities.
+ * <p/>
+ * Each repetition performs the operation for all entities.
+ */
+public class BenchmarkComponentLibrary extends Benchmark {
+
+    public enum Operation {
+        /* Creates all entities from a prefab, which copies the prefab's components */
+        SPAWN_PREFAB,
+        /* Serializes a world containing all entities */
+        SAVE_WORLD,
+        /* Deserializes a world containing all entities */
+        LOAD_WORLD
+    }
+
+    private final Operation operation;
+    private final int entityCount;
+
+    private PersistableEntityManager entityManager;
+    private EntityPersisterHelper persisterHelper;
+    private Prefab prefab;
+    private EntityData.World world;
+
+    public BenchmarkComponentLibrary(Operation operation, int entityCount) {
+        this.operation = Preconditions.checkNotNull(operation);
+        this.entityCount = entityCount;
+    }
+
+    @Override
+    public String getTitle() {
+        return "Component library " + operation + " (" + entityCount + " entities)";
+    }
+
+    @Override
+    public int getWarmupRepetitions() {
+        return 10;
+    }
+
+    @Override
+    public int[] getRepetitions() {
+        return new int[] {10, 50};
+    }
+
+    @Override
+    public BenchmarkResult createResult() {
+        final BasicBenchmarkResult result = new BasicBenchmarkResult(this);
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Entities per ms") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return String.format("%.0f", (double) entityCount * owner.getRepetitions(rep) / Math.max(1, owner.getRunTime(rep)));
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void setup() {
+        CoreRegistry.put(CollisionGroupManager.class, new CollisionGroupManager());
+        entityManager = new EntitySystemBuilder().build(new ModManager());
+        persisterHelper = new EntityPersisterHelperImpl(entityManager);
+        prefab = entityManager.getPrefabManager().createPrefab("benchmark:mob");
+        prefab.setComponent(new HealthComponent());
+        prefab.setComponent(new SimpleAIComponent());
+        prefab.setComponent(new CharacterMovementComponent());
+
+        // Entities not created from the prefab, so that all of their fields are saved
+        for (int i = 0; i < entityCount; i++) {
+            HealthComponent health = new HealthComponent();
+            health.currentHealth = i % health.maxHealth;
+            SimpleAIComponent ai = new SimpleAIComponent();
+            ai.movementTarget.set(i, 0, -i);
+            entityManager.create(new LocationComponent(new Vector3f(i, 64, -i)), health, ai, new CharacterMovementComponent());
+        }
+        world = persisterHelper.serializeWorld();
+    }
+
+    @Override
+    public void prerun(int index) {
+    }
+
+    @Override
+    public int run(int index, int repetitions, BenchmarkResult result) {
+        int count = 0;
+        for (int i = 0; i < repetitions; i++) {
+            switch (operation) {
+                case SPAWN_PREFAB:
+                    entityManager.clear();
+                    for (int j = 0; j < entityCount; j++) {
+                        EntityRef entity = entityManager.create(prefab);
+                        count += entity.getId();
+                    }
+                    break;
+                case SAVE_WORLD:
+                    count += persisterHelper.serializeWorld().getEntityCount();
+                    break;
+                case LOAD_WORLD:
+                    entityManager.clear();
+                    persisterHelper.deserializeWorld(world);
+                    count += entityManager.getActiveEntities();
+                    break;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void postrun(int index, BenchmarkResult result) {
+    }
+
+    @Override
+    public void finish(boolean aborted) {
+        entityManager = null;
+        persisterHelper = null;
+        prefab = null;
+        world = null;
+    }
+}
@@ -0,0 +1,207 @@
+package org.terasology.benchmark.entitySystem;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+import org.terasology.benchmark.BasicBenchmarkResult;
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.BenchmarkResult;
+import org.terasology.components.HealthComponent;
+import org.terasology.components.world.LocationComponent;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.entitySystem.metadata.ComponentLibraryImpl;
+import org.terasology.entitySystem.pojo.PojoEntityManager;
+import org.terasology.entitySystem.pojo.PojoPrefabManager;
+import org.terasology.utilities.FastRandom;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+/**
+ * BenchmarkEntityLifecycle measures the throughput, garbage collections and allocations of creating, destroying
+ * and looking up entities of an entity manager, which recycles the ids of destroyed entities.
+ * <p/>
+ * Each repetition performs the operation once for every entity.
+ */
+public class BenchmarkEntityLifecycle extends Benchmark {
+
+    public enum Operation {
+        /* Creates all entities and destroys them again */
+        CREATE_DESTROY,
+        /* Destroys random entities and creates new ones in their place, while references to the others are held */
+        CHURN,
+        /* Iterates all entities, which looks up a reference for each entity */
+        LOOKUP
+    }
+
+    private final Operation operation;
+    private final int entityCount;
+
+    private PojoEntityManager entityManager;
+    private List<EntityRef> entities;
+    private FastRandom random;
+
+    private long[] gcCounts;
+    private long[] gcTimes;
+    private long[] allocatedBytes;
+    private long gcCountBefore;
+    private long gcTimeBefore;
+    private long allocatedBytesBefore;
+
+    public BenchmarkEntityLifecycle(Operation operation, int entityCount) {
+        this.operation = Preconditions.checkNotNull(operation);
+        this.entityCount = entityCount;
+    }
+
+    @Override
+    public String getTitle() {
+        return "Entity lifecycle " + operation + " (" + entityCount + " entities)";
+    }
+
+    @Override
+    public int getWarmupRepetitions() {
+        return 20;
+    }
+
+    @Override
+    public int[] getRepetitions() {
+        return new int[] {20, 100};
+    }
+
+    @Override
+    public BenchmarkResult createResult() {
+        final BasicBenchmarkResult result = new BasicBenchmarkResult(this);
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Entities per ms") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return String.format("%.0f", (double) entityCount * owner.getRepetitions(rep) / Math.max(1, owner.getRunTime(rep)));
+            }
+        });
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "GCs") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return String.valueOf(gcCounts[rep]);
+            }
+        });
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "GC ms") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return String.valueOf(gcTimes[rep]);
+            }
+        });
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Bytes per entity") {
+            @Override
+            protected String getValueInternal(int rep) {
+                if (allocatedBytes[rep] < 0) {
+                    return "n/a";
+                }
+                return String.valueOf(allocatedBytes[rep] / ((long) entityCount * owner.getRepetitions(rep)));
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void setup() {
+        ComponentLibraryImpl library = new ComponentLibraryImpl();
+        entityManager = new PojoEntityManager(library, new PojoPrefabManager(library));
+        entities = Lists.newArrayListWithCapacity(entityCount);
+        random = new FastRandom(42);
+        gcCounts = new long[getRepetitions().length];
+        gcTimes = new long[getRepetitions().length];
+        allocatedBytes = new long[getRepetitions().length];
+        if (operation != Operation.CREATE_DESTROY) {
+            for (int i = 0; i < entityCount; i++) {
+                entities.add(entityManager.create(new LocationComponent(), new HealthComponent()));
+            }
+        }
+    }
+
+    @Override
+    public void prerun(int index) {
+        System.gc();
+        gcCountBefore = gcCount();
+        gcTimeBefore = gcTime();
+        allocatedBytesBefore = allocatedBytes();
+    }
+
+    @Override
+    public int run(int index, int repetitions, BenchmarkResult result) {
+        int count = 0;
+        for (int i = 0; i < repetitions; i++) {
+            switch (operation) {
+                case CREATE_DESTROY:
+                    for (int j = 0; j < entityCount; j++) {
+                        entities.add(entityManager.create(new LocationComponent(), new HealthComponent()));
+                    }
+                    for (EntityRef entity : entities) {
+                        count += entity.getId();
+                        entity.destroy();
+                    }
+                    entities.clear();
+                    break;
+                case CHURN:
+                    for (int j = 0; j < entityCount; j++) {
+                        int slot = random.randomIntAbs(entityCount);
+                        entities.get(slot).destroy();
+                        entities.set(slot, entityManager.create(new LocationComponent(), new HealthComponent()));
+                        count += entities.get(slot).getId();
+                    }
+                    break;
+                case LOOKUP:
+                    for (EntityRef entity : entityManager.iteratorEntities()) {
+                        count += entity.getId();
+                    }
+                    break;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void postrun(int index, BenchmarkResult result) {
+        gcCounts[index] = gcCount() - gcCountBefore;
+        gcTimes[index] = gcTime() - gcTimeBefore;
+        long allocated = allocatedBytes();
+        allocatedBytes[index] = allocated < 0 ? -1 : allocated - allocatedBytesBefore;
+    }
+
+    @Override
+    public void finish(boolean aborted) {
+        entityManager = null;
+        entities = null;
+        random = null;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, collector.getCollectionTime());
+        }
+        return time;
+    }
+
+    /**
+     * @return The bytes allocated by the current thread so far, or -1 if the virtual machine does not report them
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspotThreads = (com.sun.management.ThreadMXBean) threads;
+            if (hotspotThreads.isThreadAllocatedMemorySupported() && hotspotThreads.isThreadAllocatedMemoryEnabled()) {
+                return hotspotThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+}
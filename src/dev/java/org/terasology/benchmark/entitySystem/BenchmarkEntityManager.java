@@ -0,0 +1,176 @@
+package org.terasology.benchmark.entitySystem;
+
+import java.util.List;
+
+import org.terasology.benchmark.BasicBenchmarkResult;
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.BenchmarkResult;
+import org.terasology.components.HealthComponent;
+import org.terasology.components.InventoryComponent;
+import org.terasology.components.ItemComponent;
+import org.terasology.components.LightComponent;
+import org.terasology.components.SimpleAIComponent;
+import org.terasology.components.world.LocationComponent;
+import org.terasology.entitySystem.EntityQuery;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.entitySystem.metadata.ComponentLibraryImpl;
+import org.terasology.entitySystem.pojo.PojoEntityManager;
+import org.terasology.entitySystem.pojo.PojoPrefabManager;
+import org.terasology.utilities.FastRandom;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+/**
+ * BenchmarkEntityManager measures the throughput of one operation of an entity manager populated with entities
+ * resembling dropped items, mobs and lights, all of which have a location.
+ * <p/>
+ * Each repetition performs the operation once for every entity.
+ */
+public class BenchmarkEntityManager extends Benchmark {
+
+    public enum Operation {
+        /* Gets the location and health of every entity */
+        GET,
+        /* Replaces the location of every entity */
+        PUT,
+        /* Iterates all entities with a location and health and gets both */
+        ITERATE,
+        /* Iterates a registered query for all entities with a location and health and gets both */
+        QUERY,
+        /* Adds and removes a health component, moving entities between archetypes */
+        ADD_REMOVE
+    }
+
+    private final boolean archetypeStorage;
+    private final Operation operation;
+    private final int entityCount;
+
+    private PojoEntityManager entityManager;
+    private List<EntityRef> entities;
+    private EntityQuery query;
+
+    public BenchmarkEntityManager(boolean archetypeStorage, Operation operation, int entityCount) {
+        this.archetypeStorage = archetypeStorage;
+        this.operation = Preconditions.checkNotNull(operation);
+        this.entityCount = entityCount;
+    }
+
+    @Override
+    public String getTitle() {
+        return (archetypeStorage ? "Archetype" : "Component table") + " entity manager " + operation + " (" + entityCount + " entities)";
+    }
+
+    @Override
+    public int getWarmupRepetitions() {
+        return 20;
+    }
+
+    @Override
+    public int[] getRepetitions() {
+        return new int[] {10, 100};
+    }
+
+    @Override
+    public BenchmarkResult createResult() {
+        final BasicBenchmarkResult result = new BasicBenchmarkResult(this);
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Entities per ms") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return String.format("%.0f", (double) entityCount * owner.getRepetitions(rep) / Math.max(1, owner.getRunTime(rep)));
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void setup() {
+        ComponentLibraryImpl library = new ComponentLibraryImpl();
+        entityManager = new PojoEntityManager(library, new PojoPrefabManager(library), archetypeStorage);
+        entities = Lists.newArrayListWithCapacity(entityCount);
+        FastRandom random = new FastRandom(42);
+        for (int i = 0; i < entityCount; i++) {
+            EntityRef entity = entityManager.create(new LocationComponent());
+            switch (random.randomIntAbs(4)) {
+                case 0:
+                    entity.addComponent(new ItemComponent());
+                    break;
+                case 1:
+                    entity.addComponent(new HealthComponent());
+                    entity.addComponent(new SimpleAIComponent());
+                    break;
+                case 2:
+                    entity.addComponent(new HealthComponent());
+                    entity.addComponent(new InventoryComponent());
+                    break;
+                default:
+                    entity.addComponent(new LightComponent());
+                    break;
+            }
+            entities.add(entity);
+        }
+        query = entityManager.query(LocationComponent.class, HealthComponent.class);
+    }
+
+    @Override
+    public void prerun(int index) {
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int run(int index, int repetitions, BenchmarkResult result) {
+        int found = 0;
+        for (int i = 0; i < repetitions; i++) {
+            switch (operation) {
+                case GET:
+                    for (EntityRef entity : entities) {
+                        if (entity.getComponent(LocationComponent.class) != null && entity.getComponent(HealthComponent.class) != null) {
+                            found++;
+                        }
+                    }
+                    break;
+                case PUT:
+                    for (EntityRef entity : entities) {
+                        entity.saveComponent(entity.getComponent(LocationComponent.class));
+                    }
+                    break;
+                case ITERATE:
+                    for (EntityRef entity : entityManager.iteratorEntities(LocationComponent.class, HealthComponent.class)) {
+                        if (entity.getComponent(LocationComponent.class) != null && entity.getComponent(HealthComponent.class) != null) {
+                            found++;
+                        }
+                    }
+                    break;
+                case QUERY:
+                    for (EntityRef entity : query) {
+                        if (entity.getComponent(LocationComponent.class) != null && entity.getComponent(HealthComponent.class) != null) {
+                            found++;
+                        }
+                    }
+                    break;
+                case ADD_REMOVE:
+                    for (EntityRef entity : entities) {
+                        HealthComponent health = entity.getComponent(HealthComponent.class);
+                        if (health != null) {
+                            entity.removeComponent(HealthComponent.class);
+                        } else {
+                            entity.addComponent(new HealthComponent());
+                        }
+                    }
+                    break;
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public void postrun(int index, BenchmarkResult result) {
+    }
+
+    @Override
+    public void finish(boolean aborted) {
+        entityManager = null;
+        entities = null;
+        query = null;
+    }
+}
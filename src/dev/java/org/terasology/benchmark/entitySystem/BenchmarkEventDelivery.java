@@ -0,0 +1,185 @@
+package org.terasology.benchmark.entitySystem;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.terasology.benchmark.BasicBenchmarkResult;
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.BenchmarkResult;
+import org.terasology.components.world.LocationComponent;
+import org.terasology.entitySystem.AbstractEvent;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.entitySystem.EventHandlerSystem;
+import org.terasology.entitySystem.ReceiveEvent;
+import org.terasology.entitySystem.event.ChangedComponentEvent;
+import org.terasology.entitySystem.metadata.ComponentLibraryImpl;
+import org.terasology.entitySystem.pojo.PojoEntityManager;
+import org.terasology.entitySystem.pojo.PojoEventSystem;
+import org.terasology.entitySystem.pojo.PojoPrefabManager;
+
+import com.google.common.collect.Lists;
+
+/**
+ * BenchmarkEventDelivery measures how the event system delivers the events of a tick, with or without deferred
+ * delivery.
+ * <p/>
+ * SAVE saves the location of every entity several times per tick, the way several systems moving the same
+ * entity would, and counts how often the handler of the changes is called. WORKERS sends events from several
+ * threads at once and measures how fast the main thread processes them.
+ */
+public class BenchmarkEventDelivery extends Benchmark {
+
+    public enum Operation {
+        SAVE,
+        WORKERS
+    }
+
+    private static final int SAVES_PER_TICK = 4;
+    private static final int WORKERS = 3;
+
+    private final Operation operation;
+    private final boolean deferred;
+    private final int entityCount;
+
+    private PojoEventSystem eventSystem;
+    private List<EntityRef> entities;
+    private ChangeHandler handler;
+    private int ticks;
+
+    public BenchmarkEventDelivery(Operation operation, boolean deferred, int entityCount) {
+        this.operation = operation;
+        this.deferred = deferred;
+        this.entityCount = entityCount;
+    }
+
+    @Override
+    public String getTitle() {
+        return "Event delivery " + operation + (deferred ? " deferred" : " immediate") + " for " + entityCount + " entities";
+    }
+
+    @Override
+    public int getWarmupRepetitions() {
+        return 10;
+    }
+
+    @Override
+    public int[] getRepetitions() {
+        return new int[] {10, 50};
+    }
+
+    @Override
+    public BenchmarkResult createResult() {
+        final BasicBenchmarkResult result = new BasicBenchmarkResult(this);
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Events per ms") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return String.format("%.0f", (double) sentPerTick() * owner.getRepetitions(rep) / Math.max(1, owner.getRunTime(rep)));
+            }
+        });
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Handler calls per tick") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return String.format("%.0f", (double) handler.received / Math.max(1, ticks));
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void setup() {
+        ComponentLibraryImpl library = new ComponentLibraryImpl();
+        PojoEntityManager entityManager = new PojoEntityManager(library, new PojoPrefabManager(library));
+        eventSystem = new PojoEventSystem(deferred);
+        entityManager.setEventSystem(eventSystem);
+        handler = new ChangeHandler();
+        eventSystem.registerEventHandler(handler);
+        entities = Lists.newArrayListWithCapacity(entityCount);
+        for (int i = 0; i < entityCount; i++) {
+            entities.add(entityManager.create(new LocationComponent()));
+        }
+    }
+
+    @Override
+    public void prerun(int index) {
+        handler.received = 0;
+        ticks = 0;
+    }
+
+    @Override
+    public int run(int index, int repetitions, BenchmarkResult result) {
+        for (int i = 0; i < repetitions; i++) {
+            if (operation == Operation.SAVE) {
+                for (int save = 0; save < SAVES_PER_TICK; save++) {
+                    for (EntityRef entity : entities) {
+                        entity.saveComponent(entity.getComponent(LocationComponent.class));
+                    }
+                }
+            } else {
+                sendFromWorkers();
+            }
+            eventSystem.process();
+            ticks++;
+        }
+        return handler.received;
+    }
+
+    private int sentPerTick() {
+        return entityCount * ((operation == Operation.SAVE) ? SAVES_PER_TICK : WORKERS);
+    }
+
+    private void sendFromWorkers() {
+        final CountDownLatch done = new CountDownLatch(WORKERS);
+        for (int i = 0; i < WORKERS; i++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    WorkerEvent event = new WorkerEvent();
+                    for (EntityRef entity : entities) {
+                        entity.send(event);
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+        // Process while the workers are sending, like the main thread would during a frame
+        while (done.getCount() > 0) {
+            eventSystem.process();
+        }
+    }
+
+    @Override
+    public void postrun(int index, BenchmarkResult result) {
+    }
+
+    @Override
+    public void finish(boolean aborted) {
+        eventSystem = null;
+        entities = null;
+    }
+
+    public static class WorkerEvent extends AbstractEvent {
+    }
+
+    public static class ChangeHandler implements EventHandlerSystem {
+
+        private int received;
+
+        @Override
+        public void initialise() {
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @ReceiveEvent(components = LocationComponent.class)
+        public void onChanged(ChangedComponentEvent event, EntityRef entity) {
+            received++;
+        }
+
+        @ReceiveEvent(components = LocationComponent.class)
+        public void onWorkerEvent(WorkerEvent event, EntityRef entity) {
+            received++;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package org.terasology.benchmark.entitySystem;
+
+import java.util.List;
+
+import org.terasology.benchmark.BasicBenchmarkResult;
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.BenchmarkResult;
+import org.terasology.components.HealthComponent;
+import org.terasology.components.InventoryComponent;
+import org.terasology.components.LightComponent;
+import org.terasology.components.world.LocationComponent;
+import org.terasology.entitySystem.AbstractEvent;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.entitySystem.EventHandlerSystem;
+import org.terasology.entitySystem.EventPriority;
+import org.terasology.entitySystem.ReceiveEvent;
+import org.terasology.entitySystem.metadata.ComponentLibraryImpl;
+import org.terasology.entitySystem.pojo.PojoEntityManager;
+import org.terasology.entitySystem.pojo.PojoEventSystem;
+import org.terasology.entitySystem.pojo.PojoPrefabManager;
+
+import com.google.common.collect.Lists;
+
+/**
+ * BenchmarkEventSystem measures how many events per millisecond the event system sends to entities with a
+ * location and health, using handlers of different priorities, a handler requiring two components and a
+ * handler for a component the entities do not have.
+ */
+public class BenchmarkEventSystem extends Benchmark {
+
+    private final int entityCount;
+
+    private PojoEventSystem eventSystem;
+    private List<EntityRef> entities;
+    private BenchmarkEventHandler handler;
+    private BenchmarkEvent event;
+
+    public BenchmarkEventSystem(int entityCount) {
+        this.entityCount = entityCount;
+    }
+
+    @Override
+    public String getTitle() {
+        return "Event system sending events to " + entityCount + " entities";
+    }
+
+    @Override
+    public int getWarmupRepetitions() {
+        return 20;
+    }
+
+    @Override
+    public int[] getRepetitions() {
+        return new int[] {10, 100};
+    }
+
+    @Override
+    public BenchmarkResult createResult() {
+        final BasicBenchmarkResult result = new BasicBenchmarkResult(this);
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Events per ms") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return String.format("%.0f", (double) entityCount * owner.getRepetitions(rep) / Math.max(1, owner.getRunTime(rep)));
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void setup() {
+        ComponentLibraryImpl library = new ComponentLibraryImpl();
+        PojoEntityManager entityManager = new PojoEntityManager(library, new PojoPrefabManager(library));
+        eventSystem = new PojoEventSystem();
+        handler = new BenchmarkEventHandler();
+        eventSystem.registerEventHandler(handler);
+        entities = Lists.newArrayListWithCapacity(entityCount);
+        for (int i = 0; i < entityCount; i++) {
+            EntityRef entity = entityManager.create(new LocationComponent());
+            entity.addComponent(new HealthComponent());
+            if (i % 2 == 0) {
+                entity.addComponent(new InventoryComponent());
+            }
+            entities.add(entity);
+        }
+        // Components are not changed by the benchmark, so the event system can be attached afterwards
+        entityManager.setEventSystem(eventSystem);
+        event = new BenchmarkEvent();
+    }
+
+    @Override
+    public void prerun(int index) {
+    }
+
+    @Override
+    public int run(int index, int repetitions, BenchmarkResult result) {
+        for (int i = 0; i < repetitions; i++) {
+            for (EntityRef entity : entities) {
+                eventSystem.send(entity, event);
+            }
+        }
+        return handler.received;
+    }
+
+    @Override
+    public void postrun(int index, BenchmarkResult result) {
+    }
+
+    @Override
+    public void finish(boolean aborted) {
+        eventSystem = null;
+        entities = null;
+        handler = null;
+    }
+
+    public static class BenchmarkEvent extends AbstractEvent {
+    }
+
+    public static class BenchmarkEventHandler implements EventHandlerSystem {
+
+        private int received;
+
+        @Override
+        public void initialise() {
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @ReceiveEvent(components = LocationComponent.class, priority = EventPriority.PRIORITY_HIGH)
+        public void onLocation(BenchmarkEvent event, EntityRef entity) {
+            received++;
+        }
+
+        @ReceiveEvent(components = HealthComponent.class)
+        public void onHealth(BenchmarkEvent event, EntityRef entity) {
+            received++;
+        }
+
+        @ReceiveEvent(components = {HealthComponent.class, InventoryComponent.class}, priority = EventPriority.PRIORITY_LOW)
+        public void onHealthAndInventory(BenchmarkEvent event, EntityRef entity) {
+            received++;
+        }
+
+        @ReceiveEvent(components = LightComponent.class)
+        public void onLight(BenchmarkEvent event, EntityRef entity) {
+            received++;
+        }
+    }
+}
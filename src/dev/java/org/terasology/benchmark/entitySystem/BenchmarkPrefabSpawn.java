@@ -0,0 +1,128 @@
+package org.terasology.benchmark.entitySystem;
+
+import java.util.List;
+
+import javax.vecmath.Vector3f;
+
+import org.terasology.benchmark.BasicBenchmarkResult;
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.BenchmarkResult;
+import org.terasology.components.utility.LifespanComponent;
+import org.terasology.components.world.LocationComponent;
+import org.terasology.entitySystem.EntityManager;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.entitySystem.Prefab;
+import org.terasology.entitySystem.PrefabManager;
+import org.terasology.game.bootstrap.EntitySystemBuilder;
+import org.terasology.logic.mod.ModManager;
+import org.terasology.physics.RigidBodyComponent;
+import org.terasology.rendering.logic.MeshComponent;
+import org.terasology.world.block.BlockPickupComponent;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+/**
+ * BenchmarkPrefabSpawn measures how many entities per millisecond can be spawned from a prefab resembling a
+ * dropped block, which inherits its physics from a parent prefab.
+ * <p/>
+ * Each repetition spawns a batch of entities at different positions, either one by one or all at once.
+ */
+public class BenchmarkPrefabSpawn extends Benchmark {
+
+    public enum Operation {
+        CREATE,
+        CREATE_MANY
+    }
+
+    private final Operation operation;
+    private final int batchSize;
+
+    private EntityManager entityManager;
+    private Prefab prefab;
+    private List<Vector3f> positions;
+
+    public BenchmarkPrefabSpawn(Operation operation, int batchSize) {
+        this.operation = Preconditions.checkNotNull(operation);
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public String getTitle() {
+        return "Prefab spawn " + operation + " (" + batchSize + " entities per batch)";
+    }
+
+    @Override
+    public int getWarmupRepetitions() {
+        return 50;
+    }
+
+    @Override
+    public int[] getRepetitions() {
+        return new int[] {10, 50, 100};
+    }
+
+    @Override
+    public BenchmarkResult createResult() {
+        final BasicBenchmarkResult result = new BasicBenchmarkResult(this);
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Entities per ms") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return String.format("%.0f", (double) batchSize * owner.getRepetitions(rep) / Math.max(1, owner.getRunTime(rep)));
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void setup() {
+        entityManager = new EntitySystemBuilder().build(new ModManager());
+        PrefabManager prefabManager = entityManager.getPrefabManager();
+        Prefab physics = prefabManager.createPrefab("benchmark:physics");
+        physics.setComponent(new LocationComponent());
+        physics.setComponent(new RigidBodyComponent());
+        physics.setComponent(new LifespanComponent());
+        prefab = prefabManager.createPrefab("benchmark:droppedBlock");
+        prefab.addParent(physics);
+        prefab.setComponent(new MeshComponent());
+        prefab.setComponent(new BlockPickupComponent());
+        positions = Lists.newArrayListWithCapacity(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            positions.add(new Vector3f(i % 16, i / 256, (i / 16) % 16));
+        }
+    }
+
+    @Override
+    public void prerun(int index) {
+    }
+
+    @Override
+    public int run(int index, int repetitions, BenchmarkResult result) {
+        int created = 0;
+        for (int i = 0; i < repetitions; i++) {
+            if (operation == Operation.CREATE) {
+                for (Vector3f position : positions) {
+                    entityManager.create(prefab, position);
+                }
+            } else {
+                entityManager.createMany(prefab, positions);
+            }
+            created += batchSize;
+        }
+        return created;
+    }
+
+    @Override
+    public void postrun(int index, BenchmarkResult result) {
+        for (EntityRef entity : Lists.newArrayList(entityManager.iteratorEntities())) {
+            entity.destroy();
+        }
+    }
+
+    @Override
+    public void finish(boolean aborted) {
+        entityManager = null;
+        prefab = null;
+        positions = null;
+    }
+}
@@ -0,0 +1,179 @@
+package org.terasology.benchmark.entitySystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+import javax.vecmath.Vector3f;
+
+import org.terasology.benchmark.BasicBenchmarkResult;
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.BenchmarkResult;
+import org.terasology.components.HealthComponent;
+import org.terasology.components.SimpleAIComponent;
+import org.terasology.components.world.LocationComponent;
+import org.terasology.entitySystem.PersistableEntityManager;
+import org.terasology.entitySystem.persistence.WorldPersister;
+import org.terasology.game.CoreRegistry;
+import org.terasology.game.bootstrap.EntitySystemBuilder;
+import org.terasology.logic.mod.ModManager;
+import org.terasology.physics.CollisionGroupManager;
+import org.terasology.physics.character.CharacterMovementComponent;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+
+/**
+ * BenchmarkWorldPersister measures how long saving or loading a world file of mob entities takes, and how far
+ * the heap grows above the live entities while doing so.
+ * <p/>
+ * Each repetition saves or loads the whole file once.
+ */
+public class BenchmarkWorldPersister extends Benchmark {
+
+    public enum Operation {
+        /* Saves all entities to a file */
+        SAVE,
+        /* Clears the entity manager and loads all entities from a file */
+        LOAD
+    }
+
+    private final WorldPersister.SaveFormat format;
+    private final Operation operation;
+    private final int entityCount;
+
+    private PersistableEntityManager entityManager;
+    private WorldPersister persister;
+    private File file;
+    private long fileLength;
+    private long heapBefore;
+    private long[] peakHeap;
+
+    public BenchmarkWorldPersister(WorldPersister.SaveFormat format, Operation operation, int entityCount) {
+        this.format = Preconditions.checkNotNull(format);
+        this.operation = Preconditions.checkNotNull(operation);
+        this.entityCount = entityCount;
+    }
+
+    @Override
+    public String getTitle() {
+        return "World persister " + format + " " + operation + " (" + entityCount + " entities)";
+    }
+
+    @Override
+    public int getWarmupRepetitions() {
+        return 1;
+    }
+
+    @Override
+    public int[] getRepetitions() {
+        return new int[] {1, 3};
+    }
+
+    @Override
+    public BenchmarkResult createResult() {
+        final BasicBenchmarkResult result = new BasicBenchmarkResult(this);
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Entities per ms") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return String.format("%.0f", (double) entityCount * owner.getRepetitions(rep) / Math.max(1, owner.getRunTime(rep)));
+            }
+        });
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Peak heap growth MB") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return String.format("%.1f", peakHeap[rep] / (1024.0 * 1024.0));
+            }
+        });
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "File KB") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return String.valueOf(fileLength / 1024);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void setup() {
+        CoreRegistry.put(CollisionGroupManager.class, new CollisionGroupManager());
+        entityManager = new EntitySystemBuilder().build(new ModManager());
+        persister = new WorldPersister(entityManager);
+        peakHeap = new long[getRepetitions().length];
+        for (int i = 0; i < entityCount; i++) {
+            HealthComponent health = new HealthComponent();
+            health.currentHealth = i % health.maxHealth;
+            SimpleAIComponent ai = new SimpleAIComponent();
+            ai.movementTarget.set(i, 0, -i);
+            entityManager.create(new LocationComponent(new Vector3f(i, 64, -i)), health, ai, new CharacterMovementComponent());
+        }
+        try {
+            file = File.createTempFile("benchmark-world", "." + format.name().toLowerCase());
+            file.deleteOnExit();
+            persister.save(file, format);
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    @Override
+    public void prerun(int index) {
+        System.gc();
+        heapBefore = usedHeap();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    @Override
+    public int run(int index, int repetitions, BenchmarkResult result) {
+        int count = 0;
+        try {
+            for (int i = 0; i < repetitions; i++) {
+                switch (operation) {
+                    case SAVE:
+                        persister.save(file, format);
+                        break;
+                    case LOAD:
+                        entityManager.clear();
+                        persister.load(file, format);
+                        break;
+                }
+                count += entityManager.getActiveEntities();
+            }
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+        return count;
+    }
+
+    @Override
+    public void postrun(int index, BenchmarkResult result) {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        peakHeap[index] = Math.max(0, peak - heapBefore);
+        fileLength = file.length();
+    }
+
+    @Override
+    public void finish(boolean aborted) {
+        if (file != null) {
+            file.delete();
+        }
+        entityManager = null;
+        persister = null;
+        file = null;
+    }
+
+    private static long usedHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
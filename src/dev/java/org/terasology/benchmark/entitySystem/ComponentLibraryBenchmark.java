@@ -0,0 +1,27 @@
+package org.terasology.benchmark.entitySystem;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.Benchmarks;
+import org.terasology.benchmark.PrintToConsoleCallback;
+
+/**
+ * ComponentLibraryBenchmark measures prefab spawn rate and world save and load time.
+ */
+public final class ComponentLibraryBenchmark {
+
+    private static final int ENTITIES = 10000;
+
+    private ComponentLibraryBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        final List<Benchmark> benchmarks = new LinkedList<Benchmark>();
+        for (BenchmarkComponentLibrary.Operation operation : BenchmarkComponentLibrary.Operation.values()) {
+            benchmarks.add(new BenchmarkComponentLibrary(operation, ENTITIES));
+        }
+        Benchmarks.execute(benchmarks, new PrintToConsoleCallback());
+    }
+}
@@ -0,0 +1,28 @@
+package org.terasology.benchmark.entitySystem;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.Benchmarks;
+import org.terasology.benchmark.PrintToConsoleCallback;
+
+/**
+ * EntityLifecycleBenchmark measures the garbage collection and allocation cost of creating, destroying and
+ * referencing entities.
+ */
+public final class EntityLifecycleBenchmark {
+
+    private static final int ENTITIES = 50000;
+
+    private EntityLifecycleBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        final List<Benchmark> benchmarks = new LinkedList<Benchmark>();
+        for (BenchmarkEntityLifecycle.Operation operation : BenchmarkEntityLifecycle.Operation.values()) {
+            benchmarks.add(new BenchmarkEntityLifecycle(operation, ENTITIES));
+        }
+        Benchmarks.execute(benchmarks, new PrintToConsoleCallback());
+    }
+}
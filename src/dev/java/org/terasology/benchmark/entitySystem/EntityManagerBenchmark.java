@@ -0,0 +1,29 @@
+package org.terasology.benchmark.entitySystem;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.Benchmarks;
+import org.terasology.benchmark.PrintToConsoleCallback;
+
+/**
+ * EntityManagerBenchmark compares the entity manager with archetype storage to the entity manager storing
+ * components in a component table.
+ */
+public final class EntityManagerBenchmark {
+
+    private static final int ENTITIES = 50000;
+
+    private EntityManagerBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        final List<Benchmark> benchmarks = new LinkedList<Benchmark>();
+        for (BenchmarkEntityManager.Operation operation : BenchmarkEntityManager.Operation.values()) {
+            benchmarks.add(new BenchmarkEntityManager(true, operation, ENTITIES));
+            benchmarks.add(new BenchmarkEntityManager(false, operation, ENTITIES));
+        }
+        Benchmarks.execute(benchmarks, new PrintToConsoleCallback());
+    }
+}
@@ -0,0 +1,28 @@
+package org.terasology.benchmark.entitySystem;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.Benchmarks;
+import org.terasology.benchmark.PrintToConsoleCallback;
+
+/**
+ * EventSystemBenchmark measures the throughput of sending events through the event system, and compares
+ * immediate with deferred delivery of component changes and of events sent by other threads.
+ */
+public final class EventSystemBenchmark {
+
+    private EventSystemBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        final List<Benchmark> benchmarks = new LinkedList<Benchmark>();
+        benchmarks.add(new BenchmarkEventSystem(10000));
+        for (BenchmarkEventDelivery.Operation operation : BenchmarkEventDelivery.Operation.values()) {
+            benchmarks.add(new BenchmarkEventDelivery(operation, false, 10000));
+            benchmarks.add(new BenchmarkEventDelivery(operation, true, 10000));
+        }
+        Benchmarks.execute(benchmarks, new PrintToConsoleCallback());
+    }
+}
@@ -0,0 +1,25 @@
+package org.terasology.benchmark.entitySystem;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.Benchmarks;
+import org.terasology.benchmark.PrintToConsoleCallback;
+
+/**
+ * PrefabSpawnBenchmark measures the rate at which entities are spawned from prefabs, one by one and in batches.
+ */
+public final class PrefabSpawnBenchmark {
+
+    private PrefabSpawnBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        final List<Benchmark> benchmarks = new LinkedList<Benchmark>();
+        for (BenchmarkPrefabSpawn.Operation operation : BenchmarkPrefabSpawn.Operation.values()) {
+            benchmarks.add(new BenchmarkPrefabSpawn(operation, 1000));
+        }
+        Benchmarks.execute(benchmarks, new PrintToConsoleCallback());
+    }
+}
@@ -0,0 +1,30 @@
+package org.terasology.benchmark.entitySystem;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.Benchmarks;
+import org.terasology.benchmark.PrintToConsoleCallback;
+import org.terasology.entitySystem.persistence.WorldPersister;
+
+/**
+ * WorldPersisterBenchmark measures world file save and load time and heap growth for the binary and JSON formats.
+ */
+public final class WorldPersisterBenchmark {
+
+    private static final int ENTITIES = 100000;
+
+    private WorldPersisterBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        final List<Benchmark> benchmarks = new LinkedList<Benchmark>();
+        for (WorldPersister.SaveFormat format : new WorldPersister.SaveFormat[] {WorldPersister.SaveFormat.Binary, WorldPersister.SaveFormat.JSON}) {
+            for (BenchmarkWorldPersister.Operation operation : BenchmarkWorldPersister.Operation.values()) {
+                benchmarks.add(new BenchmarkWorldPersister(format, operation, ENTITIES));
+            }
+        }
+        Benchmarks.execute(benchmarks, new PrintToConsoleCallback());
+    }
+}
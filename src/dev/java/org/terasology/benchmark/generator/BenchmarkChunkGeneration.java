@@ -0,0 +1,89 @@
+package org.terasology.benchmark.generator;
+
+import org.terasology.benchmark.BasicBenchmarkResult;
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.BenchmarkResult;
+import org.terasology.math.Vector3i;
+import org.terasology.world.chunks.Chunk;
+import org.terasology.world.generator.core.ChunkGeneratorManager;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * BenchmarkChunkGeneration measures the throughput of the first generation pass of a {@link ChunkGeneratorManager}.
+ * Every chunk is generated at a new position, so cached biome data of earlier chunks only helps as much as it does
+ * for neighbouring chunks in the game.
+ */
+public class BenchmarkChunkGeneration extends Benchmark {
+
+    private static final int ROW_LENGTH = 64;
+
+    private final String title;
+    private final ChunkGeneratorManager generator;
+    private int next;
+
+    public BenchmarkChunkGeneration(String title, ChunkGeneratorManager generator) {
+        this.title = Preconditions.checkNotNull(title);
+        this.generator = Preconditions.checkNotNull(generator);
+    }
+
+    @Override
+    public String getTitle() {
+        return "Chunk generation: " + title;
+    }
+
+    @Override
+    public int getWarmupRepetitions() {
+        return 20;
+    }
+
+    @Override
+    public int[] getRepetitions() {
+        return new int[] {50, 200};
+    }
+
+    @Override
+    public BenchmarkResult createResult() {
+        final BasicBenchmarkResult result = new BasicBenchmarkResult(this);
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Milliseconds per chunk") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return String.format("%.2f", (double) owner.getRunTime(rep) / owner.getRepetitions(rep));
+            }
+        });
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Chunks per second") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return String.format("%.1f", 1000.0 * owner.getRepetitions(rep) / Math.max(1, owner.getRunTime(rep)));
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void setup() {
+        next = 0;
+    }
+
+    @Override
+    public void prerun(int index) {
+    }
+
+    @Override
+    public int run(int index, int repetitions, BenchmarkResult result) {
+        int tmp = 0;
+        for (int i = 0; i < repetitions; i++) {
+            tmp += generator.generateChunk(new Vector3i(next % ROW_LENGTH, 0, next / ROW_LENGTH)).getBlock(0, Chunk.SIZE_Y / 4, 0).getId();
+            next++;
+        }
+        return tmp;
+    }
+
+    @Override
+    public void postrun(int index, BenchmarkResult result) {
+    }
+
+    @Override
+    public void finish(boolean aborted) {
+    }
+}
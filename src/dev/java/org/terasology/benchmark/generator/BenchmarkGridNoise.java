@@ -0,0 +1,102 @@
+package org.terasology.benchmark.generator;
+
+import org.terasology.benchmark.BasicBenchmarkResult;
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.BenchmarkResult;
+import org.terasology.utilities.GridNoise;
+import org.terasology.utilities.Noise;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * BenchmarkGridNoise compares evaluating the Fractional Brownian Motion of a noise for a grid of the size of the
+ * cave density of a chunk through {@link GridNoise} with calling {@link Noise#fBm(double, double, double)} for every
+ * sample.
+ */
+public class BenchmarkGridNoise extends Benchmark {
+
+    private static final double SCALE = 0.02;
+
+    private final Noise noise;
+    private final boolean grid;
+    private final GridNoise.Axis axisX;
+    private final GridNoise.Axis axisY;
+    private final GridNoise.Axis axisZ;
+
+    private GridNoise gridNoise;
+    private double[] values;
+
+    public BenchmarkGridNoise(Noise noise, boolean grid, int sizeX, int sizeY, int sizeZ) {
+        this.noise = Preconditions.checkNotNull(noise);
+        this.grid = grid;
+        this.axisX = new GridNoise.Axis(0, 1, sizeX, SCALE);
+        this.axisY = new GridNoise.Axis(0, 1, sizeY, SCALE);
+        this.axisZ = new GridNoise.Axis(0, 1, sizeZ, SCALE);
+    }
+
+    @Override
+    public String getTitle() {
+        return (grid ? "Grid" : "Per sample") + " fBm of " + noise.getClass().getSimpleName() + " for " + axisX.getSize() + "x" + axisY.getSize() + "x" + axisZ.getSize() + " samples";
+    }
+
+    @Override
+    public int getWarmupRepetitions() {
+        return 20;
+    }
+
+    @Override
+    public int[] getRepetitions() {
+        return new int[] {20, 100};
+    }
+
+    @Override
+    public BenchmarkResult createResult() {
+        final BasicBenchmarkResult result = new BasicBenchmarkResult(this);
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Nanoseconds per sample") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return String.format("%.1f", 1000000.0 * owner.getRunTime(rep) / owner.getRepetitions(rep) / values.length);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void setup() {
+        gridNoise = new GridNoise(noise);
+        values = new double[axisX.getSize() * axisY.getSize() * axisZ.getSize()];
+    }
+
+    @Override
+    public void prerun(int index) {
+    }
+
+    @Override
+    public int run(int index, int repetitions, BenchmarkResult result) {
+        double tmp = 0;
+        for (int i = 0; i < repetitions; i++) {
+            if (grid) {
+                gridNoise.fBm(values, axisX, axisY, axisZ);
+            } else {
+                int sample = 0;
+                for (int x = 0; x < axisX.getSize(); x++) {
+                    for (int y = 0; y < axisY.getSize(); y++) {
+                        for (int z = 0; z < axisZ.getSize(); z++) {
+                            values[sample++] = noise.fBm(axisX.get(x), axisY.get(y), axisZ.get(z));
+                        }
+                    }
+                }
+            }
+            tmp += values[i % values.length];
+        }
+        return (int) tmp;
+    }
+
+    @Override
+    public void postrun(int index, BenchmarkResult result) {
+    }
+
+    @Override
+    public void finish(boolean aborted) {
+    }
+}
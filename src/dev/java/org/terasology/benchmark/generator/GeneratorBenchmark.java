@@ -0,0 +1,94 @@
+package org.terasology.benchmark.generator;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.terasology.asset.AssetManager;
+import org.terasology.asset.AssetType;
+import org.terasology.asset.sources.ClasspathSource;
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.Benchmarks;
+import org.terasology.benchmark.PrintToConsoleCallback;
+import org.terasology.config.Config;
+import org.terasology.game.CoreRegistry;
+import org.terasology.logic.mod.ModManager;
+import org.terasology.utilities.PerlinNoise;
+import org.terasology.utilities.SimplexNoise;
+import org.terasology.world.WorldBiomeProviderImpl;
+import org.terasology.world.block.Block;
+import org.terasology.world.block.family.BlockFamily;
+import org.terasology.world.block.loader.BlockLoader;
+import org.terasology.world.block.management.BlockManager;
+import org.terasology.world.chunks.Chunk;
+import org.terasology.world.generator.ChunkGenerator;
+import org.terasology.world.generator.core.ChunkGenerationStatistics;
+import org.terasology.world.generator.core.ChunkGeneratorManagerImpl;
+import org.terasology.world.generator.core.MultiTerrainGenerator;
+import org.terasology.world.generator.core.PerlinTerrainGenerator;
+
+/**
+ * GeneratorBenchmark measures the chunk generation throughput of the terrain generators and of the default set of
+ * generators, with and without splitting single chunks into subtasks, and compares grid evaluation of noise with
+ * evaluating it sample by sample. The time spent in each generator of the default set is printed at the end.
+ */
+public final class GeneratorBenchmark {
+
+    private static final String SEED = "rAtAiWyKgDlEeFjKiSsPzKaOuKhRrWqV";
+    private static final int CAVE_HEIGHT = 128;
+
+    private GeneratorBenchmark() {}
+
+    private static ChunkGeneratorManagerImpl createManager(ChunkGenerator generator) {
+        final ChunkGeneratorManagerImpl manager = new ChunkGeneratorManagerImpl();
+        manager.registerChunkGenerator(generator);
+        return initialise(manager);
+    }
+
+    private static ChunkGeneratorManagerImpl initialise(ChunkGeneratorManagerImpl manager) {
+        manager.setWorldSeed(SEED);
+        manager.setWorldBiomeProvider(new WorldBiomeProviderImpl(SEED));
+        return manager;
+    }
+
+    public static void main(String[] args) {
+        CoreRegistry.put(Config.class, new Config());
+        CoreRegistry.put(ModManager.class, new ModManager());
+        AssetType.registerAssetTypes();
+        AssetManager.getInstance().addAssetSource(new ClasspathSource(ModManager.ENGINE_PACKAGE, Block.class.getProtectionDomain().getCodeSource(), ModManager.ASSETS_SUBDIRECTORY, ModManager.OVERRIDES_SUBDIRECTORY));
+        final BlockLoader.LoadBlockDefinitionResults blockDefinitions = new BlockLoader().loadBlockDefinitions();
+        for (BlockFamily family : blockDefinitions.families) {
+            BlockManager.getInstance().addBlockFamily(family);
+        }
+        for (BlockLoader.ShapelessFamily family : blockDefinitions.shapelessDefinitions) {
+            BlockManager.getInstance().addShapelessBlockFamily(family.uri, family.categories);
+        }
+
+        final List<Benchmark> benchmarks = new LinkedList<Benchmark>();
+
+        benchmarks.add(new BenchmarkGridNoise(new PerlinNoise(SEED.hashCode()), false, Chunk.SIZE_X, CAVE_HEIGHT, Chunk.SIZE_Z));
+        benchmarks.add(new BenchmarkGridNoise(new PerlinNoise(SEED.hashCode()), true, Chunk.SIZE_X, CAVE_HEIGHT, Chunk.SIZE_Z));
+        benchmarks.add(new BenchmarkGridNoise(new SimplexNoise(SEED.hashCode()), false, Chunk.SIZE_X, CAVE_HEIGHT, Chunk.SIZE_Z));
+
+        benchmarks.add(new BenchmarkChunkGeneration("PerlinTerrainGenerator", createManager(new PerlinTerrainGenerator())));
+        benchmarks.add(new BenchmarkChunkGeneration("MultiTerrainGenerator", createManager(new MultiTerrainGenerator())));
+        final ChunkGeneratorManagerImpl defaultManager = initialise(ChunkGeneratorManagerImpl.getDefaultInstance());
+        benchmarks.add(new BenchmarkChunkGeneration("default generators", defaultManager));
+
+        final ExecutorService executor = ChunkGeneratorManagerImpl.createSubtaskExecutor(Runtime.getRuntime().availableProcessors());
+        final ChunkGeneratorManagerImpl parallelPerlin = createManager(new PerlinTerrainGenerator());
+        parallelPerlin.setSubtaskExecutor(executor);
+        benchmarks.add(new BenchmarkChunkGeneration("PerlinTerrainGenerator with subtasks", parallelPerlin));
+        final ChunkGeneratorManagerImpl parallelMulti = createManager(new MultiTerrainGenerator());
+        parallelMulti.setSubtaskExecutor(executor);
+        benchmarks.add(new BenchmarkChunkGeneration("MultiTerrainGenerator with subtasks", parallelMulti));
+
+        Benchmarks.execute(benchmarks, new PrintToConsoleCallback());
+
+        final ChunkGenerationStatistics statistics = defaultManager.getStatistics();
+        System.out.println("Time per chunk of the default generators:");
+        for (String stage : statistics.getStageNames()) {
+            System.out.println(String.format("  %-24s %8.3f ms", stage, statistics.getAverageMillis(stage)));
+        }
+    }
+}
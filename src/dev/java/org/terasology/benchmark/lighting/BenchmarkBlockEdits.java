@@ -0,0 +1,127 @@
+package org.terasology.benchmark.lighting;
+
+import java.util.List;
+
+import org.terasology.benchmark.BasicBenchmarkResult;
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.BenchmarkResult;
+import org.terasology.math.Region3i;
+import org.terasology.math.Vector3i;
+import org.terasology.world.BlockUpdate;
+import org.terasology.world.WorldProviderCore;
+import org.terasology.world.block.Block;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+/**
+ * BenchmarkBlockEdits measures large block edits, like explosions, through a {@link WorldProviderCore}: either as a
+ * single batch passed to {@code setBlocks}, or one block at a time through {@code setBlock}.
+ * <p/>
+ * Each repetition fills the whole region with the block and then restores the original blocks, so every repetition
+ * starts from the same world. Blocks of the region which already are of the given type are left out of the edits.
+ */
+public class BenchmarkBlockEdits extends Benchmark {
+
+    private final WorldProviderCore world;
+    private final Region3i region;
+    private final Block block;
+    private final boolean batched;
+
+    private List<BlockUpdate> edit;
+    private List<BlockUpdate> restore;
+
+    public BenchmarkBlockEdits(WorldProviderCore world, Region3i region, Block block, boolean batched) {
+        this.world = Preconditions.checkNotNull(world);
+        this.region = Preconditions.checkNotNull(region);
+        this.block = Preconditions.checkNotNull(block);
+        this.batched = batched;
+    }
+
+    @Override
+    public String getTitle() {
+        final Vector3i size = region.size();
+        return (batched ? "Batched" : "Single") + " edits of a " + size.x + "x" + size.y + "x" + size.z + " region to " + block.getURI();
+    }
+
+    @Override
+    public int getWarmupRepetitions() {
+        return 5;
+    }
+
+    @Override
+    public int[] getRepetitions() {
+        return new int[] {5, 20};
+    }
+
+    @Override
+    public BenchmarkResult createResult() {
+        final BasicBenchmarkResult result = new BasicBenchmarkResult(this);
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Changed blocks per edit") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return String.valueOf(edit.size());
+            }
+        });
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Milliseconds per edit") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return String.format("%.2f", (double) owner.getRunTime(rep) / owner.getRepetitions(rep) / 2);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void setup() {
+        edit = Lists.newArrayList();
+        restore = Lists.newArrayList();
+        for (Vector3i pos : region) {
+            final Block original = world.getBlock(pos.x, pos.y, pos.z);
+            if (original == block) {
+                continue;
+            }
+            edit.add(new BlockUpdate(pos, block, original));
+            restore.add(new BlockUpdate(pos, original, block));
+        }
+    }
+
+    @Override
+    public void prerun(int index) {
+    }
+
+    @Override
+    public int run(int index, int repetitions, BenchmarkResult result) {
+        int failed = 0;
+        for (int i = 0; i < repetitions; i++) {
+            failed += apply(edit);
+            failed += apply(restore);
+        }
+        if (failed > 0) {
+            throw new IllegalStateException(failed + " block edits failed");
+        }
+        return failed;
+    }
+
+    private int apply(List<BlockUpdate> updates) {
+        if (batched) {
+            return world.setBlocks(updates) ? 0 : updates.size();
+        }
+        int failed = 0;
+        for (BlockUpdate update : updates) {
+            final Vector3i pos = update.getPosition();
+            if (!world.setBlock(pos.x, pos.y, pos.z, update.getNewType(), update.getOldType())) {
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    @Override
+    public void postrun(int index, BenchmarkResult result) {
+    }
+
+    @Override
+    public void finish(boolean aborted) {
+    }
+}
@@ -0,0 +1,101 @@
+package org.terasology.benchmark.lighting;
+
+import org.terasology.benchmark.BasicBenchmarkResult;
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.BenchmarkResult;
+import org.terasology.math.Vector3i;
+import org.terasology.world.WorldView;
+import org.terasology.world.block.Block;
+import org.terasology.world.lighting.LightPropagator;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * BenchmarkBlockRelighting measures relighting the world after single block changes, the way
+ * {@code WorldProviderCoreImpl.setBlock} does it.
+ * <p/>
+ * Each repetition places the block at every given position and then restores the original blocks, relighting after
+ * every change, so every repetition starts from the same lighting.
+ */
+public class BenchmarkBlockRelighting extends Benchmark {
+
+    private final String title;
+    private final WorldView view;
+    private final Vector3i[] positions;
+    private final Block block;
+
+    private Block[] originals;
+
+    public BenchmarkBlockRelighting(String title, WorldView view, Vector3i[] positions, Block block) {
+        this.title = Preconditions.checkNotNull(title);
+        this.view = Preconditions.checkNotNull(view);
+        this.positions = positions;
+        this.block = Preconditions.checkNotNull(block);
+    }
+
+    @Override
+    public String getTitle() {
+        return title + " (" + positions.length + " positions)";
+    }
+
+    @Override
+    public int getWarmupRepetitions() {
+        return 20;
+    }
+
+    @Override
+    public int[] getRepetitions() {
+        return new int[] {20, 50};
+    }
+
+    @Override
+    public BenchmarkResult createResult() {
+        final BasicBenchmarkResult result = new BasicBenchmarkResult(this);
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Microseconds per change") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return String.format("%.1f", 1000d * owner.getRunTime(rep) / owner.getRepetitions(rep) / (2 * positions.length));
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void setup() {
+        originals = new Block[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            originals[i] = view.getBlock(positions[i]);
+        }
+    }
+
+    @Override
+    public void prerun(int index) {
+    }
+
+    @Override
+    public int run(int index, int repetitions, BenchmarkResult result) {
+        int affected = 0;
+        for (int i = 0; i < repetitions; i++) {
+            for (int p = 0; p < positions.length; p++) {
+                affected += change(positions[p], block, originals[p]);
+            }
+            for (int p = positions.length - 1; p >= 0; p--) {
+                affected += change(positions[p], originals[p], block);
+            }
+        }
+        return affected;
+    }
+
+    private int change(Vector3i pos, Block type, Block oldType) {
+        view.setBlock(pos, type, oldType);
+        return new LightPropagator(view).update(pos, type, oldType).size().x;
+    }
+
+    @Override
+    public void postrun(int index, BenchmarkResult result) {
+    }
+
+    @Override
+    public void finish(boolean aborted) {
+    }
+}
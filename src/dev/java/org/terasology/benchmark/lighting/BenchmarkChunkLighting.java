@@ -0,0 +1,80 @@
+package org.terasology.benchmark.lighting;
+
+import org.terasology.benchmark.BasicBenchmarkResult;
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.BenchmarkResult;
+import org.terasology.world.chunks.Chunk;
+import org.terasology.world.lighting.InternalLightProcessor;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * BenchmarkChunkLighting measures the internal lighting of whole chunks, as done once for every generated chunk.
+ * <p/>
+ * Each repetition lights fresh copies of all given unlit chunks, copying the chunks is part of the measured time.
+ */
+public class BenchmarkChunkLighting extends Benchmark {
+
+    private final Chunk[] unlitChunks;
+
+    public BenchmarkChunkLighting(Chunk[] unlitChunks) {
+        Preconditions.checkArgument(unlitChunks.length > 0, "At least one chunk is needed");
+        this.unlitChunks = unlitChunks;
+    }
+
+    @Override
+    public String getTitle() {
+        return "Internal chunk lighting (" + unlitChunks.length + " chunks)";
+    }
+
+    @Override
+    public int getWarmupRepetitions() {
+        return 20;
+    }
+
+    @Override
+    public int[] getRepetitions() {
+        return new int[] {20, 50};
+    }
+
+    @Override
+    public BenchmarkResult createResult() {
+        final BasicBenchmarkResult result = new BasicBenchmarkResult(this);
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Milliseconds per chunk") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return String.format("%.3f", (double) owner.getRunTime(rep) / owner.getRepetitions(rep) / unlitChunks.length);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void setup() {
+    }
+
+    @Override
+    public void prerun(int index) {
+    }
+
+    @Override
+    public int run(int index, int repetitions, BenchmarkResult result) {
+        int lit = 0;
+        for (int i = 0; i < repetitions; i++) {
+            for (Chunk unlit : unlitChunks) {
+                final Chunk chunk = new Chunk(unlit);
+                InternalLightProcessor.generateInternalLighting(chunk);
+                lit += chunk.getSunlight(0, 0, 0);
+            }
+        }
+        return lit;
+    }
+
+    @Override
+    public void postrun(int index, BenchmarkResult result) {
+    }
+
+    @Override
+    public void finish(boolean aborted) {
+    }
+}
@@ -0,0 +1,196 @@
+package org.terasology.benchmark.lighting;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import org.terasology.asset.AssetManager;
+import org.terasology.asset.AssetType;
+import org.terasology.asset.sources.ClasspathSource;
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.Benchmarks;
+import org.terasology.benchmark.PrintToConsoleCallback;
+import org.terasology.config.Config;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.game.CoreRegistry;
+import org.terasology.game.Timer;
+import org.terasology.logic.mod.ModManager;
+import org.terasology.math.Region3i;
+import org.terasology.math.Vector3i;
+import org.terasology.world.WorldBiomeProviderImpl;
+import org.terasology.world.WorldProviderCore;
+import org.terasology.world.WorldProviderCoreImpl;
+import org.terasology.world.WorldView;
+import org.terasology.world.block.Block;
+import org.terasology.world.block.family.BlockFamily;
+import org.terasology.world.block.loader.BlockLoader;
+import org.terasology.world.block.management.BlockManager;
+import org.terasology.world.chunks.Chunk;
+import org.terasology.world.chunks.ChunkProvider;
+import org.terasology.world.generator.core.ChunkGeneratorManagerImpl;
+import org.terasology.world.lighting.InternalLightProcessor;
+import org.terasology.world.lighting.LightPropagator;
+
+/**
+ * LightingBenchmark measures the internal lighting of generated chunks and the relighting after single block
+ * changes on generated terrain: blocking the sunlight above the surface, and placing torches. It also compares large
+ * block edits applied as one batch with the same edits applied one block at a time.
+ */
+public final class LightingBenchmark {
+
+    private static final String SEED = "rAtAiWyKgDlEeFjKiSsPzKaOuKhRrWqV";
+    private static final int CHUNKS_PER_AXIS = 5;
+    private static final int CHANGED_POSITIONS = 50;
+
+    private LightingBenchmark() {}
+
+    public static void main(String[] args) {
+        CoreRegistry.put(Config.class, new Config());
+        CoreRegistry.put(ModManager.class, new ModManager());
+        AssetType.registerAssetTypes();
+        AssetManager.getInstance().addAssetSource(new ClasspathSource(ModManager.ENGINE_PACKAGE, Block.class.getProtectionDomain().getCodeSource(), ModManager.ASSETS_SUBDIRECTORY, ModManager.OVERRIDES_SUBDIRECTORY));
+        final BlockLoader.LoadBlockDefinitionResults blockDefinitions = new BlockLoader().loadBlockDefinitions();
+        for (BlockFamily family : blockDefinitions.families) {
+            BlockManager.getInstance().addBlockFamily(family);
+        }
+        for (BlockLoader.ShapelessFamily family : blockDefinitions.shapelessDefinitions) {
+            BlockManager.getInstance().addShapelessBlockFamily(family.uri, family.categories);
+        }
+
+        final ChunkGeneratorManagerImpl generator = ChunkGeneratorManagerImpl.getDefaultInstance();
+        generator.setWorldSeed(SEED);
+        generator.setWorldBiomeProvider(new WorldBiomeProviderImpl(SEED));
+
+        final Chunk[][] chunks = new Chunk[CHUNKS_PER_AXIS][CHUNKS_PER_AXIS];
+        final Chunk[] unlit = new Chunk[CHUNKS_PER_AXIS * CHUNKS_PER_AXIS];
+        for (int x = 0; x < CHUNKS_PER_AXIS; x++) {
+            for (int z = 0; z < CHUNKS_PER_AXIS; z++) {
+                chunks[x][z] = generator.generateChunk(new Vector3i(x, 0, z));
+            }
+        }
+        for (int x = 1; x < CHUNKS_PER_AXIS - 1; x++) {
+            for (int z = 1; z < CHUNKS_PER_AXIS - 1; z++) {
+                generator.secondPassChunk(new Vector3i(x, 0, z), createLocalView(chunks, x, z));
+            }
+        }
+        for (int x = 0; x < CHUNKS_PER_AXIS; x++) {
+            for (int z = 0; z < CHUNKS_PER_AXIS; z++) {
+                unlit[x * CHUNKS_PER_AXIS + z] = new Chunk(chunks[x][z]);
+                InternalLightProcessor.generateInternalLighting(chunks[x][z]);
+            }
+        }
+        for (int x = 1; x < CHUNKS_PER_AXIS - 1; x++) {
+            for (int z = 1; z < CHUNKS_PER_AXIS - 1; z++) {
+                new LightPropagator(createLocalView(chunks, x, z)).propagateOutOfTargetChunk();
+            }
+        }
+
+        // Changes happen in the central chunk, the view reaches far enough around it for any light change
+        final int center = CHUNKS_PER_AXIS / 2;
+        final WorldView view = createLocalView(chunks, center, center);
+        final Random random = new Random(SEED.hashCode());
+        final Vector3i[] abovePositions = new Vector3i[CHANGED_POSITIONS];
+        for (int i = 0; i < CHANGED_POSITIONS; i++) {
+            final Vector3i pos = new Vector3i(random.nextInt(Chunk.SIZE_X), Chunk.SIZE_Y - 2, random.nextInt(Chunk.SIZE_Z));
+            final Block air = BlockManager.getInstance().getAir();
+            while (pos.y > 0 && view.getBlock(pos.x, pos.y - 1, pos.z) == air) {
+                pos.y--;
+            }
+            // A few blocks above the surface, so the block casts a shadow onto it
+            pos.y = Math.min(pos.y + 3, Chunk.SIZE_Y - 2);
+            abovePositions[i] = pos;
+        }
+        final Block stone = BlockManager.getInstance().getBlock("engine:stone");
+        final Block torch = BlockManager.getInstance().getBlockFamily("engine:torch").getArchetypeBlock();
+
+        final List<Benchmark> benchmarks = new LinkedList<Benchmark>();
+        benchmarks.add(new BenchmarkChunkLighting(unlit));
+        benchmarks.add(new BenchmarkBlockRelighting("Block above the surface", view, abovePositions, stone));
+        benchmarks.add(new BenchmarkBlockRelighting("Torch above the surface", view, abovePositions, torch));
+
+        // A 10x10x10 cube reaching from below the surface of the central chunk into the air, like a large explosion
+        final Vector3i corner = new Vector3i(center * Chunk.SIZE_X + 3, 0, center * Chunk.SIZE_Z + 3);
+        while (corner.y < Chunk.SIZE_Y - 1 && view.getBlock(corner.x - center * Chunk.SIZE_X, corner.y, corner.z - center * Chunk.SIZE_Z) != BlockManager.getInstance().getAir()) {
+            corner.y++;
+        }
+        corner.y = Math.max(0, Math.min(corner.y - 5, Chunk.SIZE_Y - 10));
+        final Region3i editRegion = Region3i.createFromMinAndSize(corner, new Vector3i(10, 10, 10));
+        CoreRegistry.put(Timer.class, new Timer());
+        final WorldProviderCore world = new WorldProviderCoreImpl("benchmark", SEED, 0, new String[0], new GeneratedChunkProvider(chunks));
+        benchmarks.add(new BenchmarkBlockEdits(world, editRegion, BlockManager.getInstance().getAir(), false));
+        benchmarks.add(new BenchmarkBlockEdits(world, editRegion, BlockManager.getInstance().getAir(), true));
+        benchmarks.add(new BenchmarkBlockEdits(world, editRegion, stone, false));
+        benchmarks.add(new BenchmarkBlockEdits(world, editRegion, stone, true));
+        Benchmarks.execute(benchmarks, new PrintToConsoleCallback());
+    }
+
+    private static WorldView createLocalView(Chunk[][] chunks, int centerX, int centerZ) {
+        final Chunk[] local = new Chunk[9];
+        for (int x = 0; x < 3; x++) {
+            for (int z = 0; z < 3; z++) {
+                local[x + 3 * z] = chunks[centerX - 1 + x][centerZ - 1 + z];
+            }
+        }
+        return new WorldView(local, Region3i.createFromCenterExtents(new Vector3i(centerX, 0, centerZ), new Vector3i(1, 0, 1)), Vector3i.one());
+    }
+
+    /**
+     * Provides the generated chunks to a world, all of them are always available.
+     */
+    private static class GeneratedChunkProvider implements ChunkProvider {
+
+        private final Chunk[][] chunks;
+
+        public GeneratedChunkProvider(Chunk[][] chunks) {
+            this.chunks = chunks;
+        }
+
+        @Override
+        public void setWorldEntity(EntityRef entity) {
+        }
+
+        @Override
+        public void addRegionEntity(EntityRef entity, int distance) {
+        }
+
+        @Override
+        public void removeRegionEntity(EntityRef entity) {
+        }
+
+        @Override
+        public void update() {
+        }
+
+        @Override
+        public boolean isChunkAvailable(Vector3i pos) {
+            return isChunkAvailable(pos.x, pos.y, pos.z);
+        }
+
+        @Override
+        public boolean isChunkAvailable(int x, int y, int z) {
+            return getChunk(x, y, z) != null;
+        }
+
+        @Override
+        public Chunk getChunk(int x, int y, int z) {
+            if (y != 0 || x < 0 || z < 0 || x >= chunks.length || z >= chunks[x].length) {
+                return null;
+            }
+            return chunks[x][z];
+        }
+
+        @Override
+        public Chunk getChunk(Vector3i chunkPos) {
+            return getChunk(chunkPos.x, chunkPos.y, chunkPos.z);
+        }
+
+        @Override
+        public void dispose() {
+        }
+
+        @Override
+        public float size() {
+            return chunks.length * chunks.length;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.terasology.benchmark.rendering;
+
+import org.terasology.benchmark.BasicBenchmarkResult;
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.BenchmarkResult;
+import org.terasology.math.Vector3i;
+import org.terasology.rendering.primitives.ChunkMesh;
+import org.terasology.rendering.primitives.ChunkTessellator;
+import org.terasology.world.WorldView;
+import org.terasology.world.chunks.Chunk;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * BenchmarkChunkTessellator measures how long it takes to tessellate generated chunks and reports the number of
+ * triangles and the size of the vertex and index buffers of the resulting meshes. Meshes are never uploaded.
+ * <p/>
+ * Each repetition tessellates all vertical segments of all given chunks.
+ */
+public class BenchmarkChunkTessellator extends Benchmark {
+
+    private final ChunkTessellator tessellator;
+    private final String mode;
+    private final WorldView[] views;
+    private final Vector3i[] positions;
+
+    private long triangles;
+    private long bytes;
+
+    /**
+     * @param mode Describes the tessellator settings in the title
+     */
+    public BenchmarkChunkTessellator(ChunkTessellator tessellator, String mode, WorldView[] views, Vector3i[] positions) {
+        Preconditions.checkArgument(views.length == positions.length, "Every view needs a chunk position");
+        this.tessellator = Preconditions.checkNotNull(tessellator);
+        this.mode = Preconditions.checkNotNull(mode);
+        this.views = views;
+        this.positions = positions;
+    }
+
+    @Override
+    public String getTitle() {
+        return mode + " chunk tessellation (" + views.length + " chunks)";
+    }
+
+    @Override
+    public int getWarmupRepetitions() {
+        return 5;
+    }
+
+    @Override
+    public int[] getRepetitions() {
+        return new int[] {5, 20};
+    }
+
+    @Override
+    public BenchmarkResult createResult() {
+        final BasicBenchmarkResult result = new BasicBenchmarkResult(this);
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Milliseconds per chunk") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return String.format("%.2f", (double) owner.getRunTime(rep) / owner.getRepetitions(rep) / views.length);
+            }
+        });
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Triangles per chunk") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return String.valueOf(triangles / views.length);
+            }
+        });
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Mesh KB per chunk") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return String.format("%.1f", (double) bytes / views.length / 1024);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void setup() {
+    }
+
+    @Override
+    public void prerun(int rep) {
+    }
+
+    @Override
+    public int run(int rep, int repetitions, BenchmarkResult result) {
+        final int meshHeight = Chunk.SIZE_Y / Chunk.VERTICAL_SEGMENTS;
+        long runTriangles = 0;
+        long runBytes = 0;
+        for (int i = 0; i < repetitions; i++) {
+            runTriangles = 0;
+            runBytes = 0;
+            for (int c = 0; c < views.length; c++) {
+                for (int seg = 0; seg < Chunk.VERTICAL_SEGMENTS; seg++) {
+                    final ChunkMesh mesh = tessellator.generateMesh(views[c], positions[c], meshHeight, seg * meshHeight);
+                    for (ChunkMesh.VertexElements elements : mesh._vertexElements) {
+                        runTriangles += elements.finalIndices.limit() / 3;
+                        runBytes += elements.finalVertices.limit() + elements.finalIndices.limit() * 4;
+                    }
+                }
+            }
+        }
+        triangles = runTriangles;
+        bytes = runBytes;
+        return (int) runTriangles;
+    }
+
+    @Override
+    public void postrun(int rep, BenchmarkResult result) {
+    }
+
+    @Override
+    public void finish(boolean aborted) {
+    }
+}
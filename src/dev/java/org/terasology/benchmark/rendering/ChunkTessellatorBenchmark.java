@@ -0,0 +1,104 @@
+package org.terasology.benchmark.rendering;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.terasology.asset.AssetManager;
+import org.terasology.asset.AssetType;
+import org.terasology.asset.sources.ClasspathSource;
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.Benchmarks;
+import org.terasology.benchmark.PrintToConsoleCallback;
+import org.terasology.config.Config;
+import org.terasology.game.CoreRegistry;
+import org.terasology.logic.mod.ModManager;
+import org.terasology.math.Region3i;
+import org.terasology.math.Vector3i;
+import org.terasology.rendering.primitives.ChunkMesh;
+import org.terasology.rendering.primitives.ChunkTessellator;
+import org.terasology.world.WorldBiomeProvider;
+import org.terasology.world.WorldBiomeProviderImpl;
+import org.terasology.world.WorldView;
+import org.terasology.world.block.Block;
+import org.terasology.world.block.family.BlockFamily;
+import org.terasology.world.block.loader.BlockLoader;
+import org.terasology.world.block.management.BlockManager;
+import org.terasology.world.chunks.Chunk;
+import org.terasology.world.generator.core.ChunkGeneratorManagerImpl;
+import org.terasology.world.lighting.InternalLightProcessor;
+
+/**
+ * ChunkTessellatorBenchmark compares the greedy meshing mode of the {@code ChunkTessellator} with the regular
+ * mode, which emits one quad per visible face, and the compact vertex format with the default one, on chunks
+ * from the default world generators. The size of the meshes is the amount of data uploaded to the GPU.
+ * <p/>
+ * Blocks are loaded without building the texture atlas, so no OpenGL context is needed. Chunks only receive
+ * their internal lighting, light is not propagated between chunks.
+ */
+public final class ChunkTessellatorBenchmark {
+
+    private static final String SEED = "rAtAiWyKgDlEeFjKiSsPzKaOuKhRrWqV";
+    private static final int CHUNKS_PER_AXIS = 4;
+
+    private ChunkTessellatorBenchmark() {}
+
+    public static void main(String[] args) {
+        CoreRegistry.put(Config.class, new Config());
+        CoreRegistry.put(ModManager.class, new ModManager());
+        AssetType.registerAssetTypes();
+        AssetManager.getInstance().addAssetSource(new ClasspathSource(ModManager.ENGINE_PACKAGE, Block.class.getProtectionDomain().getCodeSource(), ModManager.ASSETS_SUBDIRECTORY, ModManager.OVERRIDES_SUBDIRECTORY));
+        final BlockLoader.LoadBlockDefinitionResults blockDefinitions = new BlockLoader().loadBlockDefinitions();
+        for (BlockFamily family : blockDefinitions.families) {
+            BlockManager.getInstance().addBlockFamily(family);
+        }
+        for (BlockLoader.ShapelessFamily family : blockDefinitions.shapelessDefinitions) {
+            BlockManager.getInstance().addShapelessBlockFamily(family.uri, family.categories);
+        }
+
+        final WorldBiomeProvider biomeProvider = new WorldBiomeProviderImpl(SEED);
+        final ChunkGeneratorManagerImpl generator = ChunkGeneratorManagerImpl.getDefaultInstance();
+        generator.setWorldSeed(SEED);
+        generator.setWorldBiomeProvider(biomeProvider);
+
+        // Generate a border of chunks around the tessellated ones, so every tessellated chunk has all of its neighbours
+        final int size = CHUNKS_PER_AXIS + 2;
+        final Chunk[][] chunks = new Chunk[size][size];
+        for (int x = 0; x < size; x++) {
+            for (int z = 0; z < size; z++) {
+                chunks[x][z] = generator.generateChunk(new Vector3i(x, 0, z));
+            }
+        }
+        final WorldView[] views = new WorldView[CHUNKS_PER_AXIS * CHUNKS_PER_AXIS];
+        final Vector3i[] positions = new Vector3i[views.length];
+        for (int x = 1; x <= CHUNKS_PER_AXIS; x++) {
+            for (int z = 1; z <= CHUNKS_PER_AXIS; z++) {
+                final int index = (x - 1) * CHUNKS_PER_AXIS + z - 1;
+                positions[index] = new Vector3i(x, 0, z);
+                views[index] = createLocalView(chunks, x, z);
+                generator.secondPassChunk(positions[index], views[index]);
+            }
+        }
+        for (Chunk[] row : chunks) {
+            for (Chunk chunk : row) {
+                InternalLightProcessor.generateInternalLighting(chunk);
+            }
+        }
+
+        final List<Benchmark> benchmarks = new LinkedList<Benchmark>();
+        benchmarks.add(new BenchmarkChunkTessellator(new ChunkTessellator(biomeProvider, false, ChunkMesh.VERTEX_FORMAT.DEFAULT), "Per face", views, positions));
+        benchmarks.add(new BenchmarkChunkTessellator(new ChunkTessellator(biomeProvider, false, ChunkMesh.VERTEX_FORMAT.COMPACT), "Per face, compact vertices", views, positions));
+        benchmarks.add(new BenchmarkChunkTessellator(new ChunkTessellator(biomeProvider, true, ChunkMesh.VERTEX_FORMAT.DEFAULT), "Greedy", views, positions));
+        benchmarks.add(new BenchmarkChunkTessellator(new ChunkTessellator(biomeProvider, true, ChunkMesh.VERTEX_FORMAT.COMPACT), "Greedy, compact vertices", views, positions));
+        Benchmarks.execute(benchmarks, new PrintToConsoleCallback());
+    }
+
+    private static WorldView createLocalView(Chunk[][] chunks, int centerX, int centerZ) {
+        final Chunk[] local = new Chunk[9];
+        for (int x = 0; x < 3; x++) {
+            for (int z = 0; z < 3; z++) {
+                local[x + 3 * z] = chunks[centerX - 1 + x][centerZ - 1 + z];
+            }
+        }
+        return new WorldView(local, Region3i.createFromCenterExtents(new Vector3i(centerX, 0, centerZ), new Vector3i(1, 0, 1)), Vector3i.one());
+    }
+}
@@ -0,0 +1,180 @@
+package org.terasology.benchmark.spatial;
+
+import java.util.List;
+
+import javax.vecmath.Vector3f;
+
+import org.terasology.benchmark.BasicBenchmarkResult;
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.BenchmarkResult;
+import org.terasology.components.world.LocationComponent;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.entitySystem.PersistableEntityManager;
+import org.terasology.game.bootstrap.EntitySystemBuilder;
+import org.terasology.logic.mod.ModManager;
+import org.terasology.logic.spatial.SpatialIndexSystem;
+import org.terasology.logic.spatial.SpatialQueryCallback;
+import org.terasology.math.AABB;
+import org.terasology.utilities.FastRandom;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+/**
+ * BenchmarkSpatialIndex measures proximity queries over entities spread across a region of the size of a loaded
+ * world, answered by the spatial index or by scanning all entities with a location.
+ * <p/>
+ * Each repetition performs a fixed number of queries, or moves a fixed number of entities and updates the index.
+ */
+public class BenchmarkSpatialIndex extends Benchmark {
+
+    public enum Operation {
+        /* Finds the entities within a radius through the spatial index */
+        RADIUS,
+        /* Finds the entities within a box through the spatial index */
+        REGION,
+        /* Finds the entities within a radius by scanning all entities with a location */
+        SCAN,
+        /* Moves entities and applies the changes to the spatial index, one operation per moved entity */
+        UPDATE
+    }
+
+    private static final int OPERATIONS = 100;
+    private static final int EXTENT_XZ = 256;
+    private static final int EXTENT_Y = 64;
+    private static final float RADIUS = 16;
+
+    private final Operation operation;
+    private final int entityCount;
+
+    private PersistableEntityManager entityManager;
+    private SpatialIndexSystem spatialIndex;
+    private List<EntityRef> entities;
+    private Vector3f[] centers;
+    private FastRandom random;
+    private CountingCallback callback;
+
+    public BenchmarkSpatialIndex(Operation operation, int entityCount) {
+        this.operation = Preconditions.checkNotNull(operation);
+        this.entityCount = entityCount;
+    }
+
+    @Override
+    public String getTitle() {
+        return "Spatial index " + operation + " (" + entityCount + " entities)";
+    }
+
+    @Override
+    public int getWarmupRepetitions() {
+        return 20;
+    }
+
+    @Override
+    public int[] getRepetitions() {
+        return new int[] {20, 100};
+    }
+
+    @Override
+    public BenchmarkResult createResult() {
+        final BasicBenchmarkResult result = new BasicBenchmarkResult(this);
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Operations per s") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return String.format("%.0f", 1000.0 * OPERATIONS * owner.getRepetitions(rep) / Math.max(1, owner.getRunTime(rep)));
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void setup() {
+        entityManager = new EntitySystemBuilder().build(new ModManager());
+        spatialIndex = new SpatialIndexSystem();
+        entityManager.getEventSystem().registerEventHandler(spatialIndex);
+        spatialIndex.initialise();
+        random = new FastRandom(42);
+        entities = Lists.newArrayListWithCapacity(entityCount);
+        for (int i = 0; i < entityCount; i++) {
+            entities.add(entityManager.create(new LocationComponent(randomPosition())));
+        }
+        spatialIndex.update(0);
+        centers = new Vector3f[OPERATIONS];
+        for (int i = 0; i < OPERATIONS; i++) {
+            centers[i] = randomPosition();
+        }
+        callback = new CountingCallback();
+    }
+
+    @Override
+    public void prerun(int index) {
+    }
+
+    @Override
+    public int run(int index, int repetitions, BenchmarkResult result) {
+        callback.count = 0;
+        Vector3f extent = new Vector3f(RADIUS, RADIUS, RADIUS);
+        Vector3f position = new Vector3f();
+        for (int i = 0; i < repetitions; i++) {
+            switch (operation) {
+                case RADIUS:
+                    for (Vector3f center : centers) {
+                        spatialIndex.findInRadius(center, RADIUS, callback);
+                    }
+                    break;
+                case REGION:
+                    for (Vector3f center : centers) {
+                        spatialIndex.findInRegion(AABB.createCenterExtent(center, extent), callback);
+                    }
+                    break;
+                case SCAN:
+                    for (Vector3f center : centers) {
+                        for (EntityRef entity : entityManager.iteratorEntities(LocationComponent.class)) {
+                            entity.getComponent(LocationComponent.class).getWorldPosition(position);
+                            position.sub(center);
+                            if (position.lengthSquared() <= RADIUS * RADIUS) {
+                                callback.count++;
+                            }
+                        }
+                    }
+                    break;
+                case UPDATE:
+                    for (int j = 0; j < OPERATIONS; j++) {
+                        EntityRef entity = entities.get(random.randomIntAbs(entityCount));
+                        LocationComponent location = entity.getComponent(LocationComponent.class);
+                        location.getLocalPosition().add(new Vector3f(random.randomFloat(), 0, random.randomFloat()));
+                        entity.saveComponent(location);
+                    }
+                    spatialIndex.update(0);
+                    break;
+            }
+        }
+        return callback.count;
+    }
+
+    @Override
+    public void postrun(int index, BenchmarkResult result) {
+    }
+
+    @Override
+    public void finish(boolean aborted) {
+        spatialIndex.shutdown();
+        spatialIndex = null;
+        entityManager = null;
+        entities = null;
+        centers = null;
+    }
+
+    private Vector3f randomPosition() {
+        return new Vector3f(random.randomFloat() * EXTENT_XZ, random.randomFloat() * EXTENT_Y, random.randomFloat() * EXTENT_XZ);
+    }
+
+    private static class CountingCallback implements SpatialQueryCallback {
+        private int count;
+
+        @Override
+        public boolean visit(EntityRef entity, Vector3f position) {
+            count++;
+            return true;
+        }
+    }
+}
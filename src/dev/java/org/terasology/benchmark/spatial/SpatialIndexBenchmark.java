@@ -0,0 +1,27 @@
+package org.terasology.benchmark.spatial;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.Benchmarks;
+import org.terasology.benchmark.PrintToConsoleCallback;
+
+/**
+ * SpatialIndexBenchmark compares proximity queries through the spatial index with scanning all located entities.
+ */
+public final class SpatialIndexBenchmark {
+
+    private static final int ENTITIES = 50000;
+
+    private SpatialIndexBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        final List<Benchmark> benchmarks = new LinkedList<Benchmark>();
+        for (BenchmarkSpatialIndex.Operation operation : BenchmarkSpatialIndex.Operation.values()) {
+            benchmarks.add(new BenchmarkSpatialIndex(operation, ENTITIES));
+        }
+        Benchmarks.execute(benchmarks, new PrintToConsoleCallback());
+    }
+}
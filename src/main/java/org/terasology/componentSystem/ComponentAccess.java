@@ -0,0 +1,50 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.componentSystem;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.terasology.entitySystem.Component;
+
+/**
+ * Declares which components an {@link UpdateSubscriberSystem} reads and writes during update. Systems with this
+ * annotation may be updated in parallel with other annotated systems they do not conflict with, two systems
+ * conflict if one of them writes a component the other reads or writes. Conflicting systems and systems without
+ * this annotation are updated in the order they were registered.
+ * <p/>
+ * While updating in parallel a system may only get and save components, and send events. It must not create or
+ * destroy entities, or add or remove components. Events sent are dispatched on the main thread once all systems
+ * updating in parallel with it are done.
+ *
+ * @see org.terasology.game.UpdateScheduler
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ComponentAccess {
+
+    /**
+     * @return The components read, but not modified
+     */
+    Class<? extends Component>[] reads() default {};
+
+    /**
+     * @return The components modified. These may also be read.
+     */
+    Class<? extends Component>[] writes() default {};
+}
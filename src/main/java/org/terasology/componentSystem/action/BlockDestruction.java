@@ -0,0 +1,107 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.componentSystem.action;
+
+import java.util.Collection;
+import java.util.Map;
+
+import javax.vecmath.Vector3f;
+
+import org.terasology.entityFactory.DroppedBlockFactory;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.math.Vector3i;
+import org.terasology.physics.ImpulseEvent;
+import org.terasology.world.BlockEntityRegistry;
+import org.terasology.world.BlockUpdate;
+import org.terasology.world.WorldProvider;
+import org.terasology.world.block.Block;
+import org.terasology.world.block.family.BlockFamily;
+import org.terasology.world.block.management.BlockManager;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Gathers the blocks destroyed by an action, so that they can be removed from the world in a single batch. If the
+ * batch cannot be applied as a whole, the blocks which can still be removed are removed one by one.
+ */
+class BlockDestruction {
+
+    private final Map<Vector3i, BlockUpdate> updates = Maps.newLinkedHashMap();
+    private final Map<Vector3i, DroppedBlock> droppedBlocks = Maps.newHashMap();
+
+    public boolean isDestroyed(Vector3i blockPos) {
+        return updates.containsKey(blockPos);
+    }
+
+    public void destroy(Vector3i blockPos, Block currentBlock) {
+        Vector3i pos = new Vector3i(blockPos);
+        updates.put(pos, new BlockUpdate(pos, BlockManager.getInstance().getAir(), currentBlock));
+    }
+
+    /**
+     * Drops a block at the given position once the destroyed block at blockPos is removed.
+     */
+    public void drop(Vector3i blockPos, Vector3f position, BlockFamily family, Vector3f impulse) {
+        droppedBlocks.put(new Vector3i(blockPos), new DroppedBlock(new Vector3f(position), family, new Vector3f(impulse)));
+    }
+
+    /**
+     * Removes the destroyed blocks from the world, then destroys their entities and spawns the blocks they drop.
+     *
+     * @return Whether any blocks were removed
+     */
+    public boolean apply(WorldProvider worldProvider, BlockEntityRegistry blockEntityRegistry, DroppedBlockFactory droppedBlockFactory) {
+        if (updates.isEmpty()) {
+            return false;
+        }
+        Collection<BlockUpdate> removed = updates.values();
+        if (!worldProvider.setBlocks(removed)) {
+            // A single changed block or unloaded chunk fails the whole batch, so the other blocks are removed one by one
+            removed = Lists.newArrayList();
+            for (BlockUpdate update : updates.values()) {
+                if (worldProvider.setBlock(update.getPosition(), update.getNewType(), update.getOldType())) {
+                    removed.add(update);
+                }
+            }
+            if (removed.isEmpty()) {
+                return false;
+            }
+        }
+        for (BlockUpdate update : removed) {
+            EntityRef blockEntity = blockEntityRegistry.getEntityAt(update.getPosition());
+            blockEntity.destroy();
+            DroppedBlock droppedBlock = droppedBlocks.get(update.getPosition());
+            if (droppedBlock != null) {
+                EntityRef block = droppedBlockFactory.newInstance(droppedBlock.position, droppedBlock.family, 5);
+                block.send(new ImpulseEvent(droppedBlock.impulse));
+            }
+        }
+        return true;
+    }
+
+    private static class DroppedBlock {
+        private final Vector3f position;
+        private final BlockFamily family;
+        private final Vector3f impulse;
+
+        public DroppedBlock(Vector3f position, BlockFamily family, Vector3f impulse) {
+            this.position = position;
+            this.family = family;
+            this.impulse = impulse;
+        }
+    }
+}
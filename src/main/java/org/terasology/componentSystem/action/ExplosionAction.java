@@ -31,12 +31,10 @@ import org.terasology.events.ActivateEvent;
 import org.terasology.game.CoreRegistry;
 import org.terasology.math.Vector3i;
 import org.terasology.physics.BulletPhysics;
-import org.terasology.physics.ImpulseEvent;
 import org.terasology.utilities.FastRandom;
 import org.terasology.world.BlockEntityRegistry;
 import org.terasology.world.WorldProvider;
 import org.terasology.world.block.Block;
-import org.terasology.world.block.management.BlockManager;
 
 /**
  * @author Immortius <immortius@gmail.com>
@@ -85,6 +83,7 @@ public class ExplosionAction implements EventHandlerSystem {
             return;
         }
 
+        BlockDestruction destruction = new BlockDestruction();
         Vector3i blockPos = new Vector3i();
         for (int i = 0; i < 256; i++) {
             // TODO: Add a randomVector3f method to FastRandom?
@@ -100,6 +99,8 @@ public class ExplosionAction implements EventHandlerSystem {
                 target.y += direction.y * j;
                 target.z += direction.z * j;
                 blockPos.set((int) target.x, (int) target.y, (int) target.z);
+                if (destruction.isDestroyed(blockPos))
+                    continue;
                 Block currentBlock = worldProvider.getBlock(blockPos);
 
                 if (currentBlock.getId() == 0)
@@ -109,16 +110,13 @@ public class ExplosionAction implements EventHandlerSystem {
                 if (currentBlock.isDestructible()) {
                     // TODO: this should be handled centrally somewhere. Actions shouldn't be determining world behaviour
                     // like what happens when a block is destroyed.
-                    worldProvider.setBlock(blockPos, BlockManager.getInstance().getAir(), currentBlock);
-
-                    EntityRef blockEntity = blockEntityRegistry.getEntityAt(blockPos);
-                    blockEntity.destroy();
+                    destruction.destroy(blockPos, currentBlock);
                     if (random.randomInt(4) == 0) {
-                        EntityRef block = droppedBlockFactory.newInstance(target, currentBlock.getBlockFamily(), 5);
-                        block.send(new ImpulseEvent(impulse));
+                        destruction.drop(blockPos, target, currentBlock.getBlockFamily(), impulse);
                     }
                 }
             }
         }
+        destruction.apply(worldProvider, blockEntityRegistry, droppedBlockFactory);
     }
 }
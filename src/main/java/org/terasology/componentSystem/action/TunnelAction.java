@@ -24,12 +24,10 @@ import org.terasology.events.ActivateEvent;
 import org.terasology.game.CoreRegistry;
 import org.terasology.math.Vector3i;
 import org.terasology.physics.BulletPhysics;
-import org.terasology.physics.ImpulseEvent;
 import org.terasology.utilities.FastRandom;
 import org.terasology.world.BlockEntityRegistry;
 import org.terasology.world.WorldProvider;
 import org.terasology.world.block.Block;
-import org.terasology.world.block.management.BlockManager;
 
 /**
  * @author Immortius <immortius@gmail.com>
@@ -63,8 +61,10 @@ public class TunnelAction implements EventHandlerSystem {
         Vector3f dir = new Vector3f(event.getDirection());
         Vector3f origin = new Vector3f(event.getOrigin());
         Vector3i blockPos = new Vector3i();
+        BlockDestruction destruction = new BlockDestruction();
 
         int blockCounter = MAX_DESTROYED_BLOCKS;
+        tunnel:
         for (int s = 4; s <= 10000; s += 30) {
             origin.add(dir);
 
@@ -82,6 +82,8 @@ public class TunnelAction implements EventHandlerSystem {
                     target.z += direction.z * j;
 
                     blockPos.set((int) target.x, (int) target.y, (int) target.z);
+                    if (destruction.isDestroyed(blockPos))
+                        continue;
 
                     Block currentBlock = worldProvider.getBlock(blockPos);
 
@@ -89,26 +91,22 @@ public class TunnelAction implements EventHandlerSystem {
                         continue;
 
                     if (currentBlock.isDestructible()) {
-                        worldProvider.setBlock(blockPos, BlockManager.getInstance().getAir(), currentBlock);
-
-                        EntityRef blockEntity = blockEntityRegistry.getEntityAt(blockPos);
-                        blockEntity.destroy();
+                        destruction.destroy(blockPos, currentBlock);
 
                         if (random.randomInt(6) == 0) {
-                            EntityRef block = droppedBlockFactory.newInstance(target, currentBlock.getBlockFamily(), 5);
-                            block.send(new ImpulseEvent(impulse));
+                            destruction.drop(blockPos, target, currentBlock.getBlockFamily(), impulse);
                         }
 
                         blockCounter--;
                     }
 
                     if (blockCounter <= 0)
-                        return;
+                        break tunnel;
                 }
             }
         }
         //If no blocks were destroyed, cancel the event
-        if(blockCounter == MAX_DESTROYED_BLOCKS)
+        if (!destruction.apply(worldProvider, blockEntityRegistry, droppedBlockFactory))
             event.cancel();
     }
 }
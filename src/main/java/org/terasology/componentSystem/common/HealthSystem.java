@@ -15,9 +15,11 @@
  */
 package org.terasology.componentSystem.common;
 
+import org.terasology.componentSystem.ComponentAccess;
 import org.terasology.componentSystem.UpdateSubscriberSystem;
 import org.terasology.components.HealthComponent;
 import org.terasology.entitySystem.EntityManager;
+import org.terasology.entitySystem.EntityQuery;
 import org.terasology.entitySystem.EntityRef;
 import org.terasology.entitySystem.EventHandlerSystem;
 import org.terasology.entitySystem.ReceiveEvent;
@@ -35,20 +37,22 @@ import org.terasology.math.TeraMath;
  * @author Immortius <immortius@gmail.com>
  */
 @RegisterComponentSystem(authorativeOnly = true)
+@ComponentAccess(writes = {HealthComponent.class})
 public class HealthSystem implements EventHandlerSystem, UpdateSubscriberSystem {
 
-    private EntityManager entityManager;
+    private EntityQuery healthEntities;
 
     public void initialise() {
-        entityManager = CoreRegistry.get(EntityManager.class);
+        healthEntities = CoreRegistry.get(EntityManager.class).query(HealthComponent.class);
     }
 
     @Override
     public void shutdown() {
+        healthEntities.dispose();
     }
 
     public void update(float delta) {
-        for (EntityRef entity : entityManager.iteratorEntities(HealthComponent.class)) {
+        for (EntityRef entity : healthEntities) {
             HealthComponent health = entity.getComponent(HealthComponent.class);
             if (health.currentHealth <= 0) continue;
 
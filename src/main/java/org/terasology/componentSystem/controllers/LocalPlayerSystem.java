@@ -434,7 +434,7 @@ public class LocalPlayerSystem implements UpdateSubscriberSystem, RenderSystem,
         EntityRef selectedItemEntity = inventory.itemSlots.get(localPlayerComp.selectedTool);
         BlockItemComponent block = selectedItemEntity.getComponent(BlockItemComponent.class);
 
-        if (selectedItemEntity.equals(EntityRef.NULL)) {
+        if (!selectedItemEntity.exists()) {
             return;
         }
 
@@ -468,7 +468,7 @@ public class LocalPlayerSystem implements UpdateSubscriberSystem, RenderSystem,
                 DroppedItemFactory droppedItemFactory = new DroppedItemFactory(entityManager);
                 EntityRef droppedItem = droppedItemFactory.newInstance(new Vector3f(newPosition), item.icon, 200, selectedItemEntity);
 
-                if (!droppedItem.equals(EntityRef.NULL)) {
+                if (droppedItem.exists()) {
                     droppedItem.send(new ImpulseEvent(new Vector3f(playerCamera.getViewingDirection().x * dropPower, playerCamera.getViewingDirection().y * dropPower, playerCamera.getViewingDirection().z * dropPower)));
                     changed = true;
                 }
@@ -479,7 +479,7 @@ public class LocalPlayerSystem implements UpdateSubscriberSystem, RenderSystem,
                 BlockItemComponent blockItem = selectedItemEntity.getComponent(BlockItemComponent.class);
                 blockItem.placedEntity = EntityRef.NULL;
                 selectedItemEntity.saveComponent(blockItem);
-                if (!droppedBlock.equals(EntityRef.NULL)) {
+                if (droppedBlock.exists()) {
                     droppedBlock.send(new ImpulseEvent(new Vector3f(playerCamera.getViewingDirection().x * dropPower, playerCamera.getViewingDirection().y * dropPower, playerCamera.getViewingDirection().z * dropPower)));
                     changed = true;
                 }
@@ -18,10 +18,12 @@ package org.terasology.componentSystem.controllers;
 import javax.vecmath.AxisAngle4f;
 import javax.vecmath.Vector3f;
 
+import org.terasology.componentSystem.ComponentAccess;
 import org.terasology.componentSystem.UpdateSubscriberSystem;
 import org.terasology.components.SimpleAIComponent;
 import org.terasology.components.world.LocationComponent;
 import org.terasology.entitySystem.EntityManager;
+import org.terasology.entitySystem.EntityQuery;
 import org.terasology.entitySystem.EntityRef;
 import org.terasology.entitySystem.EventHandlerSystem;
 import org.terasology.entitySystem.ReceiveEvent;
@@ -39,27 +41,29 @@ import org.terasology.world.WorldProvider;
  * @author Immortius <immortius@gmail.com>
  */
 @RegisterComponentSystem(authorativeOnly = true)
+@ComponentAccess(writes = {SimpleAIComponent.class, CharacterMovementComponent.class, LocationComponent.class})
 public class SimpleAISystem implements EventHandlerSystem, UpdateSubscriberSystem {
 
     private WorldProvider worldProvider;
-    private EntityManager entityManager;
+    private EntityQuery aiEntities;
     private FastRandom random = new FastRandom();
     private Timer timer;
 
     @Override
     public void initialise() {
-        entityManager = CoreRegistry.get(EntityManager.class);
+        aiEntities = CoreRegistry.get(EntityManager.class).query(SimpleAIComponent.class, CharacterMovementComponent.class, LocationComponent.class);
         timer = CoreRegistry.get(Timer.class);
         worldProvider = CoreRegistry.get(WorldProvider.class);
     }
 
     @Override
     public void shutdown() {
+        aiEntities.dispose();
     }
 
     @Override
     public void update(float delta) {
-        for (EntityRef entity : entityManager.iteratorEntities(SimpleAIComponent.class, CharacterMovementComponent.class, LocationComponent.class)) {
+        for (EntityRef entity : aiEntities) {
             LocationComponent location = entity.getComponent(LocationComponent.class);
             Vector3f worldPos = location.getWorldPosition();
 
@@ -18,6 +18,7 @@ package org.terasology.components.utility;
 
 import org.terasology.componentSystem.UpdateSubscriberSystem;
 import org.terasology.entitySystem.EntityManager;
+import org.terasology.entitySystem.EntityQuery;
 import org.terasology.entitySystem.EntityRef;
 import org.terasology.entitySystem.RegisterComponentSystem;
 import org.terasology.game.CoreRegistry;
@@ -28,11 +29,11 @@ import org.terasology.game.CoreRegistry;
 @RegisterComponentSystem
 public class LifespanSystem implements UpdateSubscriberSystem {
 
-    private EntityManager entityManager;
+    private EntityQuery lifespanEntities;
 
     @Override
     public void update(float delta) {
-        for (EntityRef entity : entityManager.iteratorEntities(LifespanComponent.class)) {
+        for (EntityRef entity : lifespanEntities) {
             LifespanComponent lifespan = entity.getComponent(LifespanComponent.class);
             lifespan.lifespan -= delta;
             if (lifespan.lifespan < 0) {
@@ -45,10 +46,11 @@ public class LifespanSystem implements UpdateSubscriberSystem {
 
     @Override
     public void initialise() {
-        entityManager = CoreRegistry.get(EntityManager.class);
+        lifespanEntities = CoreRegistry.get(EntityManager.class).query(LifespanComponent.class);
     }
 
     @Override
     public void shutdown() {
+        lifespanEntities.dispose();
     }
 }
@@ -30,7 +30,7 @@ public final class AdvancedConfig {
     private static final Logger logger = LoggerFactory.getLogger(AdvancedConfig.class);
 
     private String blocksFactory, sunlightFactory, lightFactory, extraFactory;
-    private boolean chunkDeflationEnabled, chunkDeflationLoggingEnabled;
+    private boolean chunkDeflationEnabled, chunkDeflationLoggingEnabled, chunkPaletteDeflationEnabled;
     
     private AdvancedConfig() {}
     
@@ -144,6 +144,15 @@ public final class AdvancedConfig {
         return this;
     }
     
+    public boolean isChunkPaletteDeflationEnabled() {
+        return chunkPaletteDeflationEnabled;
+    }
+    
+    public AdvancedConfig setChunkPaletteDeflationEnabled(boolean enabled) {
+        chunkPaletteDeflationEnabled = enabled;
+        return this;
+    }
+    
     public static AdvancedConfig createDefault() {
         return new AdvancedConfig()
         .setBlocksFactory(TeraDenseArray8Bit.class.getName())
@@ -151,7 +160,8 @@ public final class AdvancedConfig {
         .setLightFactory(TeraDenseArray8Bit.class.getName())
         .setExtraFactory(TeraDenseArray8Bit.class.getName())
         .setChunkDeflationEnabled(true)
-        .setChunkDeflationLoggingEnabled(false);
+        .setChunkDeflationLoggingEnabled(false)
+        .setChunkPaletteDeflationEnabled(false);
     }
 
     public static class Handler implements JsonSerializer<AdvancedConfig>, JsonDeserializer<AdvancedConfig> {
@@ -172,6 +182,8 @@ public final class AdvancedConfig {
                 config.setChunkDeflationEnabled(input.get("chunkDeflationEnabled").getAsBoolean());
             if (input.has("chunkDeflationLoggingEnabled")) 
                 config.setChunkDeflationLoggingEnabled(input.get("chunkDeflationLoggingEnabled").getAsBoolean());
+            if (input.has("chunkPaletteDeflationEnabled")) 
+                config.setChunkPaletteDeflationEnabled(input.get("chunkPaletteDeflationEnabled").getAsBoolean());
             return config;
         }
 
@@ -184,6 +196,7 @@ public final class AdvancedConfig {
             result.addProperty("extraFactory", src.extraFactory);
             result.addProperty("chunkDeflationEnabled", src.chunkDeflationEnabled);
             result.addProperty("chunkDeflationLoggingEnabled", src.chunkDeflationLoggingEnabled);
+            result.addProperty("chunkPaletteDeflationEnabled", src.chunkPaletteDeflationEnabled);
             return result;
         }
         
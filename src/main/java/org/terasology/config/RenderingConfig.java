@@ -19,6 +19,7 @@ public class RenderingConfig {
     private int viewDistanceUltra = 48;
     private int activeViewDistanceMode = 0;
     private int maxChunkVBOs = 512;
+    private float chunkUploadBudget = 2;
     private boolean flickeringLight = false;
     private boolean animateGrass = false;
     private boolean animateWater = false;
@@ -36,6 +37,8 @@ public class RenderingConfig {
     private boolean eyeAdaptation = true;
     private boolean bloom = false;
     private boolean dynamicShadows = false;
+    private boolean greedyMeshing = false;
+    private boolean compactChunkVertices = false;
 
     public int getBlurRadius() {
         return Math.max(1, blurIntensity);
@@ -133,6 +136,17 @@ public class RenderingConfig {
         this.maxChunkVBOs = maxChunkVBOs;
     }
 
+    /**
+     * @return The time in ms which may be spent uploading chunk meshes each frame
+     */
+    public float getChunkUploadBudget() {
+        return chunkUploadBudget;
+    }
+
+    public void setChunkUploadBudget(float chunkUploadBudget) {
+        this.chunkUploadBudget = chunkUploadBudget;
+    }
+
     public boolean isFlickeringLight() {
         return flickeringLight;
     }
@@ -165,6 +179,22 @@ public class RenderingConfig {
         this.dynamicShadows = dynamicShadows;
     }
 
+    public boolean isGreedyMeshing() {
+        return greedyMeshing;
+    }
+
+    public void setGreedyMeshing(boolean greedyMeshing) {
+        this.greedyMeshing = greedyMeshing;
+    }
+
+    public boolean isCompactChunkVertices() {
+        return compactChunkVertices;
+    }
+
+    public void setCompactChunkVertices(boolean compactChunkVertices) {
+        this.compactChunkVertices = compactChunkVertices;
+    }
+
     public float getFieldOfView() {
         return fieldOfView;
     }
@@ -20,6 +20,11 @@ public class SystemConfig {
     private long dayNightLengthInMs = 1800000;
     private int maxThreads = 2;
     private int verticalChunkMeshSegments = 1;
+    private boolean archetypeEntityStorage;
+    private boolean parallelSystemUpdates = true;
+    private boolean deferredEventDelivery;
+    private int liquidCellsPerTick = 4096;
+    private boolean parallelChunkGeneration = true;
 
     private boolean debugEnabled;
     private boolean debugRenderChunkBoundingBoxes;
@@ -60,6 +65,46 @@ public class SystemConfig {
         this.verticalChunkMeshSegments = verticalChunkMeshSegments;
     }
 
+    public boolean isArchetypeEntityStorage() {
+        return archetypeEntityStorage;
+    }
+
+    public void setArchetypeEntityStorage(boolean archetypeEntityStorage) {
+        this.archetypeEntityStorage = archetypeEntityStorage;
+    }
+
+    public boolean isParallelSystemUpdates() {
+        return parallelSystemUpdates;
+    }
+
+    public void setParallelSystemUpdates(boolean parallelSystemUpdates) {
+        this.parallelSystemUpdates = parallelSystemUpdates;
+    }
+
+    public boolean isDeferredEventDelivery() {
+        return deferredEventDelivery;
+    }
+
+    public void setDeferredEventDelivery(boolean deferredEventDelivery) {
+        this.deferredEventDelivery = deferredEventDelivery;
+    }
+
+    public int getLiquidCellsPerTick() {
+        return liquidCellsPerTick;
+    }
+
+    public void setLiquidCellsPerTick(int liquidCellsPerTick) {
+        this.liquidCellsPerTick = liquidCellsPerTick;
+    }
+
+    public boolean isParallelChunkGeneration() {
+        return parallelChunkGeneration;
+    }
+
+    public void setParallelChunkGeneration(boolean parallelChunkGeneration) {
+        this.parallelChunkGeneration = parallelChunkGeneration;
+    }
+
     public boolean isDebugEnabled() {
         return debugEnabled;
     }
@@ -15,6 +15,7 @@
  */
 package org.terasology.entitySystem;
 
+import java.util.List;
 import java.util.Map;
 
 import javax.vecmath.Quat4f;
@@ -74,6 +75,26 @@ public interface EntityManager {
 
     EntityRef create(Prefab prefab, Vector3f position, Quat4f rotation);
 
+    /**
+     * Creates many entities from a prefab at once, which is cheaper than creating them one by one. The entities
+     * are only announced to event handlers after all of them have been created.
+     *
+     * @param prefab
+     * @param count The number of entities to create
+     * @return The new entities, based on the given prefab
+     */
+    List<EntityRef> createMany(Prefab prefab, int count);
+
+    /**
+     * Creates many entities from a prefab at once, which is cheaper than creating them one by one. The entities
+     * are only announced to event handlers after all of them have been created.
+     *
+     * @param prefab
+     * @param positions The position of each entity to create
+     * @return The new entities, based on the given prefab, in the order of their positions
+     */
+    List<EntityRef> createMany(Prefab prefab, List<Vector3f> positions);
+
     /**
      * @param other
      * @return A new entity with a copy of each of the other entity's components
@@ -92,6 +113,15 @@ public interface EntityManager {
 
     <T extends Component> Iterable<Map.Entry<EntityRef, T>> iterateComponents(Class<T> componentClass);
 
+    /**
+     * Creates a query of the entities having all of the given components, which is kept up to date until disposed.
+     * Prefer this to iteratorEntities for iterating the same entities every update.
+     *
+     * @param componentClasses At least one component class
+     * @return A new query
+     */
+    EntityQuery query(Class<? extends Component>... componentClasses);
+
 
     /**
      * @return The event system being used by the entity manager
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem;
+
+/**
+ * The entities which have all of a set of components. The entity manager keeps the matching entities up to date as
+ * components are added and removed, so iterating a query does not need to search for them.
+ * <p/>
+ * Iterating a query iterates the entities matching when iteration started, so entities may be destroyed or have
+ * components added and removed while iterating. Alternatively the matching entities can be accessed by index,
+ * in which case the query must not change while doing so. The order of the entities is not defined.
+ * <p/>
+ * A query also records the entities which started or stopped matching it since its changes were last cleared,
+ * which allows systems to react to them instead of checking every entity. Changes are only recorded after
+ * {@link #getAdded()} or {@link #getRemoved()} has been called once, so queries which never look at them don't
+ * accumulate them.
+ *
+ * @see EntityManager#query(Class[])
+ */
+public interface EntityQuery extends Iterable<EntityRef> {
+
+    /**
+     * @return The number of entities matching this query
+     */
+    int size();
+
+    /**
+     * @param index
+     * @return The matching entity at the given index, with 0 <= index < size()
+     */
+    EntityRef get(int index);
+
+    /**
+     * @param entity
+     * @return Whether the entity matches this query
+     */
+    boolean contains(EntityRef entity);
+
+    /**
+     * @return The entities which started matching this query since the changes were last cleared, and still do
+     */
+    Iterable<EntityRef> getAdded();
+
+    /**
+     * @return The entities which stopped matching this query since the changes were last cleared. Destroyed
+     *         entities are included, but no longer exist.
+     */
+    Iterable<EntityRef> getRemoved();
+
+    /**
+     * Clears the added and removed entities, usually once they have been handled each update.
+     */
+    void clearChanges();
+
+    /**
+     * Stops the entity manager from updating this query. It should be disposed when it is no longer used, e.g. when
+     * the system using it shuts down.
+     */
+    void dispose();
+
+}
@@ -27,6 +27,11 @@ public interface EventSystem {
      */
     public void process();
 
+    /**
+     * Publishes the statistics of the events processed since the last call, should be called once per tick
+     */
+    public void updateMetrics();
+
     /**
      * Registers an event
      *
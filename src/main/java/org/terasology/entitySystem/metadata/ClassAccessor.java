@@ -0,0 +1,38 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.metadata;
+
+/**
+ * Constructs instances of a component or mapped container class and accesses their fields without reflection.
+ * Implementations are generated at runtime by {@link ClassAccessorFactory} in their own class loader, so this
+ * interface needs to be public.
+ * <p/>
+ * Fields are identified by the index assigned to their {@link FieldMetadata}.
+ */
+public interface ClassAccessor {
+
+    Object newInstance();
+
+    Object getValue(Object target, int field);
+
+    void setValue(Object target, int field, Object value);
+
+    /**
+     * Copies all fields of primitive type that this accessor can both read and write from source to target.
+     */
+    void copyPrimitiveFields(Object source, Object target);
+
+}
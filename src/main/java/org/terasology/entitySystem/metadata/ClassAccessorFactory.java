@@ -0,0 +1,281 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.metadata;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Primitives;
+
+/**
+ * Generates {@link ClassAccessor}s, so that creating, copying and serializing components does not have to go
+ * through reflection for every field.
+ * <p/>
+ * The generated class can only use public members of public classes. Fields it cannot read that way (e.g.
+ * private fields without a public getter) do not get an index, and their {@link FieldMetadata} keeps using
+ * reflection. Fields it can read but not write (e.g. final fields) are only written through reflection.
+ */
+class ClassAccessorFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClassAccessorFactory.class);
+
+    private static final String GENERATED_PACKAGE = "org/terasology/entitySystem/metadata/generated/";
+    private static final String OBJECT = Type.getInternalName(Object.class);
+
+    private final Map<ClassLoader, AccessorClassLoader> classLoaders = Maps.newHashMap();
+    private int nextId = 1;
+
+    /**
+     * Generates an accessor for the given class and assigns it to all of the given fields it can access.
+     *
+     * @return The accessor, or null if none could be generated
+     */
+    public ClassAccessor create(Class<?> type, Iterable<? extends FieldMetadata> fields) {
+        if (!isPublic(type) || Modifier.isAbstract(type.getModifiers()) || type.getClassLoader() == null) {
+            return null;
+        }
+        try {
+            type.getConstructor();
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+
+        List<FieldMetadata> readableFields = Lists.newArrayList();
+        Set<FieldMetadata> writableFields = Sets.newHashSet();
+        for (FieldMetadata field : fields) {
+            if (isReadable(field)) {
+                readableFields.add(field);
+                if (isWritable(field)) {
+                    writableFields.add(field);
+                }
+            }
+        }
+
+        try {
+            ClassAccessor accessor = generate(type, readableFields, writableFields);
+            for (int i = 0; i < readableFields.size(); i++) {
+                FieldMetadata field = readableFields.get(i);
+                field.setAccessor(accessor, i, writableFields.contains(field));
+            }
+            return accessor;
+        } catch (Exception e) {
+            logger.warn("Failed to generate accessor for {}, falling back to reflection", type, e);
+        } catch (LinkageError e) {
+            logger.warn("Failed to generate accessor for {}, falling back to reflection", type, e);
+        }
+        return null;
+    }
+
+    private boolean isReadable(FieldMetadata field) {
+        if (field.getGetter() != null) {
+            return !Modifier.isStatic(field.getGetter().getModifiers());
+        }
+        return Modifier.isPublic(field.getField().getModifiers()) && isPublic(field.getField().getType());
+    }
+
+    private boolean isWritable(FieldMetadata field) {
+        if (field.getSetter() != null) {
+            return !Modifier.isStatic(field.getSetter().getModifiers());
+        }
+        int modifiers = field.getField().getModifiers();
+        return Modifier.isPublic(modifiers) && !Modifier.isFinal(modifiers) && isPublic(field.getField().getType());
+    }
+
+    private boolean isPublic(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        return type.isPrimitive() || Modifier.isPublic(type.getModifiers());
+    }
+
+    private ClassAccessor generate(Class<?> type, List<FieldMetadata> fields, Set<FieldMetadata> writableFields) throws Exception {
+        String name = GENERATED_PACKAGE + type.getSimpleName() + "Accessor" + nextId++;
+        String owner = Type.getInternalName(type);
+
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, name, null, OBJECT, new String[]{Type.getInternalName(ClassAccessor.class)});
+
+        MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        method.visitCode();
+        method.visitVarInsn(Opcodes.ALOAD, 0);
+        method.visitMethodInsn(Opcodes.INVOKESPECIAL, OBJECT, "<init>", "()V");
+        method.visitInsn(Opcodes.RETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        method = writer.visitMethod(Opcodes.ACC_PUBLIC, "newInstance", "()Ljava/lang/Object;", null, null);
+        method.visitCode();
+        method.visitTypeInsn(Opcodes.NEW, owner);
+        method.visitInsn(Opcodes.DUP);
+        method.visitMethodInsn(Opcodes.INVOKESPECIAL, owner, "<init>", "()V");
+        method.visitInsn(Opcodes.ARETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        method = writer.visitMethod(Opcodes.ACC_PUBLIC, "getValue", "(Ljava/lang/Object;I)Ljava/lang/Object;", null, null);
+        method.visitCode();
+        Label[] cases = visitSwitch(method, fields.size());
+        for (int i = 0; i < fields.size(); i++) {
+            method.visitLabel(cases[i]);
+            method.visitVarInsn(Opcodes.ALOAD, 1);
+            method.visitTypeInsn(Opcodes.CHECKCAST, owner);
+            visitGet(method, owner, fields.get(i));
+            Class<?> fieldType = fields.get(i).getField().getType();
+            if (fieldType.isPrimitive()) {
+                Class<?> wrapper = Primitives.wrap(fieldType);
+                method.visitMethodInsn(Opcodes.INVOKESTATIC, Type.getInternalName(wrapper), "valueOf", Type.getMethodDescriptor(Type.getType(wrapper), new Type[]{Type.getType(fieldType)}));
+            }
+            method.visitInsn(Opcodes.ARETURN);
+        }
+        visitThrowInvalidField(method, cases);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        method = writer.visitMethod(Opcodes.ACC_PUBLIC, "setValue", "(Ljava/lang/Object;ILjava/lang/Object;)V", null, null);
+        method.visitCode();
+        cases = visitSwitch(method, fields.size());
+        for (int i = 0; i < fields.size(); i++) {
+            method.visitLabel(cases[i]);
+            if (!writableFields.contains(fields.get(i))) {
+                method.visitJumpInsn(Opcodes.GOTO, cases[fields.size()]);
+                continue;
+            }
+            method.visitVarInsn(Opcodes.ALOAD, 1);
+            method.visitTypeInsn(Opcodes.CHECKCAST, owner);
+            method.visitVarInsn(Opcodes.ALOAD, 3);
+            Class<?> fieldType = fields.get(i).getField().getType();
+            if (fieldType.isPrimitive()) {
+                Class<?> wrapper = Primitives.wrap(fieldType);
+                method.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(wrapper));
+                method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, Type.getInternalName(wrapper), fieldType.getName() + "Value", Type.getMethodDescriptor(Type.getType(fieldType), new Type[0]));
+            } else {
+                method.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(fieldType));
+            }
+            visitSet(method, owner, fields.get(i));
+            method.visitInsn(Opcodes.RETURN);
+        }
+        visitThrowInvalidField(method, cases);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        method = writer.visitMethod(Opcodes.ACC_PUBLIC, "copyPrimitiveFields", "(Ljava/lang/Object;Ljava/lang/Object;)V", null, null);
+        method.visitCode();
+        for (FieldMetadata field : fields) {
+            if (field.getField().getType().isPrimitive() && writableFields.contains(field)) {
+                method.visitVarInsn(Opcodes.ALOAD, 2);
+                method.visitTypeInsn(Opcodes.CHECKCAST, owner);
+                method.visitVarInsn(Opcodes.ALOAD, 1);
+                method.visitTypeInsn(Opcodes.CHECKCAST, owner);
+                visitGet(method, owner, field);
+                visitSet(method, owner, field);
+            }
+        }
+        method.visitInsn(Opcodes.RETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        writer.visitEnd();
+
+        AccessorClassLoader classLoader = classLoaders.get(type.getClassLoader());
+        if (classLoader == null) {
+            classLoader = new AccessorClassLoader(type.getClassLoader());
+            classLoaders.put(type.getClassLoader(), classLoader);
+        }
+        return (ClassAccessor) classLoader.define(name.replace('/', '.'), writer.toByteArray()).newInstance();
+    }
+
+    /**
+     * Switches on the field index in local variable 2.
+     *
+     * @return The labels of the cases, followed by the label of the default case
+     */
+    private Label[] visitSwitch(MethodVisitor method, int fieldCount) {
+        Label[] labels = new Label[fieldCount + 1];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = new Label();
+        }
+        if (fieldCount > 0) {
+            Label[] cases = new Label[fieldCount];
+            System.arraycopy(labels, 0, cases, 0, fieldCount);
+            method.visitVarInsn(Opcodes.ILOAD, 2);
+            method.visitTableSwitchInsn(0, fieldCount - 1, labels[fieldCount], cases);
+        }
+        return labels;
+    }
+
+    private void visitThrowInvalidField(MethodVisitor method, Label[] labels) {
+        String exception = Type.getInternalName(IllegalArgumentException.class);
+        method.visitLabel(labels[labels.length - 1]);
+        method.visitTypeInsn(Opcodes.NEW, exception);
+        method.visitInsn(Opcodes.DUP);
+        method.visitMethodInsn(Opcodes.INVOKESPECIAL, exception, "<init>", "()V");
+        method.visitInsn(Opcodes.ATHROW);
+    }
+
+    private void visitGet(MethodVisitor method, String owner, FieldMetadata field) {
+        Method getter = field.getGetter();
+        if (getter != null) {
+            method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, owner, getter.getName(), Type.getMethodDescriptor(getter));
+        } else {
+            Field target = field.getField();
+            method.visitFieldInsn(Opcodes.GETFIELD, owner, target.getName(), Type.getDescriptor(target.getType()));
+        }
+    }
+
+    private void visitSet(MethodVisitor method, String owner, FieldMetadata field) {
+        Method setter = field.getSetter();
+        if (setter != null) {
+            method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, owner, setter.getName(), Type.getMethodDescriptor(setter));
+            Type returnType = Type.getReturnType(setter);
+            if (returnType.getSort() != Type.VOID) {
+                method.visitInsn((returnType.getSize() == 2) ? Opcodes.POP2 : Opcodes.POP);
+            }
+        } else {
+            Field target = field.getField();
+            method.visitFieldInsn(Opcodes.PUTFIELD, owner, target.getName(), Type.getDescriptor(target.getType()));
+        }
+    }
+
+    /**
+     * Defines the generated accessors. Its parent is the class loader of the accessed classes, so that accessors
+     * can be generated for components of mods.
+     */
+    private static class AccessorClassLoader extends ClassLoader {
+
+        public AccessorClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        public Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
@@ -43,6 +43,7 @@ import org.terasology.entitySystem.metadata.core.SetTypeHandler;
 import org.terasology.entitySystem.metadata.core.StringMapTypeHandler;
 import org.terasology.entitySystem.metadata.core.StringTypeHandler;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 /**
@@ -55,6 +56,7 @@ public final class ComponentLibraryImpl implements ComponentLibrary {
     private Map<Class<? extends Component>, ComponentMetadata> componentSerializationLookup = Maps.newHashMap();
     private Map<String, Class<? extends Component>> componentTypeLookup = Maps.newHashMap();
     private Map<Class<?>, TypeHandler<?>> typeHandlers = Maps.newHashMap();
+    private ClassAccessorFactory accessorFactory = new ClassAccessorFactory();
 
     public ComponentLibraryImpl() {
         registerTypeHandler(Boolean.class, new BooleanTypeHandler());
@@ -98,6 +100,7 @@ public final class ComponentLibraryImpl implements ComponentLibrary {
                 info.addField(new FieldMetadata(field, componentClass, typeHandler));
             }
         }
+        info.setAccessor(accessorFactory.create(componentClass, info.iterateFields()));
         componentSerializationLookup.put(componentClass, info);
         componentTypeLookup.put(ComponentUtil.getComponentClassName(componentClass).toLowerCase(Locale.ENGLISH), componentClass);
     }
@@ -198,6 +201,7 @@ public final class ComponentLibraryImpl implements ComponentLibrary {
 
             logger.warn("Handling serialization of type {} via MappedContainer", typeClass);
             MappedContainerTypeHandler mappedHandler = new MappedContainerTypeHandler(typeClass);
+            List<FieldMetadata> fields = Lists.newArrayList();
             for (Field field : typeClass.getDeclaredFields()) {
                 if (Modifier.isTransient(field.getModifiers()) || Modifier.isStatic(field.getModifiers()))
                     continue;
@@ -207,9 +211,13 @@ public final class ComponentLibraryImpl implements ComponentLibrary {
                 if (handler == null) {
                     logger.error("Unsupported field type in component type {}, {} : {}", typeClass.getSimpleName(), field.getName(), field.getGenericType());
                 } else {
-                    mappedHandler.addField(new FieldMetadata(field, typeClass, handler));
+                    fields.add(new FieldMetadata(field, typeClass, handler));
                 }
             }
+            accessorFactory.create(typeClass, fields);
+            for (FieldMetadata field : fields) {
+                mappedHandler.addField(field);
+            }
             return mappedHandler;
         }
 
@@ -16,6 +16,7 @@
 package org.terasology.entitySystem.metadata;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
@@ -23,6 +24,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terasology.entitySystem.Component;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 /**
@@ -33,6 +35,9 @@ public final class ComponentMetadata<T extends Component> {
 
     private Map<String, FieldMetadata> fields = Maps.newHashMap();
     private Class<T> clazz;
+    private ClassAccessor accessor;
+    // The fields clone() copies itself, built on first use
+    private FieldMetadata[] clonedFields;
 
     public ComponentMetadata(Class<T> componentClass) {
         this.clazz = componentClass;
@@ -44,6 +49,7 @@ public final class ComponentMetadata<T extends Component> {
 
     public void addField(FieldMetadata fieldInfo) {
         fields.put(fieldInfo.getName().toLowerCase(Locale.ENGLISH), fieldInfo);
+        clonedFields = null;
     }
 
     public FieldMetadata getField(String name) {
@@ -54,8 +60,19 @@ public final class ComponentMetadata<T extends Component> {
         return fields.values();
     }
 
+    /**
+     * Makes instances of this component type be created and copied by a generated accessor instead of reflection.
+     */
+    void setAccessor(ClassAccessor accessor) {
+        this.accessor = accessor;
+        clonedFields = null;
+    }
+
     public T newInstance() {
         try {
+            if (accessor != null) {
+                return clazz.cast(accessor.newInstance());
+            }
             return clazz.newInstance();
         } catch (InstantiationException e) {
             logger.error("Exception instantiating component type: {}", clazz, e);
@@ -67,8 +84,15 @@ public final class ComponentMetadata<T extends Component> {
 
     public T clone(T component) {
         try {
-            T result = clazz.newInstance();
-            for (FieldMetadata field : fields.values()) {
+            FieldMetadata[] fieldsToClone = getClonedFields();
+            T result;
+            if (accessor != null) {
+                result = clazz.cast(accessor.newInstance());
+                accessor.copyPrimitiveFields(component, result);
+            } else {
+                result = clazz.newInstance();
+            }
+            for (FieldMetadata field : fieldsToClone) {
                 field.setValue(result, field.copy(field.getValue(component)));
             }
             return result;
@@ -82,5 +106,18 @@ public final class ComponentMetadata<T extends Component> {
         return null;
     }
 
-
+    private FieldMetadata[] getClonedFields() {
+        FieldMetadata[] result = clonedFields;
+        if (result == null) {
+            List<FieldMetadata> fieldList = Lists.newArrayListWithCapacity(fields.size());
+            for (FieldMetadata field : fields.values()) {
+                if (accessor == null || !field.isCopiedByAccessor()) {
+                    fieldList.add(field);
+                }
+            }
+            result = fieldList.toArray(new FieldMetadata[fieldList.size()]);
+            clonedFields = result;
+        }
+        return result;
+    }
 }
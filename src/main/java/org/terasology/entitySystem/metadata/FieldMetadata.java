@@ -30,6 +30,9 @@ public final class FieldMetadata {
     private Method getter;
     private Method setter;
     private TypeHandler serializationHandler;
+    private ClassAccessor accessor;
+    private int accessorIndex;
+    private boolean accessorWrites;
 
     public FieldMetadata(Field field, Class type, TypeHandler handler) {
         this.field = field;
@@ -55,6 +58,13 @@ public final class FieldMetadata {
     }
 
     public Object getValue(Object obj) throws IllegalAccessException, InvocationTargetException {
+        if (accessor != null) {
+            try {
+                return accessor.getValue(obj, accessorIndex);
+            } catch (RuntimeException e) {
+                throw new InvocationTargetException(e);
+            }
+        }
         if (getter != null) {
             return getter.invoke(obj);
         }
@@ -62,13 +72,50 @@ public final class FieldMetadata {
     }
 
     public void setValue(Object target, Object value) throws IllegalAccessException, InvocationTargetException {
-        if (setter != null) {
+        if (accessorWrites) {
+            try {
+                accessor.setValue(target, accessorIndex, value);
+            } catch (RuntimeException e) {
+                throw new InvocationTargetException(e);
+            }
+        } else if (setter != null) {
             setter.invoke(target, value);
         } else {
             field.set(target, value);
         }
     }
 
+    Field getField() {
+        return field;
+    }
+
+    Method getGetter() {
+        return getter;
+    }
+
+    Method getSetter() {
+        return setter;
+    }
+
+    /**
+     * Makes this field be read, and possibly written, by a generated accessor instead of reflection.
+     *
+     * @param index  The index of this field in the accessor
+     * @param writes Whether the accessor can also write the field
+     */
+    void setAccessor(ClassAccessor accessor, int index, boolean writes) {
+        this.accessor = accessor;
+        this.accessorIndex = index;
+        this.accessorWrites = writes;
+    }
+
+    /**
+     * @return Whether {@link ClassAccessor#copyPrimitiveFields(Object, Object)} copies this field
+     */
+    boolean isCopiedByAccessor() {
+        return accessorWrites && field.getType().isPrimitive();
+    }
+
     private Method findGetter(Class type, Field field) {
         Method result = findMethod(type, "get" + field.getName().substring(0, 1).toUpperCase(Locale.ENGLISH) + field.getName().substring(1));
         if (result != null && field.getType().equals(result.getReturnType())) {
@@ -25,6 +25,10 @@ import org.terasology.protobuf.EntityData;
 import com.google.common.collect.Lists;
 
 /**
+ * Persists entity references as plain entity ids. The generation of a reference is not persisted: a reference to
+ * a destroyed entity is saved as no entity, and loaded ids resolve to the current generation, so references to
+ * entities which are loaded later in the same world still refer to them.
+ *
  * @author Immortius <immortius@gmail.com>
  */
 public class EntityRefTypeHandler implements TypeHandler<EntityRef> {
@@ -66,8 +70,8 @@ public class EntityRefTypeHandler implements TypeHandler<EntityRef> {
 
     public List<EntityRef> deserializeList(EntityData.Value value) {
         List<EntityRef> result = Lists.newArrayListWithCapacity(value.getIntegerCount());
-        for (Integer item : value.getIntegerList()) {
-            result.add(entityManager.createEntityRefWithId(item));
+        for (int i = 0; i < value.getIntegerCount(); i++) {
+            result.add(entityManager.createEntityRefWithId(value.getInteger(i)));
         }
         return result;
     }
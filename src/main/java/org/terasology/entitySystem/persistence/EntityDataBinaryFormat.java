@@ -0,0 +1,109 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.persistence;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.terasology.protobuf.EntityData;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.WireFormat;
+
+/**
+ * Writes and reads worlds in the protobuf binary format one entity at a time.
+ * <p/>
+ * The header, each entity and the footer are written as fields of a World message, so a saved world is a single
+ * World message which can also be parsed as a whole. Unlike a serialized World message, the header comes before the
+ * entities, which allows them to be deserialized while reading.
+ */
+final class EntityDataBinaryFormat {
+
+    /* The low bits of a tag which hold the wire type */
+    private static final int TAG_TYPE_MASK = 0x7;
+
+    private EntityDataBinaryFormat() {
+    }
+
+    public static WorldDataHandler newWorldWriter(OutputStream out) {
+        final CodedOutputStream output = CodedOutputStream.newInstance(out);
+        return new WorldDataHandler() {
+            @Override
+            public void handleHeader(EntityData.World header) throws IOException {
+                header.writeTo(output);
+            }
+
+            @Override
+            public void handleEntity(EntityData.Entity entity) throws IOException {
+                output.writeMessage(EntityData.World.ENTITY_FIELD_NUMBER, entity);
+            }
+
+            @Override
+            public void handleFooter(EntityData.World footer) throws IOException {
+                footer.writeTo(output);
+                output.flush();
+            }
+        };
+    }
+
+    public static void readWorld(InputStream in, WorldDataHandler handler) throws IOException {
+        CodedInputStream input = CodedInputStream.newInstance(in);
+        WorldDataReader reader = new WorldDataReader(handler);
+        for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case EntityData.World.ENTITY_FIELD_NUMBER:
+                    EntityData.Entity.Builder entity = EntityData.Entity.newBuilder();
+                    input.readMessage(entity, ExtensionRegistryLite.getEmptyRegistry());
+                    reader.readEntity(entity.build());
+                    break;
+                case EntityData.World.PREFAB_FIELD_NUMBER:
+                    EntityData.Prefab.Builder prefab = EntityData.Prefab.newBuilder();
+                    input.readMessage(prefab, ExtensionRegistryLite.getEmptyRegistry());
+                    reader.getHeader().addPrefab(prefab);
+                    break;
+                case EntityData.World.COMPONENT_CLASS_FIELD_NUMBER:
+                    reader.getHeader().addComponentClass(input.readString());
+                    break;
+                case EntityData.World.NEXT_ENTITY_ID_FIELD_NUMBER:
+                    reader.getHeader().setNextEntityId(input.readSInt32());
+                    break;
+                case EntityData.World.FREED_ENTITY_ID_FIELD_NUMBER:
+                    if ((tag & TAG_TYPE_MASK) == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+                        int limit = input.pushLimit(input.readRawVarint32());
+                        while (input.getBytesUntilLimit() > 0) {
+                            reader.getHeader().addFreedEntityId(input.readSInt32());
+                        }
+                        input.popLimit(limit);
+                    } else {
+                        reader.getHeader().addFreedEntityId(input.readSInt32());
+                    }
+                    break;
+                case EntityData.World.PREFAB_NAME_FIELD_NUMBER:
+                    reader.getHeader().addPrefabName(input.readString());
+                    break;
+                default:
+                    input.skipField(tag);
+                    break;
+            }
+            // The size limit applies to everything read so far, rather than to each entity
+            input.resetSizeCounter();
+        }
+        reader.finish();
+    }
+}
@@ -22,6 +22,7 @@ import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
@@ -40,7 +41,10 @@ import com.google.gson.JsonPrimitive;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import com.google.protobuf.ByteString;
+import com.google.common.collect.Lists;
 import com.google.protobuf.Descriptors;
 
 /**
@@ -64,6 +68,45 @@ public class EntityDataJSONFormat {
         }
     }
 
+    /**
+     * @return A handler writing the world it receives to the given writer, in the same format as write(World).
+     */
+    public static WorldDataHandler newWorldWriter(BufferedWriter writer) {
+        return new StreamingWorldWriter(newGson(), writer);
+    }
+
+    /**
+     * Reads a world one entity at a time, passing it to the given handler.
+     */
+    public static void readWorld(BufferedReader reader, WorldDataHandler handler) throws IOException {
+        Gson gson = newGson();
+        JsonReader jsonReader = new JsonReader(reader);
+        WorldDataReader worldReader = new WorldDataReader(handler);
+        try {
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                String name = jsonReader.nextName();
+                if (name.equals(ENTITY_FIELD)) {
+                    jsonReader.beginArray();
+                    while (jsonReader.hasNext()) {
+                        worldReader.readEntity((EntityData.Entity) gson.fromJson(jsonReader, EntityData.Entity.class));
+                    }
+                    jsonReader.endArray();
+                } else {
+                    JsonObject field = new JsonObject();
+                    field.add(name, (JsonElement) gson.fromJson(jsonReader, JsonElement.class));
+                    worldReader.getHeader().mergeFrom(gson.fromJson(field, EntityData.World.class));
+                }
+            }
+            jsonReader.endObject();
+        } catch (JsonParseException e) {
+            throw new IOException("Failed to load world", e);
+        } catch (IllegalStateException e) {
+            throw new IOException("Failed to load world", e);
+        }
+        worldReader.finish();
+    }
+
     public static EntityData.Prefab readPrefab(BufferedReader reader) throws IOException {
         try {
             return newGson().fromJson(reader, EntityData.Prefab.class);
@@ -72,6 +115,9 @@ public class EntityDataJSONFormat {
         }
     }
 
+    private static final String ENTITY_FIELD = "entity";
+    private static final String FREED_ENTITY_ID_FIELD = "freed_entity_id";
+
     private static Gson newGson() {
         return new GsonBuilder()
                 .setPrettyPrinting()
@@ -128,6 +174,60 @@ public class EntityDataJSONFormat {
         }
     }
 
+    /**
+     * Writes the world as a single JSON object like WorldHandler, but an entity at a time. Freed entity ids are held
+     * back until the footer, so that they can be written as one array.
+     */
+    private static class StreamingWorldWriter implements WorldDataHandler {
+        private final Gson gson;
+        private final BufferedWriter writer;
+        private final JsonWriter jsonWriter;
+        private final List<Integer> freedIds = Lists.newArrayList();
+
+        public StreamingWorldWriter(Gson gson, BufferedWriter writer) {
+            this.gson = gson;
+            this.writer = writer;
+            this.jsonWriter = new JsonWriter(writer);
+            jsonWriter.setIndent("  ");
+        }
+
+        @Override
+        public void handleHeader(EntityData.World header) throws IOException {
+            jsonWriter.beginObject();
+            writeFields(header);
+            jsonWriter.name(ENTITY_FIELD);
+            jsonWriter.beginArray();
+        }
+
+        @Override
+        public void handleEntity(EntityData.Entity entity) throws IOException {
+            gson.toJson(entity, EntityData.Entity.class, jsonWriter);
+        }
+
+        @Override
+        public void handleFooter(EntityData.World footer) throws IOException {
+            jsonWriter.endArray();
+            writeFields(footer);
+            if (!freedIds.isEmpty()) {
+                jsonWriter.name(FREED_ENTITY_ID_FIELD);
+                gson.toJson(gson.toJsonTree(freedIds), jsonWriter);
+            }
+            jsonWriter.endObject();
+            jsonWriter.flush();
+            writer.flush();
+        }
+
+        private void writeFields(EntityData.World world) throws IOException {
+            freedIds.addAll(world.getFreedEntityIdList());
+            for (Map.Entry<Descriptors.FieldDescriptor, Object> field : world.getAllFields().entrySet()) {
+                if (field.getKey().getNumber() != EntityData.World.FREED_ENTITY_ID_FIELD_NUMBER) {
+                    jsonWriter.name(field.getKey().getName());
+                    gson.toJson(gson.toJsonTree(field.getValue()), jsonWriter);
+                }
+            }
+        }
+    }
+
     private static class ComponentHandler implements JsonSerializer<EntityData.Component> {
 
         @Override
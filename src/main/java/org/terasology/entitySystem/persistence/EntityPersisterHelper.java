@@ -15,6 +15,7 @@
  */
 package org.terasology.entitySystem.persistence;
 
+import java.io.IOException;
 import java.util.Map;
 
 import org.terasology.asset.AssetUri;
@@ -39,6 +40,15 @@ public interface EntityPersisterHelper {
      */
     EntityData.World serializeWorld();
 
+    /**
+     * Serializes the current EntityManager's and PrefabManager's data like serializeWorld(), but passes each entity
+     * to the handler as soon as it is serialized instead of collecting them.
+     *
+     * @param handler
+     * @throws IOException If the handler fails
+     */
+    void serializeWorld(WorldDataHandler handler) throws IOException;
+
     /**
      * @param entity
      * @return The message for a single Entity
@@ -23,6 +23,7 @@ import gnu.trove.list.TIntList;
 import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.procedure.TIntProcedure;
 
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.util.List;
 import java.util.Locale;
@@ -78,27 +79,37 @@ public class EntityPersisterHelperImpl implements EntityPersisterHelper {
 
     @Override
     public EntityData.World serializeWorld() {
-        final EntityData.World.Builder world = EntityData.World.newBuilder();
+        final EntityData.World.Builder world = createWorldHeader();
 
-        if (isUsingLookupTables()) {
-            writeComponentTypeTable(world);
+        TIntList nonPersistedIds = new TIntArrayList();
+        for (EntityRef entity : entityManager.iteratorEntities()) {
+            if (entity.isPersisted()) {
+                world.addEntity(serializeEntity(entity));
+            } else {
+                nonPersistedIds.add(entity.getId());
+            }
         }
 
-        for (Prefab prefab : prefabManager.listPrefabs()) {
-            world.addPrefab(serializePrefab(prefab));
-        }
+        writeFreedIds(world, nonPersistedIds);
+        return world.build();
+    }
+
+    @Override
+    public void serializeWorld(WorldDataHandler handler) throws IOException {
+        handler.handleHeader(createWorldHeader().build());
 
         TIntList nonPersistedIds = new TIntArrayList();
         for (EntityRef entity : entityManager.iteratorEntities()) {
             if (entity.isPersisted()) {
-                world.addEntity(serializeEntity(entity));
+                handler.handleEntity(serializeEntity(entity));
             } else {
                 nonPersistedIds.add(entity.getId());
             }
         }
 
-        writeIdInfo(world, nonPersistedIds);
-        return world.build();
+        EntityData.World.Builder footer = EntityData.World.newBuilder();
+        writeFreedIds(footer, nonPersistedIds);
+        handler.handleFooter(footer.build());
     }
 
     @Override
@@ -165,7 +176,9 @@ public class EntityPersisterHelperImpl implements EntityPersisterHelper {
 
     @Override
     public void deserializeWorld(EntityData.World world) {
-        entityManager.setNextId(world.getNextEntityId());
+        if (world.hasNextEntityId()) {
+            entityManager.setNextId(world.getNextEntityId());
+        }
         for (Integer deadId : world.getFreedEntityIdList()) {
             entityManager.getFreedIds().add(deadId);
         }
@@ -176,6 +189,9 @@ public class EntityPersisterHelperImpl implements EntityPersisterHelper {
             }
         }
 
+        if (world.getComponentClassCount() > 0) {
+            componentIdTable.clear();
+        }
         for (int index = 0; index < world.getComponentClassCount(); ++index) {
             ComponentMetadata componentMetadata = componentLibrary.getMetadata(world.getComponentClass(index));
             if (componentMetadata != null) {
@@ -330,15 +346,14 @@ public class EntityPersisterHelperImpl implements EntityPersisterHelper {
         this.componentIdTable.clear();
     }
 
-    private void writeComponentTypeTable(EntityData.World.Builder world) {
-        for (ComponentMetadata<?> componentMetadata : componentLibrary) {
-            int index = componentIdTable.size();
-            componentIdTable.put(index, componentMetadata.getType());
-            world.addComponentClass(ComponentUtil.getComponentClassName(componentMetadata.getType()));
+    private EntityData.World.Builder createWorldHeader() {
+        final EntityData.World.Builder world = EntityData.World.newBuilder();
+        if (isUsingLookupTables()) {
+            writeComponentTypeTable(world);
+        }
+        for (Prefab prefab : prefabManager.listPrefabs()) {
+            world.addPrefab(serializePrefab(prefab));
         }
-    }
-
-    private void writeIdInfo(final EntityData.World.Builder world, TIntList nonPersistedIds) {
         world.setNextEntityId(entityManager.getNextId());
         entityManager.getFreedIds().forEach(new TIntProcedure() {
             public boolean execute(int i) {
@@ -346,6 +361,19 @@ public class EntityPersisterHelperImpl implements EntityPersisterHelper {
                 return true;
             }
         });
+        return world;
+    }
+
+    private void writeComponentTypeTable(EntityData.World.Builder world) {
+        componentIdTable.clear();
+        for (ComponentMetadata<?> componentMetadata : componentLibrary) {
+            int index = componentIdTable.size();
+            componentIdTable.put(index, componentMetadata.getType());
+            world.addComponentClass(ComponentUtil.getComponentClassName(componentMetadata.getType()));
+        }
+    }
+
+    private void writeFreedIds(final EntityData.World.Builder world, TIntList nonPersistedIds) {
         nonPersistedIds.forEach(new TIntProcedure() {
             public boolean execute(int i) {
                 world.addFreedEntityId(i);
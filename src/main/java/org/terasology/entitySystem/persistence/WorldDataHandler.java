@@ -0,0 +1,44 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.persistence;
+
+import java.io.IOException;
+
+import org.terasology.protobuf.EntityData;
+
+/**
+ * Receives a world one part at a time, so that the entities of a world never have to be held in memory all at once.
+ * <p/>
+ * The header is handled first, and contains everything needed to deserialize entities: the component class table
+ * and the prefabs, as well as the next entity id and freed entity ids. Then each entity is handled, followed by the
+ * footer, which holds further freed entity ids.
+ *
+ * @see EntityPersisterHelper#serializeWorld(WorldDataHandler)
+ */
+public interface WorldDataHandler {
+
+    /**
+     * @param header The world without entities
+     */
+    void handleHeader(EntityData.World header) throws IOException;
+
+    void handleEntity(EntityData.Entity entity) throws IOException;
+
+    /**
+     * @param footer The rest of the world, neither entities nor prefabs
+     */
+    void handleFooter(EntityData.World footer) throws IOException;
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.persistence;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.terasology.protobuf.EntityData;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Passes a world read from a stream on to a {@link WorldDataHandler}, while it is being read.
+ * <p/>
+ * The header fields are collected until the first entity is read, and handled before it. Worlds saved as a single
+ * message have their entities first, in which case the entities are kept until the header is complete.
+ */
+class WorldDataReader {
+
+    private final WorldDataHandler handler;
+
+    private EntityData.World.Builder header = EntityData.World.newBuilder();
+    private boolean headerRead;
+    private boolean headerHandled;
+    private List<EntityData.Entity> bufferedEntities;
+
+    public WorldDataReader(WorldDataHandler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * @return The builder to add header and footer fields to as they are read
+     */
+    public EntityData.World.Builder getHeader() {
+        headerRead = true;
+        return header;
+    }
+
+    public void readEntity(EntityData.Entity entity) throws IOException {
+        if (!headerHandled) {
+            if (bufferedEntities == null && headerRead) {
+                handler.handleHeader(header.build());
+                header = EntityData.World.newBuilder();
+                headerHandled = true;
+            } else {
+                if (bufferedEntities == null) {
+                    bufferedEntities = Lists.newArrayList();
+                }
+                bufferedEntities.add(entity);
+                return;
+            }
+        }
+        handler.handleEntity(entity);
+    }
+
+    public void finish() throws IOException {
+        if (!headerHandled) {
+            handler.handleHeader(header.build());
+            header = EntityData.World.newBuilder();
+            if (bufferedEntities != null) {
+                for (EntityData.Entity entity : bufferedEntities) {
+                    handler.handleEntity(entity);
+                }
+                bufferedEntities = null;
+            }
+        }
+        handler.handleFooter(header.build());
+    }
+}
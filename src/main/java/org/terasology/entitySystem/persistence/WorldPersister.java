@@ -15,6 +15,8 @@
  */
 package org.terasology.entitySystem.persistence;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
@@ -39,53 +41,74 @@ import com.google.protobuf.TextFormat;
  */
 public class WorldPersister {
 
+    /**
+     * The binary and JSON formats are written and read one entity at a time, the text format as a single message.
+     */
     public enum SaveFormat {
-        Binary {
+        Binary(true) {
             @Override
-            void save(OutputStream out, EntityData.World world) throws IOException {
-                world.writeTo(out);
-                out.flush();
+            void save(OutputStream out, EntityPersisterHelper persisterHelper) throws IOException {
+                BufferedOutputStream bufferedOut = new BufferedOutputStream(out);
+                persisterHelper.serializeWorld(EntityDataBinaryFormat.newWorldWriter(bufferedOut));
+                bufferedOut.flush();
             }
 
             @Override
-            EntityData.World load(InputStream in) throws IOException {
-                return EntityData.World.parseFrom(in);
+            void load(InputStream in, WorldDataHandler handler) throws IOException {
+                EntityDataBinaryFormat.readWorld(new BufferedInputStream(in), handler);
             }
         },
-        Text {
+        Text(false) {
             @Override
-            void save(OutputStream out, EntityData.World world) throws IOException {
+            void save(OutputStream out, EntityPersisterHelper persisterHelper) throws IOException {
                 BufferedWriter bufferedWriter = new BufferedWriter(new OutputStreamWriter(out));
-                TextFormat.print(world, bufferedWriter);
+                TextFormat.print(persisterHelper.serializeWorld(), bufferedWriter);
                 bufferedWriter.flush();
             }
 
             @Override
-            EntityData.World load(InputStream in) throws IOException {
+            void load(InputStream in, WorldDataHandler handler) throws IOException {
                 BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(in));
                 EntityData.World.Builder builder = EntityData.World.newBuilder();
                 TextFormat.merge(bufferedReader, builder);
-                return builder.build();
+                EntityData.World world = builder.build();
+                handler.handleHeader(world.toBuilder().clearEntity().build());
+                for (EntityData.Entity entity : world.getEntityList()) {
+                    handler.handleEntity(entity);
+                }
+                handler.handleFooter(EntityData.World.getDefaultInstance());
             }
         },
-        JSON {
+        JSON(false) {
             @Override
-            void save(OutputStream out, EntityData.World world) throws IOException {
+            void save(OutputStream out, EntityPersisterHelper persisterHelper) throws IOException {
                 BufferedWriter bufferedWriter = new BufferedWriter(new OutputStreamWriter(out));
-                EntityDataJSONFormat.write(world, bufferedWriter);
-                bufferedWriter.flush();
+                persisterHelper.serializeWorld(EntityDataJSONFormat.newWorldWriter(bufferedWriter));
             }
 
             @Override
-            EntityData.World load(InputStream in) throws IOException {
+            void load(InputStream in, WorldDataHandler handler) throws IOException {
                 BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(in));
-                return EntityDataJSONFormat.readWorld(bufferedReader);
+                EntityDataJSONFormat.readWorld(bufferedReader, handler);
             }
         };
 
-        abstract void save(OutputStream out, EntityData.World world) throws IOException;
+        private final boolean usingLookupTables;
+
+        private SaveFormat(boolean usingLookupTables) {
+            this.usingLookupTables = usingLookupTables;
+        }
+
+        /**
+         * @return Whether the format refers to component types and fields by the ids of the world header
+         */
+        public boolean isUsingLookupTables() {
+            return usingLookupTables;
+        }
 
-        abstract EntityData.World load(InputStream in) throws IOException;
+        abstract void save(OutputStream out, EntityPersisterHelper persisterHelper) throws IOException;
+
+        abstract void load(InputStream in, WorldDataHandler handler) throws IOException;
     }
 
     private static final Logger logger = LoggerFactory.getLogger(WorldPersister.class);
@@ -98,8 +121,6 @@ public class WorldPersister {
     }
 
     public void save(File file, SaveFormat format) throws IOException {
-        final EntityData.World world = persisterHelper.serializeWorld();
-
         File parentFile = file.getParentFile();
         if (parentFile != null && !parentFile.exists()) {
             if (!parentFile.mkdirs()) {
@@ -108,9 +129,12 @@ public class WorldPersister {
         }
         FileOutputStream out = new FileOutputStream(file);
 
+        boolean usingLookupTables = persisterHelper.isUsingLookupTables();
+        persisterHelper.setUsingLookupTables(format.isUsingLookupTables());
         try {
-            format.save(out, world);
+            format.save(out, persisterHelper);
         } finally {
+            persisterHelper.setUsingLookupTables(usingLookupTables);
             // JAVA7 : Replace with improved resource handling
             try {
                 out.close();
@@ -124,9 +148,23 @@ public class WorldPersister {
         entityManager.clear();
 
         FileInputStream in = new FileInputStream(file);
-        EntityData.World world = null;
         try {
-            world = format.load(in);
+            format.load(in, new WorldDataHandler() {
+                @Override
+                public void handleHeader(EntityData.World header) {
+                    persisterHelper.deserializeWorld(header);
+                }
+
+                @Override
+                public void handleEntity(EntityData.Entity entity) {
+                    persisterHelper.deserializeEntity(entity);
+                }
+
+                @Override
+                public void handleFooter(EntityData.World footer) {
+                    persisterHelper.deserializeWorld(footer);
+                }
+            });
         } finally {
             // JAVA7: Replace with improved resource handling
             try {
@@ -135,9 +173,5 @@ public class WorldPersister {
                 logger.error("Failed to close file", e);
             }
         }
-
-        if (world != null) {
-            persisterHelper.deserializeWorld(world);
-        }
     }
 }
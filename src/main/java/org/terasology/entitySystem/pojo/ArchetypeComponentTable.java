@@ -0,0 +1,501 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.pojo;
+
+import gnu.trove.iterator.TIntIterator;
+import gnu.trove.iterator.TIntObjectIterator;
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.terasology.entitySystem.Component;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * A table for storing entities and components, which groups entities by the set of component classes they have.
+ * <p/>
+ * Each distinct set of component classes is an archetype. An archetype stores the components of its entities in
+ * one dense array per component class, so the components of an entity are found at the same row in every array.
+ * Adding a component to or removing a component from an entity moves the entity to another archetype, the
+ * archetypes reached by adding or removing a component class are cached, so a move does not search for them.
+ * Removing an entity from an archetype moves the last entity of the archetype into its row.
+ * <p/>
+ * Looking up a component is a single hash lookup of the component class, iterating the entities with a set of
+ * components only visits the archetypes containing them.
+ *
+ * @see ComponentTable
+ */
+class ArchetypeComponentTable implements ComponentStore {
+
+    private static final int NO_TYPE = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final TObjectIntMap<Class<? extends Component>> typeIds = new TObjectIntHashMap<Class<? extends Component>>(INITIAL_CAPACITY, 0.5f, NO_TYPE);
+    private final List<List<Archetype>> archetypesByType = Lists.newArrayList();
+    private final Map<BitSet, Archetype> archetypes = Maps.newHashMap();
+    private int[] componentCounts = new int[INITIAL_CAPACITY];
+
+    /* The archetype and row of each entity, indexed by entity id */
+    private Archetype[] entityArchetypes = new Archetype[INITIAL_CAPACITY];
+    private int[] entityRows = new int[INITIAL_CAPACITY];
+    private int entityCount;
+
+    @Override
+    public <T extends Component> T get(int entityId, Class<T> componentClass) {
+        Archetype archetype = getArchetype(entityId);
+        if (archetype == null) {
+            return null;
+        }
+        int column = archetype.getColumn(typeIds.get(componentClass));
+        if (column < 0) {
+            return null;
+        }
+        return componentClass.cast(archetype.columns[column][entityRows[entityId]]);
+    }
+
+    @Override
+    public Component put(int entityId, Component component) {
+        int type = getOrCreateType(component.getClass());
+        Archetype from = getArchetype(entityId);
+        if (from != null) {
+            int column = from.getColumn(type);
+            if (column >= 0) {
+                Component[] components = from.columns[column];
+                int row = entityRows[entityId];
+                Component old = components[row];
+                components[row] = component;
+                return old;
+            }
+        }
+        Archetype to = (from == null) ? getArchetype(singleType(type)) : getArchetypeWith(from, type);
+        move(entityId, from, to);
+        to.columns[to.getColumn(type)][entityRows[entityId]] = component;
+        componentCounts[type]++;
+        return null;
+    }
+
+    @Override
+    public <T extends Component> Component remove(int entityId, Class<T> componentClass) {
+        Archetype from = getArchetype(entityId);
+        if (from == null) {
+            return null;
+        }
+        int type = typeIds.get(componentClass);
+        int column = from.getColumn(type);
+        if (column < 0) {
+            return null;
+        }
+        Component old = from.columns[column][entityRows[entityId]];
+        move(entityId, from, getArchetypeWithout(from, type));
+        componentCounts[type]--;
+        return old;
+    }
+
+    @Override
+    public void remove(int entityId) {
+        Archetype from = getArchetype(entityId);
+        if (from != null) {
+            for (int type : from.types) {
+                componentCounts[type]--;
+            }
+            move(entityId, from, null);
+        }
+    }
+
+    @Override
+    public void clear() {
+        typeIds.clear();
+        archetypesByType.clear();
+        archetypes.clear();
+        componentCounts = new int[INITIAL_CAPACITY];
+        entityArchetypes = new Archetype[INITIAL_CAPACITY];
+        entityRows = new int[INITIAL_CAPACITY];
+        entityCount = 0;
+    }
+
+    @Override
+    public int getComponentCount(Class<? extends Component> componentClass) {
+        int type = typeIds.get(componentClass);
+        if (type == NO_TYPE) {
+            return 0;
+        }
+        return componentCounts[type];
+    }
+
+    @Override
+    public Iterable<Component> iterateComponents(int entityId) {
+        Archetype archetype = getArchetype(entityId);
+        if (archetype == null) {
+            return Lists.newArrayList();
+        }
+        int row = entityRows[entityId];
+        List<Component> components = Lists.newArrayListWithCapacity(archetype.columns.length);
+        for (Component[] column : archetype.columns) {
+            components.add(column[row]);
+        }
+        return components;
+    }
+
+    @Override
+    public <T extends Component> TIntObjectIterator<T> componentIterator(Class<T> componentClass) {
+        int type = typeIds.get(componentClass);
+        if (type == NO_TYPE || componentCounts[type] == 0) {
+            return null;
+        }
+        return new ComponentIterator<T>(archetypesByType.get(type), type);
+    }
+
+    @Override
+    public TIntIterator entityIdIterator() {
+        TIntList ids = new TIntArrayList(entityCount);
+        for (Archetype archetype : archetypes.values()) {
+            ids.add(archetype.entities, 0, archetype.size);
+        }
+        return ids.iterator();
+    }
+
+    @Override
+    public int numEntities() {
+        return entityCount;
+    }
+
+    @Override
+    public TIntList findEntities(Class<? extends Component>... componentClasses) {
+        TIntList ids = new TIntArrayList();
+        int[] types = new int[componentClasses.length];
+        List<Archetype> candidates = null;
+        for (int i = 0; i < componentClasses.length; i++) {
+            types[i] = typeIds.get(componentClasses[i]);
+            if (types[i] == NO_TYPE) {
+                return ids;
+            }
+            List<Archetype> typeArchetypes = archetypesByType.get(types[i]);
+            if (candidates == null || typeArchetypes.size() < candidates.size()) {
+                candidates = typeArchetypes;
+            }
+        }
+        for (Archetype archetype : candidates) {
+            if (archetype.containsAll(types)) {
+                ids.add(archetype.entities, 0, archetype.size);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * @return The number of archetypes, including those without entities
+     */
+    int getArchetypeCount() {
+        return archetypes.size();
+    }
+
+    private Archetype getArchetype(int entityId) {
+        if (entityId < 0 || entityId >= entityArchetypes.length) {
+            return null;
+        }
+        return entityArchetypes[entityId];
+    }
+
+    private int getOrCreateType(Class<? extends Component> componentClass) {
+        int type = typeIds.get(componentClass);
+        if (type == NO_TYPE) {
+            type = archetypesByType.size();
+            typeIds.put(componentClass, type);
+            archetypesByType.add(Lists.<Archetype>newArrayList());
+            if (type >= componentCounts.length) {
+                componentCounts = Arrays.copyOf(componentCounts, componentCounts.length * 2);
+            }
+        }
+        return type;
+    }
+
+    private BitSet singleType(int type) {
+        BitSet types = new BitSet();
+        types.set(type);
+        return types;
+    }
+
+    private Archetype getArchetype(BitSet types) {
+        Archetype archetype = archetypes.get(types);
+        if (archetype == null) {
+            archetype = new Archetype(types);
+            archetypes.put(types, archetype);
+            for (int type : archetype.types) {
+                archetypesByType.get(type).add(archetype);
+            }
+        }
+        return archetype;
+    }
+
+    private Archetype getArchetypeWith(Archetype from, int type) {
+        Archetype to = from.getAddEdge(type);
+        if (to == null) {
+            BitSet types = (BitSet) from.signature.clone();
+            types.set(type);
+            to = getArchetype(types);
+            from.setAddEdge(type, to);
+            to.setRemoveEdge(type, from);
+        }
+        return to;
+    }
+
+    /**
+     * @return The archetype without the given type, or null if no types are left
+     */
+    private Archetype getArchetypeWithout(Archetype from, int type) {
+        if (from.types.length == 1) {
+            return null;
+        }
+        Archetype to = from.getRemoveEdge(type);
+        if (to == null) {
+            BitSet types = (BitSet) from.signature.clone();
+            types.clear(type);
+            to = getArchetype(types);
+            from.setRemoveEdge(type, to);
+            to.setAddEdge(type, from);
+        }
+        return to;
+    }
+
+    /**
+     * Moves an entity between archetypes, copying the components both archetypes have.
+     *
+     * @param from The current archetype of the entity, or null if it has none
+     * @param to   The new archetype of the entity, or null to remove it
+     */
+    private void move(int entityId, Archetype from, Archetype to) {
+        if (to != null) {
+            int newRow = to.append(entityId);
+            if (from != null) {
+                int oldRow = entityRows[entityId];
+                for (int column = 0; column < from.columns.length; column++) {
+                    int toColumn = to.getColumn(from.types[column]);
+                    if (toColumn >= 0) {
+                        to.columns[toColumn][newRow] = from.columns[column][oldRow];
+                    }
+                }
+            }
+            ensureEntityCapacity(entityId);
+        }
+        if (from != null) {
+            int movedEntity = from.removeRow(entityRows[entityId]);
+            if (movedEntity != entityId) {
+                entityRows[movedEntity] = entityRows[entityId];
+            }
+        }
+        if (from == null) {
+            entityCount++;
+        } else if (to == null) {
+            entityCount--;
+        }
+        if (to != null) {
+            entityArchetypes[entityId] = to;
+            entityRows[entityId] = to.size - 1;
+        } else {
+            entityArchetypes[entityId] = null;
+        }
+    }
+
+    private void ensureEntityCapacity(int entityId) {
+        if (entityId >= entityArchetypes.length) {
+            int capacity = Math.max(entityArchetypes.length * 2, Integer.highestOneBit(entityId) * 2);
+            entityArchetypes = Arrays.copyOf(entityArchetypes, capacity);
+            entityRows = Arrays.copyOf(entityRows, capacity);
+        }
+    }
+
+    /**
+     * The entities with a given set of component classes and their components, stored in one array per class.
+     */
+    private static final class Archetype {
+        private final BitSet signature;
+        /* The component types of the columns, in ascending order */
+        private final int[] types;
+        /* The column of each component type, indexed by type */
+        private final int[] columnOfType;
+        /* The archetypes reached by adding or removing a component type, indexed by type */
+        private Archetype[] addEdges = new Archetype[0];
+        private Archetype[] removeEdges = new Archetype[0];
+
+        private Component[][] columns;
+        private int[] entities = new int[INITIAL_CAPACITY];
+        private int size;
+
+        private Archetype(BitSet signature) {
+            this.signature = signature;
+            types = new int[signature.cardinality()];
+            columnOfType = new int[signature.length()];
+            Arrays.fill(columnOfType, NO_TYPE);
+            columns = new Component[types.length][INITIAL_CAPACITY];
+            int column = 0;
+            for (int type = signature.nextSetBit(0); type >= 0; type = signature.nextSetBit(type + 1)) {
+                types[column] = type;
+                columnOfType[type] = column++;
+            }
+        }
+
+        private int getColumn(int type) {
+            if (type < 0 || type >= columnOfType.length) {
+                return NO_TYPE;
+            }
+            return columnOfType[type];
+        }
+
+        private Archetype getAddEdge(int type) {
+            return type < addEdges.length ? addEdges[type] : null;
+        }
+
+        private void setAddEdge(int type, Archetype archetype) {
+            if (type >= addEdges.length) {
+                addEdges = Arrays.copyOf(addEdges, type + 1);
+            }
+            addEdges[type] = archetype;
+        }
+
+        private Archetype getRemoveEdge(int type) {
+            return type < removeEdges.length ? removeEdges[type] : null;
+        }
+
+        private void setRemoveEdge(int type, Archetype archetype) {
+            if (type >= removeEdges.length) {
+                removeEdges = Arrays.copyOf(removeEdges, type + 1);
+            }
+            removeEdges[type] = archetype;
+        }
+
+        private boolean containsAll(int[] requiredTypes) {
+            for (int type : requiredTypes) {
+                if (getColumn(type) == NO_TYPE) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return The row of the appended entity
+         */
+        private int append(int entityId) {
+            if (size == entities.length) {
+                int capacity = size * 2;
+                entities = Arrays.copyOf(entities, capacity);
+                for (int column = 0; column < columns.length; column++) {
+                    columns[column] = Arrays.copyOf(columns[column], capacity);
+                }
+            }
+            entities[size] = entityId;
+            return size++;
+        }
+
+        /**
+         * Removes a row by moving the last row into it.
+         *
+         * @return The entity now at the row, or the removed entity if it was in the last row
+         */
+        private int removeRow(int row) {
+            int last = --size;
+            int removedEntity = entities[row];
+            entities[row] = entities[last];
+            for (Component[] column : columns) {
+                column[row] = column[last];
+                column[last] = null;
+            }
+            return row == last ? removedEntity : entities[row];
+        }
+    }
+
+    /**
+     * Iterates the components of one class across all archetypes containing it.
+     */
+    private static final class ComponentIterator<T extends Component> implements TIntObjectIterator<T> {
+        private final List<Archetype> archetypes;
+        private final int type;
+        private int archetypeIndex;
+        private int row = -1;
+        private Archetype current;
+        private Archetype next;
+        private int nextRow;
+
+        private ComponentIterator(List<Archetype> archetypes, int type) {
+            this.archetypes = archetypes;
+            this.type = type;
+            findNext(0, 0);
+        }
+
+        private void findNext(int fromArchetype, int fromRow) {
+            next = null;
+            for (int i = fromArchetype; i < archetypes.size(); i++) {
+                Archetype archetype = archetypes.get(i);
+                int startRow = (i == fromArchetype) ? fromRow : 0;
+                if (startRow < archetype.size) {
+                    next = archetype;
+                    nextRow = startRow;
+                    archetypeIndex = i;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public void advance() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            current = next;
+            row = nextRow;
+            findNext(archetypeIndex, row + 1);
+        }
+
+        @Override
+        public int key() {
+            return current.entities[row];
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public T value() {
+            return (T) current.columns[current.getColumn(type)][row];
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public T setValue(T value) {
+            Component[] column = current.columns[current.getColumn(type)];
+            T old = (T) column[row];
+            column[row] = value;
+            return old;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
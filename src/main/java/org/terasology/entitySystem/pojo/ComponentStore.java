@@ -0,0 +1,71 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.pojo;
+
+import gnu.trove.iterator.TIntIterator;
+import gnu.trove.iterator.TIntObjectIterator;
+import gnu.trove.list.TIntList;
+
+import org.terasology.entitySystem.Component;
+
+/**
+ * Storage for the components of the entities of a {@link PojoEntityManager}. An entity without components is
+ * not stored.
+ *
+ * @see ComponentTable
+ * @see ArchetypeComponentTable
+ */
+interface ComponentStore {
+
+    <T extends Component> T get(int entityId, Class<T> componentClass);
+
+    /**
+     * @return The component of the same class the entity had before, or null
+     */
+    Component put(int entityId, Component component);
+
+    /**
+     * @return The removed component, or null if the entity had no component of the given class
+     */
+    <T extends Component> Component remove(int entityId, Class<T> componentClass);
+
+    void remove(int entityId);
+
+    void clear();
+
+    int getComponentCount(Class<? extends Component> componentClass);
+
+    Iterable<Component> iterateComponents(int entityId);
+
+    /**
+     * @return An iterator over the entity ids and components of the given class, or null if there are none
+     */
+    <T extends Component> TIntObjectIterator<T> componentIterator(Class<T> componentClass);
+
+    /**
+     * @return An iterator over the ids of all entities with at least one component
+     */
+    TIntIterator entityIdIterator();
+
+    int numEntities();
+
+    /**
+     * @param componentClasses At least one component class
+     * @return The ids of all entities which have all of the given components
+     */
+    TIntList findEntities(Class<? extends Component>... componentClasses);
+
+}
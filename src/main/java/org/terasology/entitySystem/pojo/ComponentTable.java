@@ -17,6 +17,8 @@ package org.terasology.entitySystem.pojo;
 
 import gnu.trove.iterator.TIntIterator;
 import gnu.trove.iterator.TIntObjectIterator;
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.map.TIntObjectMap;
 import gnu.trove.map.hash.TIntObjectHashMap;
 import gnu.trove.set.TIntSet;
@@ -35,9 +37,10 @@ import com.google.common.collect.Lists;
  *
  * @author Immortius <immortius@gmail.com>
  */
-class ComponentTable {
+class ComponentTable implements ComponentStore {
     private Map<Class, TIntObjectMap<Component>> store = new HashMap<Class, TIntObjectMap<Component>>();
 
+    @Override
     public <T extends Component> T get(int entityId, Class<T> componentClass) {
         TIntObjectMap<Component> entityMap = store.get(componentClass);
         if (entityMap != null) {
@@ -46,6 +49,7 @@ class ComponentTable {
         return null;
     }
 
+    @Override
     public Component put(int entityId, Component component) {
         TIntObjectMap<Component> entityMap = store.get(component.getClass());
         if (entityMap == null) {
@@ -55,6 +59,7 @@ class ComponentTable {
         return entityMap.put(entityId, component);
     }
 
+    @Override
     public <T extends Component> Component remove(int entityId, Class<T> componentClass) {
         TIntObjectMap<Component> entityMap = store.get(componentClass);
         if (entityMap != null) {
@@ -63,16 +68,19 @@ class ComponentTable {
         return null;
     }
 
+    @Override
     public void remove(int entityId) {
         for (TIntObjectMap<Component> entityMap : store.values()) {
             entityMap.remove(entityId);
         }
     }
 
+    @Override
     public void clear() {
         store.clear();
     }
 
+    @Override
     public int getComponentCount(Class<? extends Component> componentClass) {
         TIntObjectMap<Component> map = store.get(componentClass);
         if (map == null)
@@ -80,6 +88,7 @@ class ComponentTable {
         return map.size();
     }
 
+    @Override
     public Iterable<Component> iterateComponents(int entityId) {
         List<Component> components = Lists.newArrayList();
         for (TIntObjectMap<Component> componentMap : store.values()) {
@@ -91,6 +100,7 @@ class ComponentTable {
         return components;
     }
 
+    @Override
     public <T extends Component> TIntObjectIterator<T> componentIterator(Class<T> componentClass) {
         TIntObjectMap<T> entityMap = (TIntObjectMap<T>) store.get(componentClass);
         if (entityMap != null) {
@@ -106,6 +116,7 @@ class ComponentTable {
      *
      * @return An iterator over all entity ids.
      */
+    @Override
     public TIntIterator entityIdIterator() {
         TIntSet idSet = new TIntHashSet();
         for (TIntObjectMap<Component> componentMap : store.values()) {
@@ -114,6 +125,7 @@ class ComponentTable {
         return idSet.iterator();
     }
 
+    @Override
     public int numEntities() {
         TIntSet idSet = new TIntHashSet();
         for (TIntObjectMap<Component> componentMap : store.values()) {
@@ -122,4 +134,29 @@ class ComponentTable {
         return idSet.size();
     }
 
+    @Override
+    public TIntList findEntities(Class<? extends Component>... componentClasses) {
+        TIntList idList = new TIntArrayList();
+        TIntObjectMap<Component> primeMap = store.get(componentClasses[0]);
+        if (primeMap == null) {
+            return idList;
+        }
+        TIntObjectIterator<Component> primeIterator = primeMap.iterator();
+        while (primeIterator.hasNext()) {
+            primeIterator.advance();
+            int id = primeIterator.key();
+            boolean discard = false;
+            for (int i = 1; i < componentClasses.length; ++i) {
+                if (get(id, componentClasses[i]) == null) {
+                    discard = true;
+                    break;
+                }
+            }
+            if (!discard) {
+                idList.add(id);
+            }
+        }
+        return idList;
+    }
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -13,13 +13,17 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+package org.terasology.entitySystem.pojo;
 
-package org.terasology.world.liquid;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.entitySystem.Event;
 
 /**
- * @author Immortius
+ * Calls an event handler method on its event handler system. Implementations are generated at runtime by
+ * {@link EventHandlerInvokerFactory} in their own class loader, so this interface needs to be public.
  */
-public interface LiquidSimulationTask {
-    boolean shutdownThread();
-    void run();
+public interface EventHandlerInvoker {
+
+    void invoke(Object handler, Event event, EntityRef entity) throws Exception;
+
 }
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.pojo;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.entitySystem.Event;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Creates {@link EventHandlerInvoker}s for event handler methods. Where possible the invoker is a generated
+ * class calling the method directly, which avoids the cost of Method.invoke on every event. Methods that
+ * the generated class could not access (e.g. because the event class is not public) are invoked
+ * through reflection instead.
+ */
+class EventHandlerInvokerFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventHandlerInvokerFactory.class);
+
+    private static final String GENERATED_NAME = "org/terasology/entitySystem/pojo/generated/EventHandlerInvoker";
+    private static final String INVOKE_DESCRIPTOR = Type.getMethodDescriptor(Type.VOID_TYPE, new Type[]{Type.getType(Object.class), Type.getType(Event.class), Type.getType(EntityRef.class)});
+
+    private final Map<ClassLoader, InvokerClassLoader> classLoaders = Maps.newHashMap();
+    private int nextId = 1;
+
+    public EventHandlerInvoker create(Class<?> handlerClass, Method method) {
+        if (isAccessible(handlerClass, method)) {
+            try {
+                return generate(handlerClass, method);
+            } catch (Exception e) {
+                logger.warn("Failed to generate invoker for {}, falling back to reflection", method, e);
+            } catch (LinkageError e) {
+                logger.warn("Failed to generate invoker for {}, falling back to reflection", method, e);
+            }
+        }
+        return new ReflectionInvoker(method);
+    }
+
+    private boolean isAccessible(Class<?> handlerClass, Method method) {
+        if (!Modifier.isPublic(handlerClass.getModifiers()) || !Modifier.isPublic(method.getModifiers()) || handlerClass.getClassLoader() == null) {
+            return false;
+        }
+        for (Class<?> parameterType : method.getParameterTypes()) {
+            if (!Modifier.isPublic(parameterType.getModifiers())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private EventHandlerInvoker generate(Class<?> handlerClass, Method method) throws Exception {
+        String name = GENERATED_NAME + nextId++;
+        String handlerName = Type.getInternalName(handlerClass);
+        Class<?>[] parameterTypes = method.getParameterTypes();
+
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, name, null, Type.getInternalName(Object.class), new String[]{Type.getInternalName(EventHandlerInvoker.class)});
+
+        MethodVisitor constructor = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, Type.getInternalName(Object.class), "<init>", "()V");
+        constructor.visitInsn(Opcodes.RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+
+        MethodVisitor invoke = writer.visitMethod(Opcodes.ACC_PUBLIC, "invoke", INVOKE_DESCRIPTOR, null, null);
+        invoke.visitCode();
+        invoke.visitVarInsn(Opcodes.ALOAD, 1);
+        invoke.visitTypeInsn(Opcodes.CHECKCAST, handlerName);
+        invoke.visitVarInsn(Opcodes.ALOAD, 2);
+        invoke.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(parameterTypes[0]));
+        invoke.visitVarInsn(Opcodes.ALOAD, 3);
+        invoke.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(parameterTypes[1]));
+        invoke.visitMethodInsn(Opcodes.INVOKEVIRTUAL, handlerName, method.getName(), Type.getMethodDescriptor(method));
+        Type returnType = Type.getReturnType(method);
+        if (returnType.getSort() != Type.VOID) {
+            invoke.visitInsn((returnType.getSize() == 2) ? Opcodes.POP2 : Opcodes.POP);
+        }
+        invoke.visitInsn(Opcodes.RETURN);
+        invoke.visitMaxs(0, 0);
+        invoke.visitEnd();
+
+        writer.visitEnd();
+
+        InvokerClassLoader classLoader = classLoaders.get(handlerClass.getClassLoader());
+        if (classLoader == null) {
+            classLoader = new InvokerClassLoader(handlerClass.getClassLoader());
+            classLoaders.put(handlerClass.getClassLoader(), classLoader);
+        }
+        Class<?> invokerClass = classLoader.define(name.replace('/', '.'), writer.toByteArray());
+        return (EventHandlerInvoker) invokerClass.newInstance();
+    }
+
+    /**
+     * Defines the generated invokers. Its parent is the class loader of the handlers, so the invokers can see
+     * handler classes loaded by mods.
+     */
+    private static class InvokerClassLoader extends ClassLoader {
+
+        public InvokerClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        public Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    private static class ReflectionInvoker implements EventHandlerInvoker {
+        private Method method;
+
+        public ReflectionInvoker(Method method) {
+            this.method = method;
+        }
+
+        @Override
+        public void invoke(Object handler, Event event, EntityRef entity) throws Exception {
+            method.invoke(handler, event, entity);
+        }
+    }
+}
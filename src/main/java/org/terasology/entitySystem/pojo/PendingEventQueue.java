@@ -0,0 +1,107 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.pojo;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+
+/**
+ * The events sent by threads other than the main thread, waiting to be processed by the main thread.
+ * <p/>
+ * Any number of threads may offer events, but only a single thread may poll them. Offering claims a sequence
+ * number and publishes the event into a ring buffer without locking. If the slot of that sequence number is
+ * still occupied because the ring buffer is full, the event is put into an overflow map under its sequence
+ * number instead, so offering never blocks and events are always polled in the order their sequence numbers
+ * were claimed.
+ */
+class PendingEventQueue {
+
+    private final PendingEvent[] events;
+    // The sequence number a slot is free for, or that number plus one once the event is published
+    private final AtomicLongArray sequences;
+    private final int mask;
+
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    private final ConcurrentMap<Long, PendingEvent> overflow = Maps.newConcurrentMap();
+
+    /**
+     * @param capacity The size of the ring buffer, a power of two
+     */
+    public PendingEventQueue(int capacity) {
+        Preconditions.checkArgument(capacity > 0 && Integer.bitCount(capacity) == 1, "Capacity must be a power of two: %s", capacity);
+        events = new PendingEvent[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        mask = capacity - 1;
+    }
+
+    /**
+     * May be called by any thread.
+     */
+    public void offer(PendingEvent event) {
+        long sequence = tail.getAndIncrement();
+        int index = (int) sequence & mask;
+        if (sequences.get(index) == sequence) {
+            events[index] = event;
+            sequences.set(index, sequence + 1);
+        } else {
+            overflow.put(sequence, event);
+        }
+    }
+
+    /**
+     * May only be called by the consuming thread.
+     *
+     * @return The next event, or null if there is none or the next one is still being offered
+     */
+    public PendingEvent poll() {
+        long sequence = head;
+        int index = (int) sequence & mask;
+        PendingEvent event;
+        if (sequences.get(index) == sequence + 1) {
+            event = events[index];
+            events[index] = null;
+        } else {
+            if (overflow.isEmpty()) {
+                return null;
+            }
+            event = overflow.remove(sequence);
+            if (event == null) {
+                return null;
+            }
+        }
+        sequences.set(index, sequence + events.length);
+        head = sequence + 1;
+        return event;
+    }
+
+    /**
+     * May only be called by the consuming thread.
+     *
+     * @return The number of events offered but not yet polled
+     */
+    public int size() {
+        return (int) (tail.get() - head);
+    }
+}
@@ -15,8 +15,9 @@
  */
 package org.terasology.entitySystem.pojo;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
-import com.google.common.collect.MapMaker;
+import com.google.common.collect.Maps;
 import gnu.trove.iterator.TIntIterator;
 import gnu.trove.iterator.TIntObjectIterator;
 import gnu.trove.list.TIntList;
@@ -27,6 +28,7 @@ import org.terasology.components.world.LocationComponent;
 import org.terasology.entitySystem.Component;
 import org.terasology.entitySystem.EntityInfoComponent;
 import org.terasology.entitySystem.EntityManager;
+import org.terasology.entitySystem.EntityQuery;
 import org.terasology.entitySystem.EntityRef;
 import org.terasology.entitySystem.EventSystem;
 import org.terasology.entitySystem.PersistableEntityManager;
@@ -44,6 +46,7 @@ import javax.vecmath.Quat4f;
 import javax.vecmath.Vector3f;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -58,16 +61,39 @@ public class PojoEntityManager implements EntityManager, PersistableEntityManage
 
     private static final Logger logger = LoggerFactory.getLogger(PojoEntityManager.class);
 
+    private static final int INITIAL_CAPACITY = 1024;
+
     private int nextEntityId = 1;
     private TIntList freedIds = new TIntArrayList();
-    private Map<Integer, EntityRef> entityCache = new MapMaker().concurrencyLevel(4).weakValues().makeMap();
 
-    private ComponentTable store = new ComponentTable();
+    /* Indexed by entity id. The generation of an id is incremented whenever its entity is destroyed, which makes
+     * all references handed out for the destroyed entity stale. */
+    private volatile int[] generations = new int[INITIAL_CAPACITY];
+    /* Indexed by entity id. The reference to the current generation of each id, created on demand */
+    private volatile PojoEntityRef[] entityRefs = new PojoEntityRef[INITIAL_CAPACITY];
+    /* References are also created off the main thread, guards growing the arrays against losing generations */
+    private final Object capacityLock = new Object();
+    private BitSet activeIds = new BitSet();
+    private int activeEntities;
+
+    private ComponentStore store;
+    private List<PojoEntityQuery> queries = Lists.newArrayList();
+    private Map<Class<? extends Component>, List<PojoEntityQuery>> queriesByComponent = Maps.newHashMap();
     private EventSystem eventSystem;
     private PrefabManager prefabManager;
     private ComponentLibrary componentLibrary;
 
     public PojoEntityManager(ComponentLibrary componentLibrary, PrefabManager prefabManager) {
+        this(componentLibrary, prefabManager, false);
+    }
+
+    /**
+     * @param archetypeStorage Whether to group the components of entities by archetype, which speeds up iterating
+     *                         entities with several components and entities with many components
+     * @see ArchetypeComponentTable
+     */
+    public PojoEntityManager(ComponentLibrary componentLibrary, PrefabManager prefabManager, boolean archetypeStorage) {
+        this.store = archetypeStorage ? new ArchetypeComponentTable() : new ComponentTable();
         this.componentLibrary = componentLibrary;
         this.prefabManager = prefabManager;
         componentLibrary.registerTypeHandler(EntityRef.class, new EntityRefTypeHandler(this));
@@ -79,16 +105,26 @@ public class PojoEntityManager implements EntityManager, PersistableEntityManage
         store.clear();
         nextEntityId = 1;
         freedIds.clear();
-        entityCache.clear();
+        // Generations are kept, so references to entities reloaded with the same id remain valid
+        Arrays.fill(entityRefs, null);
+        activeIds.clear();
+        activeEntities = 0;
+        for (PojoEntityQuery query : queries) {
+            query.clear();
+        }
     }
 
     @Override
     public EntityRef create() {
+        int id;
         if (!freedIds.isEmpty()) {
-            return createEntityRef(freedIds.removeAt(freedIds.size() - 1));
+            id = freedIds.removeAt(freedIds.size() - 1);
+        } else {
+            if (nextEntityId == NULL_ID) nextEntityId++;
+            id = nextEntityId++;
         }
-        if (nextEntityId == NULL_ID) nextEntityId++;
-        return createEntityRef(nextEntityId++);
+        activate(id);
+        return createEntityRef(id);
     }
 
     @Override
@@ -99,9 +135,7 @@ public class PojoEntityManager implements EntityManager, PersistableEntityManage
     @Override
     public EntityRef create(Iterable<Component> components) {
         EntityRef entity = create();
-        for (Component c : components) {
-            store.put(entity.getId(), c);
-        }
+        addComponents(entity.getId(), components);
         if (eventSystem != null) {
             eventSystem.send(entity, AddComponentEvent.newInstance());
         }
@@ -132,43 +166,68 @@ public class PojoEntityManager implements EntityManager, PersistableEntityManage
 
     @Override
     public EntityRef create(Prefab prefab, Vector3f position, Quat4f rotation) {
-        List<Component> components = Lists.newArrayList();
-        for (Component component : prefab.listComponents()) {
-            Component newComp = componentLibrary.copy(component);
-            components.add(newComp);
-            if (newComp instanceof LocationComponent) {
-                LocationComponent loc = (LocationComponent) newComp;
-                loc.setWorldPosition(position);
-                loc.setWorldRotation(rotation);
-            }
-        }
-        components.add(new EntityInfoComponent(prefab.getName(), prefab.isPersisted()));
-        return create(components);
+        return create(instantiate(prefab, position, rotation));
     }
 
     @Override
     public EntityRef create(Prefab prefab, Vector3f position) {
+        return create(instantiate(prefab, position, null));
+    }
+
+    @Override
+    public EntityRef create(Prefab prefab) {
+        return create(instantiate(prefab, null, null));
+    }
+
+    @Override
+    public List<EntityRef> createMany(Prefab prefab, int count) {
+        return createMany(prefab, count, null);
+    }
+
+    @Override
+    public List<EntityRef> createMany(Prefab prefab, List<Vector3f> positions) {
+        return createMany(prefab, positions.size(), positions);
+    }
+
+    private List<EntityRef> createMany(Prefab prefab, int count, List<Vector3f> positions) {
+        List<EntityRef> entities = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; i++) {
+            EntityRef entity = create();
+            addComponents(entity.getId(), instantiate(prefab, (positions != null) ? positions.get(i) : null, null));
+            entities.add(entity);
+        }
+        // Handlers only get to see the new entities once all of them exist
+        if (eventSystem != null) {
+            for (EntityRef entity : entities) {
+                eventSystem.send(entity, AddComponentEvent.newInstance());
+            }
+        }
+        return entities;
+    }
+
+    /**
+     * @return Copies of the components of the prefab and the info of an entity created from it
+     */
+    private List<Component> instantiate(Prefab prefab, Vector3f position, Quat4f rotation) {
+        if (prefab instanceof PojoPrefab) {
+            return ((PojoPrefab) prefab).getTemplate().instantiate(position, rotation);
+        }
         List<Component> components = Lists.newArrayList();
         for (Component component : prefab.listComponents()) {
             Component newComp = componentLibrary.copy(component);
             components.add(newComp);
             if (newComp instanceof LocationComponent) {
                 LocationComponent loc = (LocationComponent) newComp;
-                loc.setWorldPosition(position);
+                if (position != null) {
+                    loc.setWorldPosition(position);
+                }
+                if (rotation != null) {
+                    loc.setWorldRotation(rotation);
+                }
             }
         }
         components.add(new EntityInfoComponent(prefab.getName(), prefab.isPersisted()));
-        return create(components);
-    }
-
-    @Override
-    public EntityRef create(Prefab prefab) {
-        List<Component> components = Lists.newArrayList();
-        for (Component component : prefab.listComponents()) {
-            components.add(componentLibrary.copy(component));
-        }
-        components.add(new EntityInfoComponent(prefab.getName(), prefab.isPersisted()));
-        return create(components);
+        return components;
     }
 
     @Override
@@ -230,30 +289,77 @@ public class PojoEntityManager implements EntityManager, PersistableEntityManage
         };
     }
 
-    public Iterable<EntityRef> iteratorEntities(Class<? extends Component>... componentClasses) {
-        if (componentClasses.length == 0) {
-            return iteratorEntities();
+    @Override
+    public EntityQuery query(Class<? extends Component>... componentClasses) {
+        Preconditions.checkArgument(componentClasses.length > 0, "A query requires at least one component class");
+        PojoEntityQuery query = new PojoEntityQuery(this, componentClasses);
+        queries.add(query);
+        for (Class<? extends Component> componentClass : query.getComponentClasses()) {
+            List<PojoEntityQuery> componentQueries = queriesByComponent.get(componentClass);
+            if (componentQueries == null) {
+                componentQueries = Lists.newArrayList();
+                queriesByComponent.put(componentClass, componentQueries);
+            }
+            if (!componentQueries.contains(query)) {
+                componentQueries.add(query);
+            }
         }
-        TIntList idList = new TIntArrayList();
-        TIntObjectIterator<? extends Component> primeIterator = store.componentIterator(componentClasses[0]);
-        if (primeIterator == null) {
-            return NullIterator.newInstance();
+        TIntIterator iterator = store.findEntities(componentClasses).iterator();
+        while (iterator.hasNext()) {
+            query.add(iterator.next());
         }
+        query.clearChanges();
+        return query;
+    }
 
-        while (primeIterator.hasNext()) {
-            primeIterator.advance();
-            int id = primeIterator.key();
-            boolean discard = false;
-            for (int i = 1; i < componentClasses.length; ++i) {
-                if (store.get(id, componentClasses[i]) == null) {
-                    discard = true;
-                    break;
+    void disposeQuery(PojoEntityQuery query) {
+        queries.remove(query);
+        for (Class<? extends Component> componentClass : query.getComponentClasses()) {
+            List<PojoEntityQuery> componentQueries = queriesByComponent.get(componentClass);
+            if (componentQueries != null) {
+                componentQueries.remove(query);
+                if (componentQueries.isEmpty()) {
+                    queriesByComponent.remove(componentClass);
                 }
             }
-            if (!discard) {
-                idList.add(primeIterator.key());
+        }
+    }
+
+    private void addComponents(int entityId, Iterable<Component> components) {
+        for (Component c : components) {
+            store.put(entityId, c);
+        }
+        for (Component c : components) {
+            addToQueries(entityId, c.getClass());
+        }
+    }
+
+    private void addToQueries(int entityId, Class<? extends Component> addedClass) {
+        List<PojoEntityQuery> componentQueries = queriesByComponent.get(addedClass);
+        if (componentQueries != null) {
+            for (int i = 0; i < componentQueries.size(); i++) {
+                componentQueries.get(i).add(entityId);
+            }
+        }
+    }
+
+    private void removeFromQueries(int entityId, Class<? extends Component> removedClass) {
+        List<PojoEntityQuery> componentQueries = queriesByComponent.get(removedClass);
+        if (componentQueries != null) {
+            for (int i = 0; i < componentQueries.size(); i++) {
+                componentQueries.get(i).remove(entityId);
             }
         }
+    }
+
+    public Iterable<EntityRef> iteratorEntities(Class<? extends Component>... componentClasses) {
+        if (componentClasses.length == 0) {
+            return iteratorEntities();
+        }
+        TIntList idList = store.findEntities(componentClasses);
+        if (idList.isEmpty()) {
+            return NullIterator.newInstance();
+        }
         return new EntityIterable(idList);
     }
 
@@ -266,16 +372,22 @@ public class PojoEntityManager implements EntityManager, PersistableEntityManage
     }
 
     void destroy(int entityId) {
-        EntityRef ref = createEntityRef(entityId);
         if (eventSystem != null) {
-            eventSystem.send(ref, RemovedComponentEvent.newInstance());
+            eventSystem.send(createEntityRef(entityId), RemovedComponentEvent.newInstance());
         }
-        entityCache.remove(entityId);
-        freedIds.add(entityId);
-        if (ref instanceof PojoEntityRef) {
-            ((PojoEntityRef) ref).invalidate();
+        if (activeIds.get(entityId)) {
+            activeIds.clear(entityId);
+            activeEntities--;
         }
+        synchronized (capacityLock) {
+            generations[entityId]++;
+            entityRefs[entityId] = null;
+        }
+        freedIds.add(entityId);
         store.remove(entityId);
+        for (int i = 0; i < queries.size(); i++) {
+            queries.get(i).remove(entityId);
+        }
     }
 
     <T extends Component> T getComponent(int entityId, Class<T> componentClass) {
@@ -285,6 +397,9 @@ public class PojoEntityManager implements EntityManager, PersistableEntityManage
 
     <T extends Component> T addComponent(int entityId, T component) {
         Component oldComponent = store.put(entityId, component);
+        if (oldComponent == null) {
+            addToQueries(entityId, component.getClass());
+        }
         if (eventSystem != null) {
             if (oldComponent == null) {
                 eventSystem.send(createEntityRef(entityId), AddComponentEvent.newInstance(), component);
@@ -302,6 +417,7 @@ public class PojoEntityManager implements EntityManager, PersistableEntityManage
                 eventSystem.send(createEntityRef(entityId), RemovedComponentEvent.newInstance(), component);
             }
             store.remove(entityId, componentClass);
+            removeFromQueries(entityId, componentClass);
         }
     }
 
@@ -311,19 +427,23 @@ public class PojoEntityManager implements EntityManager, PersistableEntityManage
 
     @Override
     public EntityRef createEntityRefWithId(int id) {
-        if (!freedIds.contains(id)) {
-            return createEntityRef(id);
+        if (id < NULL_ID || freedIds.contains(id)) {
+            return EntityRef.NULL;
         }
-        return EntityRef.NULL;
+        if (id >= generations.length) {
+            // Refers to an entity yet to be loaded. The id is not trusted to size the arrays, the reference becomes
+            // current once the entity is created.
+            return new PojoEntityRef(this, id, 0);
+        }
+        return createEntityRef(id);
     }
 
     @Override
     public EntityRef createEntityWithId(int id, Iterable<Component> components) {
         if (!freedIds.contains(id)) {
+            activate(id);
             EntityRef entity = createEntityRef(id);
-            for (Component c : components) {
-                store.put(id, c);
-            }
+            addComponents(id, components);
             if (eventSystem != null) {
                 eventSystem.send(entity, AddComponentEvent.newInstance());
             }
@@ -332,17 +452,52 @@ public class PojoEntityManager implements EntityManager, PersistableEntityManage
         return EntityRef.NULL;
     }
 
+    EntityRef getEntityRef(int entityId) {
+        return createEntityRef(entityId);
+    }
+
+    /**
+     * @return Whether the given generation is the current generation of the entity id, i.e. whether a reference
+     *         with that id and generation still refers to a living or yet to be loaded entity
+     */
+    boolean isCurrent(int entityId, int generation) {
+        int[] currentGenerations = generations;
+        return entityId < currentGenerations.length && currentGenerations[entityId] == generation;
+    }
+
     private EntityRef createEntityRef(int entityId) {
         if (entityId == NULL_ID) {
             return EntityRef.NULL;
         }
-        EntityRef existing = entityCache.get(entityId);
-        if (existing != null) {
-            return existing;
+        ensureCapacity(entityId);
+        PojoEntityRef[] refs = entityRefs;
+        PojoEntityRef ref = refs[entityId];
+        if (ref == null) {
+            // Creating references concurrently at most creates equal duplicates
+            ref = new PojoEntityRef(this, entityId, generations[entityId]);
+            refs[entityId] = ref;
+        }
+        return ref;
+    }
+
+    private void activate(int entityId) {
+        ensureCapacity(entityId);
+        if (!activeIds.get(entityId)) {
+            activeIds.set(entityId);
+            activeEntities++;
+        }
+    }
+
+    private void ensureCapacity(int entityId) {
+        if (entityId >= generations.length) {
+            synchronized (capacityLock) {
+                if (entityId >= generations.length) {
+                    int capacity = Math.max(entityId + 1, generations.length * 2);
+                    entityRefs = Arrays.copyOf(entityRefs, capacity);
+                    generations = Arrays.copyOf(generations, capacity);
+                }
+            }
         }
-        PojoEntityRef newRef = new PojoEntityRef(this, entityId);
-        entityCache.put(entityId, newRef);
-        return newRef;
     }
 
     public int getNextId() {
@@ -358,7 +513,7 @@ public class PojoEntityManager implements EntityManager, PersistableEntityManage
     }
 
     public int getActiveEntities() {
-        return entityCache.size();
+        return activeEntities;
     }
 
     private static class EntityEntry<T> implements Map.Entry<EntityRef, T> {
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.pojo;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.terasology.entitySystem.Component;
+import org.terasology.entitySystem.EntityQuery;
+import org.terasology.entitySystem.EntityRef;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Query of a {@link PojoEntityManager}, which notifies it whenever the components of an entity change.
+ * <p/>
+ * The matching entities are kept in an array, removing an entity moves the last one into its place. Iterators
+ * copy the array when created, and are reused once they have been iterated to the end, so iterating a query
+ * usually does not allocate anything.
+ */
+class PojoEntityQuery implements EntityQuery {
+
+    private static final int NO_INDEX = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private PojoEntityManager entityManager;
+    private Class<? extends Component>[] componentClasses;
+
+    private EntityRef[] entities = new EntityRef[INITIAL_CAPACITY];
+    private int size;
+    /* The index of each entity in entities plus one, indexed by entity id */
+    private int[] indices = new int[INITIAL_CAPACITY];
+
+    private boolean recordingChanges;
+    private List<EntityRef> added = Lists.newArrayList();
+    /* The index of each entity in added plus one, indexed by entity id */
+    private int[] addedIndices = new int[INITIAL_CAPACITY];
+    private List<EntityRef> removed = Lists.newArrayList();
+    private List<EntityRef> addedView = Collections.unmodifiableList(added);
+    private List<EntityRef> removedView = Collections.unmodifiableList(removed);
+
+    private QueryIterator idleIterator;
+
+    public PojoEntityQuery(PojoEntityManager entityManager, Class<? extends Component>[] componentClasses) {
+        this.entityManager = entityManager;
+        this.componentClasses = Arrays.copyOf(componentClasses, componentClasses.length);
+    }
+
+    Class<? extends Component>[] getComponentClasses() {
+        return componentClasses;
+    }
+
+    /**
+     * Adds the entity if it now has all components of this query. Called after the entity gained one of them.
+     */
+    void add(int entityId) {
+        if (getIndex(indices, entityId) != NO_INDEX) {
+            return;
+        }
+        for (Class<? extends Component> componentClass : componentClasses) {
+            if (!entityManager.hasComponent(entityId, componentClass)) {
+                return;
+            }
+        }
+        EntityRef entity = entityManager.getEntityRef(entityId);
+        if (size == entities.length) {
+            entities = Arrays.copyOf(entities, size * 2);
+        }
+        indices = setIndex(indices, entityId, size);
+        entities[size++] = entity;
+        if (recordingChanges) {
+            addedIndices = setIndex(addedIndices, entityId, added.size());
+            added.add(entity);
+        }
+    }
+
+    /**
+     * Removes the entity, if it was matching. Called after the entity lost one of the components of this query.
+     */
+    void remove(int entityId) {
+        int index = getIndex(indices, entityId);
+        if (index == NO_INDEX) {
+            return;
+        }
+        indices[entityId] = 0;
+        EntityRef entity = entities[index];
+        size--;
+        if (index != size) {
+            entities[index] = entities[size];
+            indices[entities[index].getId()] = index + 1;
+        }
+        entities[size] = null;
+        if (recordingChanges && !removeAdded(entityId)) {
+            removed.add(entity);
+        }
+    }
+
+    void clear() {
+        Arrays.fill(entities, 0, size, null);
+        size = 0;
+        indices = new int[INITIAL_CAPACITY];
+        clearChanges();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public EntityRef get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        return entities[index];
+    }
+
+    @Override
+    public boolean contains(EntityRef entity) {
+        return entity.exists() && getIndex(indices, entity.getId()) != NO_INDEX;
+    }
+
+    @Override
+    public Iterable<EntityRef> getAdded() {
+        recordingChanges = true;
+        return addedView;
+    }
+
+    @Override
+    public Iterable<EntityRef> getRemoved() {
+        recordingChanges = true;
+        return removedView;
+    }
+
+    @Override
+    public void clearChanges() {
+        for (EntityRef entity : added) {
+            addedIndices[entity.getId()] = 0;
+        }
+        added.clear();
+        removed.clear();
+    }
+
+    @Override
+    public void dispose() {
+        entityManager.disposeQuery(this);
+        clear();
+    }
+
+    @Override
+    public Iterator<EntityRef> iterator() {
+        QueryIterator iterator = idleIterator;
+        if (iterator != null) {
+            idleIterator = null;
+        } else {
+            iterator = new QueryIterator();
+        }
+        iterator.reset();
+        return iterator;
+    }
+
+    /**
+     * Removes the entity from the added entities, moving the last added entity into its place.
+     *
+     * @return Whether the entity had been added since the changes were last cleared
+     */
+    private boolean removeAdded(int entityId) {
+        int index = getIndex(addedIndices, entityId);
+        if (index == NO_INDEX) {
+            return false;
+        }
+        addedIndices[entityId] = 0;
+        EntityRef last = added.remove(added.size() - 1);
+        if (index != added.size()) {
+            added.set(index, last);
+            addedIndices[last.getId()] = index + 1;
+        }
+        return true;
+    }
+
+    private static int getIndex(int[] indices, int entityId) {
+        return (entityId < indices.length) ? indices[entityId] - 1 : NO_INDEX;
+    }
+
+    private static int[] setIndex(int[] indices, int entityId, int index) {
+        int[] result = indices;
+        if (entityId >= result.length) {
+            result = Arrays.copyOf(result, Math.max(entityId + 1, result.length * 2));
+        }
+        result[entityId] = index + 1;
+        return result;
+    }
+
+    private class QueryIterator implements Iterator<EntityRef> {
+        private EntityRef[] snapshot = new EntityRef[0];
+        private int count;
+        private int next;
+        private boolean active;
+
+        public void reset() {
+            if (snapshot.length < size) {
+                snapshot = new EntityRef[entities.length];
+            }
+            System.arraycopy(entities, 0, snapshot, 0, size);
+            count = size;
+            next = 0;
+            active = true;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next < count) {
+                return true;
+            }
+            if (active) {
+                // Iterated to the end, so the iterator can be reused
+                Arrays.fill(snapshot, 0, count, null);
+                count = 0;
+                next = 0;
+                active = false;
+                idleIterator = this;
+            }
+            return false;
+        }
+
+        @Override
+        public EntityRef next() {
+            if (next >= count) {
+                throw new NoSuchElementException();
+            }
+            return snapshot[next++];
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
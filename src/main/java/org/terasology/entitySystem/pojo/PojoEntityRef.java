@@ -22,20 +22,26 @@ import org.terasology.entitySystem.Event;
 import org.terasology.entitySystem.common.NullIterator;
 
 /**
+ * A reference to an entity of a {@link PojoEntityManager}, identified by its id and the generation of the id. The
+ * reference stops existing once the entity is destroyed, even if the id is reused by a new entity. Like every
+ * reference that does not exist, it is then equal to {@link EntityRef#NULL}.
+ *
  * @author Immortius <immortius@gmail.com>
  */
 public class PojoEntityRef extends EntityRef {
-    int id;
-    PojoEntityManager entityManager;
+    final int id;
+    final int generation;
+    final PojoEntityManager entityManager;
 
-    PojoEntityRef(PojoEntityManager manager, int id) {
+    PojoEntityRef(PojoEntityManager manager, int id, int generation) {
         this.id = id;
+        this.generation = generation;
         this.entityManager = manager;
     }
 
     @Override
     public int getId() {
-        return id;
+        return exists() ? id : PojoEntityManager.NULL_ID;
     }
 
     @Override
@@ -79,7 +85,7 @@ public class PojoEntityRef extends EntityRef {
 
     @Override
     public boolean exists() {
-        return id != PojoEntityManager.NULL_ID;
+        return id != PojoEntityManager.NULL_ID && entityManager.isCurrent(id, generation);
     }
 
     @Override
@@ -146,24 +152,22 @@ public class PojoEntityRef extends EntityRef {
             if (!exists() && !((EntityRef) o).exists()) return true;
         }
         if (o instanceof PojoEntityRef) {
-            return id == ((PojoEntityRef) o).id;
+            PojoEntityRef other = (PojoEntityRef) o;
+            return id == other.id && generation == other.generation && entityManager == other.entityManager;
         }
         return false;
     }
 
     @Override
     public int hashCode() {
-        return !exists() ? 0 : (int) (id ^ (id >>> 32));
+        return !exists() ? 0 : 31 * id + generation;
     }
 
     @Override
     public String toString() {
         return "EntityRef{" +
                 "id=" + id +
+                ", generation=" + generation +
                 '}';
     }
-
-    void invalidate() {
-        id = PojoEntityManager.NULL_ID;
-    }
 }
@@ -15,16 +15,13 @@
  */
 package org.terasology.entitySystem.pojo;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.Collection;
 import java.util.Comparator;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
 
 import org.reflections.Reflections;
 import org.slf4j.Logger;
@@ -39,18 +36,26 @@ import org.terasology.entitySystem.EventPriority;
 import org.terasology.entitySystem.EventReceiver;
 import org.terasology.entitySystem.EventSystem;
 import org.terasology.entitySystem.ReceiveEvent;
+import org.terasology.entitySystem.event.ChangedComponentEvent;
+import org.terasology.performanceMonitor.PerformanceMonitor;
 
 import com.google.common.base.Predicates;
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
 import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Lists;
+import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
-import com.google.common.collect.Queues;
 import com.google.common.collect.Sets;
 
 /**
+ * Events sent by threads other than the main thread are queued and sent when the main thread calls
+ * {@link #process()}.
+ * <p/>
+ * With deferred delivery, a {@link ChangedComponentEvent} is not sent right away either. Every change of
+ * a component of an entity is only sent once the next time {@link #process()} is called, no matter how
+ * often the component was saved in between. Other events are still sent immediately.
+ *
  * @author Immortius <immortius@gmail.com>
  */
 public class PojoEventSystem implements EventSystem {
@@ -59,19 +64,49 @@ public class PojoEventSystem implements EventSystem {
 
     private Map<Class<? extends Event>, Multimap<Class<? extends Component>, EventHandlerInfo>> componentSpecificHandlers = Maps.newHashMap();
     private Comparator<EventHandlerInfo> priorityComparator = new EventHandlerPriorityComparator();
+    private EventHandlerInvokerFactory invokerFactory = new EventHandlerInvokerFactory();
+
+    // Handlers of each event type sorted by priority, rebuilt when handlers are added
+    private Map<Class<? extends Event>, DispatchTable> dispatchTables = Maps.newHashMap();
 
     // Event metadata
     private BiMap<String, Class<? extends Event>> eventIdMap = HashBiMap.create();
     private Multimap<Class<? extends Event>, Class<? extends Event>> childEvents = HashMultimap.create();
 
+    private static final int PENDING_EVENT_CAPACITY = 4096;
+
     private Thread mainThread;
-    private BlockingQueue<PendingEvent>  pendingEvents = Queues.newLinkedBlockingQueue();
+    private PendingEventQueue pendingEvents = new PendingEventQueue(PENDING_EVENT_CAPACITY);
+
+    private final boolean deferredDelivery;
+    // Component changes waiting for delivery, in the order the components were first changed
+    private Map<ComponentChange, ComponentChange> componentChanges = Maps.newLinkedHashMap();
+    private Map<ComponentChange, ComponentChange> deliveredChanges = Maps.newLinkedHashMap();
+    private ComponentChange changeKey = new ComponentChange();
+
+    // Statistics of the current tick, published by updateMetrics()
+    private int sentEvents;
+    private int coalescedEvents;
+    private int maxQueuedEvents;
 
     public PojoEventSystem() {
+        this(false);
+    }
+
+    /**
+     * @param deferredDelivery Whether to coalesce the changes of each component and send them when processing
+     */
+    public PojoEventSystem(boolean deferredDelivery) {
         this.mainThread = Thread.currentThread();
+        this.deferredDelivery = deferredDelivery;
+    }
+
+    public boolean isDeferredDelivery() {
+        return deferredDelivery;
     }
 
     public void process() {
+        maxQueuedEvents = Math.max(maxQueuedEvents, pendingEvents.size());
         for (PendingEvent event = pendingEvents.poll(); event != null; event = pendingEvents.poll()) {
             if (event.getComponent() != null) {
                 send(event.getEntity(), event.getEvent(), event.getComponent());
@@ -79,6 +114,30 @@ public class PojoEventSystem implements EventSystem {
                 send(event.getEntity(), event.getEvent());
             }
         }
+        if (!componentChanges.isEmpty()) {
+            // Changes made by the handlers are delivered by the next call
+            Map<ComponentChange, ComponentChange> changes = componentChanges;
+            componentChanges = deliveredChanges;
+            deliveredChanges = changes;
+            for (ComponentChange change : changes.keySet()) {
+                dispatch(change.entity, ChangedComponentEvent.newInstance(), change.component);
+            }
+            changes.clear();
+        }
+    }
+
+    /**
+     * Publishes the events sent and coalesced during the tick, and the longest the pending event queue was
+     * when processed during the tick.
+     */
+    @Override
+    public void updateMetrics() {
+        PerformanceMonitor.setValue("Events per tick", sentEvents);
+        PerformanceMonitor.setValue("Coalesced events per tick", coalescedEvents);
+        PerformanceMonitor.setValue("Pending event queue", maxQueuedEvents);
+        sentEvents = 0;
+        coalescedEvents = 0;
+        maxQueuedEvents = 0;
     }
 
     @Override
@@ -114,7 +173,8 @@ public class PojoEventSystem implements EventSystem {
 
                 if (types.length == 2 && Event.class.isAssignableFrom(types[0]) && EntityRef.class.isAssignableFrom(types[1])) {
                     logger.debug("Found method: " + method.toString());
-                    ReflectedEventHandlerInfo handlerInfo = new ReflectedEventHandlerInfo(handler, method, receiveEventAnnotation.priority(), receiveEventAnnotation.components());
+                    EventHandlerInvoker invoker = invokerFactory.create(handlerClass, method);
+                    ReflectedEventHandlerInfo handlerInfo = new ReflectedEventHandlerInfo(handler, invoker, receiveEventAnnotation.priority(), receiveEventAnnotation.components());
                     for (Class<? extends Component> c : receiveEventAnnotation.components()) {
                         addEventHandler((Class<? extends Event>) types[0], handlerInfo, c);
                         for (Class<? extends Event> childType : childEvents.get((Class<? extends Event>) types[0])) {
@@ -131,10 +191,20 @@ public class PojoEventSystem implements EventSystem {
     private void addEventHandler(Class<? extends Event> type, EventHandlerInfo handlerInfo, Class<? extends Component> c) {
         Multimap<Class<? extends Component>, EventHandlerInfo> componentMap = componentSpecificHandlers.get(type);
         if (componentMap == null) {
-            componentMap = HashMultimap.create();
+            componentMap = LinkedHashMultimap.create();
             componentSpecificHandlers.put(type, componentMap);
         }
         componentMap.put(c, handlerInfo);
+        dispatchTables.clear();
+    }
+
+    private DispatchTable getDispatchTable(Class<? extends Event> type) {
+        DispatchTable table = dispatchTables.get(type);
+        if (table == null) {
+            table = new DispatchTable(componentSpecificHandlers.get(type), priorityComparator);
+            dispatchTables.put(type, table);
+        }
+        return table;
     }
 
     @Override
@@ -158,11 +228,8 @@ public class PojoEventSystem implements EventSystem {
         if (Thread.currentThread() != mainThread) {
             pendingEvents.offer(new PendingEvent(entity, event));
         } else {
-            Set<EventHandlerInfo> selectedHandlersSet = selectEventHandlers(event.getClass(), entity);
-            List<EventHandlerInfo> selectedHandlers = Lists.newArrayList(selectedHandlersSet);
-            Collections.sort(selectedHandlers, priorityComparator);
-
-            for (EventHandlerInfo handler : selectedHandlers) {
+            sentEvents++;
+            for (EventHandlerInfo handler : getDispatchTable(event.getClass()).getHandlers()) {
                 // Check isValid at each stage in case components were removed.
                 if (handler.isValidFor(entity)) {
                     handler.invoke(entity, event);
@@ -177,34 +244,98 @@ public class PojoEventSystem implements EventSystem {
     public void send(EntityRef entity, Event event, Component component) {
         if (Thread.currentThread() != mainThread) {
             pendingEvents.offer(new PendingEvent(entity, event, component));
+        } else if (deferredDelivery && event instanceof ChangedComponentEvent) {
+            changeKey.entity = entity;
+            changeKey.componentClass = component.getClass();
+            ComponentChange change = componentChanges.get(changeKey);
+            if (change == null) {
+                change = new ComponentChange(entity, component);
+                componentChanges.put(change, change);
+            } else {
+                change.component = component;
+                coalescedEvents++;
+            }
         } else {
-            Multimap<Class<? extends Component>, EventHandlerInfo> handlers = componentSpecificHandlers.get(event.getClass());
-            if (handlers != null) {
-                for (EventHandlerInfo eventHandler : handlers.get(component.getClass())) {
-                    if (eventHandler.isValidFor(entity)) {
-                        eventHandler.invoke(entity, event);
-                    }
-                }
+            dispatch(entity, event, component);
+        }
+    }
+
+    private void dispatch(EntityRef entity, Event event, Component component) {
+        sentEvents++;
+        for (EventHandlerInfo eventHandler : getDispatchTable(event.getClass()).getHandlers(component.getClass())) {
+            if (eventHandler.isValidFor(entity)) {
+                eventHandler.invoke(entity, event);
             }
         }
     }
 
-    private Set<EventHandlerInfo> selectEventHandlers(Class<? extends Event> eventType, EntityRef entity) {
-        Set<EventHandlerInfo> result = Sets.newHashSet();
-        Multimap<Class<? extends Component>, EventHandlerInfo> handlers = componentSpecificHandlers.get(eventType);
-        if (handlers == null)
-            return result;
+    /**
+     * A change of a component of an entity waiting for delivery, identified by the entity and component class.
+     */
+    private static final class ComponentChange {
+        private EntityRef entity;
+        private Class<? extends Component> componentClass;
+        private Component component;
 
-        for (Class<? extends Component> compClass : handlers.keySet()) {
-            if (entity.hasComponent(compClass)) {
-                for (EventHandlerInfo eventHandler : handlers.get(compClass)) {
-                    if (eventHandler.isValidFor(entity)) {
-                        result.add(eventHandler);
-                    }
+        private ComponentChange() {
+        }
+
+        private ComponentChange(EntityRef entity, Component component) {
+            this.entity = entity;
+            this.componentClass = component.getClass();
+            this.component = component;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof ComponentChange) {
+                ComponentChange other = (ComponentChange) o;
+                return componentClass == other.componentClass && entity.equals(other.entity);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * entity.hashCode() + componentClass.hashCode();
+        }
+    }
+
+    /**
+     * The handlers of one event type, sorted by priority. A handler requiring several components is only
+     * contained once, and whether an entity has all of them is checked when sending the event.
+     */
+    private static class DispatchTable {
+        private static final EventHandlerInfo[] NO_HANDLERS = new EventHandlerInfo[0];
+
+        private EventHandlerInfo[] handlers = NO_HANDLERS;
+        private Map<Class<? extends Component>, EventHandlerInfo[]> componentHandlers = Maps.newHashMap();
+
+        public DispatchTable(Multimap<Class<? extends Component>, EventHandlerInfo> handlerMap, Comparator<EventHandlerInfo> priorityComparator) {
+            if (handlerMap != null) {
+                handlers = sort(handlerMap.values(), priorityComparator);
+                for (Class<? extends Component> componentType : handlerMap.keySet()) {
+                    componentHandlers.put(componentType, sort(handlerMap.get(componentType), priorityComparator));
                 }
             }
         }
-        return result;
+
+        public EventHandlerInfo[] getHandlers() {
+            return handlers;
+        }
+
+        public EventHandlerInfo[] getHandlers(Class<? extends Component> componentType) {
+            EventHandlerInfo[] result = componentHandlers.get(componentType);
+            return (result != null) ? result : NO_HANDLERS;
+        }
+
+        private static EventHandlerInfo[] sort(Collection<EventHandlerInfo> handlers, Comparator<EventHandlerInfo> priorityComparator) {
+            Set<EventHandlerInfo> distinctHandlers = Sets.newLinkedHashSet(handlers);
+            EventHandlerInfo[] result = distinctHandlers.toArray(new EventHandlerInfo[distinctHandlers.size()]);
+            // Stable, so handlers of the same priority are called in the order they were registered
+            Arrays.sort(result, priorityComparator);
+            return result;
+        }
     }
 
     private static class EventHandlerPriorityComparator implements Comparator<EventHandlerInfo> {
@@ -226,13 +357,13 @@ public class PojoEventSystem implements EventSystem {
 
     private class ReflectedEventHandlerInfo implements EventHandlerInfo {
         private EventHandlerSystem handler;
-        private Method method;
+        private EventHandlerInvoker invoker;
         private Class<? extends Component>[] components;
         private int priority;
 
-        public ReflectedEventHandlerInfo(EventHandlerSystem handler, Method method, int priority, Class<? extends Component>... components) {
+        public ReflectedEventHandlerInfo(EventHandlerSystem handler, EventHandlerInvoker invoker, int priority, Class<? extends Component>... components) {
             this.handler = handler;
-            this.method = method;
+            this.invoker = invoker;
             this.components = Arrays.copyOf(components, components.length);
             this.priority = priority;
         }
@@ -248,12 +379,8 @@ public class PojoEventSystem implements EventSystem {
 
         public void invoke(EntityRef entity, Event event) {
             try {
-                method.invoke(handler, event, entity);
-            } catch (IllegalAccessException ex) {
-                logger.error("Failed to invoke event", ex);
-            } catch (IllegalArgumentException ex) {
-                logger.error("Failed to invoke event", ex);
-            } catch (InvocationTargetException ex) {
+                invoker.invoke(handler, event, entity);
+            } catch (Exception ex) {
                 logger.error("Failed to invoke event", ex);
             }
         }
@@ -40,6 +40,10 @@ public class PojoPrefab extends AbstractPrefab implements Prefab {
     private boolean persisted = true;
 
     private transient Map<Class<? extends Component>, Component> componentCache;
+    private transient PrefabTemplate template;
+
+    // The manager this prefab is registered with, which is told about changes
+    private transient PojoPrefabManager prefabManager;
 
     protected PojoPrefab(String name, ComponentLibrary componentLibrary) {
         this(name, componentLibrary, Maps.<Class<? extends Component>, Component>newHashMap(), Lists.<Prefab>newLinkedList());
@@ -66,6 +70,8 @@ public class PojoPrefab extends AbstractPrefab implements Prefab {
         if (componentCache != null) {
             this.componentCache.put(component.getClass(), component);
         }
+        template = null;
+        notifyChanged();
 
         return component;
     }
@@ -73,6 +79,7 @@ public class PojoPrefab extends AbstractPrefab implements Prefab {
     public void removeComponent(Class<? extends Component> componentClass) {
         components.remove(componentClass);
         this.invalidateComponentCache();
+        notifyChanged();
     }
 
     public Iterable<Component> listComponents() {
@@ -93,6 +100,7 @@ public class PojoPrefab extends AbstractPrefab implements Prefab {
 
         this.parents.add(parent);
         this.invalidateComponentCache();
+        notifyChanged();
     }
 
     public Iterable<Prefab> getParents() {
@@ -102,6 +110,7 @@ public class PojoPrefab extends AbstractPrefab implements Prefab {
     public void removeParent(Prefab parent) {
         this.parents.remove(parent);
         invalidateComponentCache();
+        notifyChanged();
     }
 
     @Override
@@ -114,6 +123,51 @@ public class PojoPrefab extends AbstractPrefab implements Prefab {
         this.persisted = persisted;
     }
 
+    /**
+     * @return The template to create entities from, built when first needed after a change to the components of
+     *         this prefab or its parents
+     */
+    PrefabTemplate getTemplate() {
+        PrefabTemplate result = template;
+        if (result == null) {
+            checkComponentCache();
+            result = new PrefabTemplate(this, componentCache.values(), componentLibrary);
+            template = result;
+        }
+        return result;
+    }
+
+    void setPrefabManager(PojoPrefabManager prefabManager) {
+        this.prefabManager = prefabManager;
+    }
+
+    /**
+     * Called when the components of a prefab this one inherits from have changed. The inherited components are
+     * copied again from the parents, so changes made directly to the copies of this prefab are lost.
+     */
+    void parentChanged() {
+        componentCache = null;
+        template = null;
+    }
+
+    /**
+     * @return Whether the given prefab is a parent of this one, or a parent of a parent
+     */
+    boolean inheritsFrom(Prefab prefab) {
+        for (Prefab parent : parents) {
+            if (parent.equals(prefab) || (parent instanceof PojoPrefab && ((PojoPrefab) parent).inheritsFrom(prefab))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void notifyChanged() {
+        if (prefabManager != null) {
+            prefabManager.prefabChanged(this);
+        }
+    }
+
     private void checkComponentCache() {
         if (components == null) {
             throw new IllegalStateException("Prefab is destroyed!");
@@ -126,6 +180,7 @@ public class PojoPrefab extends AbstractPrefab implements Prefab {
 
     private void invalidateComponentCache() {
         componentCache = null;
+        template = null;
     }
 
     private void buildComponentCache() {
@@ -89,6 +89,9 @@ public class PojoPrefabManager implements PrefabManager {
         }
 
         prefabTable.put(normalisedName, prefab);
+        if (prefab instanceof PojoPrefab) {
+            ((PojoPrefab) prefab).setPrefabManager(this);
+        }
 
         return prefab;
     }
@@ -120,7 +123,24 @@ public class PojoPrefabManager implements PrefabManager {
      */
     public void removePrefab(String name) {
         String normalisedName = normalizeName(name);
-        prefabTable.remove(normalisedName);
+        Prefab prefab = prefabTable.remove(normalisedName);
+        if (prefab instanceof PojoPrefab) {
+            ((PojoPrefab) prefab).setPrefabManager(null);
+        }
+    }
+
+    /**
+     * Discards the components and templates the registered prefabs inheriting from the changed prefab have
+     * built from it.
+     *
+     * @param prefab The prefab whose components or parents have changed
+     */
+    void prefabChanged(PojoPrefab prefab) {
+        for (Prefab registered : prefabTable.values()) {
+            if (registered instanceof PojoPrefab && registered != prefab && ((PojoPrefab) registered).inheritsFrom(prefab)) {
+                ((PojoPrefab) registered).parentChanged();
+            }
+        }
     }
 
     private String normalizeName(String name) {
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.pojo;
+
+import java.util.List;
+
+import javax.vecmath.Quat4f;
+import javax.vecmath.Vector3f;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.components.world.LocationComponent;
+import org.terasology.entitySystem.Component;
+import org.terasology.entitySystem.EntityInfoComponent;
+import org.terasology.entitySystem.Prefab;
+import org.terasology.entitySystem.metadata.ComponentLibrary;
+import org.terasology.entitySystem.metadata.ComponentMetadata;
+
+import com.google.common.collect.Lists;
+
+/**
+ * The components of a prefab flattened with the ones it inherits, together with the metadata to copy each of them.
+ * Instantiating the template copies the components without walking the parents of the prefab or looking up any
+ * metadata. The template refers to the components of the prefab rather than copies, so changes made to them
+ * directly are still picked up, but it has to be discarded when components are added to or removed from the prefab
+ * or its parents.
+ *
+ * @see PojoPrefab#getTemplate()
+ */
+final class PrefabTemplate {
+    private static final Logger logger = LoggerFactory.getLogger(PrefabTemplate.class);
+
+    private final Prefab prefab;
+    private final Component[] components;
+    private final ComponentMetadata[] metadata;
+    private final int locationIndex;
+
+    PrefabTemplate(Prefab prefab, Iterable<Component> flattenedComponents, ComponentLibrary componentLibrary) {
+        this.prefab = prefab;
+        List<Component> componentList = Lists.newArrayList();
+        List<ComponentMetadata> metadataList = Lists.newArrayList();
+        int location = -1;
+        for (Component component : flattenedComponents) {
+            ComponentMetadata componentMetadata = componentLibrary.getMetadata(component);
+            if (componentMetadata == null) {
+                logger.error("Cannot instantiate component {} of prefab {}, it is not registered", component.getClass(), prefab.getName());
+                continue;
+            }
+            if (component instanceof LocationComponent) {
+                location = componentList.size();
+            }
+            componentList.add(component);
+            metadataList.add(componentMetadata);
+        }
+        this.components = componentList.toArray(new Component[componentList.size()]);
+        this.metadata = metadataList.toArray(new ComponentMetadata[metadataList.size()]);
+        this.locationIndex = location;
+    }
+
+    /**
+     * @param position The world position of the location component of the copy, or null to keep the one of the prefab
+     * @param rotation The world rotation of the location component of the copy, or null to keep the one of the prefab
+     * @return A copy of each component of the prefab, followed by the entity info
+     */
+    @SuppressWarnings("unchecked")
+    public List<Component> instantiate(Vector3f position, Quat4f rotation) {
+        List<Component> result = Lists.newArrayListWithCapacity(components.length + 1);
+        for (int i = 0; i < components.length; i++) {
+            result.add(metadata[i].clone(components[i]));
+        }
+        if (locationIndex != -1) {
+            LocationComponent location = (LocationComponent) result.get(locationIndex);
+            if (position != null) {
+                location.setWorldPosition(position);
+            }
+            if (rotation != null) {
+                location.setWorldRotation(rotation);
+            }
+        }
+        result.add(new EntityInfoComponent(prefab.getName(), prefab.isPersisted()));
+        return result;
+    }
+}
@@ -22,6 +22,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terasology.componentSystem.RenderSystem;
 import org.terasology.componentSystem.UpdateSubscriberSystem;
+import org.terasology.config.Config;
 import org.terasology.entitySystem.ComponentSystem;
 import org.terasology.entitySystem.EntityManager;
 import org.terasology.entitySystem.EventHandlerSystem;
@@ -45,10 +46,14 @@ public class ComponentSystemManager {
 
     private Map<String, ComponentSystem> namedLookup = Maps.newHashMap();
     private List<UpdateSubscriberSystem> updateSubscribers = Lists.newArrayList();
+    private UpdateScheduler updateScheduler;
     private List<RenderSystem> renderSubscribers = Lists.newArrayList();
     private List<ComponentSystem> store = Lists.newArrayList();
 
     public ComponentSystemManager() {
+        Config config = CoreRegistry.get(Config.class);
+        boolean parallel = config == null || config.getSystem().isParallelSystemUpdates();
+        updateScheduler = new UpdateScheduler(parallel ? Runtime.getRuntime().availableProcessors() : 1);
     }
 
     public void loadSystems(String packageName, Reflections reflections) {
@@ -79,6 +84,7 @@ public class ComponentSystemManager {
         store.add(object);
         if (object instanceof UpdateSubscriberSystem) {
             updateSubscribers.add((UpdateSubscriberSystem) object);
+            updateScheduler.add((UpdateSubscriberSystem) object);
         }
         if (object instanceof RenderSystem) {
             renderSubscribers.add((RenderSystem) object);
@@ -116,6 +122,7 @@ public class ComponentSystemManager {
         namedLookup.clear();
         store.clear();
         updateSubscribers.clear();
+        updateScheduler.clear();
         renderSubscribers.clear();
     }
 
@@ -123,6 +130,16 @@ public class ComponentSystemManager {
         return store;
     }
 
+    /**
+     * Updates all update subscribers, non-conflicting ones in parallel.
+     *
+     * @param delta The time passed since the last update, in seconds
+     * @see UpdateScheduler
+     */
+    public void update(float delta) {
+        updateScheduler.update(delta);
+    }
+
     public Iterable<UpdateSubscriberSystem> iterateUpdateSubscribers() {
         return updateSubscribers;
     }
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.game;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.asset.AssetManager;
+import org.terasology.asset.AssetType;
+import org.terasology.asset.sources.ClasspathSource;
+import org.terasology.config.Config;
+import org.terasology.game.types.SurvivalType;
+import org.terasology.logic.manager.PathManager;
+import org.terasology.logic.mod.Mod;
+import org.terasology.logic.mod.ModManager;
+import org.terasology.math.Region3i;
+import org.terasology.math.Vector3i;
+import org.terasology.rendering.world.WorldRenderer;
+import org.terasology.utilities.FastRandom;
+import org.terasology.world.WorldBiomeProviderImpl;
+import org.terasology.world.WorldInfo;
+import org.terasology.world.block.management.BlockManager;
+import org.terasology.world.chunks.ChunkPregenerator;
+import org.terasology.world.chunks.store.ChunkStoreRegionFile;
+import org.terasology.world.generator.core.ChunkGeneratorManager;
+import org.terasology.world.generator.core.ChunkGeneratorManagerImpl;
+import org.terasology.world.generator.core.FloraGenerator;
+import org.terasology.world.generator.core.ForestGenerator;
+import org.terasology.world.generator.core.PerlinTerrainGenerator;
+import org.terasology.world.liquid.LiquidsGenerator;
+
+/**
+ * Generates the chunks around the origin of a world and stores them without opening a display, so a world can
+ * be warmed up before it is played or served. Started with {@code -pregenerate <world title> <chunks per side> [seed]}.
+ * <p/>
+ * An existing world keeps its seed, generators and block ids, otherwise a new world with the default generators
+ * is created.
+ */
+public final class HeadlessPregenerator {
+
+    public static final String ARGUMENT = "-pregenerate";
+
+    private static final Logger logger = LoggerFactory.getLogger(HeadlessPregenerator.class);
+
+    private HeadlessPregenerator() {
+    }
+
+    /**
+     * @param args The arguments following {@link #ARGUMENT}
+     */
+    public static void run(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            logger.error("Usage: {} <world title> <chunks per side> [seed]", ARGUMENT);
+            return;
+        }
+        String title = args[0];
+        int chunksPerSide;
+        try {
+            chunksPerSide = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) {
+            logger.error("The number of chunks per side must be a number, not '{}'", args[1]);
+            return;
+        }
+        if (chunksPerSide <= 0) {
+            logger.error("The number of chunks per side must be greater than zero");
+            return;
+        }
+
+        Config config = initConfig();
+        CoreRegistry.put(ModManager.class, new ModManager());
+        AssetType.registerAssetTypes();
+        AssetManager.getInstance().addAssetSource(new ClasspathSource(ModManager.ENGINE_PACKAGE, HeadlessPregenerator.class.getProtectionDomain().getCodeSource(), ModManager.ASSETS_SUBDIRECTORY, ModManager.OVERRIDES_SUBDIRECTORY));
+
+        File worldPath = PathManager.getInstance().getWorldSavePath(title);
+        if (new File(worldPath, title + ".dat").exists()) {
+            logger.error("World '{}' uses the old chunk store format, load it in the game once before pregenerating", title);
+            return;
+        }
+        File manifest = new File(worldPath, WorldInfo.DEFAULT_FILE_NAME);
+        WorldInfo worldInfo;
+        if (manifest.exists()) {
+            worldInfo = WorldInfo.load(manifest);
+            if (args.length > 2 && !args[2].equals(worldInfo.getSeed())) {
+                logger.warn("World '{}' already exists, keeping its seed \"{}\"", title, worldInfo.getSeed());
+            }
+        } else {
+            String seed = args.length > 2 ? args[2] : new FastRandom().randomCharacterString(16);
+            String[] chunkGenerators = {PerlinTerrainGenerator.class.getName(), FloraGenerator.class.getName(), LiquidsGenerator.class.getName(), ForestGenerator.class.getName()};
+            worldInfo = new WorldInfo(title, seed, config.getSystem().getDayNightLengthInMs() / 4, chunkGenerators, SurvivalType.class.toString(), config.getDefaultModSelection());
+        }
+        logger.info("Pregenerating {}x{} chunks of world '{}' with seed \"{}\"", chunksPerSide, chunksPerSide, title, worldInfo.getSeed());
+
+        enableMods(worldInfo);
+        BlockManager.getInstance().load(worldInfo.getBlockIdMap(), false);
+
+        ChunkGeneratorManager chunkGeneratorManager = ChunkGeneratorManagerImpl.buildChunkGenerator(Arrays.asList(worldInfo.getChunkGenerators()));
+        chunkGeneratorManager.setWorldSeed(worldInfo.getSeed());
+        chunkGeneratorManager.setWorldBiomeProvider(new WorldBiomeProviderImpl(worldInfo.getSeed()));
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (config.getSystem().isParallelChunkGeneration()) {
+            chunkGeneratorManager.setSubtaskExecutor(ChunkGeneratorManagerImpl.createSubtaskExecutor(threads));
+        }
+
+        ChunkStoreRegionFile chunkStore = new ChunkStoreRegionFile(new File(worldPath, WorldRenderer.REGION_DIRECTORY));
+        try {
+            Vector3i min = new Vector3i(-chunksPerSide / 2, 0, -chunksPerSide / 2);
+            new ChunkPregenerator(chunkGeneratorManager, chunkStore, threads).generate(Region3i.createFromMinAndSize(min, new Vector3i(chunksPerSide, 1, chunksPerSide)));
+        } finally {
+            chunkStore.dispose();
+        }
+
+        worldInfo.setBlockIdMap(BlockManager.getInstance().getBlockIdMap());
+        WorldInfo.save(manifest, worldInfo);
+        logger.info("Saved world '{}'", title);
+    }
+
+    private static Config initConfig() {
+        Config config = new Config();
+        if (Config.getConfigFile().exists()) {
+            try {
+                config = Config.load(Config.getConfigFile());
+            } catch (IOException e) {
+                logger.error("Failed to load config", e);
+            }
+        }
+        config.getDefaultModSelection().addMod("core");
+        CoreRegistry.put(Config.class, config);
+        return config;
+    }
+
+    private static void enableMods(WorldInfo worldInfo) {
+        ModManager modManager = CoreRegistry.get(ModManager.class);
+        for (Mod mod : modManager.getMods()) {
+            mod.setEnabled(false);
+        }
+        for (String modName : worldInfo.getModConfiguration().listMods()) {
+            Mod mod = modManager.getMod(modName);
+            if (mod != null) {
+                mod.setEnabled(true);
+            }
+        }
+        modManager.applyActiveMods();
+        AssetManager.getInstance().applyOverrides();
+    }
+}
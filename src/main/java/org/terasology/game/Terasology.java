@@ -15,6 +15,8 @@
  */
 package org.terasology.game;
 
+import java.util.Arrays;
+
 import org.slf4j.LoggerFactory;
 import org.terasology.game.modes.StateMainMenu;
 import org.terasology.logic.manager.PathManager;
@@ -34,10 +36,14 @@ public final class Terasology {
     public static void main(String[] args) {
         try {
             PathManager.getInstance().determineRootPath(true);
-            TerasologyEngine engine = new TerasologyEngine();
-            engine.init();
-            engine.run(new StateMainMenu());
-            engine.dispose();
+            if (args.length > 0 && HeadlessPregenerator.ARGUMENT.equals(args[0])) {
+                HeadlessPregenerator.run(Arrays.copyOfRange(args, 1, args.length));
+            } else {
+                TerasologyEngine engine = new TerasologyEngine();
+                engine.init();
+                engine.run(new StateMainMenu());
+                engine.dispose();
+            }
         } catch (Throwable t) {
             LoggerFactory.getLogger(Terasology.class).error("Uncaught Exception", t);
         }
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.game;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.terasology.componentSystem.ComponentAccess;
+import org.terasology.componentSystem.UpdateSubscriberSystem;
+import org.terasology.entitySystem.Component;
+import org.terasology.entitySystem.EventSystem;
+import org.terasology.performanceMonitor.PerformanceMonitor;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Updates the update subscriber systems each frame, in parallel where their {@link ComponentAccess} allows it.
+ * <p/>
+ * The systems are divided into stages which are updated one after another. Each system is placed in the stage after
+ * the last stage containing a system registered before it that it conflicts with, so conflicting systems are always
+ * updated in the order they were registered and the stages are the same every frame. A system without
+ * ComponentAccess conflicts with every other system, and so is updated on its own.
+ * <p/>
+ * The systems of a stage are updated on a pool of worker threads while the main thread waits. Events they send are
+ * queued and dispatched on the main thread when the stage is done, so event handlers never run alongside the
+ * systems of a stage and cannot touch the components those systems write. The event system is processed after
+ * every stage, whether parallel or not, so deferred component changes are delivered before the next stage.
+ */
+public class UpdateScheduler {
+
+    private final List<UpdateSubscriberSystem> systems = Lists.newArrayList();
+    private final int threads;
+
+    private List<Stage> stages;
+    private ExecutorService workers;
+
+    /**
+     * @param threads The number of threads to update systems on. With 1 all systems are updated on the main thread,
+     *                otherwise the systems of a stage are updated on that many worker threads.
+     */
+    public UpdateScheduler(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    public void add(UpdateSubscriberSystem system) {
+        systems.add(system);
+        stages = null;
+    }
+
+    /**
+     * Removes all systems and stops the worker threads.
+     */
+    public void clear() {
+        systems.clear();
+        stages = null;
+        if (workers != null) {
+            workers.shutdown();
+            workers = null;
+        }
+    }
+
+    public void update(float delta) {
+        if (stages == null) {
+            stages = createStages();
+        }
+        EventSystem eventSystem = CoreRegistry.get(EventSystem.class);
+        for (Stage stage : stages) {
+            if (stage.systems.length == 1 || threads == 1) {
+                for (int i = 0; i < stage.systems.length; i++) {
+                    updateSystem(stage, i, delta);
+                }
+            } else {
+                updateInParallel(stage, delta);
+            }
+            // Delivers the events of other threads and the deferred component changes before the next stage
+            if (eventSystem != null) {
+                eventSystem.process();
+            }
+        }
+    }
+
+    /**
+     * @return The systems of each stage, in the order they are updated
+     */
+    List<List<UpdateSubscriberSystem>> getStages() {
+        if (stages == null) {
+            stages = createStages();
+        }
+        List<List<UpdateSubscriberSystem>> result = Lists.newArrayListWithCapacity(stages.size());
+        for (Stage stage : stages) {
+            result.add(Collections.unmodifiableList(Arrays.asList(stage.systems)));
+        }
+        return result;
+    }
+
+    private void updateSystem(Stage stage, int index, float delta) {
+        PerformanceMonitor.startActivity(stage.names[index]);
+        stage.systems[index].update(delta);
+        PerformanceMonitor.endActivity();
+    }
+
+    private void updateInParallel(final Stage stage, final float delta) {
+        if (workers == null) {
+            workers = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("System-Update-%d").setDaemon(true).build());
+        }
+        // Events sent on the main thread are delivered immediately, so no system of the stage is updated there
+        List<Future<?>> updates = Lists.newArrayListWithCapacity(stage.systems.length);
+        for (int i = 0; i < stage.systems.length; i++) {
+            final int index = i;
+            updates.add(workers.submit(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    long start = System.nanoTime();
+                    stage.systems[index].update(delta);
+                    PerformanceMonitor.recordActivity(stage.names[index], System.nanoTime() - start);
+                    return null;
+                }
+            }));
+        }
+        Throwable failure = null;
+        for (Future<?> update : updates) {
+            try {
+                Uninterruptibles.getUninterruptibly(update);
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            }
+        }
+        if (failure != null) {
+            throw Throwables.propagate(failure);
+        }
+    }
+
+    private List<Stage> createStages() {
+        List<Access> accesses = Lists.newArrayListWithCapacity(systems.size());
+        List<List<UpdateSubscriberSystem>> stageSystems = Lists.newArrayList();
+        int[] stageIndices = new int[systems.size()];
+        for (int i = 0; i < systems.size(); i++) {
+            Access access = Access.of(systems.get(i));
+            int stage = 0;
+            for (int j = 0; j < i; j++) {
+                if (stageIndices[j] >= stage && access.conflictsWith(accesses.get(j))) {
+                    stage = stageIndices[j] + 1;
+                }
+            }
+            if (stage == stageSystems.size()) {
+                stageSystems.add(Lists.<UpdateSubscriberSystem>newArrayList());
+            }
+            stageSystems.get(stage).add(systems.get(i));
+            stageIndices[i] = stage;
+            accesses.add(access);
+        }
+        List<Stage> result = Lists.newArrayListWithCapacity(stageSystems.size());
+        for (List<UpdateSubscriberSystem> systemsOfStage : stageSystems) {
+            result.add(new Stage(systemsOfStage));
+        }
+        return result;
+    }
+
+    private static class Stage {
+        private final UpdateSubscriberSystem[] systems;
+        private final String[] names;
+
+        public Stage(List<UpdateSubscriberSystem> systems) {
+            this.systems = systems.toArray(new UpdateSubscriberSystem[systems.size()]);
+            this.names = new String[systems.size()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = this.systems[i].getClass().getSimpleName();
+            }
+        }
+    }
+
+    /**
+     * The components a system reads and writes. Both are null for a system without ComponentAccess.
+     */
+    private static class Access {
+        private final Set<Class<? extends Component>> reads;
+        private final Set<Class<? extends Component>> writes;
+
+        private Access(Set<Class<? extends Component>> reads, Set<Class<? extends Component>> writes) {
+            this.reads = reads;
+            this.writes = writes;
+        }
+
+        public static Access of(UpdateSubscriberSystem system) {
+            ComponentAccess componentAccess = system.getClass().getAnnotation(ComponentAccess.class);
+            if (componentAccess == null) {
+                return new Access(null, null);
+            }
+            Set<Class<? extends Component>> writes = Sets.<Class<? extends Component>>newHashSet(componentAccess.writes());
+            Set<Class<? extends Component>> reads = Sets.<Class<? extends Component>>newHashSet(componentAccess.reads());
+            reads.addAll(writes);
+            return new Access(reads, writes);
+        }
+
+        public boolean conflictsWith(Access other) {
+            if (writes == null || other.writes == null) {
+                return true;
+            }
+            return !Collections.disjoint(writes, other.reads) || !Collections.disjoint(reads, other.writes);
+        }
+    }
+}
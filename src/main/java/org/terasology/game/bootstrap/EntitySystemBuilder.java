@@ -64,6 +64,21 @@ import org.terasology.world.block.family.BlockFamily;
 public class EntitySystemBuilder {
 
     public PersistableEntityManager build(ModManager modManager) {
+        return build(modManager, false);
+    }
+
+    /**
+     * @param archetypeStorage Whether the entity manager groups the components of entities by archetype
+     */
+    public PersistableEntityManager build(ModManager modManager, boolean archetypeStorage) {
+        return build(modManager, archetypeStorage, false);
+    }
+
+    /**
+     * @param archetypeStorage Whether the entity manager groups the components of entities by archetype
+     * @param deferredEventDelivery Whether the event system coalesces component changes and sends them when processing
+     */
+    public PersistableEntityManager build(ModManager modManager, boolean archetypeStorage, boolean deferredEventDelivery) {
         ComponentLibrary library = new ComponentLibraryImpl();
         registerTypeHandlers(library);
         CoreRegistry.put(ComponentLibrary.class, library);
@@ -71,8 +86,8 @@ public class EntitySystemBuilder {
         PrefabManager prefabManager = new PojoPrefabManager(library);
         CoreRegistry.put(PrefabManager.class, prefabManager);
 
-        PersistableEntityManager entityManager = new PojoEntityManager(library, prefabManager);
-        entityManager.setEventSystem(new PojoEventSystem());
+        PersistableEntityManager entityManager = new PojoEntityManager(library, prefabManager, archetypeStorage);
+        entityManager.setEventSystem(new PojoEventSystem(deferredEventDelivery));
         CoreRegistry.put(EntityManager.class, entityManager);
         CoreRegistry.put(EventSystem.class, entityManager.getEventSystem());
 
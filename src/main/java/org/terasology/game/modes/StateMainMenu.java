@@ -20,6 +20,7 @@ import java.util.Iterator;
 import org.terasology.asset.Assets;
 import org.terasology.audio.AudioManager;
 import org.terasology.components.LocalPlayerComponent;
+import org.terasology.config.Config;
 import org.terasology.entitySystem.ComponentSystem;
 import org.terasology.entitySystem.EntityRef;
 import org.terasology.entitySystem.EventSystem;
@@ -65,7 +66,8 @@ public class StateMainMenu implements GameState {
         _gameInstance = gameEngine;
 
         //lets get the entity event system running
-        entityManager = new EntitySystemBuilder().build(CoreRegistry.get(ModManager.class));
+        Config config = CoreRegistry.get(Config.class);
+        entityManager = new EntitySystemBuilder().build(CoreRegistry.get(ModManager.class), config.getSystem().isArchetypeEntityStorage(), config.getSystem().isDeferredEventDelivery());
         eventSystem = CoreRegistry.get(EventSystem.class);
 
         guiManager = new GUIManager();
@@ -132,6 +134,7 @@ public class StateMainMenu implements GameState {
         updateUserInterface();
         
         eventSystem.process();
+        eventSystem.updateMetrics();
     }
 
     @Override
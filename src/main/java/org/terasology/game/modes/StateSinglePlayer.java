@@ -17,7 +17,6 @@ package org.terasology.game.modes;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.terasology.componentSystem.UpdateSubscriberSystem;
 import org.terasology.componentSystem.controllers.MenuControlSystem;
 import org.terasology.entitySystem.ComponentSystem;
 import org.terasology.entitySystem.EntityManager;
@@ -109,14 +108,13 @@ public class StateSinglePlayer implements GameState {
 
         eventSystem.process();
 
-        for (UpdateSubscriberSystem updater : componentSystemManager.iterateUpdateSubscribers()) {
-            PerformanceMonitor.startActivity(updater.getClass().getSimpleName());
-            updater.update(delta);
-        }
+        componentSystemManager.update(delta);
 
         if (worldRenderer != null && shouldUpdateWorld()) {
             worldRenderer.update(delta);
         }
+
+        eventSystem.updateMetrics();
     }
 
     @Override
@@ -16,6 +16,7 @@
 
 package org.terasology.game.modes.loadProcesses;
 
+import org.terasology.config.Config;
 import org.terasology.game.CoreRegistry;
 import org.terasology.game.bootstrap.EntitySystemBuilder;
 import org.terasology.game.modes.LoadProcess;
@@ -33,7 +34,8 @@ public class InitialiseEntitySystem implements LoadProcess {
     @Override
     public boolean step() {
         ModManager modManager = CoreRegistry.get(ModManager.class);
-        new EntitySystemBuilder().build(modManager);
+        Config config = CoreRegistry.get(Config.class);
+        new EntitySystemBuilder().build(modManager, config.getSystem().isArchetypeEntityStorage(), config.getSystem().isDeferredEventDelivery());
         return true;
     }
 
@@ -19,6 +19,7 @@ package org.terasology.game.modes.loadProcesses;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terasology.componentSystem.controllers.LocalPlayerSystem;
+import org.terasology.config.Config;
 import org.terasology.entitySystem.EntityManager;
 import org.terasology.entitySystem.EntityRef;
 import org.terasology.game.CoreRegistry;
@@ -68,6 +69,9 @@ public class InitialiseWorld implements LoadProcess {
         ChunkGeneratorManager chunkGeneratorManager = ChunkGeneratorManagerImpl.buildChunkGenerator(Arrays.asList(worldInfo.getChunkGenerators()));
         chunkGeneratorManager.setWorldSeed(worldInfo.getSeed());
         chunkGeneratorManager.setWorldBiomeProvider(new WorldBiomeProviderImpl(worldInfo.getSeed()));
+        if (CoreRegistry.get(Config.class).getSystem().isParallelChunkGeneration()) {
+            chunkGeneratorManager.setSubtaskExecutor(ChunkGeneratorManagerImpl.createSubtaskExecutor(Runtime.getRuntime().availableProcessors()));
+        }
 
         // Init. a new world
         WorldRenderer worldRenderer = new WorldRenderer(worldInfo, chunkGeneratorManager, CoreRegistry.get(EntityManager.class), CoreRegistry.get(LocalPlayerSystem.class));
@@ -19,6 +19,8 @@ package org.terasology.game.modes.loadProcesses;
 import org.terasology.game.ComponentSystemManager;
 import org.terasology.game.CoreRegistry;
 import org.terasology.game.modes.LoadProcess;
+import org.terasology.logic.spatial.SpatialIndex;
+import org.terasology.logic.spatial.SpatialIndexSystem;
 import org.terasology.logic.mod.Mod;
 import org.terasology.logic.mod.ModManager;
 
@@ -36,6 +38,12 @@ public class RegisterSystems implements LoadProcess {
         ComponentSystemManager componentSystemManager = CoreRegistry.get(ComponentSystemManager.class);
         ModManager modManager = CoreRegistry.get(ModManager.class);
 
+        // Registered before the engine and mod systems, so that it applies the location changes of the last tick
+        // before they update
+        SpatialIndexSystem spatialIndex = new SpatialIndexSystem();
+        componentSystemManager.register(spatialIndex, "engine:SpatialIndexSystem");
+        CoreRegistry.put(SpatialIndex.class, spatialIndex);
+
         componentSystemManager.loadSystems(ModManager.ENGINE_PACKAGE, modManager.getEngineReflections());
         for (Mod mod : modManager.getActiveMods()) {
             if (mod.isCodeMod()) {
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.logic.spatial;
+
+import javax.vecmath.Vector3f;
+
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.math.AABB;
+import org.terasology.model.structures.ViewFrustum;
+
+/**
+ * Finds entities with a location by their world position, without scanning all of them.
+ * <p/>
+ * Queries allocate nothing but the vector for the positions they pass on. Each entity found is passed to a callback
+ * together with its indexed position.
+ */
+public interface SpatialIndex {
+
+    /**
+     * Finds all entities within the given distance of a position.
+     */
+    void findInRadius(Vector3f center, float radius, SpatialQueryCallback callback);
+
+    /**
+     * Finds all entities within the given region.
+     */
+    void findInRegion(AABB region, SpatialQueryCallback callback);
+
+    /**
+     * Finds all entities within the given view frustum.
+     *
+     * @param cameraPosition The world position of the camera the frustum is relative to
+     */
+    void findInFrustum(ViewFrustum frustum, Vector3f cameraPosition, SpatialQueryCallback callback);
+
+    /**
+     * @return The number of indexed entities
+     */
+    int size();
+}
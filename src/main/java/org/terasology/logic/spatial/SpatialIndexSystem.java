@@ -0,0 +1,397 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.logic.spatial;
+
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+import java.util.Arrays;
+
+import javax.vecmath.Vector3f;
+
+import org.terasology.componentSystem.UpdateSubscriberSystem;
+import org.terasology.components.world.LocationComponent;
+import org.terasology.entitySystem.EntityManager;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.entitySystem.EventHandlerSystem;
+import org.terasology.entitySystem.ReceiveEvent;
+import org.terasology.entitySystem.event.AddComponentEvent;
+import org.terasology.entitySystem.event.ChangedComponentEvent;
+import org.terasology.entitySystem.event.RemovedComponentEvent;
+import org.terasology.game.CoreRegistry;
+import org.terasology.math.AABB;
+import org.terasology.model.structures.ViewFrustum;
+import org.terasology.world.chunks.Chunk;
+
+/**
+ * Indexes the world position of every entity with a location in a sparse grid of chunk sized cells.
+ * <p/>
+ * Location changes are collected from component events and applied in one batch per update, so queries find the
+ * positions as of the last update. Children are moved along with their parent. Queries may run concurrently with
+ * each other, as every query passes the positions in a vector of its own. They may not run concurrently with the
+ * update, which the update scheduler runs on its own as this system declares no component access.
+ */
+public class SpatialIndexSystem implements SpatialIndex, EventHandlerSystem, UpdateSubscriberSystem {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int CELL_BITS = 21;
+    private static final long CELL_MASK = (1L << CELL_BITS) - 1;
+
+    private EntityManager entityManager;
+
+    /* Indexed by entity id */
+    private EntityRef[] entities = new EntityRef[INITIAL_CAPACITY];
+    private float[] positions = new float[3 * INITIAL_CAPACITY];
+    private Cell[] cellOfEntity = new Cell[INITIAL_CAPACITY];
+    private int[] indexInCell = new int[INITIAL_CAPACITY];
+    private int size;
+
+    private TLongObjectMap<Cell> cells = new TLongObjectHashMap<Cell>();
+    private Cell[] cellList = new Cell[64];
+    private int cellCount;
+
+    /* Indexed by entity id, the latest reference to each entity changed since the last update */
+    private EntityRef[] changed = new EntityRef[INITIAL_CAPACITY];
+    private TIntList changedIds = new TIntArrayList();
+
+    private final Vector3f updatePosition = new Vector3f();
+
+    @Override
+    public void initialise() {
+        entityManager = CoreRegistry.get(EntityManager.class);
+        for (EntityRef entity : entityManager.iteratorEntities(LocationComponent.class)) {
+            markChanged(entity);
+        }
+        applyChanges();
+    }
+
+    @Override
+    public void shutdown() {
+        Arrays.fill(entities, null);
+        Arrays.fill(cellOfEntity, null);
+        Arrays.fill(changed, null);
+        changedIds.clear();
+        cells.clear();
+        Arrays.fill(cellList, null);
+        cellCount = 0;
+        size = 0;
+    }
+
+    @ReceiveEvent(components = LocationComponent.class)
+    public void onLocationAdded(AddComponentEvent event, EntityRef entity) {
+        markChanged(entity);
+    }
+
+    @ReceiveEvent(components = LocationComponent.class)
+    public void onLocationChanged(ChangedComponentEvent event, EntityRef entity) {
+        markChanged(entity);
+    }
+
+    @ReceiveEvent(components = LocationComponent.class)
+    public void onLocationRemoved(RemovedComponentEvent event, EntityRef entity) {
+        markChanged(entity);
+    }
+
+    @Override
+    public void update(float delta) {
+        applyChanges();
+    }
+
+    @Override
+    public void findInRadius(Vector3f center, float radius, SpatialQueryCallback callback) {
+        Vector3f position = new Vector3f();
+        float radiusSquared = radius * radius;
+        int minX = cellX(center.x - radius);
+        int minY = cellY(center.y - radius);
+        int minZ = cellZ(center.z - radius);
+        int maxX = cellX(center.x + radius);
+        int maxY = cellY(center.y + radius);
+        int maxZ = cellZ(center.z + radius);
+        if (isLargerThanGrid(minX, minY, minZ, maxX, maxY, maxZ)) {
+            for (int i = 0; i < cellCount; i++) {
+                Cell cell = cellList[i];
+                if (cell.overlaps(minX, minY, minZ, maxX, maxY, maxZ) && !visitInRadius(cell, center, radiusSquared, callback, position)) {
+                    return;
+                }
+            }
+            return;
+        }
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    Cell cell = cells.get(cellKey(x, y, z));
+                    if (cell != null && !visitInRadius(cell, center, radiusSquared, callback, position)) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void findInRegion(AABB region, SpatialQueryCallback callback) {
+        Vector3f position = new Vector3f();
+        int minX = cellX(region.minX());
+        int minY = cellY(region.minY());
+        int minZ = cellZ(region.minZ());
+        int maxX = cellX(region.maxX());
+        int maxY = cellY(region.maxY());
+        int maxZ = cellZ(region.maxZ());
+        if (isLargerThanGrid(minX, minY, minZ, maxX, maxY, maxZ)) {
+            for (int i = 0; i < cellCount; i++) {
+                Cell cell = cellList[i];
+                if (cell.overlaps(minX, minY, minZ, maxX, maxY, maxZ) && !visitInRegion(cell, region, callback, position)) {
+                    return;
+                }
+            }
+            return;
+        }
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    Cell cell = cells.get(cellKey(x, y, z));
+                    if (cell != null && !visitInRegion(cell, region, callback, position)) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void findInFrustum(ViewFrustum frustum, Vector3f cameraPosition, SpatialQueryCallback callback) {
+        Vector3f position = new Vector3f();
+        for (int i = 0; i < cellCount; i++) {
+            Cell cell = cellList[i];
+            float minX = cell.x * Chunk.SIZE_X - cameraPosition.x;
+            float minY = cell.y * Chunk.SIZE_Y - cameraPosition.y;
+            float minZ = cell.z * Chunk.SIZE_Z - cameraPosition.z;
+            if (!frustum.intersects(minX, minY, minZ, minX + Chunk.SIZE_X, minY + Chunk.SIZE_Y, minZ + Chunk.SIZE_Z)) {
+                continue;
+            }
+            for (int j = 0; j < cell.size; j++) {
+                int id = cell.ids[j];
+                int p = 3 * id;
+                if (frustum.intersects(positions[p] - cameraPosition.x, positions[p + 1] - cameraPosition.y, positions[p + 2] - cameraPosition.z)
+                        && !visit(id, callback, position)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private boolean visitInRadius(Cell cell, Vector3f center, float radiusSquared, SpatialQueryCallback callback, Vector3f position) {
+        for (int i = 0; i < cell.size; i++) {
+            int id = cell.ids[i];
+            int p = 3 * id;
+            float dx = positions[p] - center.x;
+            float dy = positions[p + 1] - center.y;
+            float dz = positions[p + 2] - center.z;
+            if (dx * dx + dy * dy + dz * dz <= radiusSquared && !visit(id, callback, position)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean visitInRegion(Cell cell, AABB region, SpatialQueryCallback callback, Vector3f position) {
+        float minX = region.minX();
+        float minY = region.minY();
+        float minZ = region.minZ();
+        float maxX = region.maxX();
+        float maxY = region.maxY();
+        float maxZ = region.maxZ();
+        for (int i = 0; i < cell.size; i++) {
+            int id = cell.ids[i];
+            int p = 3 * id;
+            float x = positions[p];
+            float y = positions[p + 1];
+            float z = positions[p + 2];
+            if (x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ && !visit(id, callback, position)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Passes an entity to the callback, with its position in the vector owned by the running query.
+     */
+    private boolean visit(int id, SpatialQueryCallback callback, Vector3f position) {
+        if (!entities[id].exists()) {
+            // Destroyed since the last update
+            return true;
+        }
+        int p = 3 * id;
+        position.set(positions[p], positions[p + 1], positions[p + 2]);
+        return callback.visit(entities[id], position);
+    }
+
+    private boolean isLargerThanGrid(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        long cellsInRange = (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+        return cellsInRange > cellCount;
+    }
+
+    private void markChanged(EntityRef entity) {
+        if (!entity.exists()) {
+            return;
+        }
+        int id = entity.getId();
+        ensureCapacity(id);
+        if (changed[id] == null) {
+            changedIds.add(id);
+        }
+        changed[id] = entity;
+    }
+
+    private void applyChanges() {
+        // Children added to the list while it is processed are moved in the same batch
+        for (int i = 0; i < changedIds.size(); i++) {
+            int id = changedIds.get(i);
+            EntityRef entity = changed[id];
+            changed[id] = null;
+            LocationComponent location = entity.getComponent(LocationComponent.class);
+            if (location == null) {
+                remove(id);
+            } else {
+                put(id, entity, location.getWorldPosition(updatePosition));
+                for (EntityRef child : location.getChildren()) {
+                    markChanged(child);
+                }
+            }
+        }
+        changedIds.clear();
+    }
+
+    private void put(int id, EntityRef entity, Vector3f position) {
+        int cellX = cellX(position.x);
+        int cellY = cellY(position.y);
+        int cellZ = cellZ(position.z);
+        Cell cell = cellOfEntity[id];
+        if (cell == null || cell.x != cellX || cell.y != cellY || cell.z != cellZ) {
+            if (cell == null) {
+                size++;
+            } else {
+                removeFromCell(id, cell);
+            }
+            addToCell(id, cellX, cellY, cellZ);
+        }
+        entities[id] = entity;
+        int p = 3 * id;
+        positions[p] = position.x;
+        positions[p + 1] = position.y;
+        positions[p + 2] = position.z;
+    }
+
+    private void remove(int id) {
+        Cell cell = cellOfEntity[id];
+        if (cell != null) {
+            removeFromCell(id, cell);
+            entities[id] = null;
+            size--;
+        }
+    }
+
+    private void addToCell(int id, int x, int y, int z) {
+        long key = cellKey(x, y, z);
+        Cell cell = cells.get(key);
+        if (cell == null) {
+            cell = new Cell(x, y, z, key);
+            cells.put(key, cell);
+            if (cellCount == cellList.length) {
+                cellList = Arrays.copyOf(cellList, cellCount * 2);
+            }
+            cell.listIndex = cellCount;
+            cellList[cellCount++] = cell;
+        }
+        if (cell.size == cell.ids.length) {
+            cell.ids = Arrays.copyOf(cell.ids, cell.size * 2);
+        }
+        indexInCell[id] = cell.size;
+        cell.ids[cell.size++] = id;
+        cellOfEntity[id] = cell;
+    }
+
+    private void removeFromCell(int id, Cell cell) {
+        int index = indexInCell[id];
+        int last = cell.ids[--cell.size];
+        cell.ids[index] = last;
+        indexInCell[last] = index;
+        cellOfEntity[id] = null;
+        if (cell.size == 0) {
+            cells.remove(cell.key);
+            Cell moved = cellList[--cellCount];
+            cellList[cell.listIndex] = moved;
+            moved.listIndex = cell.listIndex;
+            cellList[cellCount] = null;
+        }
+    }
+
+    private void ensureCapacity(int id) {
+        if (id >= entities.length) {
+            int capacity = Math.max(id + 1, entities.length * 2);
+            entities = Arrays.copyOf(entities, capacity);
+            positions = Arrays.copyOf(positions, 3 * capacity);
+            cellOfEntity = Arrays.copyOf(cellOfEntity, capacity);
+            indexInCell = Arrays.copyOf(indexInCell, capacity);
+            changed = Arrays.copyOf(changed, capacity);
+        }
+    }
+
+    private static int cellX(float x) {
+        return (int) Math.floor(x / Chunk.SIZE_X);
+    }
+
+    private static int cellY(float y) {
+        return (int) Math.floor(y / Chunk.SIZE_Y);
+    }
+
+    private static int cellZ(float z) {
+        return (int) Math.floor(z / Chunk.SIZE_Z);
+    }
+
+    private static long cellKey(int x, int y, int z) {
+        return ((x & CELL_MASK) << (2 * CELL_BITS)) | ((y & CELL_MASK) << CELL_BITS) | (z & CELL_MASK);
+    }
+
+    private static final class Cell {
+        private final int x;
+        private final int y;
+        private final int z;
+        private final long key;
+        private int[] ids = new int[8];
+        private int size;
+        private int listIndex;
+
+        private Cell(int x, int y, int z, long key) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.key = key;
+        }
+
+        private boolean overlaps(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+            return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+        }
+    }
+}
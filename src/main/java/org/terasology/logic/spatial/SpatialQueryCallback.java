@@ -0,0 +1,33 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.logic.spatial;
+
+import javax.vecmath.Vector3f;
+
+import org.terasology.entitySystem.EntityRef;
+
+/**
+ * Receives the entities found by a {@link SpatialIndex} query.
+ */
+public interface SpatialQueryCallback {
+
+    /**
+     * @param entity   An entity found by the query
+     * @param position The indexed world position of the entity. Only valid during the call, and must not be modified
+     * @return Whether the query should continue
+     */
+    boolean visit(EntityRef entity, Vector3f position);
+}
@@ -128,6 +128,24 @@ public class ViewFrustum {
         return true;
     }
 
+    /**
+     * Returns true if the given box intersects the view frustum. Like points, the box is given relative to the
+     * camera.
+     */
+    public boolean intersects(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        for (int i = 0; i < 6; i++) {
+            FrustumPlane plane = _planes[i];
+            // The corner of the box furthest along the plane normal
+            double x = plane.getA() >= 0 ? maxX : minX;
+            double y = plane.getB() >= 0 ? maxY : minY;
+            double z = plane.getC() >= 0 ? maxZ : minZ;
+            if (plane.getA() * x + plane.getB() * y + plane.getC() * z + plane.getD() <= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Returns true if this view frustum intersects the given AABB.
      */
@@ -58,6 +58,17 @@ public class PerformanceMonitor {
         _instance.endActivity();
     }
 
+    /**
+     * Records time spent on an activity by a thread other than the main thread, such as a task the main thread
+     * waits for. Unlike startActivity() and endActivity(), this may be called from any thread.
+     *
+     * @param activity The name of the activity
+     * @param nanoseconds The time spent on it
+     */
+    public static void recordActivity(String activity, long nanoseconds) {
+        _instance.recordActivity(activity, nanoseconds);
+    }
+
     public static void startThread(String name) {
         _instance.startThread(name);
     }
@@ -71,6 +82,24 @@ public class PerformanceMonitor {
     }
 
 
+    /**
+     * Records the current value of a metric that is not a duration, such as the length of a queue.
+     * Unlike activities, values may be recorded from any thread.
+     *
+     * @param name  The name of the value
+     * @param value The current value
+     */
+    public static void setValue(String name, double value) {
+        _instance.setValue(name, value);
+    }
+
+    /**
+     * @return A mapping of value names to the last value recorded for them.
+     */
+    public static TObjectDoubleMap<String> getValues() {
+        return _instance.getValues();
+    }
+
     /**
      * Should be called once per frame, drops old information and updates the metrics.
      */
@@ -30,12 +30,18 @@ public interface IPerformanceMonitor {
 
     void endActivity();
 
+    void recordActivity(String activity, long nanoseconds);
+
     void startThread(String name);
 
     void endThread(String name);
 
     TObjectIntMap<String> getRunningThreads();
 
+    void setValue(String name, double value);
+
+    TObjectDoubleMap<String> getValues();
+
     TObjectDoubleMap<String> getRunningMean();
 
     TObjectDoubleMap<String> getDecayingSpikes();
@@ -42,6 +42,9 @@ public class NullPerformanceMonitor implements IPerformanceMonitor {
     public void endActivity() {
     }
 
+    public void recordActivity(String activity, long nanoseconds) {
+    }
+
     public TObjectDoubleMap<String> getRunningMean() {
         return _metrics;
     }
@@ -54,4 +57,11 @@ public class NullPerformanceMonitor implements IPerformanceMonitor {
         return _threads;
     }
 
+    public void setValue(String name, double value) {
+    }
+
+    public TObjectDoubleMap<String> getValues() {
+        return _metrics;
+    }
+
 }
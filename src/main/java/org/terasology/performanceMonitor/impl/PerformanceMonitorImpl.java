@@ -46,6 +46,7 @@ public class PerformanceMonitorImpl implements IPerformanceMonitor {
     private Stack<Activity> _activityStack;
     private List<TObjectLongMap<String>> _metricData;
     private TObjectLongMap<String> _currentData;
+    private TObjectLongMap<String> _recordedData;
     private TObjectLongMap<String> _runningTotals;
     private TObjectIntMap<String> _runningThreads;
     private TObjectIntMap<String> _stoppedThreads;
@@ -53,6 +54,7 @@ public class PerformanceMonitorImpl implements IPerformanceMonitor {
     private TObjectDoubleMap<String> _spikeData;
     private double _timeFactor;
     private TObjectIntMap<String> _lastRunningThreads;
+    private TObjectDoubleMap<String> _values;
 
     private Thread _mainThread;
 
@@ -62,16 +64,27 @@ public class PerformanceMonitorImpl implements IPerformanceMonitor {
         _runningTotals = new TObjectLongHashMap<String>();
         _timerTicksPerSecond = Sys.getTimerResolution();
         _currentData = new TObjectLongHashMap<String>();
+        _recordedData = TCollections.synchronizedMap(new TObjectLongHashMap<String>());
         _spikeData = new TObjectDoubleHashMap<String>();
         _runningThreads = TCollections.synchronizedMap(new TObjectIntHashMap<String>());
         _stoppedThreads = TCollections.synchronizedMap(new TObjectIntHashMap<String>());
         _lastRunningThreads = new TObjectIntHashMap<String>();
+        _values = TCollections.synchronizedMap(new TObjectDoubleHashMap<String>());
         _timeFactor = 1000.0 / _timerTicksPerSecond;
         _mainThread = Thread.currentThread();
 
     }
 
     public void rollCycle() {
+        synchronized (_recordedData) {
+            _recordedData.forEachEntry(new TObjectLongProcedure<String>() {
+                public boolean execute(String s, long v) {
+                    _currentData.adjustOrPutValue(s, v, v);
+                    return true;
+                }
+            });
+            _recordedData.clear();
+        }
         _metricData.add(_currentData);
         _spikeData.forEachEntry(new TObjectDoubleProcedure<String>() {
             public boolean execute(String s, double v) {
@@ -150,6 +163,11 @@ public class PerformanceMonitorImpl implements IPerformanceMonitor {
         }
     }
 
+    public void recordActivity(String activity, long nanoseconds) {
+        long ticks = (long) (nanoseconds * (_timerTicksPerSecond / 1000000000.0));
+        _recordedData.adjustOrPutValue(activity, ticks, ticks);
+    }
+
     public TObjectDoubleMap<String> getRunningMean() {
         final TObjectDoubleMap<String> result = new TObjectDoubleHashMap<String>();
         final double factor = _timeFactor / _metricData.size();
@@ -180,6 +198,14 @@ public class PerformanceMonitorImpl implements IPerformanceMonitor {
         return _lastRunningThreads;
     }
 
+    public void setValue(String name, double value) {
+        _values.put(name, value);
+    }
+
+    public TObjectDoubleMap<String> getValues() {
+        return _values;
+    }
+
     private static class Activity {
         public String name;
         public long startTime;
@@ -17,6 +17,7 @@ public final class ChunksProtobuf {
     SparseArray4Bit(4, 4),
     SparseArray8Bit(5, 5),
     SparseArray16Bit(6, 6),
+    PaletteArray8Bit(7, 7),
     ;
     
     public static final int Unknown_VALUE = 0;
@@ -26,6 +27,7 @@ public final class ChunksProtobuf {
     public static final int SparseArray4Bit_VALUE = 4;
     public static final int SparseArray8Bit_VALUE = 5;
     public static final int SparseArray16Bit_VALUE = 6;
+    public static final int PaletteArray8Bit_VALUE = 7;
     
     
     public final int getNumber() { return value; }
@@ -39,6 +41,7 @@ public final class ChunksProtobuf {
         case 4: return SparseArray4Bit;
         case 5: return SparseArray8Bit;
         case 6: return SparseArray16Bit;
+        case 7: return PaletteArray8Bit;
         default: return null;
       }
     }
@@ -69,7 +72,7 @@ public final class ChunksProtobuf {
     }
     
     private static final Type[] VALUES = {
-      Unknown, DenseArray4Bit, DenseArray8Bit, DenseArray16Bit, SparseArray4Bit, SparseArray8Bit, SparseArray16Bit, 
+      Unknown, DenseArray4Bit, DenseArray8Bit, DenseArray16Bit, SparseArray4Bit, SparseArray8Bit, SparseArray16Bit, PaletteArray8Bit, 
     };
     
     public static Type valueOf(
@@ -2600,15 +2603,16 @@ public final class ChunksProtobuf {
       "t_data\030\006 \001(\0132\n.TeraArray\022\036\n\nlight_data\030\007" +
       " \001(\0132\n.TeraArray\022\036\n\nextra_data\030\010 \001(\0132\n.T" +
       "eraArray\022\032\n\010mod_data\030\t \003(\0132\010.ModData*\005\010d" +
-      "\020\351\007*\220\001\n\004Type\022\013\n\007Unknown\020\000\022\022\n\016DenseArray4",
+      "\020\351\007*\246\001\n\004Type\022\013\n\007Unknown\020\000\022\022\n\016DenseArray4",
       "Bit\020\001\022\022\n\016DenseArray8Bit\020\002\022\023\n\017DenseArray1" +
       "6Bit\020\003\022\023\n\017SparseArray4Bit\020\004\022\023\n\017SparseArr" +
-      "ay8Bit\020\005\022\024\n\020SparseArray16Bit\020\006*\242\001\n\005State" +
-      "\022 \n\034ADJACENCY_GENERATION_PENDING\020\000\022%\n!IN" +
-      "TERNAL_LIGHT_GENERATION_PENDING\020\001\022\035\n\031LIG" +
-      "HT_PROPAGATION_PENDING\020\002\022#\n\037FULL_LIGHT_C" +
-      "ONNECTIVITY_PENDING\020\003\022\014\n\010COMPLETE\020\004B+\n\027o" +
-      "rg.terasology.protobufB\016ChunksProtobufH\001"
+      "ay8Bit\020\005\022\024\n\020SparseArray16Bit\020\006\022\024\n\020Palett" +
+      "eArray8Bit\020\007*\242\001\n\005State\022 \n\034ADJACENCY_GENE" +
+      "RATION_PENDING\020\000\022%\n!INTERNAL_LIGHT_GENER" +
+      "ATION_PENDING\020\001\022\035\n\031LIGHT_PROPAGATION_PEN" +
+      "DING\020\002\022#\n\037FULL_LIGHT_CONNECTIVITY_PENDIN" +
+      "G\020\003\022\014\n\010COMPLETE\020\004B+\n\027org.terasology.prot" +
+      "obufB\016ChunksProtobufH\001"
     };
     com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner =
       new com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner() {
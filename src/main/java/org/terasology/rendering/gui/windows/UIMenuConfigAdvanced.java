@@ -155,7 +155,15 @@ public class UIMenuConfigAdvanced extends UIWindow {
                 config.setChunkDeflationLoggingEnabled(b.getToggleState());
             }
         }));
-        
+
+        comp.addDisplayElement(initOnOffButton("Palette Chunk Compression", "chunkPaletteDeflation", config.isChunkPaletteDeflationEnabled(), new ChangedListener() {
+            @Override
+            public void changed(UIDisplayElement element) {
+                UIButton b = (UIButton) element;
+                config.setChunkPaletteDeflationEnabled(b.getToggleState());
+            }
+        }));
+
         
         comp.orderDisplayElementTop(comp.getElementById("liquid"));
         comp.orderDisplayElementTop(comp.getElementById("light"));
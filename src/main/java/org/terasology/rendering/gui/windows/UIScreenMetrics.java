@@ -113,6 +113,28 @@ public class UIScreenMetrics extends UIWindow {
                 displayMetrics(PerformanceMonitor.getDecayingSpikes(), lines);
             }
         },
+        Values("Values", true) {
+            @Override
+            public void updateLines(List<UILabel> lines) {
+                final SortedSet<String> values = new TreeSet<String>();
+                PerformanceMonitor.getValues().forEachEntry(new TObjectDoubleProcedure<String>() {
+                    public boolean execute(String s, double v) {
+                        values.add(String.format("%s: %.2f", s, v));
+                        return true;
+                    }
+                });
+                int line = 0;
+                for (String value : values) {
+                    lines.get(line).setVisible(true);
+                    lines.get(line).setText(value);
+                    line++;
+                    if (line >= lines.size()) break;
+                }
+                for (; line < lines.size(); line++) {
+                    lines.get(line).setVisible(false);
+                }
+            }
+        },
         RunningThreads("Running Threads", true) {
             @Override
             public void updateLines(List<UILabel> lines) {
@@ -153,6 +175,8 @@ public class UIScreenMetrics extends UIWindow {
                 case RunningMean:
                     return DecayingSpikes;
                 case DecayingSpikes:
+                    return Values;
+                case Values:
                     return RunningThreads;
                 default:
                     return Off;
@@ -39,6 +39,7 @@ import java.util.concurrent.locks.ReentrantLock;
 
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL14;
 import org.lwjgl.opengl.GL15;
 import org.terasology.logic.manager.VertexBufferObjectManager;
 
@@ -102,14 +103,51 @@ public class ChunkMesh {
         WATER_AND_ICE;
     }
 
+    /**
+     * Possible layouts of the vertex buffers.
+     * <p/>
+     * The default layout stores all vertex attributes as floats. The compact layout stores the position as
+     * shorts in units of 1 / {@link #COMPACT_POSITION_SCALE} blocks, with the scale in the w component, the light
+     * values as unsigned bytes in the secondary color, the color divided by {@link #COMPACT_COLOR_SCALE} as unsigned
+     * bytes and the normal as bytes. Only the texture coordinates and vertex flags remain floats. The chunk shader
+     * reads the light values from the secondary color and scales the color back if COMPACT_CHUNK_VERTICES is defined.
+     */
+    public enum VERTEX_FORMAT {
+        DEFAULT((3 + 3 + 3 + 3 + 4) * 4),
+        COMPACT(4 * 2 + 3 * 4 + 4 + 4 + 4);
+
+        private int _stride;
+
+        private VERTEX_FORMAT(int stride) {
+            _stride = stride;
+        }
+
+        /**
+         * @return The size of a vertex in bytes
+         */
+        public int getStride() {
+            return _stride;
+        }
+    }
+
     /* CONST */
-    private static final int STRIDE = (3 + 3 + 3 + 3 + 4) * 4;
     private static final int OFFSET_VERTEX = 0;
     private static final int OFFSET_TEX_0 = (3 * 4);
     private static final int OFFSET_TEX_1 = ((3 + 3) * 4);
     private static final int OFFSET_COLOR = ((3 + 3 + 3) * 4);
     private static final int OFFSET_NORMAL = ((3 + 3 + 3 + 4) * 4);
 
+    public static final int COMPACT_POSITION_SCALE = 64;
+    /* Block color offsets exceed 1, the compact color covers [0..COMPACT_COLOR_SCALE] */
+    public static final float COMPACT_COLOR_SCALE = 4f;
+    private static final int COMPACT_OFFSET_VERTEX = 0;
+    private static final int COMPACT_OFFSET_TEX_0 = (4 * 2);
+    private static final int COMPACT_OFFSET_LIGHT = (4 * 2 + 3 * 4);
+    private static final int COMPACT_OFFSET_COLOR = (4 * 2 + 3 * 4 + 4);
+    private static final int COMPACT_OFFSET_NORMAL = (4 * 2 + 3 * 4 + 4 + 4);
+
+    private final VERTEX_FORMAT _vertexFormat;
+
     /* VERTEX DATA */
     private final int[] _vertexBuffers = new int[4];
     private final int[] _idxBuffers = new int[4];
@@ -129,6 +167,11 @@ public class ChunkMesh {
     public ReentrantLock _lock = new ReentrantLock();
 
     public ChunkMesh() {
+        this(VERTEX_FORMAT.DEFAULT);
+    }
+
+    public ChunkMesh(VERTEX_FORMAT vertexFormat) {
+        _vertexFormat = vertexFormat;
         _vertexElements[0] = new VertexElements();
         _vertexElements[1] = new VertexElements();
         _vertexElements[2] = new VertexElements();
@@ -199,20 +242,39 @@ public class ChunkMesh {
                 GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, _idxBuffers[id]);
                 GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, _vertexBuffers[id]);
 
-                glVertexPointer(3, GL11.GL_FLOAT, STRIDE, OFFSET_VERTEX);
+                int stride = _vertexFormat.getStride();
+                if (_vertexFormat == VERTEX_FORMAT.COMPACT) {
+                    glEnableClientState(GL14.GL_SECONDARY_COLOR_ARRAY);
+
+                    glVertexPointer(4, GL11.GL_SHORT, stride, COMPACT_OFFSET_VERTEX);
+
+                    GL13.glClientActiveTexture(GL13.GL_TEXTURE0);
+                    glTexCoordPointer(3, GL11.GL_FLOAT, stride, COMPACT_OFFSET_TEX_0);
 
-                GL13.glClientActiveTexture(GL13.GL_TEXTURE0);
-                glTexCoordPointer(3, GL11.GL_FLOAT, STRIDE, OFFSET_TEX_0);
+                    GL14.glSecondaryColorPointer(3, GL11.GL_UNSIGNED_BYTE, stride, COMPACT_OFFSET_LIGHT);
+
+                    glColorPointer(4, GL11.GL_UNSIGNED_BYTE, stride, COMPACT_OFFSET_COLOR);
+
+                    glNormalPointer(GL11.GL_BYTE, stride, COMPACT_OFFSET_NORMAL);
+                } else {
+                    glVertexPointer(3, GL11.GL_FLOAT, stride, OFFSET_VERTEX);
 
-                GL13.glClientActiveTexture(GL13.GL_TEXTURE1);
-                glTexCoordPointer(3, GL11.GL_FLOAT, STRIDE, OFFSET_TEX_1);
+                    GL13.glClientActiveTexture(GL13.GL_TEXTURE0);
+                    glTexCoordPointer(3, GL11.GL_FLOAT, stride, OFFSET_TEX_0);
 
-                glColorPointer(4, GL11.GL_FLOAT, STRIDE, OFFSET_COLOR);
+                    GL13.glClientActiveTexture(GL13.GL_TEXTURE1);
+                    glTexCoordPointer(3, GL11.GL_FLOAT, stride, OFFSET_TEX_1);
 
-                glNormalPointer(GL11.GL_FLOAT, STRIDE, OFFSET_NORMAL);
+                    glColorPointer(4, GL11.GL_FLOAT, stride, OFFSET_COLOR);
+
+                    glNormalPointer(GL11.GL_FLOAT, stride, OFFSET_NORMAL);
+                }
 
                 GL11.glDrawElements(GL11.GL_TRIANGLES, _vertexCount[id], GL11.GL_UNSIGNED_INT, 0);
 
+                if (_vertexFormat == VERTEX_FORMAT.COMPACT) {
+                    glDisableClientState(GL14.GL_SECONDARY_COLOR_ARRAY);
+                }
                 glDisableClientState(GL_NORMAL_ARRAY);
                 glDisableClientState(GL_COLOR_ARRAY);
                 glDisableClientState(GL_TEXTURE_COORD_ARRAY);
@@ -269,6 +331,10 @@ public class ChunkMesh {
         }
     }
 
+    public VERTEX_FORMAT getVertexFormat() {
+        return _vertexFormat;
+    }
+
     public boolean isGenerated() {
         return _vertexElements == null;
     }
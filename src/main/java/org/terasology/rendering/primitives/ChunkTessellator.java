@@ -17,11 +17,11 @@ package org.terasology.rendering.primitives;
 
 import gnu.trove.iterator.TIntIterator;
 
-import javax.vecmath.Vector3f;
 import javax.vecmath.Vector4f;
 
 import org.lwjgl.BufferUtils;
-import org.terasology.math.Direction;
+import org.terasology.config.Config;
+import org.terasology.game.CoreRegistry;
 import org.terasology.math.Region3i;
 import org.terasology.math.Side;
 import org.terasology.math.Vector3i;
@@ -43,6 +43,8 @@ public final class ChunkTessellator {
     private static int _statVertexArrayUpdateCount = 0;
 
     private WorldBiomeProvider biomeProvider;
+    private boolean greedyMeshing;
+    private ChunkMesh.VERTEX_FORMAT vertexFormat;
 
     public enum ChunkVertexFlags {
         BLOCK_HINT_WATER(1),
@@ -61,14 +63,35 @@ public final class ChunkTessellator {
     }
 
     public ChunkTessellator(WorldBiomeProvider biomeProvider) {
+        this(biomeProvider, CoreRegistry.get(Config.class).getRendering().isGreedyMeshing(),
+                CoreRegistry.get(Config.class).getRendering().isCompactChunkVertices() ? ChunkMesh.VERTEX_FORMAT.COMPACT : ChunkMesh.VERTEX_FORMAT.DEFAULT);
+    }
+
+    /**
+     * @param greedyMeshing Whether to merge adjacent opaque faces into larger quads, see {@link GreedyMesher}
+     */
+    public ChunkTessellator(WorldBiomeProvider biomeProvider, boolean greedyMeshing) {
+        this(biomeProvider, greedyMeshing, ChunkMesh.VERTEX_FORMAT.DEFAULT);
+    }
+
+    /**
+     * @param greedyMeshing Whether to merge adjacent opaque faces into larger quads, see {@link GreedyMesher}
+     * @param vertexFormat  The layout of the vertex buffers of the generated meshes
+     */
+    public ChunkTessellator(WorldBiomeProvider biomeProvider, boolean greedyMeshing, ChunkMesh.VERTEX_FORMAT vertexFormat) {
         this.biomeProvider = biomeProvider;
+        this.greedyMeshing = greedyMeshing;
+        this.vertexFormat = vertexFormat;
     }
 
     public ChunkMesh generateMesh(WorldView worldView, Vector3i chunkPos, int meshHeight, int verticalOffset) {
         PerformanceMonitor.startActivity("GenerateMesh");
-        ChunkMesh mesh = new ChunkMesh();
+        ChunkMesh mesh = new ChunkMesh(vertexFormat);
 
         Vector3i chunkOffset = new Vector3i(chunkPos.x * Chunk.SIZE_X, chunkPos.y * Chunk.SIZE_Y, chunkPos.z * Chunk.SIZE_Z);
+        // The vertices of the section sample the blocks of the section and the blocks next to it
+        LightingSnapshot lighting = new LightingSnapshot(worldView, -1, verticalOffset - 1, -1, Chunk.SIZE_X + 2, meshHeight + 2, Chunk.SIZE_Z + 2);
+        GreedyMesher greedyMesher = greedyMeshing ? new GreedyMesher(lighting, Chunk.SIZE_X, meshHeight, Chunk.SIZE_Z, verticalOffset) : null;
 
         for (int x = 0; x < Chunk.SIZE_X; x++) {
             for (int z = 0; z < Chunk.SIZE_Z; z++) {
@@ -81,12 +104,15 @@ public final class ChunkTessellator {
                     if (block == null || block.isInvisible())
                         continue;
 
-                    generateBlockVertices(worldView, mesh, x, y, z, biomeTemp, biomeHumidity);
+                    generateBlockVertices(worldView, mesh, greedyMesher, x, y, z, biomeTemp, biomeHumidity);
                 }
             }
         }
 
-        generateOptimizedBuffers(worldView, mesh);
+        if (greedyMesher != null) {
+            greedyMesher.appendTo(mesh);
+        }
+        generateOptimizedBuffers(lighting, mesh);
         _statVertexArrayUpdateCount++;
 
         PerformanceMonitor.endActivity();
@@ -95,7 +121,7 @@ public final class ChunkTessellator {
 
     public ChunkMesh generateMinaturizedMesh(MiniatureChunk miniatureChunk) {
         PerformanceMonitor.startActivity("GenerateMinuatureMesh");
-        ChunkMesh mesh = new ChunkMesh();
+        ChunkMesh mesh = new ChunkMesh(vertexFormat);
 
         MiniatureChunk[] chunks = { miniatureChunk };
         WorldView localWorldView = new WorldView(chunks, Region3i.createFromCenterExtents(Vector3i.zero(), Vector3i.zero()), Vector3i.zero());
@@ -109,167 +135,147 @@ public final class ChunkTessellator {
                     if (block == null || block.isInvisible())
                         continue;
 
-                    generateBlockVertices(localWorldView, mesh, x, y, z, 0.0f, 0.0f);
+                    generateBlockVertices(localWorldView, mesh, null, x, y, z, 0.0f, 0.0f);
                 }
             }
         }
 
-        generateOptimizedBuffers(localWorldView, mesh);
+        generateOptimizedBuffers(new LightingSnapshot(localWorldView), mesh);
         _statVertexArrayUpdateCount++;
 
         PerformanceMonitor.endActivity();
         return mesh;
     }
 
-    private void generateOptimizedBuffers(WorldView worldView, ChunkMesh mesh) {
+    private void generateOptimizedBuffers(LightingSnapshot lighting, ChunkMesh mesh) {
         PerformanceMonitor.startActivity("OptimizeBuffers");
 
+        float[] result = new float[3];
         for (int j = 0; j < mesh._vertexElements.length; j++) {
-            // Vertices double to account for light info
-            mesh._vertexElements[j].finalVertices = BufferUtils.createByteBuffer(mesh._vertexElements[j].vertices.size() * 2 * 4 + mesh._vertexElements[j].tex.size() * 4 + mesh._vertexElements[j].flags.size() * 4 + mesh._vertexElements[j].color.size() * 4 + mesh._vertexElements[j].normals.size() * 4);
-
-            int cTex = 0;
-            int cColor = 0;
-            int cFlags = 0;
-            for (int i = 0; i < mesh._vertexElements[j].vertices.size(); i += 3, cTex += 2, cColor += 4, cFlags++) {
+            ChunkMesh.VertexElements elements = mesh._vertexElements[j];
 
-                Vector3f vertexPos = new Vector3f(mesh._vertexElements[j].vertices.get(i), mesh._vertexElements[j].vertices.get(i + 1), mesh._vertexElements[j].vertices.get(i + 2));
-
-                mesh._vertexElements[j].finalVertices.putFloat(vertexPos.x);
-                mesh._vertexElements[j].finalVertices.putFloat(vertexPos.y);
-                mesh._vertexElements[j].finalVertices.putFloat(vertexPos.z);
-
-                mesh._vertexElements[j].finalVertices.putFloat(mesh._vertexElements[j].tex.get(cTex));
-                mesh._vertexElements[j].finalVertices.putFloat(mesh._vertexElements[j].tex.get(cTex + 1));
-                mesh._vertexElements[j].finalVertices.putFloat(mesh._vertexElements[j].flags.get(cFlags));
-
-                float[] result = new float[3];
-                Vector3f normal = new Vector3f(mesh._vertexElements[j].normals.get(i), mesh._vertexElements[j].normals.get(i+1), mesh._vertexElements[j].normals.get(i+2));
-                calcLightingValuesForVertexPos(worldView, vertexPos, result, normal);
-
-                mesh._vertexElements[j].finalVertices.putFloat(result[0]);
-                mesh._vertexElements[j].finalVertices.putFloat(result[1]);
-                mesh._vertexElements[j].finalVertices.putFloat(result[2]);
-
-                mesh._vertexElements[j].finalVertices.putFloat(mesh._vertexElements[j].color.get(cColor));
-                mesh._vertexElements[j].finalVertices.putFloat(mesh._vertexElements[j].color.get(cColor + 1));
-                mesh._vertexElements[j].finalVertices.putFloat(mesh._vertexElements[j].color.get(cColor + 2));
-                mesh._vertexElements[j].finalVertices.putFloat(mesh._vertexElements[j].color.get(cColor + 3));
-
-                mesh._vertexElements[j].finalVertices.putFloat(normal.x);
-                mesh._vertexElements[j].finalVertices.putFloat(normal.y);
-                mesh._vertexElements[j].finalVertices.putFloat(normal.z);
+            if (mesh.getVertexFormat() == ChunkMesh.VERTEX_FORMAT.COMPACT) {
+                generateCompactVertices(lighting, elements, result);
+            } else {
+                generateVertices(lighting, elements, result);
             }
 
-            mesh._vertexElements[j].finalIndices = BufferUtils.createIntBuffer(mesh._vertexElements[j].indices.size());
-            TIntIterator indexIterator = mesh._vertexElements[j].indices.iterator();
+            elements.finalIndices = BufferUtils.createIntBuffer(elements.indices.size());
+            TIntIterator indexIterator = elements.indices.iterator();
             while (indexIterator.hasNext()) {
-                mesh._vertexElements[j].finalIndices.put(indexIterator.next());
+                elements.finalIndices.put(indexIterator.next());
             }
 
-            mesh._vertexElements[j].finalVertices.flip();
-            mesh._vertexElements[j].finalIndices.flip();
+            elements.finalVertices.flip();
+            elements.finalIndices.flip();
         }
         PerformanceMonitor.endActivity();
     }
 
-    private void calcLightingValuesForVertexPos(WorldView worldView, Vector3f vertexPos, float[] output, Vector3f normal) {
-        PerformanceMonitor.startActivity("calcLighting");
-        float[] lights = new float[8];
-        float[] blockLights = new float[8];
-        Block[] blocks = new Block[4];
-
-        PerformanceMonitor.startActivity("gatherLightInfo");
-        Direction dir = Direction.inDirection(normal);
-        switch (dir) {
-            case LEFT:
-            case RIGHT:
-                blocks[0] = worldView.getBlock((vertexPos.x + 0.8f * normal.x), (vertexPos.y + 0.1f), (vertexPos.z + 0.1f));
-                blocks[1] = worldView.getBlock((vertexPos.x + 0.8f * normal.x), (vertexPos.y + 0.1f), (vertexPos.z - 0.1f));
-                blocks[2] = worldView.getBlock((vertexPos.x + 0.8f * normal.x), (vertexPos.y - 0.1f), (vertexPos.z - 0.1f));
-                blocks[3] = worldView.getBlock((vertexPos.x + 0.8f * normal.x), (vertexPos.y - 0.1f), (vertexPos.z + 0.1f));
-                break;
-            case FORWARD:
-            case BACKWARD:
-                blocks[0] = worldView.getBlock((vertexPos.x + 0.1f), (vertexPos.y + 0.1f), (vertexPos.z + 0.8f * normal.z));
-                blocks[1] = worldView.getBlock((vertexPos.x + 0.1f), (vertexPos.y - 0.1f), (vertexPos.z + 0.8f * normal.z));
-                blocks[2] = worldView.getBlock((vertexPos.x - 0.1f), (vertexPos.y - 0.1f), (vertexPos.z + 0.8f * normal.z));
-                blocks[3] = worldView.getBlock((vertexPos.x - 0.1f), (vertexPos.y + 0.1f), (vertexPos.z + 0.8f * normal.z));
-                break;
-            default:
-                blocks[0] = worldView.getBlock((vertexPos.x + 0.1f), (vertexPos.y + 0.8f * normal.y), (vertexPos.z + 0.1f));
-                blocks[1] = worldView.getBlock((vertexPos.x + 0.1f), (vertexPos.y + 0.8f * normal.y), (vertexPos.z - 0.1f));
-                blocks[2] = worldView.getBlock((vertexPos.x - 0.1f), (vertexPos.y + 0.8f * normal.y), (vertexPos.z - 0.1f));
-                blocks[3] = worldView.getBlock((vertexPos.x - 0.1f), (vertexPos.y + 0.8f * normal.y), (vertexPos.z + 0.1f));
-                break;
+    private void generateVertices(LightingSnapshot lighting, ChunkMesh.VertexElements elements, float[] result) {
+        // Vertices double to account for light info
+        elements.finalVertices = BufferUtils.createByteBuffer(elements.vertices.size() * 2 * 4 + elements.tex.size() * 4 + elements.flags.size() * 4 + elements.color.size() * 4 + elements.normals.size() * 4);
+
+        int cTex = 0;
+        int cColor = 0;
+        int cFlags = 0;
+        for (int i = 0; i < elements.vertices.size(); i += 3, cTex += 2, cColor += 4, cFlags++) {
+            float vertexX = elements.vertices.get(i);
+            float vertexY = elements.vertices.get(i + 1);
+            float vertexZ = elements.vertices.get(i + 2);
+            float normalX = elements.normals.get(i);
+            float normalY = elements.normals.get(i + 1);
+            float normalZ = elements.normals.get(i + 2);
+
+            elements.finalVertices.putFloat(vertexX);
+            elements.finalVertices.putFloat(vertexY);
+            elements.finalVertices.putFloat(vertexZ);
+
+            elements.finalVertices.putFloat(elements.tex.get(cTex));
+            elements.finalVertices.putFloat(elements.tex.get(cTex + 1));
+            elements.finalVertices.putFloat(elements.flags.get(cFlags));
+
+            lighting.calcLighting(vertexX, vertexY, vertexZ, normalX, normalY, normalZ, result);
+
+            elements.finalVertices.putFloat(result[0]);
+            elements.finalVertices.putFloat(result[1]);
+            elements.finalVertices.putFloat(result[2]);
+
+            elements.finalVertices.putFloat(elements.color.get(cColor));
+            elements.finalVertices.putFloat(elements.color.get(cColor + 1));
+            elements.finalVertices.putFloat(elements.color.get(cColor + 2));
+            elements.finalVertices.putFloat(elements.color.get(cColor + 3));
+
+            elements.finalVertices.putFloat(normalX);
+            elements.finalVertices.putFloat(normalY);
+            elements.finalVertices.putFloat(normalZ);
         }
+    }
 
-        lights[0] = worldView.getSunlight((vertexPos.x + 0.1f), (vertexPos.y + 0.8f), (vertexPos.z + 0.1f));
-        lights[1] = worldView.getSunlight((vertexPos.x + 0.1f), (vertexPos.y + 0.8f), (vertexPos.z - 0.1f));
-        lights[2] = worldView.getSunlight((vertexPos.x - 0.1f), (vertexPos.y + 0.8f), (vertexPos.z - 0.1f));
-        lights[3] = worldView.getSunlight((vertexPos.x - 0.1f), (vertexPos.y + 0.8f), (vertexPos.z + 0.1f));
-
-        lights[4] = worldView.getSunlight((vertexPos.x + 0.1f), (vertexPos.y - 0.1f), (vertexPos.z + 0.1f));
-        lights[5] = worldView.getSunlight((vertexPos.x + 0.1f), (vertexPos.y - 0.1f), (vertexPos.z - 0.1f));
-        lights[6] = worldView.getSunlight((vertexPos.x - 0.1f), (vertexPos.y - 0.1f), (vertexPos.z - 0.1f));
-        lights[7] = worldView.getSunlight((vertexPos.x - 0.1f), (vertexPos.y - 0.1f), (vertexPos.z + 0.1f));
-
-        blockLights[0] = worldView.getLight((vertexPos.x + 0.1f), (vertexPos.y + 0.8f), (vertexPos.z + 0.1f));
-        blockLights[1] = worldView.getLight((vertexPos.x + 0.1f), (vertexPos.y + 0.8f), (vertexPos.z - 0.1f));
-        blockLights[2] = worldView.getLight((vertexPos.x - 0.1f), (vertexPos.y + 0.8f), (vertexPos.z - 0.1f));
-        blockLights[3] = worldView.getLight((vertexPos.x - 0.1f), (vertexPos.y + 0.8f), (vertexPos.z + 0.1f));
-
-        blockLights[4] = worldView.getLight((vertexPos.x + 0.1f), (vertexPos.y - 0.1f), (vertexPos.z + 0.1f));
-        blockLights[5] = worldView.getLight((vertexPos.x + 0.1f), (vertexPos.y - 0.1f), (vertexPos.z - 0.1f));
-        blockLights[6] = worldView.getLight((vertexPos.x - 0.1f), (vertexPos.y - 0.1f), (vertexPos.z - 0.1f));
-        blockLights[7] = worldView.getLight((vertexPos.x - 0.1f), (vertexPos.y - 0.1f), (vertexPos.z + 0.1f));
-        PerformanceMonitor.endActivity();
-
-        float resultLight = 0;
-        float resultBlockLight = 0;
-        int counterLight = 0;
-        int counterBlockLight = 0;
-
-        int occCounter = 0;
-        int occCounterBillboard = 0;
-        for (int i = 0; i < 8; i++) {
-            if (lights[i] > 0) {
-                resultLight += lights[i];
-                counterLight++;
-            }
-            if (blockLights[i] > 0) {
-                resultBlockLight += blockLights[i];
-                counterBlockLight++;
-            }
-
-            if (i < 4) {
-                Block b = blocks[i];
-
-                if (b.isShadowCasting() && !b.isTranslucent()) {
-                    occCounter++;
-                } else if (b.isShadowCasting()) {
-                    occCounterBillboard++;
-                }
-            }
+    /**
+     * Writes the vertices in the compact layout, see {@link ChunkMesh.VERTEX_FORMAT#COMPACT}.
+     */
+    private void generateCompactVertices(LightingSnapshot lighting, ChunkMesh.VertexElements elements, float[] result) {
+        elements.finalVertices = BufferUtils.createByteBuffer(elements.vertices.size() / 3 * ChunkMesh.VERTEX_FORMAT.COMPACT.getStride());
+
+        int cTex = 0;
+        int cColor = 0;
+        int cFlags = 0;
+        for (int i = 0; i < elements.vertices.size(); i += 3, cTex += 2, cColor += 4, cFlags++) {
+            float vertexX = elements.vertices.get(i);
+            float vertexY = elements.vertices.get(i + 1);
+            float vertexZ = elements.vertices.get(i + 2);
+            float normalX = elements.normals.get(i);
+            float normalY = elements.normals.get(i + 1);
+            float normalZ = elements.normals.get(i + 2);
+
+            elements.finalVertices.putShort(toFixedPoint(vertexX));
+            elements.finalVertices.putShort(toFixedPoint(vertexY));
+            elements.finalVertices.putShort(toFixedPoint(vertexZ));
+            elements.finalVertices.putShort((short) ChunkMesh.COMPACT_POSITION_SCALE);
+
+            elements.finalVertices.putFloat(elements.tex.get(cTex));
+            elements.finalVertices.putFloat(elements.tex.get(cTex + 1));
+            elements.finalVertices.putFloat(elements.flags.get(cFlags));
+
+            lighting.calcLighting(vertexX, vertexY, vertexZ, normalX, normalY, normalZ, result);
+
+            elements.finalVertices.put(toUnsignedByte(result[0]));
+            elements.finalVertices.put(toUnsignedByte(result[1]));
+            elements.finalVertices.put(toUnsignedByte(result[2]));
+            elements.finalVertices.put((byte) 0);
+
+            elements.finalVertices.put(toUnsignedByte(elements.color.get(cColor) / ChunkMesh.COMPACT_COLOR_SCALE));
+            elements.finalVertices.put(toUnsignedByte(elements.color.get(cColor + 1) / ChunkMesh.COMPACT_COLOR_SCALE));
+            elements.finalVertices.put(toUnsignedByte(elements.color.get(cColor + 2) / ChunkMesh.COMPACT_COLOR_SCALE));
+            elements.finalVertices.put(toUnsignedByte(elements.color.get(cColor + 3) / ChunkMesh.COMPACT_COLOR_SCALE));
+
+            elements.finalVertices.put(toSignedByte(normalX));
+            elements.finalVertices.put(toSignedByte(normalY));
+            elements.finalVertices.put(toSignedByte(normalZ));
+            elements.finalVertices.put((byte) 0);
         }
+    }
 
-        double resultAmbientOcclusion = (Math.pow(0.40, occCounter) + Math.pow(0.80, occCounterBillboard)) / 2.0;
-
-        if (counterLight == 0)
-            output[0] = 0;
-        else
-            output[0] = resultLight / counterLight / 15f;
+    private static short toFixedPoint(float value) {
+        return (short) Math.round(value * ChunkMesh.COMPACT_POSITION_SCALE);
+    }
 
-        if (counterBlockLight == 0)
-            output[1] = 0;
-        else
-            output[1] = resultBlockLight / counterBlockLight / 15f;
+    /**
+     * @return The value in [0..1] mapped to [0..255]
+     */
+    private static byte toUnsignedByte(float value) {
+        return (byte) Math.round(Math.max(0f, Math.min(1f, value)) * 255f);
+    }
 
-        output[2] = (float) resultAmbientOcclusion;
-        PerformanceMonitor.endActivity();
+    /**
+     * @return The value in [-1..1] mapped to [-127..127]
+     */
+    private static byte toSignedByte(float value) {
+        return (byte) Math.round(Math.max(-1f, Math.min(1f, value)) * 127f);
     }
 
-    private void generateBlockVertices(WorldView view, ChunkMesh mesh, int x, int y, int z, float temp, float hum) {
+    private void generateBlockVertices(WorldView view, ChunkMesh mesh, GreedyMesher greedyMesher, int x, int y, int z, float temp, float hum) {
         Block block = view.getBlock(x, y, z);
         int vertexFlags = 0;
 
@@ -353,6 +359,10 @@ public final class ChunkTessellator {
                     vertexFlags = (dir != Side.TOP && dir != Side.BOTTOM) ? ChunkVertexFlags.BLOCK_HINT_GRASS.getValue() : 0;
                 }
 
+                if (greedyMesher != null && greedyMesher.add(block, dir, x, y, z, colorOffset, renderType, vertexFlags)) {
+                    continue;
+                }
+
                 block.getMeshPart(BlockPart.fromSide(dir)).appendTo(mesh, x, y, z, colorOffset, renderType.getIndex(), vertexFlags);
             }
         }
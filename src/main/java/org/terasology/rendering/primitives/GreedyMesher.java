@@ -0,0 +1,357 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.rendering.primitives;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import javax.vecmath.Vector2f;
+import javax.vecmath.Vector3f;
+import javax.vecmath.Vector4f;
+
+import org.terasology.math.Side;
+import org.terasology.math.Vector3i;
+import org.terasology.world.block.Block;
+import org.terasology.world.block.BlockPart;
+import org.terasology.world.block.shapes.BlockMeshPart;
+
+/**
+ * Collects the opaque full faces of a chunk mesh section and merges coplanar adjacent faces into larger quads.
+ * <p/>
+ * Two faces are merged if they belong to the same block, have the same color offset at 8 bit precision and have
+ * the same lighting and ambient occlusion at each of their corners, corner by corner. The lighting of a vertex only
+ * depends on its position, so neighbouring faces share the values at their common corners. Faces with the same
+ * corner values are therefore lit uniformly along the axis they are merged on, and the lighting interpolated
+ * across a merged quad is exactly the lighting of the faces it replaces. Lighting may still change across the
+ * other axis, for example along a row of faces next to a wall.
+ * <p/>
+ * Merged quads repeat the texture of their block once per block. Their texture coordinates store the atlas
+ * tile in the integer part and the position within the quad in block units, see {@link #encodeTexCoord}. The
+ * chunk shader decodes them if greedy meshing is enabled. The coordinates of regular faces stay below 1.0.
+ *
+ * @see ChunkTessellator
+ */
+final class GreedyMesher {
+
+    /**
+     * The maximum number of faces merged along one axis, which keeps the encoded texture coordinates in range.
+     */
+    static final int MAX_EXTENT = 16;
+
+    private static final float TILE_SCALE = 64f;
+    private static final float LOCAL_OFFSET = 32f;
+    private static final float COLOR_STEPS = 255f;
+    private static final float EPSILON = 0.001f;
+
+    private final LightingSnapshot lightingSnapshot;
+    private final int verticalOffset;
+    private final int[] size;
+    private final Face[][] faces = new Face[Side.values().length][];
+    private final Map<BlockMeshPart, Boolean> mergeable = new IdentityHashMap<BlockMeshPart, Boolean>();
+    private final float[] lighting = new float[3];
+
+    GreedyMesher(LightingSnapshot lightingSnapshot, int sizeX, int meshHeight, int sizeZ, int verticalOffset) {
+        this.lightingSnapshot = lightingSnapshot;
+        this.verticalOffset = verticalOffset;
+        this.size = new int[] {sizeX, meshHeight, sizeZ};
+        for (int i = 0; i < faces.length; i++) {
+            faces[i] = new Face[sizeX * meshHeight * sizeZ];
+        }
+    }
+
+    /**
+     * Collects a face for merging.
+     *
+     * @return False if the face cannot be merged and has to be added to the mesh as usual
+     */
+    boolean add(Block block, Side side, int x, int y, int z, Vector4f colorOffset, ChunkMesh.RENDER_TYPE renderType, int vertexFlags) {
+        if (renderType != ChunkMesh.RENDER_TYPE.OPAQUE || vertexFlags != 0 || !block.isFullSide(side)) {
+            return false;
+        }
+        BlockMeshPart part = block.getMeshPart(BlockPart.fromSide(side));
+        if (!isMergeable(part)) {
+            return false;
+        }
+
+        // The faces of the same part list their corners in the same order, so the values can be compared by index
+        float[] corners = new float[part.size() * lighting.length];
+        for (int i = 0; i < part.size(); i++) {
+            Vector3f vertex = part.getVertex(i);
+            Vector3f normal = part.getNormal(i);
+            lightingSnapshot.calcLighting(vertex.x + x, vertex.y + y, vertex.z + z, normal.x, normal.y, normal.z, lighting);
+            System.arraycopy(lighting, 0, corners, i * lighting.length, lighting.length);
+        }
+
+        // Biome colors change a little from column to column, compare them at the precision of the frame buffer
+        Vector4f color = new Vector4f(quantize(colorOffset.x), quantize(colorOffset.y), quantize(colorOffset.z), quantize(colorOffset.w));
+        faces[side.ordinal()][index(x, y - verticalOffset, z)] = new Face(block, part, color, corners);
+        return true;
+    }
+
+    /**
+     * Merges the collected faces and adds the resulting quads to the opaque part of the mesh.
+     */
+    void appendTo(ChunkMesh mesh) {
+        for (Side side : Side.values()) {
+            Face[] sideFaces = faces[side.ordinal()];
+            Vector3i normal = side.getVector3i();
+            int n = normal.x != 0 ? 0 : (normal.y != 0 ? 1 : 2);
+            int u = (n + 1) % 3;
+            int v = (n + 2) % 3;
+            int[] pos = new int[3];
+
+            for (pos[n] = 0; pos[n] < size[n]; pos[n]++) {
+                for (pos[v] = 0; pos[v] < size[v]; pos[v]++) {
+                    for (pos[u] = 0; pos[u] < size[u]; ) {
+                        Face face = sideFaces[index(pos[0], pos[1], pos[2])];
+                        if (face == null) {
+                            pos[u]++;
+                            continue;
+                        }
+
+                        int[] extent = new int[3];
+                        extent[n] = 1;
+                        int start = pos[u];
+                        int width = 1;
+                        while (width < MAX_EXTENT && start + width < size[u]) {
+                            pos[u] = start + width;
+                            if (!face.canMerge(sideFaces[index(pos[0], pos[1], pos[2])])) {
+                                break;
+                            }
+                            width++;
+                        }
+                        pos[u] = start;
+
+                        int row = pos[v];
+                        int height = 1;
+                        grow:
+                        while (height < MAX_EXTENT && row + height < size[v]) {
+                            pos[v] = row + height;
+                            for (int i = 0; i < width; i++) {
+                                pos[u] = start + i;
+                                if (!face.canMerge(sideFaces[index(pos[0], pos[1], pos[2])])) {
+                                    break grow;
+                                }
+                            }
+                            height++;
+                        }
+
+                        for (int j = 0; j < height; j++) {
+                            pos[v] = row + j;
+                            for (int i = 0; i < width; i++) {
+                                pos[u] = start + i;
+                                sideFaces[index(pos[0], pos[1], pos[2])] = null;
+                            }
+                        }
+                        pos[v] = row;
+                        pos[u] = start;
+
+                        extent[u] = width;
+                        extent[v] = height;
+                        appendQuad(mesh, face, pos[0], pos[1] + verticalOffset, pos[2], extent);
+                        pos[u] += width;
+                    }
+                }
+            }
+        }
+    }
+
+    private void appendQuad(ChunkMesh mesh, Face face, int x, int y, int z, int[] extent) {
+        BlockMeshPart part = face.part;
+        ChunkMesh.VertexElements elements = mesh._vertexElements[ChunkMesh.RENDER_TYPE.OPAQUE.getIndex()];
+
+        Vector2f tile = new Vector2f(Float.MAX_VALUE, Float.MAX_VALUE);
+        for (int i = 0; i < part.size(); i++) {
+            tile.x = Math.min(tile.x, part.getTexCoord(i).x);
+            tile.y = Math.min(tile.y, part.getTexCoord(i).y);
+        }
+        tile.x = Math.round(tile.x / Block.TEXTURE_OFFSET);
+        tile.y = Math.round(tile.y / Block.TEXTURE_OFFSET);
+
+        int nextIndex = elements.vertCount;
+        for (int i = 0; i < part.size(); i++) {
+            Vector3f vertex = part.getVertex(i);
+            Vector2f corner = localTexCoord(part, i, tile);
+            Vector2f local = new Vector2f(corner);
+            float[] offset = new float[3];
+
+            // Stretch the vertices on the far side of each merged axis and their texture coordinates with them
+            for (int axis = 0; axis < 3; axis++) {
+                if (extent[axis] > 1 && component(vertex, axis) > 0) {
+                    Vector2f near = localTexCoord(part, findNearVertex(part, i, axis), tile);
+                    local.x += (extent[axis] - 1) * (corner.x - near.x);
+                    local.y += (extent[axis] - 1) * (corner.y - near.y);
+                    offset[axis] = extent[axis] - 1;
+                }
+            }
+
+            elements.tex.add(encodeTexCoord(tile.x, local.x));
+            elements.tex.add(encodeTexCoord(tile.y, local.y));
+            elements.color.add(face.colorOffset.x);
+            elements.color.add(face.colorOffset.y);
+            elements.color.add(face.colorOffset.z);
+            elements.color.add(face.colorOffset.w);
+            elements.vertices.add(vertex.x + x + offset[0]);
+            elements.vertices.add(vertex.y + y + offset[1]);
+            elements.vertices.add(vertex.z + z + offset[2]);
+            elements.normals.add(part.getNormal(i).x);
+            elements.normals.add(part.getNormal(i).y);
+            elements.normals.add(part.getNormal(i).z);
+            elements.flags.add(0);
+        }
+        elements.vertCount += part.size();
+
+        for (int i = 0; i < part.indicesSize(); i++) {
+            elements.indices.add(part.getIndex(i) + nextIndex);
+        }
+    }
+
+    /**
+     * Encodes a texture coordinate of a merged quad. The integer part above the tile holds the position within
+     * the quad, offset so that it stays positive. The shader takes the fraction of it to repeat the tile.
+     */
+    private static float encodeTexCoord(float tile, float local) {
+        return tile * TILE_SCALE + LOCAL_OFFSET + local;
+    }
+
+    private static Vector2f localTexCoord(BlockMeshPart part, int vertex, Vector2f tile) {
+        Vector2f texCoord = part.getTexCoord(vertex);
+        return new Vector2f(Math.round((texCoord.x - tile.x * Block.TEXTURE_OFFSET) / Block.TEXTURE_OFFSET_WIDTH),
+                Math.round((texCoord.y - tile.y * Block.TEXTURE_OFFSET) / Block.TEXTURE_OFFSET_WIDTH));
+    }
+
+    /**
+     * Finds the vertex of the quad which lies on the near side of the given axis, opposite of the given vertex.
+     */
+    private static int findNearVertex(BlockMeshPart part, int vertex, int axis) {
+        Vector3f far = part.getVertex(vertex);
+        for (int i = 0; i < part.size(); i++) {
+            Vector3f candidate = part.getVertex(i);
+            if (component(candidate, axis) < 0 && sameExcept(far, candidate, axis)) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Mesh part is not an axis aligned quad");
+    }
+
+    /**
+     * A mesh part can be merged if it is an axis aligned unit quad which maps exactly one atlas tile.
+     */
+    private boolean isMergeable(BlockMeshPart part) {
+        Boolean result = mergeable.get(part);
+        if (result == null) {
+            result = part != null && part.size() == 4 && part.indicesSize() == 6 && isUnitQuad(part);
+            mergeable.put(part, result);
+        }
+        return result;
+    }
+
+    private static boolean isUnitQuad(BlockMeshPart part) {
+        float minU = Float.MAX_VALUE;
+        float minV = Float.MAX_VALUE;
+        for (int i = 0; i < part.size(); i++) {
+            Vector3f vertex = part.getVertex(i);
+            for (int axis = 0; axis < 3; axis++) {
+                if (Math.abs(Math.abs(component(vertex, axis)) - 0.5f) > EPSILON) {
+                    return false;
+                }
+            }
+            for (int j = 0; j < i; j++) {
+                if (vertex.equals(part.getVertex(j))) {
+                    return false;
+                }
+            }
+            minU = Math.min(minU, part.getTexCoord(i).x);
+            minV = Math.min(minV, part.getTexCoord(i).y);
+        }
+
+        // Four distinct corners of the unit cube form a face if they share exactly one coordinate
+        int constantAxes = 0;
+        for (int axis = 0; axis < 3; axis++) {
+            boolean constant = true;
+            for (int i = 1; i < part.size(); i++) {
+                constant &= component(part.getVertex(i), axis) == component(part.getVertex(0), axis);
+            }
+            if (constant) {
+                constantAxes++;
+            }
+        }
+        if (constantAxes != 1 || !isMultipleOf(minU, Block.TEXTURE_OFFSET) || !isMultipleOf(minV, Block.TEXTURE_OFFSET)) {
+            return false;
+        }
+        for (int i = 0; i < part.size(); i++) {
+            Vector2f texCoord = part.getTexCoord(i);
+            if (!isMultipleOf(texCoord.x - minU, Block.TEXTURE_OFFSET_WIDTH) || !isMultipleOf(texCoord.y - minV, Block.TEXTURE_OFFSET_WIDTH)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static float quantize(float value) {
+        return Math.round(value * COLOR_STEPS) / COLOR_STEPS;
+    }
+
+    private static boolean isMultipleOf(float value, float unit) {
+        float ratio = value / unit;
+        return Math.abs(ratio - Math.round(ratio)) < EPSILON * 10;
+    }
+
+    private static boolean sameExcept(Vector3f a, Vector3f b, int axis) {
+        for (int i = 0; i < 3; i++) {
+            if (i != axis && component(a, i) != component(b, i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static float component(Vector3f vector, int axis) {
+        switch (axis) {
+            case 0:
+                return vector.x;
+            case 1:
+                return vector.y;
+            default:
+                return vector.z;
+        }
+    }
+
+    private int index(int x, int y, int z) {
+        return (x * size[1] + y) * size[2] + z;
+    }
+
+    private static class Face {
+        private final Block block;
+        private final BlockMeshPart part;
+        private final Vector4f colorOffset;
+        /* The sunlight, light and ambient occlusion of each corner */
+        private final float[] corners;
+
+        public Face(Block block, BlockMeshPart part, Vector4f colorOffset, float[] corners) {
+            this.block = block;
+            this.part = part;
+            this.colorOffset = colorOffset;
+            this.corners = corners;
+        }
+
+        public boolean canMerge(Face other) {
+            return other != null && other.block == block && other.part == part && Arrays.equals(other.corners, corners)
+                    && other.colorOffset.equals(colorOffset);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.rendering.primitives;
+
+import java.util.Arrays;
+
+import org.terasology.math.Direction;
+import org.terasology.math.TeraMath;
+import org.terasology.world.WorldView;
+import org.terasology.world.block.Block;
+import org.terasology.world.chunks.Chunk;
+
+/**
+ * A copy of the blocks, sunlight and light around a chunk mesh section, used to calculate the lighting and
+ * ambient occlusion of the mesh vertices.
+ * <p/>
+ * The snapshot covers the blocks of the section plus a border of one block, which is every block the vertices
+ * of full blocks sample. Each block is read from the world view once, when a vertex first samples it, since
+ * most blocks of a section are never sampled. Samples outside of the snapshot fall back to the world view.
+ * Calculating the lighting of a vertex does not allocate.
+ *
+ * @see ChunkTessellator
+ */
+final class LightingSnapshot {
+
+    private static final byte UNKNOWN = -1;
+    private static final byte NO_OCCLUSION = 0;
+    private static final byte FULL_OCCLUSION = 1;
+    private static final byte BILLBOARD_OCCLUSION = 2;
+
+    private static final int AO_SAMPLES = 4;
+    private static final int LIGHT_SAMPLES = 8;
+    private static final int MAX_LIGHT = Chunk.MAX_LIGHT;
+
+    /**
+     * Ambient occlusion by the number of occluding blocks and occluding billboards, indexed by
+     * {@code blocks * (AO_SAMPLES + 1) + billboards}.
+     */
+    private static final float[] AMBIENT_OCCLUSION = new float[(AO_SAMPLES + 1) * (AO_SAMPLES + 1)];
+
+    /**
+     * Average light of the lit samples by their sum and their number, indexed by
+     * {@code sum * (LIGHT_SAMPLES + 1) + count}.
+     */
+    private static final float[] AVERAGE_LIGHT = new float[(MAX_LIGHT * LIGHT_SAMPLES + 1) * (LIGHT_SAMPLES + 1)];
+
+    static {
+        for (int blocks = 0; blocks <= AO_SAMPLES; blocks++) {
+            for (int billboards = 0; billboards <= AO_SAMPLES; billboards++) {
+                double ambientOcclusion = (Math.pow(0.40, blocks) + Math.pow(0.80, billboards)) / 2.0;
+                AMBIENT_OCCLUSION[blocks * (AO_SAMPLES + 1) + billboards] = (float) ambientOcclusion;
+            }
+        }
+        for (int sum = 0; sum <= MAX_LIGHT * LIGHT_SAMPLES; sum++) {
+            for (int count = 1; count <= LIGHT_SAMPLES; count++) {
+                float light = sum;
+                AVERAGE_LIGHT[sum * (LIGHT_SAMPLES + 1) + count] = light / count / 15f;
+            }
+        }
+    }
+
+    private final WorldView view;
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeZ;
+
+    private final byte[] occlusion;
+    private final byte[] sunlight;
+    private final byte[] light;
+
+    /**
+     * Creates a snapshot which samples the world view directly, for meshes too large to copy.
+     */
+    LightingSnapshot(WorldView view) {
+        this(view, 0, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Creates a snapshot of the given region of the world view.
+     */
+    LightingSnapshot(WorldView view, int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ) {
+        this.view = view;
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+
+        int size = sizeX * sizeY * sizeZ;
+        occlusion = new byte[size];
+        sunlight = new byte[size];
+        light = new byte[size];
+        Arrays.fill(occlusion, UNKNOWN);
+        Arrays.fill(sunlight, UNKNOWN);
+        Arrays.fill(light, UNKNOWN);
+    }
+
+    /**
+     * Calculates the sunlight, light and ambient occlusion of a vertex.
+     *
+     * @param output Receives the sunlight, the light and the ambient occlusion
+     */
+    void calcLighting(float vertexX, float vertexY, float vertexZ, float normalX, float normalY, float normalZ, float[] output) {
+        int occluders;
+        switch (Direction.inDirection(normalX, normalY, normalZ)) {
+            case LEFT:
+            case RIGHT:
+                occluders = getOcclusion((vertexX + 0.8f * normalX), (vertexY + 0.1f), (vertexZ + 0.1f))
+                        + getOcclusion((vertexX + 0.8f * normalX), (vertexY + 0.1f), (vertexZ - 0.1f))
+                        + getOcclusion((vertexX + 0.8f * normalX), (vertexY - 0.1f), (vertexZ - 0.1f))
+                        + getOcclusion((vertexX + 0.8f * normalX), (vertexY - 0.1f), (vertexZ + 0.1f));
+                break;
+            case FORWARD:
+            case BACKWARD:
+                occluders = getOcclusion((vertexX + 0.1f), (vertexY + 0.1f), (vertexZ + 0.8f * normalZ))
+                        + getOcclusion((vertexX + 0.1f), (vertexY - 0.1f), (vertexZ + 0.8f * normalZ))
+                        + getOcclusion((vertexX - 0.1f), (vertexY - 0.1f), (vertexZ + 0.8f * normalZ))
+                        + getOcclusion((vertexX - 0.1f), (vertexY + 0.1f), (vertexZ + 0.8f * normalZ));
+                break;
+            default:
+                occluders = getOcclusion((vertexX + 0.1f), (vertexY + 0.8f * normalY), (vertexZ + 0.1f))
+                        + getOcclusion((vertexX + 0.1f), (vertexY + 0.8f * normalY), (vertexZ - 0.1f))
+                        + getOcclusion((vertexX - 0.1f), (vertexY + 0.8f * normalY), (vertexZ - 0.1f))
+                        + getOcclusion((vertexX - 0.1f), (vertexY + 0.8f * normalY), (vertexZ + 0.1f));
+                break;
+        }
+
+        // Each lit sample adds its light and one to the count in the upper bits
+        int sunlightSamples = lit(getSunlight((vertexX + 0.1f), (vertexY + 0.8f), (vertexZ + 0.1f)))
+                + lit(getSunlight((vertexX + 0.1f), (vertexY + 0.8f), (vertexZ - 0.1f)))
+                + lit(getSunlight((vertexX - 0.1f), (vertexY + 0.8f), (vertexZ - 0.1f)))
+                + lit(getSunlight((vertexX - 0.1f), (vertexY + 0.8f), (vertexZ + 0.1f)))
+                + lit(getSunlight((vertexX + 0.1f), (vertexY - 0.1f), (vertexZ + 0.1f)))
+                + lit(getSunlight((vertexX + 0.1f), (vertexY - 0.1f), (vertexZ - 0.1f)))
+                + lit(getSunlight((vertexX - 0.1f), (vertexY - 0.1f), (vertexZ - 0.1f)))
+                + lit(getSunlight((vertexX - 0.1f), (vertexY - 0.1f), (vertexZ + 0.1f)));
+
+        int lightSamples = lit(getLight((vertexX + 0.1f), (vertexY + 0.8f), (vertexZ + 0.1f)))
+                + lit(getLight((vertexX + 0.1f), (vertexY + 0.8f), (vertexZ - 0.1f)))
+                + lit(getLight((vertexX - 0.1f), (vertexY + 0.8f), (vertexZ - 0.1f)))
+                + lit(getLight((vertexX - 0.1f), (vertexY + 0.8f), (vertexZ + 0.1f)))
+                + lit(getLight((vertexX + 0.1f), (vertexY - 0.1f), (vertexZ + 0.1f)))
+                + lit(getLight((vertexX + 0.1f), (vertexY - 0.1f), (vertexZ - 0.1f)))
+                + lit(getLight((vertexX - 0.1f), (vertexY - 0.1f), (vertexZ - 0.1f)))
+                + lit(getLight((vertexX - 0.1f), (vertexY - 0.1f), (vertexZ + 0.1f)));
+
+        output[0] = averageLight(sunlightSamples);
+        output[1] = averageLight(lightSamples);
+        output[2] = AMBIENT_OCCLUSION[(occluders & 0xF) * (AO_SAMPLES + 1) + (occluders >> 4)];
+    }
+
+    /**
+     * @return The light and a count of one in the bits above it, or zero if the sample is not lit
+     */
+    private static int lit(byte value) {
+        return value > 0 ? value | 1 << 8 : 0;
+    }
+
+    private static float averageLight(int samples) {
+        int count = samples >> 8;
+        if (count == 0) {
+            return 0;
+        }
+        return AVERAGE_LIGHT[(samples & 0xFF) * (LIGHT_SAMPLES + 1) + count];
+    }
+
+    /**
+     * @return One for an occluding block and one in the bits above the block count for an occluding billboard
+     */
+    private int getOcclusion(float x, float y, float z) {
+        int index = indexOf(x, y, z);
+        byte value;
+        if (index < 0) {
+            value = occlusionOf(view.getBlock(x, y, z));
+        } else {
+            value = occlusion[index];
+            if (value == UNKNOWN) {
+                value = occlusionOf(view.getBlock(x, y, z));
+                occlusion[index] = value;
+            }
+        }
+        switch (value) {
+            case FULL_OCCLUSION:
+                return 1;
+            case BILLBOARD_OCCLUSION:
+                return 1 << 4;
+            default:
+                return 0;
+        }
+    }
+
+    private byte getSunlight(float x, float y, float z) {
+        int index = indexOf(x, y, z);
+        if (index < 0) {
+            return view.getSunlight(x, y, z);
+        }
+        if (sunlight[index] == UNKNOWN) {
+            sunlight[index] = view.getSunlight(x, y, z);
+        }
+        return sunlight[index];
+    }
+
+    private byte getLight(float x, float y, float z) {
+        int index = indexOf(x, y, z);
+        if (index < 0) {
+            return view.getLight(x, y, z);
+        }
+        if (light[index] == UNKNOWN) {
+            light[index] = view.getLight(x, y, z);
+        }
+        return light[index];
+    }
+
+    /**
+     * Resolves a sample position the same way the world view does.
+     *
+     * @return The index of the block in the snapshot, or -1 if it is outside of the snapshot
+     */
+    private int indexOf(float x, float y, float z) {
+        int localX = TeraMath.floorToInt(x + 0.5f) - minX;
+        int localY = TeraMath.floorToInt(y + 0.5f) - minY;
+        int localZ = TeraMath.floorToInt(z + 0.5f) - minZ;
+        if (localX < 0 || localY < 0 || localZ < 0 || localX >= sizeX || localY >= sizeY || localZ >= sizeZ) {
+            return -1;
+        }
+        return (localX * sizeZ + localZ) * sizeY + localY;
+    }
+
+    private static byte occlusionOf(Block block) {
+        if (!block.isShadowCasting()) {
+            return NO_OCCLUSION;
+        }
+        return block.isTranslucent() ? BILLBOARD_OCCLUSION : FULL_OCCLUSION;
+    }
+}
@@ -37,6 +37,7 @@ import org.terasology.game.CoreRegistry;
 import org.terasology.logic.manager.ShaderManager;
 import org.terasology.math.TeraMath;
 import org.terasology.rendering.assets.MaterialShader;
+import org.terasology.rendering.primitives.ChunkMesh;
 import org.terasology.rendering.primitives.ChunkTessellator;
 import org.terasology.world.block.Block;
 
@@ -54,7 +55,7 @@ import javax.vecmath.Vector4f;
 public class ShaderProgram {
     private static final Logger logger = LoggerFactory.getLogger(ShaderProgram.class);
 
-    private static final String PreProcessorPreamble = "#version 120\n float TEXTURE_OFFSET = " + Block.TEXTURE_OFFSET + ";\n";
+    private static final String PreProcessorPreamble = "#version 120\n float TEXTURE_OFFSET = " + Block.TEXTURE_OFFSET + ";\n float TEXTURE_OFFSET_WIDTH = " + Block.TEXTURE_OFFSET_WIDTH + ";\n";
 
     private TIntIntMap fragmentPrograms = new TIntIntHashMap();
     private TIntIntMap vertexPrograms = new TIntIntHashMap();
@@ -398,6 +399,12 @@ public class ShaderProgram {
             builder.append("#define LIGHT_SHAFTS \n");
         if (config.getRendering().isDynamicShadows())
             builder.append("#define DYNAMIC_SHADOWS \n");
+        if (config.getRendering().isGreedyMeshing())
+            builder.append("#define GREEDY_MESHING \n");
+        if (config.getRendering().isCompactChunkVertices()) {
+            builder.append("#define COMPACT_CHUNK_VERTICES \n");
+            builder.append("#define COMPACT_COLOR_SCALE " + ChunkMesh.COMPACT_COLOR_SCALE + " \n");
+        }
 
         // BG: Add the enums for the debug rendering stages
         for (int i=0; i<SystemConfig.DebugRenderingStages.values().length; ++i) {
@@ -15,85 +15,260 @@
  */
 package org.terasology.rendering.world;
 
-import com.google.common.collect.Sets;
-import org.terasology.config.Config;
-import org.terasology.game.CoreRegistry;
-import org.terasology.game.GameEngine;
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.vecmath.Vector3f;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.performanceMonitor.PerformanceMonitor;
 import org.terasology.rendering.primitives.ChunkMesh;
 import org.terasology.rendering.primitives.ChunkTessellator;
 import org.terasology.world.WorldProvider;
 import org.terasology.world.WorldView;
 import org.terasology.world.chunks.Chunk;
 
-import java.util.Set;
+import com.google.common.base.Preconditions;
 
 /**
- * Provides the mechanism for updating and generating chunks.
+ * Provides the mechanism for updating and generating chunk meshes.
+ * <p/>
+ * Chunk meshes are generated by a fixed number of worker threads. Updates are queued with a priority based on
+ * the distance of the chunk to the camera and its visibility, queueing a chunk which is already queued only
+ * updates its priority. Updates of chunks which are no longer needed can be cancelled.
+ * <p/>
+ * Generated meshes are uploaded on the main thread within a time budget per frame.
  *
  * @author Benjamin Glatzel <benjamin.glatzel@me.com>
  */
 public final class ChunkUpdateManager {
 
+    private static final Logger logger = LoggerFactory.getLogger(ChunkUpdateManager.class);
+
     public enum UPDATE_TYPE {
         DEFAULT, PLAYER_TRIGGERED
     }
 
-    /* CONST */
-    private static final int MAX_THREADS = CoreRegistry.get(Config.class).getSystem().getMaxThreads();
+    private static final String THREAD_NAME = "Chunk Update";
+
+    /* Invisible chunks are updated after all visible chunks within this distance */
+    private static final float INVISIBLE_PENALTY = 1024f * Chunk.SIZE_X * Chunk.SIZE_X;
+    private static final float PLAYER_TRIGGERED_PRIORITY = -1f;
 
-    /* CHUNK UPDATES */
-    private static final Set<Chunk> currentlyProcessedChunks = Sets.newHashSet();
+    private static final double SMOOTHING = 0.1;
 
     private final ChunkTessellator tessellator;
     private final WorldProvider worldProvider;
+    private final MeshUpdateQueue<Chunk> queue = new MeshUpdateQueue<Chunk>();
+    private final ExecutorService workers;
+    private final AtomicBoolean running = new AtomicBoolean(true);
 
-    public ChunkUpdateManager(ChunkTessellator tessellator, WorldProvider worldProvider) {
+    private final long uploadBudget;
+    private long frameUploadTime;
+    private int frameUploads;
+    private double averageUploadTime;
+    private volatile double averageMeshTime;
+
+    /**
+     * @param threads      The number of threads generating chunk meshes
+     * @param uploadBudget The time in ms which may be spent uploading meshes each frame
+     */
+    public ChunkUpdateManager(ChunkTessellator tessellator, WorldProvider worldProvider, int threads, float uploadBudget) {
+        Preconditions.checkArgument(threads > 0, "The parameter 'threads' must be greater than zero");
         this.tessellator = tessellator;
         this.worldProvider = worldProvider;
+        this.uploadBudget = (long) (uploadBudget * 1000000);
+        this.workers = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            workers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
+                    while (running.get()) {
+                        try {
+                            MeshUpdateQueue.Update<Chunk> update = queue.poll(500, TimeUnit.MILLISECONDS);
+                            if (update != null) {
+                                PerformanceMonitor.startThread(THREAD_NAME);
+                                try {
+                                    executeChunkUpdate(update);
+                                } finally {
+                                    PerformanceMonitor.endThread(THREAD_NAME);
+                                }
+                            }
+                        } catch (InterruptedException e) {
+                            logger.error("Thread interrupted", e);
+                        } catch (Exception e) {
+                            logger.error("Error in thread", e);
+                        }
+                    }
+                    logger.debug("Thread shutdown safely");
+                }
+            });
+        }
+    }
+
+    /**
+     * Queues an update of the given chunk, or updates the priority of the queued update of the chunk. If the
+     * chunk is updated at the moment, it is updated again afterwards.
+     *
+     * @param chunk   The chunk to update
+     * @param type    The chunk update type, player triggered updates are processed first
+     * @param camera  The position of the camera
+     * @param visible Whether the chunk is visible, visible chunks are updated first
+     * @return True if a new chunk update was queued
+     */
+    public boolean queueChunkUpdate(Chunk chunk, UPDATE_TYPE type, Vector3f camera, boolean visible) {
+        float priority;
+        if (type == UPDATE_TYPE.PLAYER_TRIGGERED) {
+            priority = PLAYER_TRIGGERED_PRIORITY;
+        } else {
+            float x = (chunk.getPos().x + 0.5f) * Chunk.SIZE_X - camera.x;
+            float z = (chunk.getPos().z + 0.5f) * Chunk.SIZE_Z - camera.z;
+            priority = x * x + z * z;
+            if (!visible) {
+                priority += INVISIBLE_PENALTY;
+            }
+        }
+        return queue.offer(chunk, priority);
     }
 
     /**
-     * Updates the given chunk using a new thread from the thread pool. If the maximum amount of chunk updates
-     * is reached, the chunk update is ignored. Chunk updates can be forced though.
+     * Cancels the queued or running update of the chunk. A cancelled update does not replace the mesh of the chunk.
      *
-     * @param chunk The chunk to update
-     * @param type  The chunk update type
-     * @return True if a chunk update was executed
+     * @return True if an update was cancelled
+     */
+    public boolean cancelChunkUpdate(Chunk chunk) {
+        return queue.cancel(chunk);
+    }
+
+    /**
+     * Cancels the queued and running updates of all chunks but the given ones.
      */
-    // TODO: Review this system
-    public boolean queueChunkUpdate(Chunk chunk, final UPDATE_TYPE type) {
+    public void retainChunkUpdates(Collection<Chunk> chunks) {
+        queue.retainAll(chunks);
+    }
 
-        if (!currentlyProcessedChunks.contains(chunk) && (currentlyProcessedChunks.size() < MAX_THREADS || type != UPDATE_TYPE.DEFAULT)) {
-            executeChunkUpdate(chunk);
-            return true;
+    /**
+     * Resets the upload budget, to be called once per frame before uploading meshes.
+     */
+    public void beginFrame() {
+        if (frameUploads > 0) {
+            averageUploadTime += SMOOTHING * (frameUploadTime / 1000000.0 / frameUploads - averageUploadTime);
         }
+        PerformanceMonitor.setValue("Chunk mesh queue", queue.size());
+        PerformanceMonitor.setValue("Chunk mesh uploads", frameUploads);
+        PerformanceMonitor.setValue("Chunk mesh upload time (ms)", averageUploadTime);
+        PerformanceMonitor.setValue("Chunk mesh time (ms)", averageMeshTime);
+        frameUploadTime = 0;
+        frameUploads = 0;
+    }
 
-        return false;
+    /**
+     * Uploads the pending mesh of the chunk and makes it the mesh of the chunk, unless the upload budget of this
+     * frame has been used up. At least one mesh is uploaded each frame.
+     *
+     * @return True if the pending mesh was uploaded
+     */
+    public boolean uploadPendingMesh(Chunk chunk) {
+        if (chunk.getPendingMesh() == null || (frameUploads > 0 && frameUploadTime >= uploadBudget)) {
+            return false;
+        }
+        long start = System.nanoTime();
+        uploadMesh(chunk);
+        frameUploadTime += System.nanoTime() - start;
+        frameUploads++;
+        return true;
     }
 
-    private void executeChunkUpdate(final Chunk c) {
-        currentlyProcessedChunks.add(c);
-
-        // Create a new thread and start processing
-        Runnable r = new Runnable() {
-            @Override
-            public void run() {
-                ChunkMesh[] newMeshes = new ChunkMesh[WorldRenderer.VERTICAL_SEGMENTS];
-                WorldView worldView = worldProvider.getLocalView(c.getPos());
-                if (worldView != null) {
-                    c.setDirty(false);
-                    for (int seg = 0; seg < WorldRenderer.VERTICAL_SEGMENTS; seg++) {
-                        newMeshes[seg] = tessellator.generateMesh(worldView, c.getPos(), Chunk.SIZE_Y / WorldRenderer.VERTICAL_SEGMENTS, seg * (Chunk.SIZE_Y / WorldRenderer.VERTICAL_SEGMENTS));
-                    }
+    /**
+     * Generates and uploads the mesh of the chunk on the calling thread, regardless of the upload budget.
+     *
+     * @return True if the mesh was generated
+     */
+    public boolean updateChunkNow(Chunk chunk) {
+        queue.cancel(chunk);
+        ChunkMesh[] newMeshes = generateMeshes(chunk, null);
+        if (newMeshes == null) {
+            return false;
+        }
+        chunk.setPendingMesh(newMeshes);
+        uploadMesh(chunk);
+        return true;
+    }
 
-                    c.setPendingMesh(newMeshes);
+    /**
+     * @return The number of queued chunk updates
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
 
-                }
-                currentlyProcessedChunks.remove(c);
+    /**
+     * Cancels all queued updates and stops the worker threads.
+     */
+    public void dispose() {
+        running.set(false);
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("Timed out awaiting chunk update thread termination");
             }
-        };
+        } catch (InterruptedException e) {
+            logger.error("Interrupted while awaiting chunk update thread termination");
+        }
+    }
 
-        CoreRegistry.get(GameEngine.class).submitTask("Chunk Update", r);
+    private void executeChunkUpdate(MeshUpdateQueue.Update<Chunk> update) {
+        long start = System.nanoTime();
+        Chunk chunk = update.getKey();
+        ChunkMesh[] newMeshes = generateMeshes(chunk, update);
+        // The mesh is set before completing, so it cannot overwrite the mesh of an update queued in the meantime
+        if (newMeshes != null && queue.isRunning(update)) {
+            chunk.setPendingMesh(newMeshes);
+            averageMeshTime += SMOOTHING * ((System.nanoTime() - start) / 1000000.0 - averageMeshTime);
+        }
+        if (!queue.complete(update)) {
+            // The chunk still needs a new mesh if it is needed again
+            chunk.setDirty(true);
+        }
+    }
+
+    /**
+     * @param update The update the meshes are generated for, generating is stopped if it is cancelled
+     * @return The meshes of all vertical segments, or null if the chunk cannot be tessellated
+     */
+    private ChunkMesh[] generateMeshes(Chunk chunk, MeshUpdateQueue.Update<Chunk> update) {
+        WorldView worldView = worldProvider.getLocalView(chunk.getPos());
+        if (worldView == null) {
+            return null;
+        }
+        chunk.setDirty(false);
+        int meshHeight = Chunk.SIZE_Y / WorldRenderer.VERTICAL_SEGMENTS;
+        ChunkMesh[] newMeshes = new ChunkMesh[WorldRenderer.VERTICAL_SEGMENTS];
+        for (int seg = 0; seg < WorldRenderer.VERTICAL_SEGMENTS; seg++) {
+            if (update != null && !queue.isRunning(update)) {
+                return null;
+            }
+            newMeshes[seg] = tessellator.generateMesh(worldView, chunk.getPos(), meshHeight, seg * meshHeight);
+        }
+        return newMeshes;
     }
 
+    private void uploadMesh(Chunk chunk) {
+        ChunkMesh[] pendingMesh = chunk.getPendingMesh();
+        for (ChunkMesh mesh : pendingMesh) {
+            mesh.generateVBOs();
+        }
+        if (chunk.getMesh() != null) {
+            for (ChunkMesh mesh : chunk.getMesh()) {
+                mesh.dispose();
+            }
+        }
+        chunk.setMesh(pendingMesh);
+        chunk.setPendingMesh(null);
+    }
 }
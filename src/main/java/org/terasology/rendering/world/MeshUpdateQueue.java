@@ -0,0 +1,240 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.rendering.world;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * A queue of mesh updates which hands out the update with the lowest priority value first.
+ * <p/>
+ * Each key is queued at most once: queueing a key again only updates its priority. A key is never handed out
+ * while an update of it is running, if it is queued again in the meantime it is handed out once the running
+ * update completes. Queued and running updates can be cancelled, a cancelled running update fails to complete.
+ * <p/>
+ * Priorities are updated without searching the heap, the old entry stays in the heap and is skipped once it
+ * reaches the head.
+ *
+ * @param <T> The type of the keys, compared by identity
+ */
+final class MeshUpdateQueue<T> {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    private final PriorityQueue<Update<T>> heap = new PriorityQueue<Update<T>>();
+    private final Map<T, Update<T>> queued = Maps.newIdentityHashMap();
+    private final Map<T, Update<T>> running = Maps.newIdentityHashMap();
+    private final Map<T, Update<T>> deferred = Maps.newIdentityHashMap();
+    private long sequence;
+
+    /**
+     * Queues an update of the key, or updates the priority of the queued update of the key.
+     *
+     * @param priority Updates with lower values are handed out first
+     * @return True if a new update was queued, false if an update was already queued
+     */
+    public boolean offer(T key, float priority) {
+        lock.lock();
+        try {
+            if (running.containsKey(key)) {
+                return deferred.put(key, new Update<T>(key, priority, sequence++)) == null;
+            }
+            Update<T> previous = queued.get(key);
+            if (previous != null && previous.priority == priority) {
+                return false;
+            }
+            Update<T> update = new Update<T>(key, priority, sequence++);
+            queued.put(key, update);
+            heap.add(update);
+            if (heap.size() > 2 * queued.size() + 16) {
+                compact();
+            }
+            notEmpty.signal();
+            return previous == null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the update with the lowest priority value, waiting if necessary. The update is running until it is
+     * completed or cancelled.
+     *
+     * @return The update, or null if none became available within the timeout
+     */
+    public Update<T> poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                Update<T> update = heap.poll();
+                while (update != null && queued.get(update.key) != update) {
+                    update = heap.poll();
+                }
+                if (update != null) {
+                    queued.remove(update.key);
+                    running.put(update.key, update);
+                    return update;
+                }
+                if (remaining <= 0) {
+                    return null;
+                }
+                remaining = notEmpty.awaitNanos(remaining);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Completes a running update. If the key was queued again while the update was running, it is queued now.
+     *
+     * @return True if the update completed, false if it was cancelled
+     */
+    public boolean complete(Update<T> update) {
+        lock.lock();
+        try {
+            if (running.get(update.key) != update) {
+                return false;
+            }
+            running.remove(update.key);
+            Update<T> next = deferred.remove(update.key);
+            if (next != null) {
+                queued.put(next.key, next);
+                heap.add(next);
+                notEmpty.signal();
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Whether the update is still running, and has neither been completed nor cancelled
+     */
+    public boolean isRunning(Update<T> update) {
+        lock.lock();
+        try {
+            return running.get(update.key) == update;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Cancels the queued and running updates of the key.
+     *
+     * @return True if an update was cancelled
+     */
+    public boolean cancel(T key) {
+        lock.lock();
+        try {
+            boolean cancelled = queued.remove(key) != null;
+            cancelled |= running.remove(key) != null;
+            deferred.remove(key);
+            return cancelled;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Cancels the queued and running updates of all keys which are not in the given collection.
+     */
+    public void retainAll(Collection<T> keys) {
+        Set<T> retained = Sets.newIdentityHashSet();
+        retained.addAll(keys);
+        lock.lock();
+        try {
+            queued.keySet().retainAll(retained);
+            running.keySet().retainAll(retained);
+            deferred.keySet().retainAll(retained);
+            compact();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of queued updates, not counting the running ones
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return queued.size() + deferred.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of running updates
+     */
+    public int getRunningCount() {
+        lock.lock();
+        try {
+            return running.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void compact() {
+        Iterator<Update<T>> iterator = heap.iterator();
+        while (iterator.hasNext()) {
+            Update<T> update = iterator.next();
+            if (queued.get(update.key) != update) {
+                iterator.remove();
+            }
+        }
+    }
+
+    static final class Update<T> implements Comparable<Update<T>> {
+        private final T key;
+        private final float priority;
+        private final long sequence;
+
+        private Update(T key, float priority, long sequence) {
+            this.key = key;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        public T getKey() {
+            return key;
+        }
+
+        @Override
+        public int compareTo(Update<T> other) {
+            int result = Float.compare(priority, other.priority);
+            if (result == 0) {
+                result = sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+            }
+            return result;
+        }
+    }
+}
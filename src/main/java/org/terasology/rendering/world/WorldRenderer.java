@@ -57,7 +57,6 @@ import org.terasology.world.WorldProvider;
 import org.terasology.world.WorldProviderCoreImpl;
 import org.terasology.world.WorldProviderWrapper;
 import org.terasology.world.WorldTimeEvent;
-import org.terasology.world.WorldView;
 import org.terasology.world.block.Block;
 import org.terasology.world.chunks.Chunk;
 import org.terasology.world.chunks.ChunkProvider;
@@ -65,6 +64,7 @@ import org.terasology.world.chunks.ChunkStore;
 import org.terasology.world.chunks.LocalChunkProvider;
 import org.terasology.world.chunks.store.ChunkStoreGZip;
 import org.terasology.world.chunks.store.ChunkStoreProtobuf;
+import org.terasology.world.chunks.store.ChunkStoreRegionFile;
 import org.terasology.world.generator.core.ChunkGeneratorManager;
 
 import javax.imageio.ImageIO;
@@ -113,6 +113,7 @@ public final class WorldRenderer {
     public static final int MAX_ANIMATED_CHUNKS = 64;
     public static final int MAX_BILLBOARD_CHUNKS = 64;
     public static final int VERTICAL_SEGMENTS = CoreRegistry.get(Config.class).getSystem().getVerticalChunkMeshSegments();
+    public static final String REGION_DIRECTORY = "regions";
 
     private static final Logger logger = LoggerFactory.getLogger(WorldRenderer.class);
 
@@ -223,7 +224,8 @@ public final class WorldRenderer {
      */
     public WorldRenderer(WorldInfo worldInfo, ChunkGeneratorManager chunkGeneratorManager, EntityManager manager, LocalPlayerSystem localPlayerSystem) {
         // TODO: Cleaner method for this? Should not be using the world title
-        File f = new File(PathManager.getInstance().getWorldSavePath(worldInfo.getTitle()), worldInfo.getTitle() + ".dat");
+        File worldPath = PathManager.getInstance().getWorldSavePath(worldInfo.getTitle());
+        File f = new File(worldPath, worldInfo.getTitle() + ".dat");
         if (f.exists()) {
             try {
                 chunkStore = loadChunkStore(f);
@@ -235,17 +237,17 @@ public final class WorldRenderer {
             }
         }
         if (chunkStore == null) {
-            chunkStore = new ChunkStoreProtobuf();
+            chunkStore = new ChunkStoreRegionFile(new File(worldPath, REGION_DIRECTORY));
         }
         chunkProvider = new LocalChunkProvider(chunkStore, chunkGeneratorManager);
-        EntityAwareWorldProvider entityWorldProvider = new EntityAwareWorldProvider(new WorldProviderCoreImpl(worldInfo, chunkProvider));
+        EntityAwareWorldProvider entityWorldProvider = new EntityAwareWorldProvider(new WorldProviderCoreImpl(worldInfo, chunkProvider, chunkGeneratorManager.getWorldBiomeProvider()));
         CoreRegistry.put(BlockEntityRegistry.class, entityWorldProvider);
         CoreRegistry.get(ComponentSystemManager.class).register(entityWorldProvider, "engine:BlockEntityRegistry");
         worldProvider = new WorldProviderWrapper(entityWorldProvider);
         bulletPhysics = new BulletPhysics(worldProvider);
         chunkTessellator = new ChunkTessellator(worldProvider.getBiomeProvider());
         skysphere = new Skysphere(this);
-        chunkUpdateManager = new ChunkUpdateManager(chunkTessellator, worldProvider);
+        chunkUpdateManager = new ChunkUpdateManager(chunkTessellator, worldProvider, config.getSystem().getMaxThreads(), config.getRendering().getChunkUploadBudget());
         worldTimeEventManager = new WorldTimeEventManager(worldProvider);
         blockGrid = new BlockGrid();
 
@@ -324,6 +326,7 @@ public final class WorldRenderer {
 
 
             Collections.sort(chunksInProximity, new ChunkProximityComparator());
+            chunkUpdateManager.retainChunkUpdates(chunksInProximity);
 
             return true;
         }
@@ -468,6 +471,8 @@ public final class WorldRenderer {
         statVisibleChunks = 0;
         statIgnoredPhases = 0;
 
+        chunkUpdateManager.beginFrame();
+        Vector3f cameraPosition = activeCamera.getPosition();
         for (int i = 0; i < chunksInProximity.size(); i++) {
             Chunk c = chunksInProximity.get(i);
             ChunkMesh[] mesh = c.getMesh();
@@ -503,26 +508,21 @@ public final class WorldRenderer {
                 else
                     c.setAnimated(false);
 
-                if (c.getPendingMesh() != null) {
-                    for (int j = 0; j < c.getPendingMesh().length; j++) {
-                        c.getPendingMesh()[j].generateVBOs();
-                    }
-                    if (c.getMesh() != null) {
-                        for (int j = 0; j < c.getMesh().length; j++) {
-                            c.getMesh()[j].dispose();
-                        }
-                    }
-                    c.setMesh(c.getPendingMesh());
-                    c.setPendingMesh(null);
-                }
+                chunkUpdateManager.uploadPendingMesh(c);
 
-                if ((c.isDirty() || mesh == null) && isChunkValidForRender(c)) {
+                if (needsMeshUpdate(c) && isChunkValidForRender(c)) {
                     statDirtyChunks++;
-                    chunkUpdateManager.queueChunkUpdate(c, ChunkUpdateManager.UPDATE_TYPE.DEFAULT);
+                    chunkUpdateManager.queueChunkUpdate(c, ChunkUpdateManager.UPDATE_TYPE.DEFAULT, cameraPosition, true);
                 }
 
                 statVisibleChunks++;
-            } else if (i > config.getRendering().getMaxChunkVBOs()) {
+            } else if (i <= config.getRendering().getMaxChunkVBOs()) {
+                // Prepare the meshes of chunks close enough to keep their VBOs, in case they become visible
+                if (needsMeshUpdate(c) && isChunkValidForRender(c)) {
+                    chunkUpdateManager.queueChunkUpdate(c, ChunkUpdateManager.UPDATE_TYPE.DEFAULT, cameraPosition, false);
+                }
+            } else {
+                chunkUpdateManager.cancelChunkUpdate(c);
                 if (mesh != null) {
                     // Make sure not too many chunk VBOs are available in the video memory at the same time
                     // Otherwise VBOs are moved into system memory which is REALLY slow and causes lag
@@ -535,6 +535,13 @@ public final class WorldRenderer {
         }
     }
 
+    /**
+     * @return Whether the chunk is dirty, or has neither a mesh nor a mesh waiting to be uploaded
+     */
+    private boolean needsMeshUpdate(Chunk c) {
+        return c.isDirty() || (c.getMesh() == null && c.getPendingMesh() == null);
+    }
+
     private int triangleCount(ChunkMesh[] mesh, ChunkMesh.RENDER_PHASE type) {
         int count = 0;
 
@@ -950,6 +957,7 @@ public final class WorldRenderer {
      * Disposes this world.
      */
     public void dispose() {
+        chunkUpdateManager.dispose();
         worldProvider.dispose();
         WorldInfo worldInfo = worldProvider.getWorldInfo();
         try {
@@ -961,6 +969,10 @@ public final class WorldRenderer {
         CoreRegistry.get(AudioManager.class).stopAllSounds();
 
         chunkStore.dispose();
+        if (chunkStore instanceof ChunkStoreRegionFile) {
+            // Region files are written as chunks are put into the store
+            return;
+        }
         // TODO: this should be elsewhere, perhaps within the chunk cache.
         File chunkFile = new File(PathManager.getInstance().getWorldSavePath(worldProvider.getTitle()), worldProvider.getTitle() + ".dat");
         try {
@@ -992,32 +1004,9 @@ public final class WorldRenderer {
             if (chunk == null || chunk.getChunkState() != Chunk.State.COMPLETE) {
                 complete = false;
             } else if (chunk.isDirty()) {
-                WorldView view = worldProvider.getLocalView(chunk.getPos());
-                if (view == null) {
+                if (!chunkUpdateManager.updateChunkNow(chunk)) {
                     continue;
                 }
-                chunk.setDirty(false);
-
-                ChunkMesh[] newMeshes = new ChunkMesh[VERTICAL_SEGMENTS];
-                for (int seg = 0; seg < VERTICAL_SEGMENTS; seg++) {
-                    newMeshes[seg] = chunkTessellator.generateMesh(view, chunk.getPos(), Chunk.SIZE_Y / VERTICAL_SEGMENTS, seg * (Chunk.SIZE_Y / VERTICAL_SEGMENTS));
-                }
-
-                chunk.setPendingMesh(newMeshes);
-
-                if (chunk.getPendingMesh() != null) {
-
-                    for (int j = 0; j < chunk.getPendingMesh().length; j++) {
-                        chunk.getPendingMesh()[j].generateVBOs();
-                    }
-                    if (chunk.getMesh() != null) {
-                        for (int j = 0; j < chunk.getMesh().length; j++) {
-                            chunk.getMesh()[j].dispose();
-                        }
-                    }
-                    chunk.setMesh(chunk.getPendingMesh());
-                    chunk.setPendingMesh(null);
-                }
                 return false;
             }
         }
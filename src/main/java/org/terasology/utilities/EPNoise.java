@@ -29,7 +29,7 @@ public class EPNoise implements Noise {
 	private static final double LACUNARITY = 2.1379201;
 	private static final double H = 0.836281;
 
-	private double[] _spectralWeights;
+	private volatile double[] _spectralWeights;
 
 	private final int[] _noisePermutations;
 	private boolean _recomputeSpectralWeights = true;
@@ -218,18 +218,21 @@ public class EPNoise implements Noise {
 		double result = 0.0;
 
 		if (on) {
-			if (_recomputeSpectralWeights) {
-				_spectralWeights = new double[_octaves];
+			// Only publish the weights once they are complete, generator threads share the noise
+			double[] spectralWeights = _spectralWeights;
+			if (_recomputeSpectralWeights || spectralWeights == null) {
+				spectralWeights = new double[_octaves];
 
 				for (int i = 0; i < _octaves; i++)
-					_spectralWeights[i] = java.lang.Math
+					spectralWeights[i] = java.lang.Math
 							.pow(LACUNARITY, -H * i);
 
+				_spectralWeights = spectralWeights;
 				_recomputeSpectralWeights = false;
 			}
 
 			for (int i = 0; i < _octaves; i++) {
-				result += noise(x, y, z) * _spectralWeights[i];
+				result += noise(x, y, z) * spectralWeights[i];
 				
 				x *= LACUNARITY;
 				y *= LACUNARITY;
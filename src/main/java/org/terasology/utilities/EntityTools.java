@@ -28,6 +28,9 @@ import org.terasology.components.world.LocationComponent;
 import org.terasology.entitySystem.Component;
 import org.terasology.entitySystem.EntityManager;
 import org.terasology.entitySystem.EntityRef;
+import org.terasology.game.CoreRegistry;
+import org.terasology.logic.spatial.SpatialIndex;
+import org.terasology.logic.spatial.SpatialQueryCallback;
 import org.terasology.world.WorldProvider;
 import org.terasology.world.block.Block;
 
@@ -105,16 +108,15 @@ public class EntityTools {
      * @param range
      * @return
      */
-    public Map<Float, EntityRef> findEntitysInRange(Vector3f position, float range) {
-        Map<Float, EntityRef> tree = new TreeMap<Float, EntityRef>();
-        for (EntityRef entity : entityManager.iteratorEntities(LocationComponent.class)) {
-            LocationComponent loc = entity.getComponent(LocationComponent.class);
-            Vector3f dist = new Vector3f(position);
-            dist.sub(loc.getWorldPosition());
-            if (dist.lengthSquared() < range) {
-                tree.put(new Float(dist.lengthSquared()), entity);
+    public Map<Float, EntityRef> findEntitysInRange(final Vector3f position, final float range) {
+        final Map<Float, EntityRef> tree = new TreeMap<Float, EntityRef>();
+        visitEntitiesInRange(position, range, new SpatialQueryCallback() {
+            @Override
+            public boolean visit(EntityRef entity, Vector3f entityPosition) {
+                tree.put(new Float(entityPosition.lengthSquared()), entity);
+                return true;
             }
-        }
+        });
         return tree;
     }
 
@@ -127,16 +129,17 @@ public class EntityTools {
      * @param componentClass
      * @return
      */
-    public Map<Float, EntityRef> findEntitysInRangeWhitComponent(Vector3f position, float range, Class<? extends Component> componentClass) {
-        Map<Float, EntityRef> tree = new TreeMap<Float, EntityRef>();
-        for (EntityRef entity : entityManager.iteratorEntities(componentClass, LocationComponent.class)) {
-            LocationComponent loc = entity.getComponent(LocationComponent.class);
-            Vector3f dist = new Vector3f(position);
-            dist.sub(loc.getWorldPosition());
-            if (dist.lengthSquared() < range) {
-                tree.put(new Float(dist.lengthSquared()), entity);
+    public Map<Float, EntityRef> findEntitysInRangeWhitComponent(final Vector3f position, final float range, final Class<? extends Component> componentClass) {
+        final Map<Float, EntityRef> tree = new TreeMap<Float, EntityRef>();
+        visitEntitiesInRange(position, range, new SpatialQueryCallback() {
+            @Override
+            public boolean visit(EntityRef entity, Vector3f entityPosition) {
+                if (entity.hasComponent(componentClass)) {
+                    tree.put(new Float(entityPosition.lengthSquared()), entity);
+                }
+                return true;
             }
-        }
+        });
         return tree;
     }
 
@@ -163,16 +166,19 @@ public class EntityTools {
      * @param componentClass
      * @return
      */
-    public EntityRef findFirstEntityWhitComponentInRange(Vector3f position, float range, Class<? extends Component> componentClass) {
-        for (EntityRef entity : entityManager.iteratorEntities(componentClass, LocationComponent.class)) {
-            LocationComponent loc = entity.getComponent(LocationComponent.class);
-            Vector3f dist = new Vector3f(position);
-            dist.sub(loc.getWorldPosition());
-            if (dist.lengthSquared() < range) {
-                return entity;
+    public EntityRef findFirstEntityWhitComponentInRange(Vector3f position, float range, final Class<? extends Component> componentClass) {
+        final EntityRef[] result = {EntityRef.NULL};
+        visitEntitiesInRange(position, range, new SpatialQueryCallback() {
+            @Override
+            public boolean visit(EntityRef entity, Vector3f entityPosition) {
+                if (entity.hasComponent(componentClass)) {
+                    result[0] = entity;
+                    return false;
+                }
+                return true;
             }
-        }
-        return EntityRef.NULL;
+        });
+        return result[0];
     }
     
     /**
@@ -184,20 +190,45 @@ public class EntityTools {
      * @return boolean
      */
     public boolean isPlayerInRange(Vector3f position, float range) {
-        for (EntityRef entity : entityManager.iteratorEntities(LocationComponent.class)) {
-            if ((entity.hasComponent(LocalPlayerComponent.class) || entity.hasComponent(PlayerComponent.class)) && entity.hasComponent(LocationComponent.class)) {
+        final boolean[] result = {false};
+        visitEntitiesInRange(position, range, new SpatialQueryCallback() {
+            @Override
+            public boolean visit(EntityRef entity, Vector3f entityPosition) {
+                if (entity.hasComponent(LocalPlayerComponent.class) || entity.hasComponent(PlayerComponent.class)) {
+                    result[0] = true;
+                    return false;
+                }
+                return true;
+            }
+        });
+        return result[0];
+    }
 
-                LocationComponent loc = entity.getComponent(LocationComponent.class);
-                Vector3f dist = new Vector3f(position);
-                dist.sub(loc.getWorldPosition());
-                if (dist.lengthSquared() < range) {
-                    return true;
+    /**
+     * Visits the entities whose squared distance to the position is less than range, using the spatial index when
+     * there is one. The position passed to the callback is relative to the given position.
+     */
+    private void visitEntitiesInRange(final Vector3f position, final float range, final SpatialQueryCallback callback) {
+        final Vector3f dist = new Vector3f();
+        SpatialIndex spatialIndex = CoreRegistry.get(SpatialIndex.class);
+        if (spatialIndex != null) {
+            spatialIndex.findInRadius(position, (float) Math.sqrt(range), new SpatialQueryCallback() {
+                @Override
+                public boolean visit(EntityRef entity, Vector3f entityPosition) {
+                    dist.sub(entityPosition, position);
+                    return dist.lengthSquared() >= range || callback.visit(entity, dist);
                 }
-            } else {
-                continue;
+            });
+            return;
+        }
+        for (EntityRef entity : entityManager.iteratorEntities(LocationComponent.class)) {
+            LocationComponent loc = entity.getComponent(LocationComponent.class);
+            loc.getWorldPosition(dist);
+            dist.sub(position);
+            if (dist.lengthSquared() < range && !callback.visit(entity, dist)) {
+                return;
             }
         }
-        return false;
     }
 
     /**
@@ -0,0 +1,331 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.utilities;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.terasology.math.TeraMath;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Evaluates the Fractional Brownian Motion of a {@link Noise} for a whole grid of integer sample positions at once.
+ * <p/>
+ * Every sample yields exactly the same value as calling {@link Noise#fBm(double, double, double)} with the scaled
+ * sample position. For {@link PerlinNoise} the lattice cells, offsets and fade curves are computed once per axis and
+ * octave instead of once per sample, and the permutation lookups are shared between samples of the same row. Other
+ * noise implementations are evaluated sample by sample.
+ * <p/>
+ * The scratch buffers are kept per thread, so a single instance can be used by several generator threads.
+ */
+public class GridNoise {
+
+    private static final double[] GRADIENT_X = new double[16];
+    private static final double[] GRADIENT_Y = new double[16];
+    private static final double[] GRADIENT_Z = new double[16];
+
+    static {
+        for (int h = 0; h < 16; h++) {
+            GRADIENT_X[h] = PerlinNoise.grad(h, 1, 0, 0);
+            GRADIENT_Y[h] = PerlinNoise.grad(h, 0, 1, 0);
+            GRADIENT_Z[h] = PerlinNoise.grad(h, 0, 0, 1);
+        }
+    }
+
+    private final Noise noise;
+    private final int[] permutations;
+    private volatile double[] spectralWeights = new double[0];
+
+    private final ThreadLocal<AxisBuffer[]> buffers = new ThreadLocal<AxisBuffer[]>() {
+        @Override
+        protected AxisBuffer[] initialValue() {
+            return new AxisBuffer[]{new AxisBuffer(), new AxisBuffer(), new AxisBuffer()};
+        }
+    };
+
+    public GridNoise(Noise noise) {
+        this.noise = noise;
+        this.permutations = (noise.getClass() == PerlinNoise.class) ? ((PerlinNoise) noise).getPermutations() : null;
+    }
+
+    public Noise getNoise() {
+        return noise;
+    }
+
+    /**
+     * Evaluates the noise on the plane y = 0.
+     *
+     * @param result The array to fill, or null to allocate one
+     * @return The values at index {@code x * sizeZ + z}
+     */
+    public double[] fBm(double[] result, Axis x, Axis z) {
+        return fBm(result, x, Axis.ZERO, z);
+    }
+
+    /**
+     * @param result The array to fill, or null to allocate one
+     * @return The values at index {@code (x * sizeY + y) * sizeZ + z}
+     */
+    public double[] fBm(double[] result, Axis x, Axis y, Axis z) {
+        result = checkResult(result, x, y, z);
+        fBm(result, 0, x, y, z);
+        return result;
+    }
+
+    /**
+     * Evaluates the noise in vertical slices, one for every sample on the x-axis. All slices but the first are
+     * submitted to the executor, the first one is evaluated on the calling thread. The values are the same as
+     * evaluated on a single thread.
+     *
+     * @param result   The array to fill, or null to allocate one
+     * @param executor The executor to evaluate the slices on, or null to evaluate all of them on the calling thread
+     * @return The values at index {@code (x * sizeY + y) * sizeZ + z}
+     */
+    public double[] fBm(double[] result, Axis x, final Axis y, final Axis z, ExecutorService executor) {
+        if (executor == null || x.size == 1) {
+            return fBm(result, x, y, z);
+        }
+        final double[] values = checkResult(result, x, y, z);
+        final int sliceSize = y.size * z.size;
+        List<Future<?>> slices = Lists.newArrayListWithCapacity(x.size - 1);
+        for (int i = 1; i < x.size; i++) {
+            final int offset = i * sliceSize;
+            final Axis slice = x.slice(i, 1);
+            slices.add(executor.submit(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    fBm(values, offset, slice, y, z);
+                    return null;
+                }
+            }));
+        }
+        Throwable failure = null;
+        try {
+            fBm(values, 0, x.slice(0, 1), y, z);
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        for (Future<?> slice : slices) {
+            try {
+                Uninterruptibles.getUninterruptibly(slice);
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            }
+        }
+        if (failure != null) {
+            throw Throwables.propagate(failure);
+        }
+        return values;
+    }
+
+    private double[] checkResult(double[] result, Axis x, Axis y, Axis z) {
+        int count = x.size * y.size * z.size;
+        if (result == null) {
+            return new double[count];
+        }
+        if (result.length < count) {
+            throw new IllegalArgumentException("Result array holds " + result.length + " values, " + count + " required");
+        }
+        return result;
+    }
+
+    private void fBm(double[] result, int offset, Axis x, Axis y, Axis z) {
+        if (permutations != null) {
+            perlinFBm(result, offset, x, y, z);
+        } else {
+            int index = offset;
+            for (int i = 0; i < x.size; i++) {
+                double posX = x.get(i);
+                for (int j = 0; j < y.size; j++) {
+                    double posY = y.get(j);
+                    for (int k = 0; k < z.size; k++) {
+                        result[index++] = noise.fBm(posX, posY, z.get(k));
+                    }
+                }
+            }
+        }
+    }
+
+    private void perlinFBm(double[] result, int offset, Axis x, Axis y, Axis z) {
+        final int[] p = permutations;
+        final double[] weights = getSpectralWeights();
+        AxisBuffer[] axes = buffers.get();
+        AxisBuffer bx = axes[0].reset(x);
+        AxisBuffer by = axes[1].reset(y);
+        AxisBuffer bz = axes[2].reset(z);
+
+        Arrays.fill(result, offset, offset + x.size * y.size * z.size, 0.0);
+        for (int octave = 0; octave < weights.length; octave++) {
+            final double weight = weights[octave];
+            bx.prepareOctave();
+            by.prepareOctave();
+            bz.prepareOctave();
+
+            int index = offset;
+            for (int i = 0; i < x.size; i++) {
+                final int pX = p[bx.cell[i]];
+                final int pX1 = p[bx.cell[i] + 1];
+                final double x0 = bx.offset[i];
+                final double x1 = bx.offsetMinusOne[i];
+                final double u = bx.fade[i];
+                for (int j = 0; j < y.size; j++) {
+                    final int cellY = by.cell[j];
+                    final int pA = p[pX + cellY];
+                    final int pA1 = p[pX + cellY + 1];
+                    final int pB = p[pX1 + cellY];
+                    final int pB1 = p[pX1 + cellY + 1];
+                    final double y0 = by.offset[j];
+                    final double y1 = by.offsetMinusOne[j];
+                    final double v = by.fade[j];
+                    for (int k = 0; k < z.size; k++) {
+                        final int cellZ = bz.cell[k];
+                        final int aa = pA + cellZ;
+                        final int ab = pA1 + cellZ;
+                        final int ba = pB + cellZ;
+                        final int bb = pB1 + cellZ;
+                        final double z0 = bz.offset[k];
+                        final double z1 = bz.offsetMinusOne[k];
+
+                        double value = PerlinNoise.lerp(bz.fade[k],
+                                PerlinNoise.lerp(v,
+                                        PerlinNoise.lerp(u, grad(p[aa], x0, y0, z0), grad(p[ba], x1, y0, z0)),
+                                        PerlinNoise.lerp(u, grad(p[ab], x0, y1, z0), grad(p[bb], x1, y1, z0))),
+                                PerlinNoise.lerp(v,
+                                        PerlinNoise.lerp(u, grad(p[aa + 1], x0, y0, z1), grad(p[ba + 1], x1, y0, z1)),
+                                        PerlinNoise.lerp(u, grad(p[ab + 1], x0, y1, z1), grad(p[bb + 1], x1, y1, z1))));
+                        result[index++] += value * weight;
+                    }
+                }
+            }
+
+            bx.nextOctave();
+            by.nextOctave();
+            bz.nextOctave();
+        }
+    }
+
+    /**
+     * Branch free version of {@link PerlinNoise#grad(int, double, double, double)}. The unused component is multiplied
+     * by zero, which can only change the sign of a zero result and so never changes the sum of the octaves.
+     */
+    private static double grad(int hash, double x, double y, double z) {
+        int h = hash & 15;
+        return GRADIENT_X[h] * x + GRADIENT_Y[h] * y + GRADIENT_Z[h] * z;
+    }
+
+    private double[] getSpectralWeights() {
+        double[] weights = spectralWeights;
+        int octaves = noise.getOctaves();
+        if (weights.length != octaves) {
+            weights = new double[octaves];
+            for (int i = 0; i < octaves; i++) {
+                weights[i] = Math.pow(PerlinNoise.LACUNARITY, -PerlinNoise.H * i);
+            }
+            spectralWeights = weights;
+        }
+        return weights;
+    }
+
+    /**
+     * The sample positions along one axis: {@code scale * (min + i * step)} for {@code 0 <= i < size}.
+     */
+    public static final class Axis {
+        static final Axis ZERO = new Axis(0, 1, 1, 1.0);
+
+        private final int min;
+        private final int step;
+        private final int size;
+        private final double scale;
+
+        public Axis(int min, int step, int size, double scale) {
+            if (size < 1) {
+                throw new IllegalArgumentException("Axis needs at least one sample");
+            }
+            this.min = min;
+            this.step = step;
+            this.size = size;
+            this.scale = scale;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public double get(int i) {
+            return (double) (min + i * step) * scale;
+        }
+
+        /**
+         * @return The axis of the samples from {@code start} to {@code start + count - 1} of this axis
+         */
+        public Axis slice(int start, int count) {
+            return new Axis(min + start * step, step, count, scale);
+        }
+    }
+
+    /**
+     * Per axis positions of the current octave and the lattice values derived from them.
+     */
+    private static final class AxisBuffer {
+        private double[] position = new double[0];
+        private int[] cell = new int[0];
+        private double[] offset = new double[0];
+        private double[] offsetMinusOne = new double[0];
+        private double[] fade = new double[0];
+        private int size;
+
+        AxisBuffer reset(Axis axis) {
+            size = axis.size;
+            if (position.length < size) {
+                position = new double[size];
+                cell = new int[size];
+                offset = new double[size];
+                offsetMinusOne = new double[size];
+                fade = new double[size];
+            }
+            for (int i = 0; i < size; i++) {
+                position[i] = axis.get(i);
+            }
+            return this;
+        }
+
+        void prepareOctave() {
+            for (int i = 0; i < size; i++) {
+                double pos = position[i];
+                cell[i] = (int) TeraMath.fastFloor(pos) & 255;
+                pos -= TeraMath.fastFloor(pos);
+                offset[i] = pos;
+                offsetMinusOne[i] = pos - 1;
+                fade[i] = PerlinNoise.fade(pos);
+            }
+        }
+
+        void nextOctave() {
+            for (int i = 0; i < size; i++) {
+                position[i] *= PerlinNoise.LACUNARITY;
+            }
+        }
+    }
+}
@@ -24,10 +24,10 @@ import org.terasology.math.TeraMath;
  */
 public class PerlinNoise implements Noise{
 
-    private static final double LACUNARITY = 2.1379201;
-    private static final double H = 0.836281;
+    static final double LACUNARITY = 2.1379201;
+    static final double H = 0.836281;
 
-    private double[] _spectralWeights;
+    private volatile double[] _spectralWeights;
 
     private final int[] _noisePermutations;
     private boolean _recomputeSpectralWeights = true;
@@ -104,17 +104,20 @@ public class PerlinNoise implements Noise{
     public double fBm(double x, double y, double z) {
         double result = 0.0;
 
-        if (_recomputeSpectralWeights) {
-            _spectralWeights = new double[_octaves];
+        // Only publish the weights once they are complete, generator threads share the noise
+        double[] spectralWeights = _spectralWeights;
+        if (_recomputeSpectralWeights || spectralWeights == null) {
+            spectralWeights = new double[_octaves];
 
             for (int i = 0; i < _octaves; i++)
-                _spectralWeights[i] = java.lang.Math.pow(LACUNARITY, -H * i);
+                spectralWeights[i] = java.lang.Math.pow(LACUNARITY, -H * i);
 
+            _spectralWeights = spectralWeights;
             _recomputeSpectralWeights = false;
         }
 
         for (int i = 0; i < _octaves; i++) {
-            result += noise(x, y, z) * _spectralWeights[i];
+            result += noise(x, y, z) * spectralWeights[i];
 
             x *= LACUNARITY;
             y *= LACUNARITY;
@@ -124,20 +127,27 @@ public class PerlinNoise implements Noise{
         return result;
     }
 
-    private static double fade(double t) {
+    static double fade(double t) {
         return t * t * t * (t * (t * 6 - 15) + 10);
     }
 
-    private static double lerp(double t, double a, double b) {
+    static double lerp(double t, double a, double b) {
         return a + t * (b - a);
     }
 
-    private static double grad(int hash, double x, double y, double z) {
+    static double grad(int hash, double x, double y, double z) {
         int h = hash & 15;
         double u = h < 8 ? x : y, v = h < 4 ? y : h == 12 || h == 14 ? x : z;
         return ((h & 1) == 0 ? u : -u) + ((h & 2) == 0 ? v : -v);
     }
 
+    /**
+     * @return The permutation table, replicated to 512 entries. Used by {@link GridNoise} and must not be modified.
+     */
+    int[] getPermutations() {
+        return _noisePermutations;
+    }
+
     public void setOctaves(int octaves) {
         _octaves = octaves;
         _recomputeSpectralWeights = true;
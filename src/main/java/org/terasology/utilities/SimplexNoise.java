@@ -0,0 +1,151 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.utilities;
+
+import org.terasology.math.TeraMath;
+
+/**
+ * Simplex noise based on the reference implementation by Stefan Gustavson. Cheaper than {@link PerlinNoise} per
+ * sample and without its axis aligned artifacts, but yields different values for the same seed.
+ */
+public class SimplexNoise implements Noise {
+
+    private static final double LACUNARITY = 2.1379201;
+    private static final double H = 0.836281;
+
+    private static final double F3 = 1.0 / 3.0;
+    private static final double G3 = 1.0 / 6.0;
+
+    private static final int[][] GRADIENTS = {
+            {1, 1, 0}, {-1, 1, 0}, {1, -1, 0}, {-1, -1, 0},
+            {1, 0, 1}, {-1, 0, 1}, {1, 0, -1}, {-1, 0, -1},
+            {0, 1, 1}, {0, -1, 1}, {0, 1, -1}, {0, -1, -1}};
+
+    private final int[] permutations = new int[512];
+    private volatile double[] spectralWeights;
+    private int octaves = 9;
+
+    /**
+     * Init. a new generator with a given seed value.
+     *
+     * @param seed The seed value
+     */
+    public SimplexNoise(int seed) {
+        FastRandom rand = new FastRandom(seed);
+        int[] table = new int[256];
+        for (int i = 0; i < 256; i++) {
+            table[i] = i;
+        }
+        for (int i = 0; i < 256; i++) {
+            int j = rand.randomInt() % 256;
+            j = (j < 0) ? -j : j;
+
+            int swap = table[i];
+            table[i] = table[j];
+            table[j] = swap;
+        }
+        for (int i = 0; i < 256; i++) {
+            permutations[i] = permutations[i + 256] = table[i];
+        }
+        setOctaves(octaves);
+    }
+
+    @Override
+    public double noise(double x, double y, double z) {
+        // Skew the input space to find the simplex cell
+        double s = (x + y + z) * F3;
+        int i = (int) TeraMath.fastFloor(x + s);
+        int j = (int) TeraMath.fastFloor(y + s);
+        int k = (int) TeraMath.fastFloor(z + s);
+        double t = (i + j + k) * G3;
+        double x0 = x - (i - t);
+        double y0 = y - (j - t);
+        double z0 = z - (k - t);
+
+        // Find out which of the six tetrahedra of the cell contains the position
+        int i1, j1, k1, i2, j2, k2;
+        if (x0 >= y0) {
+            if (y0 >= z0) {
+                i1 = 1; j1 = 0; k1 = 0; i2 = 1; j2 = 1; k2 = 0;
+            } else if (x0 >= z0) {
+                i1 = 1; j1 = 0; k1 = 0; i2 = 1; j2 = 0; k2 = 1;
+            } else {
+                i1 = 0; j1 = 0; k1 = 1; i2 = 1; j2 = 0; k2 = 1;
+            }
+        } else {
+            if (y0 < z0) {
+                i1 = 0; j1 = 0; k1 = 1; i2 = 0; j2 = 1; k2 = 1;
+            } else if (x0 < z0) {
+                i1 = 0; j1 = 1; k1 = 0; i2 = 0; j2 = 1; k2 = 1;
+            } else {
+                i1 = 0; j1 = 1; k1 = 0; i2 = 1; j2 = 1; k2 = 0;
+            }
+        }
+
+        double x1 = x0 - i1 + G3, y1 = y0 - j1 + G3, z1 = z0 - k1 + G3;
+        double x2 = x0 - i2 + 2.0 * G3, y2 = y0 - j2 + 2.0 * G3, z2 = z0 - k2 + 2.0 * G3;
+        double x3 = x0 - 1.0 + 3.0 * G3, y3 = y0 - 1.0 + 3.0 * G3, z3 = z0 - 1.0 + 3.0 * G3;
+
+        int ii = i & 255, jj = j & 255, kk = k & 255;
+        int[] p = permutations;
+        double n = corner(p[ii + p[jj + p[kk]]], x0, y0, z0)
+                + corner(p[ii + i1 + p[jj + j1 + p[kk + k1]]], x1, y1, z1)
+                + corner(p[ii + i2 + p[jj + j2 + p[kk + k2]]], x2, y2, z2)
+                + corner(p[ii + 1 + p[jj + 1 + p[kk + 1]]], x3, y3, z3);
+
+        // Scale the result to roughly [-1, 1]
+        return 32.0 * n;
+    }
+
+    private static double corner(int hash, double x, double y, double z) {
+        double t = 0.6 - x * x - y * y - z * z;
+        if (t < 0) {
+            return 0.0;
+        }
+        int[] g = GRADIENTS[hash % 12];
+        t *= t;
+        return t * t * (g[0] * x + g[1] * y + g[2] * z);
+    }
+
+    @Override
+    public double fBm(double x, double y, double z) {
+        double[] weights = spectralWeights;
+        double result = 0.0;
+        for (int i = 0; i < weights.length; i++) {
+            result += noise(x, y, z) * weights[i];
+
+            x *= LACUNARITY;
+            y *= LACUNARITY;
+            z *= LACUNARITY;
+        }
+        return result;
+    }
+
+    @Override
+    public void setOctaves(int octaves) {
+        double[] weights = new double[octaves];
+        for (int i = 0; i < octaves; i++) {
+            weights[i] = Math.pow(LACUNARITY, -H * i);
+        }
+        this.octaves = octaves;
+        this.spectralWeights = weights;
+    }
+
+    @Override
+    public int getOctaves() {
+        return octaves;
+    }
+}
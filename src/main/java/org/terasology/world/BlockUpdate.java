@@ -16,9 +16,14 @@
 
 package org.terasology.world;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.terasology.math.Vector3i;
 import org.terasology.world.block.Block;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * A single requested block change.
  *
@@ -52,4 +57,24 @@ public class BlockUpdate {
     public Block getNewType() {
         return newType;
     }
+
+    /**
+     * Merges the updates of each position into a single update, from the old type of the first update to the new type
+     * of the last one. The updates of a position are expected to follow on from each other.
+     *
+     * @param updates The updates to merge
+     * @return One update per position, in the order the positions were first updated
+     */
+    public static List<BlockUpdate> coalesce(Iterable<BlockUpdate> updates) {
+        Map<Vector3i, BlockUpdate> merged = Maps.newLinkedHashMap();
+        for (BlockUpdate update : updates) {
+            BlockUpdate previous = merged.get(update.getPosition());
+            if (previous == null) {
+                merged.put(update.getPosition(), update);
+            } else {
+                merged.put(update.getPosition(), new BlockUpdate(update.getPosition(), update.getNewType(), previous.getOldType()));
+            }
+        }
+        return Lists.newArrayList(merged.values());
+    }
 }
@@ -38,6 +38,7 @@ import org.terasology.world.block.BlockComponent;
 import org.terasology.world.block.BlockEntityMode;
 import org.terasology.world.block.BlockRegionComponent;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
@@ -102,6 +103,29 @@ public class EntityAwareWorldProvider extends AbstractWorldProviderDecorator imp
         return false;
     }
 
+    @Override
+    public boolean setBlocks(BlockUpdate... updates) {
+        return setBlocks(Arrays.asList(updates));
+    }
+
+    @Override
+    public boolean setBlocks(Iterable<BlockUpdate> updates) {
+        List<BlockUpdate> merged = BlockUpdate.coalesce(updates);
+        if (super.setBlocks(merged)) {
+            boolean onMainThread = Thread.currentThread().equals(mainThread);
+            for (BlockUpdate update : merged) {
+                BlockChangedEvent event = new BlockChangedEvent(update.getPosition(), update.getNewType(), update.getOldType());
+                if (onMainThread) {
+                    getOrCreateEntityAt(update.getPosition()).send(event);
+                } else {
+                    eventQueue.add(event);
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
     @Override
     public EntityRef getBlockEntityAt(Vector3i blockPosition) {
         EntityRef result = blockComponentLookup.get(blockPosition);
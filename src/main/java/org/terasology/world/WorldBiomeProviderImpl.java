@@ -17,32 +17,56 @@
 package org.terasology.world;
 
 import org.terasology.math.TeraMath;
+import org.terasology.utilities.GridNoise;
 import org.terasology.utilities.PerlinNoise;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
 /**
+ * Temperature and humidity are computed for whole columns of 16x16 blocks at once and cached, so the chunk
+ * generators and the chunk tessellator sharing this provider only evaluate the noise once per column.
+ *
  * @author Immortius
  */
 // TODO: Evolve this class into a world description provider (density, height, etc) to feed into the world generators
 public class WorldBiomeProviderImpl implements WorldBiomeProvider {
 
+    private static final int COLUMN_POWER = 4;
+    private static final int COLUMN_SIZE = 1 << COLUMN_POWER;
+    private static final int COLUMN_MASK = COLUMN_SIZE - 1;
+    private static final int CACHED_COLUMNS = 2048;
+    private static final double SCALE = 0.0005;
+
     PerlinNoise temperatureNoise, humidityNoise, fogNoise;
 
+    private final GridNoise temperatureGrid, humidityGrid;
+    private final LoadingCache<Long, Column> columns;
+
     public WorldBiomeProviderImpl(String worldSeed) {
         temperatureNoise = new PerlinNoise(worldSeed.hashCode() + 5);
         humidityNoise = new PerlinNoise(worldSeed.hashCode() + 6);
         fogNoise = new PerlinNoise(worldSeed.hashCode() + 12);
+
+        temperatureGrid = new GridNoise(temperatureNoise);
+        humidityGrid = new GridNoise(humidityNoise);
+        columns = CacheBuilder.newBuilder().maximumSize(CACHED_COLUMNS).build(new CacheLoader<Long, Column>() {
+            @Override
+            public Column load(Long key) {
+                return new Column((int) (key >> 32), (int) key.longValue());
+            }
+        });
     }
 
     @Override
     public float getHumidityAt(int x, int z) {
-        double result = humidityNoise.fBm(x * 0.0005, 0, 0.0005 * z);
-        return (float) TeraMath.clamp((result + 1.0f) / 2.0f);
+        return getColumn(x, z).humidity[columnIndex(x, z)];
     }
 
     @Override
     public float getTemperatureAt(int x, int z) {
-        double result = temperatureNoise.fBm(x * 0.0005, 0, 0.0005 * z);
-        return (float) TeraMath.clamp((result + 1.0f) / 2.0f);
+        return getColumn(x, z).temperature[columnIndex(x, z)];
     }
 
     @Override
@@ -52,8 +76,10 @@ public class WorldBiomeProviderImpl implements WorldBiomeProvider {
 
     @Override
     public Biome getBiomeAt(int x, int z) {
-        double temp = getTemperatureAt(x, z);
-        double humidity = getHumidityAt(x, z) * temp;
+        Column column = getColumn(x, z);
+        int index = columnIndex(x, z);
+        double temp = column.temperature[index];
+        double humidity = column.humidity[index] * temp;
 
         if (temp >= 0.5 && humidity < 0.3) {
             return Biome.DESERT;
@@ -72,4 +98,36 @@ public class WorldBiomeProviderImpl implements WorldBiomeProvider {
     public Biome getBiomeAt(float x, float z) {
         return getBiomeAt(TeraMath.floorToInt(x + 0.5f), TeraMath.floorToInt(z + 0.5f));
     }
+
+    private Column getColumn(int x, int z) {
+        long key = ((long) (x >> COLUMN_POWER) << 32) | ((z >> COLUMN_POWER) & 0xFFFFFFFFL);
+        return columns.getUnchecked(key);
+    }
+
+    private static int columnIndex(int x, int z) {
+        return ((x & COLUMN_MASK) << COLUMN_POWER) | (z & COLUMN_MASK);
+    }
+
+    /**
+     * The temperature and humidity of a column of blocks, indexed by {@code x * COLUMN_SIZE + z}.
+     */
+    private class Column {
+        private final float[] temperature;
+        private final float[] humidity;
+
+        Column(int columnX, int columnZ) {
+            GridNoise.Axis axisX = new GridNoise.Axis(columnX << COLUMN_POWER, 1, COLUMN_SIZE, SCALE);
+            GridNoise.Axis axisZ = new GridNoise.Axis(columnZ << COLUMN_POWER, 1, COLUMN_SIZE, SCALE);
+            temperature = toUnitRange(temperatureGrid.fBm(null, axisX, axisZ));
+            humidity = toUnitRange(humidityGrid.fBm(null, axisX, axisZ));
+        }
+
+        private float[] toUnitRange(double[] values) {
+            float[] result = new float[values.length];
+            for (int i = 0; i < values.length; i++) {
+                result[i] = (float) TeraMath.clamp((values[i] + 1.0f) / 2.0f);
+            }
+            return result;
+        }
+    }
 }
@@ -35,6 +35,9 @@ import org.terasology.world.lighting.LightingUtil;
 import org.terasology.world.lighting.PropagationComparison;
 import org.terasology.world.liquid.LiquidData;
 
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * @author Immortius
  */
@@ -51,6 +54,13 @@ public class WorldProviderCoreImpl implements WorldProviderCore {
     private long timeOffset;
 
     public WorldProviderCoreImpl(String title, String seed, long time, String[] chunkGenerators, ChunkProvider chunkProvider) {
+        this(title, seed, time, chunkGenerators, chunkProvider, null);
+    }
+
+    /**
+     * @param biomeProvider The biome provider to share with the chunk generators, or null to create one for the seed
+     */
+    public WorldProviderCoreImpl(String title, String seed, long time, String[] chunkGenerators, ChunkProvider chunkProvider, WorldBiomeProvider biomeProvider) {
         if (seed == null || seed.isEmpty()) {
             throw new IllegalArgumentException("No seed provided.");
         }
@@ -61,7 +71,7 @@ public class WorldProviderCoreImpl implements WorldProviderCore {
         this.title = title;
         this.seed = seed;
         this.chunkGenerators = chunkGenerators;
-        this.biomeProvider = new WorldBiomeProviderImpl(seed);
+        this.biomeProvider = (biomeProvider != null) ? biomeProvider : new WorldBiomeProviderImpl(seed);
         this.chunkProvider = chunkProvider;
         setTime(time);
     }
@@ -70,6 +80,10 @@ public class WorldProviderCoreImpl implements WorldProviderCore {
         this(info.getTitle(), info.getSeed(), info.getTime(), info.getChunkGenerators(), chunkProvider);
     }
 
+    public WorldProviderCoreImpl(WorldInfo info, ChunkProvider chunkProvider, WorldBiomeProvider biomeProvider) {
+        this(info.getTitle(), info.getSeed(), info.getTime(), info.getChunkGenerators(), chunkProvider, biomeProvider);
+    }
+
     @Override
     public String getTitle() {
         return title;
@@ -108,17 +122,53 @@ public class WorldProviderCoreImpl implements WorldProviderCore {
 
     @Override
     public boolean isBlockActive(int x, int y, int z) {
-        return chunkProvider.isChunkAvailable(TeraMath.calcChunkPos(x, y, z));
+        return chunkProvider.isChunkAvailable(TeraMath.calcChunkPosX(x), TeraMath.calcChunkPosY(y), TeraMath.calcChunkPosZ(z));
     }
 
     @Override
     public boolean setBlocks(BlockUpdate... updates) {
-        return false;  //To change body of implemented methods use File | Settings | File Templates.
+        return setBlocks(Arrays.asList(updates));
     }
 
     @Override
     public boolean setBlocks(Iterable<BlockUpdate> updates) {
-        return false;  //To change body of implemented methods use File | Settings | File Templates.
+        List<BlockUpdate> merged = BlockUpdate.coalesce(updates);
+        if (merged.isEmpty()) {
+            return true;
+        }
+
+        Region3i changedRegion = Region3i.EMPTY;
+        boolean lightingChanged = false;
+        for (BlockUpdate update : merged) {
+            changedRegion = Region3i.createEncompassing(changedRegion, Region3i.createFromMinAndSize(update.getPosition(), Vector3i.one()));
+            lightingChanged |= affectsLighting(update.getNewType(), update.getOldType());
+        }
+        WorldView worldView = WorldView.createSubviewAroundRegion(changedRegion, (lightingChanged) ? Chunk.MAX_LIGHT + 1 : 1, chunkProvider);
+        if (worldView != null) {
+            worldView.lock();
+            try {
+                // Check the whole batch first, so that it is either applied entirely or not at all
+                if (!LightPropagator.canPropagate(worldView)) {
+                    return false;
+                }
+                for (BlockUpdate update : merged) {
+                    if (!worldView.getBlockRegion().encompasses(update.getPosition())
+                            || worldView.getBlock(update.getPosition()).getId() != update.getOldType().getId()) {
+                        return false;
+                    }
+                }
+                for (BlockUpdate update : merged) {
+                    worldView.setBlock(update.getPosition(), update.getNewType(), update.getOldType());
+                }
+
+                Region3i affected = new LightPropagator(worldView).update(merged);
+                worldView.setDirtyAround(Region3i.createEncompassing(changedRegion, affected));
+                return true;
+            } finally {
+                worldView.unlock();
+            }
+        }
+        return false;
     }
 
     @Override
@@ -126,7 +176,7 @@ public class WorldProviderCoreImpl implements WorldProviderCore {
         Vector3i blockPos = new Vector3i(x, y, z);
         WorldView worldView;
 
-        if (LightingUtil.compareLightingPropagation(type, oldType) != PropagationComparison.IDENTICAL || type.getLuminance() != oldType.getLuminance()) {
+        if (affectsLighting(type, oldType)) {
             worldView = WorldView.createSubviewAroundBlock(blockPos, Chunk.MAX_LIGHT + 1, chunkProvider);
         } else {
             worldView = WorldView.createSubviewAroundBlock(blockPos, 1, chunkProvider);
@@ -152,14 +202,17 @@ public class WorldProviderCoreImpl implements WorldProviderCore {
         return false;
     }
 
+    private boolean affectsLighting(Block type, Block oldType) {
+        return LightingUtil.compareLightingPropagation(type, oldType) != PropagationComparison.IDENTICAL || type.getLuminance() != oldType.getLuminance()
+                || LightingUtil.doesSunlightRetainsFullStrengthIn(type) != LightingUtil.doesSunlightRetainsFullStrengthIn(oldType);
+    }
+
     @Override
     public boolean setLiquid(int x, int y, int z, LiquidData newState, LiquidData oldState) {
         // TODO: Locking, light changes
-        Vector3i chunkPos = TeraMath.calcChunkPos(x, y, z);
-        Chunk chunk = chunkProvider.getChunk(chunkPos);
+        Chunk chunk = chunkProvider.getChunk(TeraMath.calcChunkPosX(x), TeraMath.calcChunkPosY(y), TeraMath.calcChunkPosZ(z));
         if (chunk != null) {
-            Vector3i blockPos = TeraMath.calcBlockPos(x, y, z);
-            return chunk.setLiquid(blockPos, newState, oldState);
+            return chunk.setLiquid(TeraMath.calcBlockPosX(x), TeraMath.calcBlockPosY(y), TeraMath.calcBlockPosZ(z), newState, oldState);
         }
         return false;
     }
@@ -168,11 +221,9 @@ public class WorldProviderCoreImpl implements WorldProviderCore {
     public LiquidData getLiquid(int x, int y, int z) {
         y = TeraMath.clamp(y, 0, Chunk.SIZE_Y - 1);
 
-        Vector3i chunkPos = TeraMath.calcChunkPos(x, y, z);
-        Chunk chunk = chunkProvider.getChunk(chunkPos);
+        Chunk chunk = chunkProvider.getChunk(TeraMath.calcChunkPosX(x), TeraMath.calcChunkPosY(y), TeraMath.calcChunkPosZ(z));
         if (chunk != null) {
-            Vector3i blockPos = TeraMath.calcBlockPos(x, y, z);
-            return chunk.getLiquid(blockPos);
+            return chunk.getLiquid(TeraMath.calcBlockPosX(x), TeraMath.calcBlockPosY(y), TeraMath.calcBlockPosZ(z));
         }
         return new LiquidData();
     }
@@ -183,11 +234,9 @@ public class WorldProviderCoreImpl implements WorldProviderCore {
             return BlockManager.getInstance().getAir();
         }
 
-        Vector3i chunkPos = TeraMath.calcChunkPos(x, y, z);
-        Chunk chunk = chunkProvider.getChunk(chunkPos);
+        Chunk chunk = chunkProvider.getChunk(TeraMath.calcChunkPosX(x), TeraMath.calcChunkPosY(y), TeraMath.calcChunkPosZ(z));
         if (chunk != null) {
-            Vector3i blockPos = TeraMath.calcBlockPos(x, y, z);
-            return chunk.getBlock(blockPos);
+            return chunk.getBlock(TeraMath.calcBlockPosX(x), TeraMath.calcBlockPosY(y), TeraMath.calcBlockPosZ(z));
         }
         return BlockManager.getInstance().getAir();
     }
@@ -196,11 +245,9 @@ public class WorldProviderCoreImpl implements WorldProviderCore {
     public byte getLight(int x, int y, int z) {
         y = TeraMath.clamp(y, 0, Chunk.SIZE_Y - 1);
 
-        Vector3i chunkPos = TeraMath.calcChunkPos(x, y, z);
-        Chunk chunk = chunkProvider.getChunk(chunkPos);
+        Chunk chunk = chunkProvider.getChunk(TeraMath.calcChunkPosX(x), TeraMath.calcChunkPosY(y), TeraMath.calcChunkPosZ(z));
         if (chunk != null) {
-            Vector3i blockPos = TeraMath.calcBlockPos(x, y, z);
-            return chunk.getLight(blockPos);
+            return chunk.getLight(TeraMath.calcBlockPosX(x), TeraMath.calcBlockPosY(y), TeraMath.calcBlockPosZ(z));
         }
         return 0;
     }
@@ -209,11 +256,9 @@ public class WorldProviderCoreImpl implements WorldProviderCore {
     public byte getSunlight(int x, int y, int z) {
         y = TeraMath.clamp(y, 0, Chunk.SIZE_Y - 1);
 
-        Vector3i chunkPos = TeraMath.calcChunkPos(x, y, z);
-        Chunk chunk = chunkProvider.getChunk(chunkPos);
+        Chunk chunk = chunkProvider.getChunk(TeraMath.calcChunkPosX(x), TeraMath.calcChunkPosY(y), TeraMath.calcChunkPosZ(z));
         if (chunk != null) {
-            Vector3i blockPos = TeraMath.calcBlockPos(x, y, z);
-            return chunk.getSunlight(blockPos);
+            return chunk.getSunlight(TeraMath.calcBlockPosX(x), TeraMath.calcBlockPosY(y), TeraMath.calcBlockPosZ(z));
         }
         return 0;
     }
@@ -222,11 +267,12 @@ public class WorldProviderCoreImpl implements WorldProviderCore {
     public byte getTotalLight(int x, int y, int z) {
         y = TeraMath.clamp(y, 0, Chunk.SIZE_Y - 1);
 
-        Vector3i chunkPos = TeraMath.calcChunkPos(x, y, z);
-        Chunk chunk = chunkProvider.getChunk(chunkPos);
+        Chunk chunk = chunkProvider.getChunk(TeraMath.calcChunkPosX(x), TeraMath.calcChunkPosY(y), TeraMath.calcChunkPosZ(z));
         if (chunk != null) {
-            Vector3i blockPos = TeraMath.calcBlockPos(x, y, z);
-            return (byte) Math.max(chunk.getSunlight(blockPos), chunk.getLight(blockPos));
+            int blockX = TeraMath.calcBlockPosX(x);
+            int blockY = TeraMath.calcBlockPosY(y);
+            int blockZ = TeraMath.calcBlockPosZ(z);
+            return (byte) Math.max(chunk.getSunlight(blockX, blockY, blockZ), chunk.getLight(blockX, blockY, blockZ));
         }
         return 0;
     }
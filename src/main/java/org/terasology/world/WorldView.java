@@ -34,6 +34,7 @@ public class WorldView {
     private Region3i chunkRegion;
     private Region3i blockRegion;
     private Chunk[] chunks;
+    private int chunkRegionWidth;
 
     private Vector3i chunkPower;
     private Vector3i chunkSize;
@@ -49,26 +50,41 @@ public class WorldView {
         return createWorldView(region, new Vector3i(-region.min().x, 0, -region.min().z), chunkProvider);
     }
 
+    /**
+     * Creates a view over all the chunks within extent blocks horizontally of the given block region
+     */
+    public static WorldView createSubviewAroundRegion(Region3i blockRegion, int extent, ChunkProvider chunkProvider) {
+        Region3i region = Region3i.createEncompassing(TeraMath.getChunkRegionAroundBlockPos(blockRegion.min(), extent),
+                TeraMath.getChunkRegionAroundBlockPos(blockRegion.max(), extent));
+        return createWorldView(region, new Vector3i(-region.min().x, 0, -region.min().z), chunkProvider);
+    }
+
     public static WorldView createSubviewAroundChunk(Vector3i chunkPos, ChunkProvider chunkProvider) {
         Region3i region = Region3i.createFromCenterExtents(chunkPos, new Vector3i(1, 0, 1));
         return createWorldView(region, new Vector3i(-region.min().x, 0, -region.min().z), chunkProvider);
     }
 
     public static WorldView createWorldView(Region3i region, Vector3i offset, ChunkProvider chunkProvider) {
-        Chunk[] chunks = new Chunk[region.size().x * region.size().z];
-        for (Vector3i chunkPos : region) {
-            Chunk chunk = chunkProvider.getChunk(chunkPos);
-            if (chunk == null) {
-                return null;
+        Vector3i min = region.min();
+        Vector3i size = region.size();
+        Chunk[] chunks = new Chunk[size.x * size.z];
+        for (int y = 0; y < size.y; y++) {
+            for (int z = 0; z < size.z; z++) {
+                for (int x = 0; x < size.x; x++) {
+                    Chunk chunk = chunkProvider.getChunk(min.x + x, min.y + y, min.z + z);
+                    if (chunk == null) {
+                        return null;
+                    }
+                    chunks[x + size.x * z] = chunk;
+                }
             }
-            int index = (chunkPos.x - region.min().x) + region.size().x * (chunkPos.z - region.min().z);
-            chunks[index] = chunk;
         }
         return new WorldView(chunks, region, offset);
     }
 
     public WorldView(Chunk[] chunks, Region3i chunkRegion, Vector3i offset) {
         this.chunkRegion = chunkRegion;
+        this.chunkRegionWidth = chunkRegion.size().x;
         this.chunks = chunks;
         this.offset = offset;
         setChunkSize(new Vector3i(Chunk.SIZE_X, Chunk.SIZE_Y, Chunk.SIZE_Z));
@@ -78,6 +94,20 @@ public class WorldView {
         return chunkRegion;
     }
 
+    public Region3i getBlockRegion() {
+        return blockRegion;
+    }
+
+    /**
+     * @return The chunk containing the given block, or null if the block is outside of this view
+     */
+    public Chunk getChunkAtBlock(int blockX, int blockY, int blockZ) {
+        if (!blockRegion.encompasses(blockX, blockY, blockZ)) {
+            return null;
+        }
+        return chunks[relChunkIndex(blockX, blockY, blockZ)];
+    }
+
     public Block getBlock(float x, float y, float z) {
         return getBlock(TeraMath.floorToInt(x + 0.5f), TeraMath.floorToInt(y + 0.5f), TeraMath.floorToInt(z + 0.5f));
     }
@@ -93,7 +123,7 @@ public class WorldView {
         }
 
         int chunkIndex = relChunkIndex(blockX, blockY, blockZ);
-        return chunks[chunkIndex].getBlock(TeraMath.calcBlockPos(blockX, blockY, blockZ, chunkFilterSize));
+        return chunks[chunkIndex].getBlock(TeraMath.calcBlockPosX(blockX, chunkFilterSize.x), TeraMath.calcBlockPosY(blockY), TeraMath.calcBlockPosZ(blockZ, chunkFilterSize.z));
     }
 
     public byte getSunlight(float x, float y, float z) {
@@ -118,7 +148,7 @@ public class WorldView {
         }
 
         int chunkIndex = relChunkIndex(blockX, blockY, blockZ);
-        return chunks[chunkIndex].getSunlight(TeraMath.calcBlockPos(blockX, blockY, blockZ, chunkFilterSize));
+        return chunks[chunkIndex].getSunlight(TeraMath.calcBlockPosX(blockX, chunkFilterSize.x), TeraMath.calcBlockPosY(blockY), TeraMath.calcBlockPosZ(blockZ, chunkFilterSize.z));
     }
 
     public byte getLight(int blockX, int blockY, int blockZ) {
@@ -127,7 +157,7 @@ public class WorldView {
         }
 
         int chunkIndex = relChunkIndex(blockX, blockY, blockZ);
-        return chunks[chunkIndex].getLight(TeraMath.calcBlockPos(blockX, blockY, blockZ, chunkFilterSize));
+        return chunks[chunkIndex].getLight(TeraMath.calcBlockPosX(blockX, chunkFilterSize.x), TeraMath.calcBlockPosY(blockY), TeraMath.calcBlockPosZ(blockZ, chunkFilterSize.z));
     }
 
     public boolean setBlock(Vector3i pos, Block type, Block oldType) {
@@ -168,6 +198,26 @@ public class WorldView {
         return false;
     }
 
+    /**
+     * @return The liquid state at the given position, packed as by {@link LiquidData#toByte()}
+     */
+    public byte getRawLiquid(int x, int y, int z) {
+        if (!blockRegion.encompasses(x, y, z)) {
+            return 0;
+        }
+
+        int chunkIndex = relChunkIndex(x, y, z);
+        return chunks[chunkIndex].getRawLiquid(TeraMath.calcBlockPosX(x, chunkFilterSize.x), TeraMath.calcBlockPosY(y), TeraMath.calcBlockPosZ(z, chunkFilterSize.z));
+    }
+
+    public boolean setRawLiquid(int x, int y, int z, byte newState, byte oldState) {
+        if (blockRegion.encompasses(x, y, z)) {
+            int chunkIndex = relChunkIndex(x, y, z);
+            return chunks[chunkIndex].setRawLiquid(TeraMath.calcBlockPosX(x, chunkFilterSize.x), TeraMath.calcBlockPosY(y), TeraMath.calcBlockPosZ(z, chunkFilterSize.z), newState, oldState);
+        }
+        return false;
+    }
+
     public void setLight(Vector3i pos, byte light) {
         setLight(pos.x, pos.y, pos.z, light);
     }
@@ -232,7 +282,7 @@ public class WorldView {
     }
 
     int relChunkIndex(int x, int y, int z) {
-        return TeraMath.calcChunkPosX(x, chunkPower.x) + offset.x + chunkRegion.size().x * (TeraMath.calcChunkPosZ(z, chunkPower.z) + offset.z);
+        return TeraMath.calcChunkPosX(x, chunkPower.x) + offset.x + chunkRegionWidth * (TeraMath.calcChunkPosZ(z, chunkPower.z) + offset.z);
     }
 
     public void setChunkSize(Vector3i chunkSize) {
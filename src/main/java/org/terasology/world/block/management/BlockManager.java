@@ -112,6 +112,14 @@ public class BlockManager {
     }
 
     public void load(Map<String, Byte> knownBlockMappings) {
+        load(knownBlockMappings, true);
+    }
+
+    /**
+     * @param knownBlockMappings The block ids of the world, by block uri
+     * @param buildAtlas         Whether to build the texture atlas, which needs an OpenGL context
+     */
+    public void load(Map<String, Byte> knownBlockMappings, boolean buildAtlas) {
         reset();
         for (Map.Entry<String, Byte> entry : knownBlockMappings.entrySet()) {
             idByUri.put(new BlockUri(entry.getKey()), (byte) entry.getValue());
@@ -129,7 +137,9 @@ public class BlockManager {
         for (BlockLoader.ShapelessFamily shapelessFamily : blockDefinitions.shapelessDefinitions) {
             addShapelessBlockFamily(shapelessFamily.uri, shapelessFamily.categories);
         }
-        blockLoader.buildAtlas();
+        if (buildAtlas) {
+            blockLoader.buildAtlas();
+        }
         bindBlocks(knownBlockMappings);
     }
 
@@ -35,6 +35,7 @@ import org.terasology.world.chunks.blockdata.TeraArrays;
 import org.terasology.world.chunks.blockdata.TeraDenseArray4Bit;
 import org.terasology.world.chunks.blockdata.TeraDenseArray8Bit;
 import org.terasology.world.chunks.deflate.TeraDeflator;
+import org.terasology.world.chunks.deflate.TeraPaletteDeflator;
 import org.terasology.world.chunks.deflate.TeraStandardDeflator;
 import org.terasology.world.liquid.LiquidData;
 
@@ -280,6 +281,10 @@ public class Chunk implements Externalizable {
         return BlockManager.getInstance().getBlock((byte) blockData.get(x, y, z));
     }
 
+    public byte getBlockId(int x, int y, int z) {
+        return (byte) blockData.get(x, y, z);
+    }
+
     public boolean setBlock(int x, int y, int z, Block block) {
         int oldValue = blockData.set(x, y, z, block.getId());
         if (oldValue != block.getId()) {
@@ -368,6 +373,17 @@ public class Chunk implements Externalizable {
         return new LiquidData((byte) extraData.get(x, y, z));
     }
 
+    /**
+     * @return The liquid state at the given position, packed as by {@link LiquidData#toByte()}
+     */
+    public byte getRawLiquid(int x, int y, int z) {
+        return (byte) extraData.get(x, y, z);
+    }
+
+    public boolean setRawLiquid(int x, int y, int z, byte newState, byte oldState) {
+        return extraData.set(x, y, z, newState, oldState);
+    }
+
     public Vector3i getChunkWorldPos() {
         return new Vector3i(getChunkWorldPosX(), getChunkWorldPosY(), getChunkWorldPosZ());
     }
@@ -448,7 +464,7 @@ public class Chunk implements Externalizable {
         lock();
         try {
             AdvancedConfig config = CoreRegistry.get(org.terasology.config.Config.class).getAdvanced();
-            final TeraDeflator def = new TeraStandardDeflator();
+            final TeraDeflator def = config.isChunkPaletteDeflationEnabled() ? new TeraPaletteDeflator() : new TeraStandardDeflator();
 
             if (config.isChunkDeflationLoggingEnabled()) {
                 int blocksSize = blockData.getEstimatedMemoryConsumptionInBytes();
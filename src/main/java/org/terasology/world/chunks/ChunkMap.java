@@ -0,0 +1,219 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.chunks;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.terasology.math.Vector3i;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A concurrent map of chunks keyed by their position packed into a long.
+ * <p/>
+ * Lookups neither lock nor allocate, which matters because chunks are looked up by position at very high rates
+ * by world views, lighting, liquids and tessellation. Modifications are synchronized and replace the immutable
+ * bucket chains they touch, so readers always see a consistent chain.
+ * <p/>
+ * Positions are packed with 28 bits for x and z and 8 bits for y. Iteration is weakly consistent, like the
+ * iterators of {@code ConcurrentHashMap}.
+ */
+public class ChunkMap implements Iterable<Chunk> {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private static final int HORIZONTAL_BITS = 28;
+    private static final int VERTICAL_BITS = 8;
+    private static final long HORIZONTAL_MASK = (1L << HORIZONTAL_BITS) - 1;
+    private static final long VERTICAL_MASK = (1L << VERTICAL_BITS) - 1;
+
+    private volatile AtomicReferenceArray<Node> table;
+    private volatile int size;
+
+    public ChunkMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ChunkMap(int initialCapacity) {
+        Preconditions.checkArgument(initialCapacity > 0, "The parameter 'initialCapacity' must be greater than zero");
+        table = new AtomicReferenceArray<Node>(Integer.highestOneBit(Math.max(initialCapacity - 1, 1)) << 1);
+    }
+
+    /**
+     * Packs a chunk position into the key used by this map.
+     */
+    public static long pack(int x, int y, int z) {
+        return ((x & HORIZONTAL_MASK) << (HORIZONTAL_BITS + VERTICAL_BITS)) | ((y & VERTICAL_MASK) << HORIZONTAL_BITS) | (z & HORIZONTAL_MASK);
+    }
+
+    public Chunk get(int x, int y, int z) {
+        long key = pack(x, y, z);
+        AtomicReferenceArray<Node> current = table;
+        for (Node node = current.get(indexFor(key, current.length())); node != null; node = node.next) {
+            if (node.key == key) {
+                return node.chunk;
+            }
+        }
+        return null;
+    }
+
+    public Chunk get(Vector3i pos) {
+        return get(pos.x, pos.y, pos.z);
+    }
+
+    public boolean containsKey(int x, int y, int z) {
+        return get(x, y, z) != null;
+    }
+
+    public boolean containsKey(Vector3i pos) {
+        return get(pos.x, pos.y, pos.z) != null;
+    }
+
+    /**
+     * Adds the chunk at its position unless there already is a chunk.
+     *
+     * @return The chunk already in the map, or null if the chunk was added
+     */
+    public synchronized Chunk putIfAbsent(Chunk chunk) {
+        Vector3i pos = chunk.getPos();
+        Chunk existing = get(pos.x, pos.y, pos.z);
+        if (existing != null) {
+            return existing;
+        }
+        if (size + 1 > table.length() * LOAD_FACTOR) {
+            resize();
+        }
+        long key = pack(pos.x, pos.y, pos.z);
+        int index = indexFor(key, table.length());
+        table.set(index, new Node(key, chunk, table.get(index)));
+        size++;
+        return null;
+    }
+
+    /**
+     * @return The removed chunk, or null if there was no chunk at the given position
+     */
+    public synchronized Chunk remove(Vector3i pos) {
+        long key = pack(pos.x, pos.y, pos.z);
+        int index = indexFor(key, table.length());
+        Node first = table.get(index);
+        Node node = first;
+        while (node != null && node.key != key) {
+            node = node.next;
+        }
+        if (node == null) {
+            return null;
+        }
+        // Copy the nodes in front of the removed one, so concurrent readers keep a consistent chain
+        Node chain = node.next;
+        for (Node n = first; n != node; n = n.next) {
+            chain = new Node(n.key, n.chunk, chain);
+        }
+        table.set(index, chain);
+        size--;
+        return node.chunk;
+    }
+
+    public synchronized void clear() {
+        table = new AtomicReferenceArray<Node>(table.length());
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public Iterator<Chunk> iterator() {
+        return new ChunkIterator(table);
+    }
+
+    private void resize() {
+        AtomicReferenceArray<Node> oldTable = table;
+        AtomicReferenceArray<Node> newTable = new AtomicReferenceArray<Node>(oldTable.length() << 1);
+        for (int i = 0; i < oldTable.length(); i++) {
+            for (Node node = oldTable.get(i); node != null; node = node.next) {
+                int index = indexFor(node.key, newTable.length());
+                newTable.set(index, new Node(node.key, node.chunk, newTable.get(index)));
+            }
+        }
+        table = newTable;
+    }
+
+    private static int indexFor(long key, int length) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (length - 1);
+    }
+
+    private static class Node {
+        private final long key;
+        private final Chunk chunk;
+        private final Node next;
+
+        public Node(long key, Chunk chunk, Node next) {
+            this.key = key;
+            this.chunk = chunk;
+            this.next = next;
+        }
+    }
+
+    private static class ChunkIterator implements Iterator<Chunk> {
+        private final AtomicReferenceArray<Node> table;
+        private int index;
+        private Node next;
+
+        public ChunkIterator(AtomicReferenceArray<Node> table) {
+            this.table = table;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Chunk next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Chunk chunk = next.chunk;
+            next = next.next;
+            if (next == null) {
+                advance();
+            }
+            return chunk;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private void advance() {
+            while (next == null && index < table.length()) {
+                next = table.get(index++);
+            }
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.chunks;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.math.Region3i;
+import org.terasology.math.Vector3i;
+import org.terasology.world.WorldView;
+import org.terasology.world.generator.core.ChunkGenerationStatistics;
+import org.terasology.world.generator.core.ChunkGeneratorManager;
+import org.terasology.world.lighting.InternalLightProcessor;
+import org.terasology.world.lighting.LightPropagator;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Generates and stores an area of chunks without a running game, so a server can be warmed up before players
+ * join.
+ * <p/>
+ * The chunks go through the same stages as in the {@link LocalChunkProvider}, but stage by stage for a band of
+ * the area at a time: a stage can only run for a chunk once its neighbours went through the previous stage, so
+ * every stage covers a ring of chunks less than the one before. The chunks of the requested area end up complete,
+ * the chunks around it are stored in the state they reached and are finished by the game when it needs them.
+ * Chunks which are already in the store are loaded instead of generated.
+ * <p/>
+ * The bands run along the x axis. Once a band is done, the chunks no later band reaches are put into the store
+ * and dropped, so only a few bands of chunks are kept in memory however large the area is.
+ */
+public class ChunkPregenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkPregenerator.class);
+
+    /* The number of chunk columns along the x axis completed per band */
+    private static final int BAND_WIDTH = 8;
+    /* How far the stages of a band reach beyond it, the generation stage reaching furthest */
+    private static final int STAGE_MARGIN = 4;
+
+    private final ChunkGeneratorManager generator;
+    private final ChunkStore store;
+    private final int threads;
+
+    private final ChunkMap chunks = new ChunkMap();
+    private final PregeneratedChunkProvider provider = new PregeneratedChunkProvider();
+    private int storedChunks;
+
+    public ChunkPregenerator(ChunkGeneratorManager generator, ChunkStore store, int threads) {
+        Preconditions.checkArgument(threads > 0, "The parameter 'threads' must be greater than zero");
+        this.generator = generator;
+        this.store = store;
+        this.threads = threads;
+    }
+
+    /**
+     * Generates the chunks of the given area and puts them into the store, along with the chunks around the
+     * area which were needed to complete it.
+     *
+     * @param area The area in chunk positions
+     */
+    public void generate(Region3i area) {
+        ChunkGenerationStatistics statistics = generator.getStatistics();
+        statistics.reset();
+        storedChunks = 0;
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("Chunk-Pregeneration-%d").build());
+        try {
+            int bands = (area.size().x + BAND_WIDTH - 1) / BAND_WIDTH;
+            for (int band = 0; band < bands; band++) {
+                int minX = area.min().x + band * BAND_WIDTH;
+                int maxX = Math.min(minX + BAND_WIDTH - 1, area.max().x);
+                logger.info("Band {} of {}", band + 1, bands);
+                generateBand(executor, Region3i.createFromMinMax(new Vector3i(minX, area.min().y, area.min().z), new Vector3i(maxX, area.max().y, area.max().z)));
+
+                // The next band only reaches back to the chunks its stages reach from its first column on
+                storeChunksBefore(maxX + 1 - STAGE_MARGIN, statistics);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        storeChunksBefore(Integer.MAX_VALUE, statistics);
+
+        double seconds = (System.nanoTime() - start) / 1000000000.0;
+        logger.info("Pregenerated {} chunks in {} s ({} chunks/s), {} of them newly generated", storedChunks, String.format("%.1f", seconds),
+                String.format("%.1f", storedChunks / seconds), statistics.getChunkCount());
+        for (String stage : statistics.getStageNames()) {
+            logger.info("  {}: {} ms per chunk, {} ms in total", stage, String.format("%.2f", statistics.getAverageMillis(stage)),
+                    String.format("%.0f", statistics.getTotalMillis(stage)));
+        }
+    }
+
+    /**
+     * Runs the stages for the chunks of the band and the chunks around it, and completes the chunks of the band.
+     * Chunks which went through a stage for an earlier band are not processed again.
+     */
+    private void generateBand(ExecutorService executor, Region3i band) {
+        runStage(executor, band.expand(new Vector3i(STAGE_MARGIN, 0, STAGE_MARGIN)), new Stage("Generation") {
+            @Override
+            public void process(Vector3i pos) {
+                if (!chunks.containsKey(pos)) {
+                    Chunk chunk = store.contains(pos) ? store.get(pos) : generator.generateChunk(pos);
+                    chunks.putIfAbsent(chunk);
+                }
+            }
+        });
+        runStage(executor, band.expand(new Vector3i(3, 0, 3)), new Stage("Adjacency generation") {
+            @Override
+            public void process(Vector3i pos) {
+                WorldView view = WorldView.createLocalView(pos, provider);
+                view.lock();
+                try {
+                    Chunk chunk = chunks.get(pos);
+                    if (chunk.getChunkState() == Chunk.State.ADJACENCY_GENERATION_PENDING) {
+                        generator.secondPassChunk(pos, view);
+                        chunk.setChunkState(Chunk.State.INTERNAL_LIGHT_GENERATION_PENDING);
+                    }
+                } finally {
+                    view.unlock();
+                }
+            }
+        });
+        runStage(executor, band.expand(new Vector3i(2, 0, 2)), new Stage("Internal lighting") {
+            @Override
+            public void process(Vector3i pos) {
+                Chunk chunk = chunks.get(pos);
+                if (chunk.getChunkState() == Chunk.State.INTERNAL_LIGHT_GENERATION_PENDING) {
+                    InternalLightProcessor.generateInternalLighting(chunk);
+                    chunk.setChunkState(Chunk.State.LIGHT_PROPAGATION_PENDING);
+                }
+            }
+        });
+        runStage(executor, band.expand(new Vector3i(1, 0, 1)), new Stage("Light propagation") {
+            @Override
+            public void process(Vector3i pos) {
+                WorldView view = WorldView.createLocalView(pos, provider);
+                view.lock();
+                try {
+                    Chunk chunk = chunks.get(pos);
+                    if (chunk.getChunkState() == Chunk.State.LIGHT_PROPAGATION_PENDING) {
+                        new LightPropagator(view).propagateOutOfTargetChunk();
+                        chunk.setChunkState(Chunk.State.FULL_LIGHT_CONNECTIVITY_PENDING);
+                    }
+                } finally {
+                    view.unlock();
+                }
+            }
+        });
+        for (Vector3i pos : band) {
+            Chunk chunk = chunks.get(pos);
+            if (chunk.getChunkState() == Chunk.State.FULL_LIGHT_CONNECTIVITY_PENDING) {
+                chunk.setChunkState(Chunk.State.COMPLETE);
+            }
+        }
+    }
+
+    /**
+     * Puts the chunks below the given x position into the store and drops them.
+     */
+    private void storeChunksBefore(int x, ChunkGenerationStatistics statistics) {
+        List<Chunk> finished = Lists.newArrayList();
+        for (Chunk chunk : chunks) {
+            if (chunk.getPos().x < x) {
+                finished.add(chunk);
+            }
+        }
+        for (Chunk chunk : finished) {
+            long storeStart = System.nanoTime();
+            store.put(chunk);
+            statistics.record("Storing", System.nanoTime() - storeStart);
+            chunks.remove(chunk.getPos());
+            storedChunks++;
+        }
+    }
+
+    /**
+     * Runs the stage for all positions of the region and waits until it is done for all of them.
+     */
+    private void runStage(ExecutorService executor, Region3i region, final Stage stage) {
+        logger.debug("{} for {} chunks", stage.name, region.size().x * region.size().y * region.size().z);
+        List<Future<?>> tasks = Lists.newArrayList();
+        for (final Vector3i pos : region) {
+            tasks.add(executor.submit(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    long start = System.nanoTime();
+                    stage.process(pos);
+                    generator.getStatistics().record(stage.name, System.nanoTime() - start);
+                    return null;
+                }
+            }));
+        }
+        Throwable failure = null;
+        for (Future<?> task : tasks) {
+            try {
+                Uninterruptibles.getUninterruptibly(task);
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            }
+        }
+        if (failure != null) {
+            throw Throwables.propagate(failure);
+        }
+    }
+
+    private abstract static class Stage {
+        private final String name;
+
+        public Stage(String name) {
+            this.name = name;
+        }
+
+        public abstract void process(Vector3i pos);
+    }
+
+    /**
+     * Provides the chunks of the pregenerator to the world views of the stages.
+     */
+    private class PregeneratedChunkProvider implements ChunkProvider {
+
+        @Override
+        public void setWorldEntity(EntityRef entity) {
+        }
+
+        @Override
+        public void addRegionEntity(EntityRef entity, int distance) {
+        }
+
+        @Override
+        public void removeRegionEntity(EntityRef entity) {
+        }
+
+        @Override
+        public void update() {
+        }
+
+        @Override
+        public boolean isChunkAvailable(Vector3i pos) {
+            return chunks.containsKey(pos);
+        }
+
+        @Override
+        public boolean isChunkAvailable(int x, int y, int z) {
+            return chunks.containsKey(x, y, z);
+        }
+
+        @Override
+        public Chunk getChunk(int x, int y, int z) {
+            return chunks.get(x, y, z);
+        }
+
+        @Override
+        public Chunk getChunk(Vector3i chunkPos) {
+            return chunks.get(chunkPos);
+        }
+
+        @Override
+        public void dispose() {
+            chunks.clear();
+        }
+
+        @Override
+        public float size() {
+            return chunks.size();
+        }
+    }
+}
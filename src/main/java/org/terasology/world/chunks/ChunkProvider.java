@@ -56,6 +56,14 @@ public interface ChunkProvider {
      */
     public boolean isChunkAvailable(Vector3i pos);
 
+    /**
+     * @param x The chunk position on the x-axis
+     * @param y The chunk position on the y-axis
+     * @param z The chunk position on the z-axis
+     * @return Whether this chunk is readily available - does not need to be built or remotely retrieved
+     */
+    public boolean isChunkAvailable(int x, int y, int z);
+
     /**
      * Returns the chunk at the given position if possible.
      *
@@ -16,11 +16,10 @@
 
 package org.terasology.world.chunks;
 
-import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.PriorityBlockingQueue;
@@ -44,12 +43,16 @@ import org.terasology.world.lighting.LightPropagator;
 import org.terasology.world.WorldView;
 import org.terasology.world.generator.core.ChunkGeneratorManager;
 import org.terasology.world.localChunkProvider.AbstractChunkTask;
+import org.terasology.world.localChunkProvider.ChunkPipeline;
 import org.terasology.world.localChunkProvider.ChunkRequest;
 import org.terasology.world.localChunkProvider.ChunkTask;
+import org.terasology.world.localChunkProvider.ChunkTaskQueue;
+import org.terasology.world.chunks.store.ChunkStoreWriteBehind;
 import org.terasology.world.lighting.InternalLightProcessor;
 import org.terasology.world.localChunkProvider.ShutdownTask;
 
 import com.google.common.base.Objects;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
@@ -60,13 +63,14 @@ public class LocalChunkProvider implements ChunkProvider {
     private static final int CACHE_SIZE = (int) (2 * Runtime.getRuntime().maxMemory() / 1048576);
     private static final int REQUEST_CHUNK_THREADS = 1;
     private static final int CHUNK_PROCESSING_THREADS = 8;
-    private static final Vector3i LOCAL_REGION_EXTENTS = new Vector3i(1, 0, 1);
+    private static final int WRITE_BEHIND_QUEUE_SIZE = 64;
+    private static final Vector3i KEEP_REGION_EXTENTS = new Vector3i(4, 0, 4);
 
     private static final Logger logger = LoggerFactory.getLogger(LocalChunkProvider.class);
 
-    private ChunkStore farStore;
+    private ChunkStoreWriteBehind farStore;
 
-    private BlockingQueue<ChunkTask> chunkTasksQueue;
+    private ChunkTaskQueue chunkTasksQueue;
     private BlockingQueue<ChunkRequest> reviewChunkQueue;
     private ExecutorService reviewThreads;
     private ExecutorService chunkProcessingThreads;
@@ -74,15 +78,18 @@ public class LocalChunkProvider implements ChunkProvider {
 
     private Set<CacheRegion> regions = Sets.newHashSet();
 
-    private ConcurrentMap<Vector3i, Chunk> nearCache = Maps.newConcurrentMap();
+    private final ChunkMap nearCache = new ChunkMap();
+    private final ChunkPipeline pipeline = new ChunkPipeline(new PipelineHandler());
     private final Set<Vector3i> preparingChunks = Sets.newSetFromMap(Maps.<Vector3i, Boolean>newConcurrentMap());
+    /* Positions which left the keep region of a cache region, only accessed from the main thread */
+    private final Set<Vector3i> evictionCandidates = Sets.newLinkedHashSet();
     
     private EntityRef worldEntity = EntityRef.NULL;
 
     private ReadWriteLock regionLock = new ReentrantReadWriteLock();
 
     public LocalChunkProvider(ChunkStore farStore, ChunkGeneratorManager generator) {
-        this.farStore = farStore;
+        this.farStore = new ChunkStoreWriteBehind(farStore, WRITE_BEHIND_QUEUE_SIZE);
         this.generator = generator;
         
         logger.info("CACHE_SIZE = {} for nearby chunks", CACHE_SIZE);
@@ -100,11 +107,6 @@ public class LocalChunkProvider implements ChunkProvider {
                         try {
                             ChunkRequest request = reviewChunkQueue.take();
                             switch (request.getType()) {
-                                case REVIEW:
-                                    for (Vector3i pos : request.getRegion()) {
-                                        checkState(pos);
-                                    }
-                                    break;
                                 case PRODUCE:
                                     for (Vector3i pos : request.getRegion()) {
                                         checkOrCreateChunk(pos);
@@ -125,7 +127,7 @@ public class LocalChunkProvider implements ChunkProvider {
             });
         }
 
-        chunkTasksQueue = new PriorityBlockingQueue<ChunkTask>(128, new ChunkTaskRelevanceComparator());
+        chunkTasksQueue = new ChunkTaskQueue();
         chunkProcessingThreads = Executors.newFixedThreadPool(CHUNK_PROCESSING_THREADS);
         for (int i = 0; i < CHUNK_PROCESSING_THREADS; ++i) {
             chunkProcessingThreads.submit(new Runnable() {
@@ -162,8 +164,9 @@ public class LocalChunkProvider implements ChunkProvider {
         CacheRegion region = new CacheRegion(entity, distance);
         regionLock.writeLock().lock();
         try {
-            regions.remove(region);
+            removeRegion(region);
             regions.add(region);
+            updateTaskRegions();
         } finally  {
             regionLock.writeLock().unlock();
         }
@@ -174,69 +177,153 @@ public class LocalChunkProvider implements ChunkProvider {
     public void removeRegionEntity(EntityRef entity) {
         regionLock.writeLock().lock();
         try {
-            regions.remove(new CacheRegion(entity, 0));
+            removeRegion(new CacheRegion(entity, 0));
+            updateTaskRegions();
         } finally {
             regionLock.writeLock().unlock();
         }
     }
 
+    private void removeRegion(CacheRegion region) {
+        Iterator<CacheRegion> iterator = regions.iterator();
+        while (iterator.hasNext()) {
+            CacheRegion oldRegion = iterator.next();
+            if (oldRegion.equals(region)) {
+                iterator.remove();
+                for (Vector3i pos : oldRegion.getKeepRegion()) {
+                    evictionCandidates.add(pos);
+                }
+            }
+        }
+    }
+
+    /**
+     * Hands the current keep regions and their centers to the task queue, which reprioritizes the queued tasks
+     * and cancels those for chunks outside of all keep regions.
+     */
+    private void updateTaskRegions() {
+        List<Region3i> keepRegions = Lists.newArrayListWithCapacity(regions.size());
+        List<Vector3i> centers = Lists.newArrayListWithCapacity(regions.size());
+        for (CacheRegion region : regions) {
+            if (!region.getKeepRegion().isEmpty()) {
+                keepRegions.add(region.getKeepRegion());
+                centers.add(new Vector3i(region.center));
+            }
+        }
+        chunkTasksQueue.setRegions(keepRegions, centers);
+    }
+
     @Override
     public void update() {
         regionLock.readLock().lock();
         try {
+            boolean regionsMoved = false;
             for (CacheRegion cacheRegion : regions) {
                 cacheRegion.update();
                 if (cacheRegion.isDirty()) {
+                    regionsMoved = true;
                     cacheRegion.setUpToDate();
                     reviewChunkQueue.offer(new ChunkRequest(ChunkRequest.RequestType.PRODUCE, cacheRegion.getRegion().expand(new Vector3i(2, 0, 2))));
+                    Region3i oldKeepRegion = cacheRegion.getKeepRegion();
+                    Region3i newKeepRegion = cacheRegion.updateKeepRegion();
+                    for (Vector3i pos : oldKeepRegion) {
+                        if (!newKeepRegion.encompasses(pos)) {
+                            evictionCandidates.add(pos);
+                        }
+                    }
                 }
             }
+            if (regionsMoved) {
+                updateTaskRegions();
+            }
 
             PerformanceMonitor.startActivity("Review cache size");
             if (nearCache.size() > CACHE_SIZE) {
                 logger.debug("Compacting cache");
-                Iterator<Vector3i> iterator = nearCache.keySet().iterator();
-                while (iterator.hasNext()) {
-                    Vector3i pos = iterator.next();
-                    boolean keep = false;
-                    for (CacheRegion region : regions) {
-                        if (region.getRegion().expand(new Vector3i(4, 0, 4)).encompasses(pos)) {
-                            keep = true;
-                            break;
-                        }
-                    }
-                    if (!keep) {
-                        // TODO: need some way to not dispose chunks being edited or processed (or do so safely)
-                        Chunk chunk = nearCache.get(pos);
-                        if (chunk.isLocked()) {
-                            continue;
-                        }
-                        chunk.lock();
-                        try {
-                            farStore.put(chunk);
-                            iterator.remove();
-                            chunk.dispose();
-                        } finally {
-                            chunk.unlock();
-                        }
-                    }
-
-                }
+                evictChunks();
+            } else if (evictionCandidates.size() > nearCache.size()) {
+                pruneEvictionCandidates();
             }
+            PerformanceMonitor.setValue("Chunk write queue", farStore.getQueueDepth());
+            PerformanceMonitor.setValue("Chunk flush latency (ms)", farStore.getAverageFlushLatency());
+            PerformanceMonitor.setValue("Chunk write time (ms)", farStore.getAverageWriteTime());
             PerformanceMonitor.endActivity();
+            pipeline.updateMetrics();
+            generator.getStatistics().updateMetrics();
         } finally {
             regionLock.readLock().unlock();
         }
     }
 
+    /**
+     * Hands the chunks which left the keep region of every cache region to the write-behind store. Only the
+     * eviction candidates are visited, and eviction stops early while the write-behind queue is full.
+     */
+    private void evictChunks() {
+        Iterator<Vector3i> iterator = evictionCandidates.iterator();
+        while (iterator.hasNext() && farStore.getRemainingCapacity() > 0) {
+            Vector3i pos = iterator.next();
+            if (isInKeepRegion(pos)) {
+                iterator.remove();
+                continue;
+            }
+            Chunk chunk = nearCache.get(pos);
+            if (chunk == null) {
+                if (!preparingChunks.contains(pos)) {
+                    iterator.remove();
+                }
+                continue;
+            }
+            // TODO: need some way to not dispose chunks being edited or processed (or do so safely)
+            if (chunk.isLocked()) {
+                continue;
+            }
+            chunk.lock();
+            try {
+                if (farStore.offer(chunk)) {
+                    pipeline.chunkRemoved(pos);
+                    nearCache.remove(pos);
+                    iterator.remove();
+                    chunk.dispose();
+                }
+            } finally {
+                chunk.unlock();
+            }
+        }
+    }
+
+    private void pruneEvictionCandidates() {
+        Iterator<Vector3i> iterator = evictionCandidates.iterator();
+        while (iterator.hasNext()) {
+            Vector3i pos = iterator.next();
+            if (!nearCache.containsKey(pos) && !preparingChunks.contains(pos) || isInKeepRegion(pos)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private boolean isInKeepRegion(Vector3i pos) {
+        for (CacheRegion region : regions) {
+            if (region.getKeepRegion().encompasses(pos)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public boolean isChunkAvailable(Vector3i pos) {
         return nearCache.containsKey(pos);
     }
 
+    @Override
+    public boolean isChunkAvailable(int x, int y, int z) {
+        return nearCache.containsKey(x, y, z);
+    }
+
     @Override
     public Chunk getChunk(int x, int y, int z) {
-        return getChunk(new Vector3i(x, y, z));
+        return nearCache.get(x, y, z);
     }
 
     @Override
@@ -265,11 +352,12 @@ public class LocalChunkProvider implements ChunkProvider {
             logger.warn("Interrupted awaiting chunk thread termination");
         }
 
-        for (Chunk chunk : nearCache.values()) {
+        for (Chunk chunk : nearCache) {
             farStore.put(chunk);
             chunk.dispose();
         }
         nearCache.clear();
+        farStore.shutdown();
     }
 
     @Override
@@ -278,231 +366,217 @@ public class LocalChunkProvider implements ChunkProvider {
     }
 
     private void checkOrCreateChunk(Vector3i chunkPos) {
-        Chunk chunk = getChunk(chunkPos);
-        if (chunk == null) {
+        if (getChunk(chunkPos) == null) {
             PerformanceMonitor.startActivity("Check chunk in cache");
             if (preparingChunks.add(chunkPos)) {
                 if (farStore.contains(chunkPos)) {
                     chunkTasksQueue.offer(new AbstractChunkTask(chunkPos, this) {
                         @Override
                         public void enact() {
-                            Chunk chunk = farStore.get(getPosition());
-                            if (nearCache.putIfAbsent(getPosition(), chunk) != null) {
-                                logger.warn("Chunk {} is already in the near cache", getPosition());
-                            }
+                            addToCache(farStore.get(getPosition()));
+                        }
+
+                        @Override
+                        public void cancel() {
                             preparingChunks.remove(getPosition());
-                            if (chunk.getChunkState() == Chunk.State.COMPLETE) {
-                                for (Vector3i adjPos : Region3i.createFromCenterExtents(getPosition(), LOCAL_REGION_EXTENTS)) {
-                                    checkChunkReady(adjPos);
-                                }
-                            }
-                            reviewChunkQueue.offer(new ChunkRequest(ChunkRequest.RequestType.REVIEW, Region3i.createFromCenterExtents(getPosition(), LOCAL_REGION_EXTENTS)));
                         }
                     });
                 } else {
                     chunkTasksQueue.offer(new AbstractChunkTask(chunkPos, this) {
                         @Override
                         public void enact() {
-                            Chunk chunk = generator.generateChunk(getPosition());
-                            if (nearCache.putIfAbsent(getPosition(), chunk) != null) {
-                                logger.warn("Chunk {} is already in the near cache", getPosition());
-                            }
+                            addToCache(generator.generateChunk(getPosition()));
+                        }
+
+                        @Override
+                        public void cancel() {
                             preparingChunks.remove(getPosition());
-                            reviewChunkQueue.offer(new ChunkRequest(ChunkRequest.RequestType.REVIEW, Region3i.createFromCenterExtents(getPosition(), LOCAL_REGION_EXTENTS)));
                         }
                     });
                 }
             }
             PerformanceMonitor.endActivity();
         } else {
-            checkState(chunk);
+            pipeline.review(chunkPos);
         }
     }
 
-    private void checkState(Vector3i pos) {
-        Chunk chunk = getChunk(pos);
-        if (chunk != null) {
-            checkState(chunk);
+    private void addToCache(Chunk chunk) {
+        if (nearCache.putIfAbsent(chunk) != null) {
+            logger.warn("Chunk {} is already in the near cache", chunk.getPos());
+        } else {
+            pipeline.chunkAdded(chunk.getPos(), chunk.getChunkState());
         }
+        preparingChunks.remove(chunk.getPos());
     }
 
-    private void checkState(Chunk chunk) {
-        switch (chunk.getChunkState()) {
+    /**
+     * Queues the task which advances the chunk out of the given state, called by the pipeline once all
+     * neighbours of the chunk have reached that state.
+     */
+    private void queueStage(Vector3i pos, Chunk.State state, final int generation) {
+        switch (state) {
             case ADJACENCY_GENERATION_PENDING:
-                checkReadyForSecondPass(chunk.getPos());
-                break;
-            case INTERNAL_LIGHT_GENERATION_PENDING:
-                checkReadyToDoInternalLighting(chunk.getPos());
-                break;
-            case LIGHT_PROPAGATION_PENDING:
-                checkReadyToPropagateLighting(chunk.getPos());
-                break;
-            case FULL_LIGHT_CONNECTIVITY_PENDING:
-                checkComplete(chunk.getPos());
-                break;
-            default:
-                break;
-        }
-    }
-
-    private void checkReadyForSecondPass(Vector3i pos) {
-        Chunk chunk = getChunk(pos);
-        if (chunk != null && chunk.getChunkState() == Chunk.State.ADJACENCY_GENERATION_PENDING) {
-            for (Vector3i adjPos : Region3i.createFromCenterExtents(pos, LOCAL_REGION_EXTENTS)) {
-                if (!adjPos.equals(pos)) {
-                    Chunk adjChunk = getChunk(adjPos);
-                    if (adjChunk == null) {
-                        return;
-                    }
-                }
-            }
-            logger.debug("Queueing for adjacency generation {}", pos);
-            chunkTasksQueue.offer(new AbstractChunkTask(pos, this) {
-                @Override
-                public void enact() {
-                    WorldView view = WorldView.createLocalView(getPosition(), getProvider());
-                    if (view == null) {
-                        return;
-                    }
-                    view.lock();
-                    try {
-                        if (!view.isValidView()) {
+                logger.debug("Queueing for adjacency generation {}", pos);
+                chunkTasksQueue.offer(new AbstractChunkTask(pos, this) {
+                    @Override
+                    public void enact() {
+                        if (!pipeline.stageStarted(getPosition(), generation)) {
                             return;
                         }
-                        Chunk chunk = getProvider().getChunk(getPosition());
-                        if (chunk.getChunkState() != Chunk.State.ADJACENCY_GENERATION_PENDING) {
+                        WorldView view = WorldView.createLocalView(getPosition(), getProvider());
+                        if (view == null) {
+                            pipeline.stageAborted(getPosition(), generation);
                             return;
                         }
+                        view.lock();
+                        try {
+                            if (!view.isValidView()) {
+                                pipeline.stageAborted(getPosition(), generation);
+                                return;
+                            }
+                            Chunk chunk = getProvider().getChunk(getPosition());
+                            if (chunk.getChunkState() != Chunk.State.ADJACENCY_GENERATION_PENDING) {
+                                pipeline.stageAborted(getPosition(), generation);
+                                return;
+                            }
 
-                        generator.secondPassChunk(getPosition(), view);
-                        chunk.setChunkState(Chunk.State.INTERNAL_LIGHT_GENERATION_PENDING);
-                        reviewChunkQueue.offer(new ChunkRequest(ChunkRequest.RequestType.REVIEW, Region3i.createFromCenterExtents(getPosition(), LOCAL_REGION_EXTENTS)));
-                    } finally {
-                        view.unlock();
+                            generator.secondPassChunk(getPosition(), view);
+                            chunk.setChunkState(Chunk.State.INTERNAL_LIGHT_GENERATION_PENDING);
+                            pipeline.stateChanged(getPosition(), Chunk.State.INTERNAL_LIGHT_GENERATION_PENDING);
+                        } finally {
+                            view.unlock();
+                        }
                     }
-                }
-            });
-        }
-    }
 
-    private void checkReadyToDoInternalLighting(Vector3i pos) {
-        Chunk chunk = getChunk(pos);
-        if (chunk != null && chunk.getChunkState() == Chunk.State.INTERNAL_LIGHT_GENERATION_PENDING) {
-            for (Vector3i adjPos : Region3i.createFromCenterExtents(pos, LOCAL_REGION_EXTENTS)) {
-                if (!adjPos.equals(pos)) {
-                    Chunk adjChunk = getChunk(adjPos);
-                    if (adjChunk == null || adjChunk.getChunkState().compareTo(Chunk.State.INTERNAL_LIGHT_GENERATION_PENDING) < 0) {
-                        return;
-                    }
-                }
-            }
-            logger.debug("Queueing for internal light generation {}", pos);
-            chunkTasksQueue.offer(new AbstractChunkTask(pos, this) {
-                @Override
-                public void enact() {
-                    Chunk chunk = getProvider().getChunk(getPosition());
-                    if (chunk == null) {
-                        return;
+                    @Override
+                    public void cancel() {
+                        pipeline.stageCancelled(getPosition(), generation);
                     }
-
-                    chunk.lock();
-                    try {
-                        if (chunk.isDisposed() || chunk.getChunkState() != Chunk.State.INTERNAL_LIGHT_GENERATION_PENDING) {
+                });
+                break;
+            case INTERNAL_LIGHT_GENERATION_PENDING:
+                logger.debug("Queueing for internal light generation {}", pos);
+                chunkTasksQueue.offer(new AbstractChunkTask(pos, this) {
+                    @Override
+                    public void enact() {
+                        if (!pipeline.stageStarted(getPosition(), generation)) {
+                            return;
+                        }
+                        Chunk chunk = getProvider().getChunk(getPosition());
+                        if (chunk == null) {
+                            pipeline.stageAborted(getPosition(), generation);
                             return;
                         }
-                        InternalLightProcessor.generateInternalLighting(chunk);
-                        chunk.setChunkState(Chunk.State.LIGHT_PROPAGATION_PENDING);
-                        reviewChunkQueue.offer(new ChunkRequest(ChunkRequest.RequestType.REVIEW, Region3i.createFromCenterExtents(getPosition(), LOCAL_REGION_EXTENTS)));
-                    } finally {
-                        chunk.unlock();
-                    }
-                }
-            });
-        }
-    }
 
-    private void checkReadyToPropagateLighting(Vector3i pos) {
-        Chunk chunk = getChunk(pos);
-        if (chunk != null && chunk.getChunkState() == Chunk.State.LIGHT_PROPAGATION_PENDING) {
-            for (Vector3i adjPos : Region3i.createFromCenterExtents(pos, LOCAL_REGION_EXTENTS)) {
-                if (!adjPos.equals(pos)) {
-                    Chunk adjChunk = getChunk(adjPos);
-                    if (adjChunk == null || adjChunk.getChunkState().compareTo(Chunk.State.LIGHT_PROPAGATION_PENDING) < 0) {
-                        return;
+                        chunk.lock();
+                        try {
+                            if (chunk.isDisposed()) {
+                                pipeline.stageAborted(getPosition(), generation);
+                                return;
+                            }
+                            if (chunk.getChunkState() != Chunk.State.INTERNAL_LIGHT_GENERATION_PENDING) {
+                                pipeline.stageAborted(getPosition(), generation);
+                                return;
+                            }
+                            InternalLightProcessor.generateInternalLighting(chunk);
+                            chunk.setChunkState(Chunk.State.LIGHT_PROPAGATION_PENDING);
+                            pipeline.stateChanged(getPosition(), Chunk.State.LIGHT_PROPAGATION_PENDING);
+                        } finally {
+                            chunk.unlock();
+                        }
                     }
-                }
-            }
-            logger.debug("Queueing for light propagation pass {}", pos);
-            chunkTasksQueue.offer(new AbstractChunkTask(pos, this) {
-                @Override
-                public void enact() {
-                    WorldView worldView = WorldView.createLocalView(getPosition(), getProvider());
-                    if (worldView == null) {
-                        return;
+
+                    @Override
+                    public void cancel() {
+                        pipeline.stageCancelled(getPosition(), generation);
                     }
-                    worldView.lock();
-                    try {
-                        if (!worldView.isValidView()) {
+                });
+                break;
+            case LIGHT_PROPAGATION_PENDING:
+                logger.debug("Queueing for light propagation pass {}", pos);
+                chunkTasksQueue.offer(new AbstractChunkTask(pos, this) {
+                    @Override
+                    public void enact() {
+                        if (!pipeline.stageStarted(getPosition(), generation)) {
                             return;
                         }
-                        Chunk chunk = getProvider().getChunk(getPosition());
-                        if (chunk.getChunkState() != Chunk.State.LIGHT_PROPAGATION_PENDING) {
+                        WorldView worldView = WorldView.createLocalView(getPosition(), getProvider());
+                        if (worldView == null) {
+                            pipeline.stageAborted(getPosition(), generation);
                             return;
                         }
+                        worldView.lock();
+                        try {
+                            if (!worldView.isValidView()) {
+                                pipeline.stageAborted(getPosition(), generation);
+                                return;
+                            }
+                            Chunk chunk = getProvider().getChunk(getPosition());
+                            if (chunk.getChunkState() != Chunk.State.LIGHT_PROPAGATION_PENDING) {
+                                pipeline.stageAborted(getPosition(), generation);
+                                return;
+                            }
 
-                        new LightPropagator(worldView).propagateOutOfTargetChunk();
-                        chunk.setChunkState(Chunk.State.FULL_LIGHT_CONNECTIVITY_PENDING);
-                        reviewChunkQueue.offer(new ChunkRequest(ChunkRequest.RequestType.REVIEW, Region3i.createFromCenterExtents(getPosition(), LOCAL_REGION_EXTENTS)));
-                    } finally {
-                        worldView.unlock();
+                            new LightPropagator(worldView).propagateOutOfTargetChunk();
+                            chunk.setChunkState(Chunk.State.FULL_LIGHT_CONNECTIVITY_PENDING);
+                            pipeline.stateChanged(getPosition(), Chunk.State.FULL_LIGHT_CONNECTIVITY_PENDING);
+                        } finally {
+                            worldView.unlock();
+                        }
                     }
-                }
-            });
+
+                    @Override
+                    public void cancel() {
+                        pipeline.stageCancelled(getPosition(), generation);
+                    }
+                });
+                break;
+            case FULL_LIGHT_CONNECTIVITY_PENDING:
+                complete(pos, generation);
+                break;
+            default:
+                break;
         }
     }
 
-    private void checkComplete(Vector3i pos) {
+    private void complete(Vector3i pos, int generation) {
         Chunk chunk = getChunk(pos);
-        if (chunk != null && chunk.getChunkState() == Chunk.State.FULL_LIGHT_CONNECTIVITY_PENDING) {
-            for (Vector3i adjPos : Region3i.createFromCenterExtents(pos, LOCAL_REGION_EXTENTS)) {
-                if (!adjPos.equals(pos)) {
-                    Chunk adjChunk = getChunk(adjPos);
-                    if (adjChunk == null || adjChunk.getChunkState().compareTo(Chunk.State.FULL_LIGHT_CONNECTIVITY_PENDING) < 0) {
-                        return;
-                    }
-                }
-            }
-            logger.debug("Now complete {}", pos);
-            chunk.setChunkState(Chunk.State.COMPLETE);
-            AdvancedConfig config = CoreRegistry.get(org.terasology.config.Config.class).getAdvanced();
-            if (config.isChunkDeflationEnabled()) {
-                if (!chunkTasksQueue.offer(new AbstractChunkTask(pos, this) {
-                    @Override
-                    public void enact() {
-                        Chunk chunk = getChunk(getPosition());
-                        if (chunk != null) {
-                            chunk.deflate();
-                        }
+        if (chunk == null || chunk.getChunkState() != Chunk.State.FULL_LIGHT_CONNECTIVITY_PENDING) {
+            pipeline.stageAborted(pos, generation);
+            return;
+        }
+        logger.debug("Now complete {}", pos);
+        chunk.setChunkState(Chunk.State.COMPLETE);
+        AdvancedConfig config = CoreRegistry.get(org.terasology.config.Config.class).getAdvanced();
+        if (config.isChunkDeflationEnabled()) {
+            if (!chunkTasksQueue.offer(new AbstractChunkTask(pos, this) {
+                @Override
+                public void enact() {
+                    Chunk chunk = getChunk(getPosition());
+                    if (chunk != null) {
+                        chunk.deflate();
                     }
-                })) {
-                    logger.warn("LocalChunkProvider.chunkTasksQueue rejected deflation task for chunk {}", pos);
                 }
-            }
-            for (Vector3i adjPos : Region3i.createFromCenterExtents(pos, LOCAL_REGION_EXTENTS)) {
-                checkChunkReady(adjPos);
+            })) {
+                logger.warn("LocalChunkProvider.chunkTasksQueue rejected deflation task for chunk {}", pos);
             }
         }
+        pipeline.stateChanged(pos, Chunk.State.COMPLETE);
     }
 
-    private void checkChunkReady(Vector3i pos) {
-        if (worldEntity.exists()) {
-            for (Vector3i adjPos : Region3i.createFromCenterExtents(pos, LOCAL_REGION_EXTENTS)) {
-                Chunk chunk = getChunk(adjPos);
-                if (chunk == null || chunk.getChunkState() != Chunk.State.COMPLETE) {
-                    return;
-                }
+    private class PipelineHandler implements ChunkPipeline.Handler {
+
+        @Override
+        public void stageReady(Vector3i pos, Chunk.State state, int generation) {
+            queueStage(pos, state, generation);
+        }
+
+        @Override
+        public void chunkReady(Vector3i pos) {
+            if (worldEntity.exists()) {
+                worldEntity.send(new ChunkReadyEvent(pos));
             }
-            worldEntity.send(new ChunkReadyEvent(pos));
         }
     }
 
@@ -511,6 +585,7 @@ public class LocalChunkProvider implements ChunkProvider {
         private int distance;
         private boolean dirty;
         private Vector3i center = new Vector3i();
+        private Region3i keepRegion = Region3i.EMPTY;
 
         public CacheRegion(EntityRef entity, int distance) {
             this.entity = entity;
@@ -523,6 +598,7 @@ public class LocalChunkProvider implements ChunkProvider {
                 center.set(worldToChunkPos(loc.getWorldPosition()));
                 dirty = true;
             }
+            updateKeepRegion();
         }
 
         public boolean isValid() {
@@ -549,6 +625,20 @@ public class LocalChunkProvider implements ChunkProvider {
             }
         }
 
+        /**
+         * @return The region of chunks which are kept in the near cache for this cache region, as of the last
+         *         call to {@link #updateKeepRegion()}
+         */
+        public Region3i getKeepRegion() {
+            return keepRegion;
+        }
+
+        public Region3i updateKeepRegion() {
+            Region3i region = getRegion();
+            keepRegion = region.isEmpty() ? Region3i.EMPTY : region.expand(KEEP_REGION_EXTENTS);
+            return keepRegion;
+        }
+
         public Region3i getRegion() {
             LocationComponent loc = entity.getComponent(LocationComponent.class);
             if (loc != null) {
@@ -587,34 +677,4 @@ public class LocalChunkProvider implements ChunkProvider {
             return Objects.hashCode(entity);
         }
     }
-
-    private class ChunkTaskRelevanceComparator implements Comparator<ChunkTask> {
-
-        @Override
-        public int compare(ChunkTask o1, ChunkTask o2) {
-            return score(o1.getPosition()) - score(o2.getPosition());
-        }
-
-        private int score(Vector3i chunk) {
-            int score = Integer.MAX_VALUE;
-            // TODO: This isn't thread safe. Fix me
-
-            regionLock.readLock().lock();
-            try {
-                for (CacheRegion region : regions) {
-                    int dist = distFromRegion(chunk, region.center);
-                    if (dist < score) {
-                        score = dist;
-                    }
-                }
-                return score;
-            } finally {
-                regionLock.readLock().unlock();
-            }
-        }
-
-        private int distFromRegion(Vector3i pos, Vector3i regionCenter) {
-            return pos.gridDistance(regionCenter);
-        }
-    }
 }
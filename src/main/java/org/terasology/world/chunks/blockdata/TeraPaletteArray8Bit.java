@@ -0,0 +1,485 @@
+package org.terasology.world.chunks.blockdata;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.terasology.world.chunks.deflate.TeraVisitingDeflator;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * TeraPaletteArray8Bit implements a palette compressed array with elements of 8 bit size.
+ * Its elements are in the range -128 through +127.
+ * <p/>
+ * The array is split into sections of {@link #SECTION_HEIGHT} layers. Each section stores the distinct values
+ * it contains in a palette and packs the palette index of every element into longs, using 0, 1, 2, 4 or 8 bits
+ * per element depending on the size of the palette. A section containing a single value stores no indices at all,
+ * a section containing more than 16 distinct values stores the values directly with 8 bits per element.
+ * <p/>
+ * Setting a value which is not in the palette of its section adds it to the palette, widening the indices of the
+ * section if necessary. Values which are no longer used are removed from the palettes by
+ * {@link org.terasology.world.chunks.deflate.TeraPaletteDeflator TeraPaletteDeflator}.
+ * <p/>
+ * Chunks are read without locking, so the bits, palette and indices of a section are published together as one
+ * immutable {@link Section}. Widening a section or growing its palette replaces the section. Only values already
+ * in the palette are written into the indices of the current section in place.
+ */
+public final class TeraPaletteArray8Bit extends TeraArray {
+
+    public static final int SECTION_HEIGHT = 16;
+
+    private static final int MAX_PALETTE_SIZE = 16;
+    private static final int DIRECT_BITS = 8;
+
+    private AtomicReferenceArray<Section> sections;
+
+    /**
+     * The palette and packed indices of a section. The palette is null if the section stores its values directly,
+     * the indices are null if the section contains a single value.
+     */
+    private static final class Section {
+        private final int bits;
+        private final byte[] palette;
+        private final long[] indices;
+
+        private Section(int bits, byte[] palette, long[] indices) {
+            this.bits = bits;
+            this.palette = palette;
+            this.indices = indices;
+        }
+    }
+
+    private static int bitsFor(int paletteSize) {
+        if (paletteSize <= 1)
+            return 0;
+        if (paletteSize <= 2)
+            return 1;
+        if (paletteSize <= 4)
+            return 2;
+        if (paletteSize <= MAX_PALETTE_SIZE)
+            return 4;
+        return DIRECT_BITS;
+    }
+
+    private static int wordsFor(int sectionSize, int bits) {
+        if (bits == 0)
+            return 0;
+        final int perWord = 64 / bits;
+        return (sectionSize + perWord - 1) / perWord;
+    }
+
+    private static int read(long[] words, int bits, int index) {
+        final int shift = 6 - Integer.numberOfTrailingZeros(bits);
+        final long word = words[index >>> shift];
+        return (int) (word >>> ((index & ((1 << shift) - 1)) * bits)) & ((1 << bits) - 1);
+    }
+
+    private static void write(long[] words, int bits, int index, int value) {
+        final int shift = 6 - Integer.numberOfTrailingZeros(bits);
+        final int offset = (index & ((1 << shift) - 1)) * bits;
+        final long mask = ((1L << bits) - 1) << offset;
+        final int word = index >>> shift;
+        words[word] = (words[word] & ~mask) | (((long) value << offset) & mask);
+    }
+
+    private static int indexOf(byte[] palette, byte value) {
+        for (int i = 0; i < palette.length; i++) {
+            if (palette[i] == value)
+                return i;
+        }
+        return -1;
+    }
+
+    private int sectionCount() {
+        return (getSizeY() + SECTION_HEIGHT - 1) / SECTION_HEIGHT;
+    }
+
+    private int sectionSize(int section) {
+        return Math.min(SECTION_HEIGHT, getSizeY() - section * SECTION_HEIGHT) * getSizeXZ();
+    }
+
+    private int localPos(int x, int y, int z) {
+        return (y % SECTION_HEIGHT) * getSizeXZ() + pos(x, z);
+    }
+
+    /**
+     * Packs the values of a section, building its palette in the order the values first appear.
+     */
+    private Section pack(int size, byte[] values, int offset) {
+        final int[] lookup = new int[256];
+        Arrays.fill(lookup, -1);
+        final byte[] palette = new byte[256];
+        int paletteSize = 0;
+        for (int i = 0; i < size; i++) {
+            final int value = values[offset + i] & 0xFF;
+            if (lookup[value] < 0) {
+                lookup[value] = paletteSize;
+                palette[paletteSize++] = (byte) value;
+            }
+        }
+        final int b = bitsFor(paletteSize);
+        if (b == 0)
+            return new Section(b, Arrays.copyOf(palette, paletteSize), null);
+        if (b == DIRECT_BITS) {
+            for (int i = 0; i < 256; i++) {
+                lookup[i] = i;
+            }
+        }
+        final long[] words = new long[wordsFor(size, b)];
+        for (int i = 0; i < size; i++) {
+            write(words, b, i, lookup[values[offset + i] & 0xFF]);
+        }
+        return new Section(b, b == DIRECT_BITS ? null : Arrays.copyOf(palette, paletteSize), words);
+    }
+
+    /**
+     * Unpacks the values of a section into the given array.
+     */
+    private static void unpack(Section section, int size, byte[] values, int offset) {
+        final int b = section.bits;
+        final byte[] palette = section.palette;
+        if (b == 0) {
+            Arrays.fill(values, offset, offset + size, palette[0]);
+            return;
+        }
+        final long[] words = section.indices;
+        for (int i = 0; i < size; i++) {
+            final int index = read(words, b, i);
+            values[offset + i] = b == DIRECT_BITS ? (byte) index : palette[index];
+        }
+    }
+
+    /**
+     * Creates the successor of a section with a value added to its palette and set at the given position, widening
+     * the indices if the palette does not fit anymore. The indices of the section are never modified.
+     */
+    private Section add(Section section, int size, int local, byte value) {
+        final byte[] palette = section.palette;
+        final int index = palette.length;
+        final int required = bitsFor(index + 1);
+        if (required == DIRECT_BITS || required > section.bits) {
+            final byte[] values = new byte[size];
+            unpack(section, size, values, 0);
+            values[local] = value;
+            if (required == DIRECT_BITS)
+                return repack(size, values, DIRECT_BITS, null);
+            final byte[] grown = Arrays.copyOf(palette, index + 1);
+            grown[index] = value;
+            return repack(size, values, required, grown);
+        }
+        final byte[] grown = Arrays.copyOf(palette, index + 1);
+        grown[index] = value;
+        final long[] words = Arrays.copyOf(section.indices, section.indices.length);
+        write(words, section.bits, local, index);
+        return new Section(section.bits, grown, words);
+    }
+
+    /**
+     * Packs the values of a section with the given number of bits and the given palette, which has to contain all values.
+     */
+    private static Section repack(int size, byte[] values, int b, byte[] palette) {
+        final long[] words = new long[wordsFor(size, b)];
+        for (int i = 0; i < size; i++) {
+            write(words, b, i, b == DIRECT_BITS ? values[i] & 0xFF : indexOf(palette, values[i]));
+        }
+        return new Section(b, palette, words);
+    }
+
+    private void setSections(byte[] bits, byte[][] palettes, long[][] indices) {
+        sections = new AtomicReferenceArray<Section>(bits.length);
+        for (int i = 0; i < bits.length; i++) {
+            sections.set(i, new Section(bits[i], palettes[i], indices[i]));
+        }
+    }
+
+    @Override
+    protected void initialize() {
+        final int count = sectionCount();
+        sections = new AtomicReferenceArray<Section>(count);
+        for (int i = 0; i < count; i++) {
+            sections.set(i, new Section(0, new byte[1], null));
+        }
+    }
+
+    public static class SerializationHandler extends TeraArray.BasicSerializationHandler<TeraPaletteArray8Bit> {
+
+        @Override
+        public boolean canHandle(Class<?> clazz) {
+            return TeraPaletteArray8Bit.class.equals(clazz);
+        }
+
+        @Override
+        protected int internalComputeMinimumBufferSize(TeraPaletteArray8Bit array) {
+            final AtomicReferenceArray<Section> sections = array.sections;
+            int size = 4;
+            for (int i = 0; i < sections.length(); i++) {
+                final Section section = sections.get(i);
+                size += 2;
+                if (section.palette != null)
+                    size += section.palette.length;
+                if (section.indices != null)
+                    size += section.indices.length * 8;
+            }
+            return size;
+        }
+
+        @Override
+        protected void internalSerialize(TeraPaletteArray8Bit array, ByteBuffer buffer) {
+            final AtomicReferenceArray<Section> sections = array.sections;
+            buffer.putInt(sections.length());
+            for (int i = 0; i < sections.length(); i++) {
+                final Section section = sections.get(i);
+                buffer.put((byte) section.bits);
+                final byte[] palette = section.palette;
+                if (palette == null) {
+                    buffer.put((byte) 0);
+                } else {
+                    buffer.put((byte) palette.length);
+                    buffer.put(palette);
+                }
+                final long[] words = section.indices;
+                if (words != null) {
+                    for (long word : words) {
+                        buffer.putLong(word);
+                    }
+                }
+            }
+        }
+
+        @Override
+        protected TeraPaletteArray8Bit internalDeserialize(int sizeX, int sizeY, int sizeZ, ByteBuffer buffer) {
+            final TeraPaletteArray8Bit array = new TeraPaletteArray8Bit(sizeX, sizeY, sizeZ);
+            final int sections = buffer.getInt();
+            Preconditions.checkState(sections == array.sectionCount(), "Illformed buffer. Expected " + array.sectionCount() + " sections but found " + sections);
+            for (int i = 0; i < sections; i++) {
+                final int b = buffer.get();
+                final int paletteSize = buffer.get();
+                byte[] palette = null;
+                if (paletteSize > 0) {
+                    palette = new byte[paletteSize];
+                    buffer.get(palette);
+                }
+                long[] words = null;
+                if (b > 0) {
+                    words = new long[wordsFor(array.sectionSize(i), b)];
+                    for (int j = 0; j < words.length; j++) {
+                        words[j] = buffer.getLong();
+                    }
+                }
+                array.sections.set(i, new Section(b, palette, words));
+            }
+            return array;
+        }
+    }
+
+    public static class Factory implements TeraArray.Factory<TeraPaletteArray8Bit> {
+
+        @Override
+        public Class<TeraPaletteArray8Bit> getArrayClass() {
+            return TeraPaletteArray8Bit.class;
+        }
+
+        @Override
+        public SerializationHandler createSerializationHandler() {
+            return new SerializationHandler();
+        }
+
+        @Override
+        public TeraPaletteArray8Bit create() {
+            return new TeraPaletteArray8Bit();
+        }
+
+        @Override
+        public TeraPaletteArray8Bit create(int sizeX, int sizeY, int sizeZ) {
+            return new TeraPaletteArray8Bit(sizeX, sizeY, sizeZ);
+        }
+    }
+
+    public TeraPaletteArray8Bit() {
+        super();
+    }
+
+    public TeraPaletteArray8Bit(int sizeX, int sizeY, int sizeZ) {
+        super(sizeX, sizeY, sizeZ, true);
+    }
+
+    /**
+     * Creates a palette array from the data of a dense 8-bit array.
+     */
+    public TeraPaletteArray8Bit(int sizeX, int sizeY, int sizeZ, byte[] data) {
+        super(sizeX, sizeY, sizeZ, true);
+        Preconditions.checkNotNull(data);
+        Preconditions.checkArgument(data.length == getSizeXYZ(), "The length of the parameter 'data' has to be " + getSizeXYZ() + " but is " + data.length);
+        for (int i = 0; i < sections.length(); i++) {
+            sections.set(i, pack(sectionSize(i), data, i * SECTION_HEIGHT * getSizeXZ()));
+        }
+    }
+
+    public TeraPaletteArray8Bit(int sizeX, int sizeY, int sizeZ, byte[] bits, byte[][] palettes, long[][] indices) {
+        super(sizeX, sizeY, sizeZ, false);
+        Preconditions.checkNotNull(bits);
+        Preconditions.checkNotNull(palettes);
+        Preconditions.checkNotNull(indices);
+        Preconditions.checkArgument(bits.length == sectionCount(), "The length of the parameter 'bits' has to be " + sectionCount() + " but is " + bits.length);
+        Preconditions.checkArgument(palettes.length == sectionCount(), "The length of the parameter 'palettes' has to be " + sectionCount() + " but is " + palettes.length);
+        Preconditions.checkArgument(indices.length == sectionCount(), "The length of the parameter 'indices' has to be " + sectionCount() + " but is " + indices.length);
+        setSections(bits, palettes, indices);
+    }
+
+    /**
+     * Creates a palette array containing the values of the given array, with the smallest palettes possible.
+     */
+    public TeraPaletteArray8Bit(TeraArray in) {
+        super(Preconditions.checkNotNull(in).getSizeX(), in.getSizeY(), in.getSizeZ(), true);
+        Preconditions.checkArgument(getElementSizeInBits() >= in.getElementSizeInBits(), "Tera arrays are incompatible (this.getElementSizeInBits() = " + getElementSizeInBits() + ", in.getElementSizeInBits() = " + in.getElementSizeInBits() + ")");
+        final byte[] values = new byte[SECTION_HEIGHT * getSizeXZ()];
+        for (int i = 0; i < sections.length(); i++) {
+            final int minY = i * SECTION_HEIGHT;
+            final int maxY = Math.min(getSizeY(), minY + SECTION_HEIGHT);
+            int index = 0;
+            for (int y = minY; y < maxY; y++) {
+                for (int z = 0; z < getSizeZ(); z++) {
+                    for (int x = 0; x < getSizeX(); x++) {
+                        values[index++] = (byte) in.get(x, y, z);
+                    }
+                }
+            }
+            sections.set(i, pack(sectionSize(i), values, 0));
+        }
+    }
+
+    @Override
+    public boolean isSparse() {
+        return true;
+    }
+
+    @Override
+    public TeraArray copy() {
+        final int count = sections.length();
+        final byte[] bitsCopy = new byte[count];
+        final byte[][] palettesCopy = new byte[count][];
+        final long[][] indicesCopy = new long[count][];
+        for (int i = 0; i < count; i++) {
+            final Section section = sections.get(i);
+            bitsCopy[i] = (byte) section.bits;
+            // Palettes are never modified once published
+            palettesCopy[i] = section.palette;
+            if (section.indices != null)
+                indicesCopy[i] = Arrays.copyOf(section.indices, section.indices.length);
+        }
+        return new TeraPaletteArray8Bit(getSizeX(), getSizeY(), getSizeZ(), bitsCopy, palettesCopy, indicesCopy);
+    }
+
+    @Override
+    public TeraArray deflate(TeraVisitingDeflator deflator) {
+        final int count = sections.length();
+        final byte[] bits = new byte[count];
+        final byte[][] palettes = new byte[count][];
+        final long[][] indices = new long[count][];
+        for (int i = 0; i < count; i++) {
+            final Section section = sections.get(i);
+            bits[i] = (byte) section.bits;
+            palettes[i] = section.palette;
+            indices[i] = section.indices;
+        }
+        return Preconditions.checkNotNull(deflator).deflatePaletteArray8Bit(bits, palettes, indices, getSizeX(), getSizeY(), getSizeZ());
+    }
+
+    @Override
+    public int getEstimatedMemoryConsumptionInBytes() {
+        final int count = sections.length();
+        int size = 12 + 4 + 16 + 16 + count * 4 + count * 24;
+        for (int i = 0; i < count; i++) {
+            final Section section = sections.get(i);
+            if (section.palette != null)
+                size += 12 + section.palette.length;
+            if (section.indices != null)
+                size += 16 + section.indices.length * 8;
+        }
+        return size;
+    }
+
+    @Override
+    public int getElementSizeInBits() {
+        return 8;
+    }
+
+    @Override
+    public int get(int x, int y, int z) {
+        final Section section = sections.get(y / SECTION_HEIGHT);
+        final int b = section.bits;
+        if (b == 0)
+            return section.palette[0];
+        final int index = read(section.indices, b, localPos(x, y, z));
+        if (b == DIRECT_BITS)
+            return (byte) index;
+        return section.palette[index];
+    }
+
+    @Override
+    public int set(int x, int y, int z, int value) {
+        final int sectionIndex = y / SECTION_HEIGHT;
+        final Section section = sections.get(sectionIndex);
+        final int local = localPos(x, y, z);
+        final byte v = (byte) value;
+        final int b = section.bits;
+        final int old;
+        if (b == 0) {
+            old = section.palette[0];
+            if (old == v)
+                return old;
+        } else {
+            final int index = read(section.indices, b, local);
+            old = b == DIRECT_BITS ? (byte) index : section.palette[index];
+        }
+        final int index = b == DIRECT_BITS ? v & 0xFF : indexOf(section.palette, v);
+        if (index < 0) {
+            sections.set(sectionIndex, add(section, sectionSize(sectionIndex), local, v));
+        } else {
+            // The value is in the palette of the section, so readers of the section can decode the new index
+            write(section.indices, b, local, index);
+        }
+        return old;
+    }
+
+    @Override
+    public boolean set(int x, int y, int z, int value, int expected) {
+        if (get(x, y, z) == expected) {
+            set(x, y, z, value);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        writeExternalHeader(out);
+        final int count = sections.length();
+        final byte[] bits = new byte[count];
+        final byte[][] palettes = new byte[count][];
+        final long[][] indices = new long[count][];
+        for (int i = 0; i < count; i++) {
+            final Section section = sections.get(i);
+            bits[i] = (byte) section.bits;
+            palettes[i] = section.palette;
+            indices[i] = section.indices;
+        }
+        out.writeObject(bits);
+        out.writeObject(palettes);
+        out.writeObject(indices);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        readExternalHeader(in);
+        final byte[] bits = (byte[]) in.readObject();
+        final byte[][] palettes = (byte[][]) in.readObject();
+        final long[][] indices = (long[][]) in.readObject();
+        setSections(bits, palettes, indices);
+    }
+
+}
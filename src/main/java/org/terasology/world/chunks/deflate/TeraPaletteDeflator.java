@@ -0,0 +1,80 @@
+package org.terasology.world.chunks.deflate;
+
+import java.util.Arrays;
+
+import org.terasology.world.chunks.blockdata.TeraArray;
+import org.terasology.world.chunks.blockdata.TeraPaletteArray8Bit;
+import org.terasology.world.chunks.blockdata.TeraSparseArray8Bit;
+
+/**
+ * TeraPaletteDeflator deflates 8-bit dense and sparse arrays into palette arrays whenever they consume less memory
+ * than the arrays produced by {@link TeraStandardDeflator}. Palette arrays are deflated by removing the values
+ * which are no longer used from their palettes. All other arrays are deflated by the standard deflator.
+ *
+ * @see org.terasology.world.chunks.blockdata.TeraPaletteArray8Bit
+ */
+public class TeraPaletteDeflator extends TeraStandardDeflator {
+
+    public TeraPaletteDeflator() {}
+
+    @Override
+    public TeraArray deflateDenseArray8Bit(final byte[] data, final int rowSize, final int sizeX, final int sizeY, final int sizeZ) {
+        final TeraArray standard = super.deflateDenseArray8Bit(data, rowSize, sizeX, sizeY, sizeZ);
+        final int standardSize = standard != null ? standard.getEstimatedMemoryConsumptionInBytes() : 16 + data.length;
+        final TeraArray palette = new TeraPaletteArray8Bit(sizeX, sizeY, sizeZ, data);
+        if (palette.getEstimatedMemoryConsumptionInBytes() < standardSize)
+            return palette;
+        return standard;
+    }
+
+    @Override
+    public TeraArray deflateSparseArray8Bit(final byte[][] inflated, final byte[] deflated, final byte fill, final int rowSize, final int sizeX, final int sizeY, final int sizeZ) {
+        final TeraArray sparse;
+        final byte[] data = new byte[sizeY * rowSize];
+        if (inflated == null) {
+            sparse = new TeraSparseArray8Bit(sizeX, sizeY, sizeZ, fill);
+            Arrays.fill(data, fill);
+        } else {
+            sparse = new TeraSparseArray8Bit(sizeX, sizeY, sizeZ, inflated, deflated);
+            for (int y = 0; y < sizeY; y++) {
+                if (inflated[y] == null)
+                    Arrays.fill(data, y * rowSize, (y + 1) * rowSize, deflated[y]);
+                else
+                    System.arraycopy(inflated[y], 0, data, y * rowSize, rowSize);
+            }
+        }
+        final TeraArray palette = new TeraPaletteArray8Bit(sizeX, sizeY, sizeZ, data);
+        if (palette.getEstimatedMemoryConsumptionInBytes() < sparse.getEstimatedMemoryConsumptionInBytes())
+            return palette;
+        return null;
+    }
+
+    @Override
+    public TeraArray deflatePaletteArray8Bit(final byte[] bits, final byte[][] palettes, final long[][] indices, final int sizeX, final int sizeY, final int sizeZ) {
+        final boolean[] used = new boolean[256];
+        for (int section = 0; section < bits.length; section++) {
+            final int b = bits[section];
+            if (b == 0)
+                continue;
+            final int size = Math.min(TeraPaletteArray8Bit.SECTION_HEIGHT, sizeY - section * TeraPaletteArray8Bit.SECTION_HEIGHT) * sizeX * sizeZ;
+            final int perWord = 64 / b;
+            final long mask = (1L << b) - 1;
+            Arrays.fill(used, false);
+            int distinct = 0;
+            for (int i = 0; i < size; i++) {
+                final int index = (int) ((indices[section][i / perWord] >>> ((i % perWord) * b)) & mask);
+                if (!used[index]) {
+                    used[index] = true;
+                    ++distinct;
+                }
+            }
+            final boolean compactable = palettes[section] != null ? distinct < palettes[section].length : distinct <= 16;
+            if (compactable) {
+                // Rebuilding the array shrinks the palettes of all sections
+                return new TeraPaletteArray8Bit(new TeraPaletteArray8Bit(sizeX, sizeY, sizeZ, bits, palettes, indices));
+            }
+        }
+        return null;
+    }
+
+}
@@ -192,4 +192,9 @@ public class TeraStandardDeflator extends TeraVisitingDeflator {
         return null;
     }
 
+    @Override
+    public TeraArray deflatePaletteArray8Bit(final byte[] bits, final byte[][] palettes, final long[][] indices, final int sizeX, final int sizeY, final int sizeZ) {
+        return null;
+    }
+
 }
@@ -35,5 +35,8 @@ public abstract class TeraVisitingDeflator extends TeraDeflator {
     public abstract TeraArray deflateSparseArray8Bit(byte[][] inflated, byte[] deflated, byte fill, int rowSize, int sizeX, int sizeY, int sizeZ);
     
     public abstract TeraArray deflateSparseArray4Bit(byte[][] inflated, byte[] deflated, byte fill, int rowSize, int sizeX, int sizeY, int sizeZ);
+    
+    
+    public abstract TeraArray deflatePaletteArray8Bit(byte[] bits, byte[][] palettes, long[][] indices, int sizeX, int sizeY, int sizeZ);
 
 }
\ No newline at end of file
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.chunks.store;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.math.Vector3i;
+import org.terasology.protobuf.ChunksProtobuf;
+import org.terasology.world.chunks.Chunk;
+import org.terasology.world.chunks.ChunkStore;
+import org.terasology.world.chunks.Chunks;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import com.google.protobuf.CodedOutputStream;
+
+/**
+ * Implements a chunk store which groups chunks into region files of {@code RegionFile.REGION_SIZE} by
+ * {@code RegionFile.REGION_SIZE} chunks on disk.
+ * <p/>
+ * Chunks are encoded through {@code Chunks.encode(Chunk)} and deflated before they are written, so the
+ * on-disk representation is the same protobuf encoding used by {@code ChunkStoreProtobuf}.
+ * <p/>
+ * Unlike the in-memory stores this store does not need to be serialized as a whole, every chunk is
+ * persisted as soon as it is put into the store.
+ *
+ * @see org.terasology.world.chunks.store.RegionFile
+ */
+public class ChunkStoreRegionFile implements ChunkStore {
+
+    public static final String REGION_FILE_EXTENSION = ".region";
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkStoreRegionFile.class);
+
+    private final File regionPath;
+    private final ConcurrentMap<Vector3i, RegionFile> regions = Maps.newConcurrentMap();
+
+    public ChunkStoreRegionFile(File regionPath) {
+        this.regionPath = Preconditions.checkNotNull(regionPath, "The parameter 'regionPath' must not be null");
+    }
+
+    public File getRegionPath() {
+        return regionPath;
+    }
+
+    @Override
+    public Chunk get(Vector3i position) {
+        try {
+            final RegionFile region = getRegion(position, false);
+            if (region == null) {
+                return null;
+            }
+            final byte[] data = region.read(RegionFile.getIndex(position.x, position.z));
+            if (data == null) {
+                return null;
+            }
+            final ChunksProtobuf.Chunk message = ChunksProtobuf.Chunk.parseFrom(inflate(data));
+            return Chunks.getInstance().decode(message);
+        } catch (IOException e) {
+            logger.error("Error loading chunk {}", position, e);
+        } catch (DataFormatException e) {
+            logger.error("Error loading chunk {}", position, e);
+        }
+        return null;
+    }
+
+    @Override
+    public void put(Chunk c) {
+        final Vector3i position = c.getPos();
+        try {
+            final RegionFile region = getRegion(position, true);
+            if (region != null) {
+                region.write(RegionFile.getIndex(position.x, position.z), deflate(Chunks.getInstance().encode(c)));
+            }
+        } catch (IOException e) {
+            logger.error("Error saving chunk {}", position, e);
+        }
+    }
+
+    @Override
+    public boolean contains(Vector3i position) {
+        try {
+            final RegionFile region = getRegion(position, false);
+            return region != null && region.contains(RegionFile.getIndex(position.x, position.z));
+        } catch (IOException e) {
+            logger.error("Error opening region file for chunk {}", position, e);
+        }
+        return false;
+    }
+
+    /**
+     * @return The size of all opened region files in MB
+     */
+    @Override
+    public float size() {
+        long bytes = 0;
+        for (RegionFile region : regions.values()) {
+            bytes += region.size();
+        }
+        return (float) bytes / (1 << 20);
+    }
+
+    @Override
+    public void dispose() {
+        for (RegionFile region : regions.values()) {
+            try {
+                region.close();
+            } catch (IOException e) {
+                logger.error("Failed to close region file {}", region.getFile(), e);
+            }
+        }
+        regions.clear();
+    }
+
+    private RegionFile getRegion(Vector3i chunkPos, boolean create) throws IOException {
+        final Vector3i regionPos = new Vector3i(chunkPos.x >> RegionFile.REGION_POWER, chunkPos.y, chunkPos.z >> RegionFile.REGION_POWER);
+        RegionFile region = regions.get(regionPos);
+        if (region != null) {
+            return region;
+        }
+        synchronized (regions) {
+            region = regions.get(regionPos);
+            if (region == null) {
+                final File file = new File(regionPath, regionPos.x + "." + regionPos.y + "." + regionPos.z + REGION_FILE_EXTENSION);
+                if (!file.exists()) {
+                    if (!create) {
+                        return null;
+                    }
+                    if (!regionPath.exists() && !regionPath.mkdirs()) {
+                        logger.error("Failed to create region directory {}, aborting save.", regionPath);
+                        return null;
+                    }
+                }
+                region = new RegionFile(file);
+                regions.put(regionPos, region);
+            }
+            return region;
+        }
+    }
+
+    private static byte[] deflate(ChunksProtobuf.Chunk message) throws IOException {
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            final ByteArrayOutputStream baOut = new ByteArrayOutputStream(message.getSerializedSize() / 4);
+            final DeflaterOutputStream dOut = new DeflaterOutputStream(baOut, deflater);
+            final CodedOutputStream cOut = CodedOutputStream.newInstance(dOut);
+            message.writeTo(cOut);
+            cOut.flush();
+            dOut.close();
+            return baOut.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data) throws DataFormatException {
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            final ByteArrayOutputStream baOut = new ByteArrayOutputStream(data.length * 4);
+            final byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                final int count = inflater.inflate(buffer);
+                if (count == 0 && inflater.needsInput()) {
+                    throw new DataFormatException("Truncated chunk record");
+                }
+                baOut.write(buffer, 0, count);
+            }
+            return baOut.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+}
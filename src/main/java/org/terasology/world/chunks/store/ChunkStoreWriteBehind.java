@@ -0,0 +1,289 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.chunks.store;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.math.Vector3i;
+import org.terasology.world.chunks.Chunk;
+import org.terasology.world.chunks.ChunkStore;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+
+/**
+ * Decorates a chunk store with a bounded write-behind queue. Chunks put into this store are handed to a
+ * background thread which serializes and persists them through the decorated store.
+ * <p/>
+ * Chunks stay readable while their write is pending, {@code get()} returns a copy of the pending chunk
+ * without touching the decorated store.
+ * <p/>
+ * {@code put()} blocks while the queue is full, {@code offer()} can be used instead by callers which must
+ * not block and would rather retry later.
+ * <p/>
+ * A chunk whose write fails stays pending, so it is still served by {@code get()}. Its write is retried
+ * periodically and once more on shutdown, unless a newer version of the chunk has been queued meanwhile.
+ */
+public class ChunkStoreWriteBehind implements ChunkStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkStoreWriteBehind.class);
+
+    private static final double LATENCY_SMOOTHING = 0.1;
+    private static final long RETRY_DELAY = 5000;
+
+    private final ChunkStore store;
+    private final BlockingQueue<PendingWrite> writeQueue;
+    private final ConcurrentMap<Vector3i, Chunk> pendingChunks = Maps.newConcurrentMap();
+    private final ExecutorService writerThread;
+    private final AtomicBoolean running = new AtomicBoolean(true);
+    /* Only accessed by the writer thread */
+    private final Deque<PendingWrite> failedWrites = new ArrayDeque<PendingWrite>();
+    private long lastRetry;
+
+    private final AtomicLong chunksWritten = new AtomicLong();
+    private final AtomicInteger failedWriteCount = new AtomicInteger();
+    private volatile double averageFlushLatency;
+    private volatile double averageWriteTime;
+
+    public ChunkStoreWriteBehind(ChunkStore store, int capacity) {
+        this.store = Preconditions.checkNotNull(store, "The parameter 'store' must not be null");
+        Preconditions.checkArgument(capacity > 0, "The parameter 'capacity' must be greater than zero");
+        this.writeQueue = new ArrayBlockingQueue<PendingWrite>(capacity);
+        this.writerThread = Executors.newSingleThreadExecutor();
+        writerThread.execute(new Runnable() {
+            @Override
+            public void run() {
+                Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
+                while (running.get()) {
+                    try {
+                        PendingWrite write = writeQueue.poll(500, TimeUnit.MILLISECONDS);
+                        if (write != null) {
+                            write(write);
+                        }
+                        if (!failedWrites.isEmpty() && System.currentTimeMillis() - lastRetry >= RETRY_DELAY) {
+                            retryFailedWrites();
+                        }
+                    } catch (InterruptedException e) {
+                        logger.error("Thread interrupted", e);
+                    } catch (Exception e) {
+                        logger.error("Error in thread", e);
+                    }
+                }
+                PendingWrite write;
+                while ((write = writeQueue.poll()) != null) {
+                    write(write);
+                }
+                retryFailedWrites();
+                if (!failedWrites.isEmpty()) {
+                    logger.error("{} chunks could not be written", failedWrites.size());
+                }
+                logger.debug("Thread shutdown safely");
+            }
+        });
+    }
+
+    /**
+     * @return The decorated chunk store
+     */
+    public ChunkStore getStore() {
+        return store;
+    }
+
+    @Override
+    public Chunk get(Vector3i position) {
+        Chunk pending = pendingChunks.get(position);
+        if (pending != null) {
+            pending.lock();
+            try {
+                return new Chunk(pending);
+            } finally {
+                pending.unlock();
+            }
+        }
+        return store.get(position);
+    }
+
+    /**
+     * Queues the chunk for writing, waiting for space in the queue if necessary.
+     */
+    @Override
+    public void put(Chunk c) {
+        PendingWrite write = new PendingWrite(c);
+        pendingChunks.put(write.position, c);
+        try {
+            writeQueue.put(write);
+        } catch (InterruptedException e) {
+            logger.error("Interrupted while queueing chunk {} for writing", write.position);
+            dequeue(write);
+        }
+    }
+
+    /**
+     * Queues the chunk for writing if there is space in the queue.
+     *
+     * @return True if the chunk was queued, false if the queue is full
+     */
+    public boolean offer(Chunk c) {
+        PendingWrite write = new PendingWrite(c);
+        Chunk previous = pendingChunks.put(write.position, c);
+        if (!writeQueue.offer(write)) {
+            if (previous != null) {
+                pendingChunks.replace(write.position, c, previous);
+            } else {
+                dequeue(write);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(Vector3i position) {
+        return pendingChunks.containsKey(position) || store.contains(position);
+    }
+
+    @Override
+    public float size() {
+        return store.size();
+    }
+
+    /**
+     * @return The number of chunks waiting to be written
+     */
+    public int getQueueDepth() {
+        return writeQueue.size();
+    }
+
+    /**
+     * @return The number of further chunks which can be queued without blocking
+     */
+    public int getRemainingCapacity() {
+        return writeQueue.remainingCapacity();
+    }
+
+    /**
+     * @return The total number of chunks written to the decorated store
+     */
+    public long getChunksWritten() {
+        return chunksWritten.get();
+    }
+
+    /**
+     * @return The number of chunks which failed to be written and are awaiting a retry
+     */
+    public int getFailedWriteCount() {
+        return failedWriteCount.get();
+    }
+
+    /**
+     * @return The smoothed time in ms between queueing a chunk and its write being completed
+     */
+    public double getAverageFlushLatency() {
+        return averageFlushLatency;
+    }
+
+    /**
+     * @return The smoothed time in ms it takes the decorated store to write a chunk
+     */
+    public double getAverageWriteTime() {
+        return averageWriteTime;
+    }
+
+    /**
+     * Writes all pending chunks and stops the writer thread. The decorated store is not disposed.
+     */
+    public void shutdown() {
+        running.set(false);
+        writerThread.shutdown();
+        try {
+            if (!writerThread.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warn("Timed out awaiting chunk writer thread termination, {} chunks have not been written", writeQueue.size());
+            }
+        } catch (InterruptedException e) {
+            logger.error("Interrupted while awaiting chunk writer thread termination");
+        }
+    }
+
+    @Override
+    public void dispose() {
+        shutdown();
+        store.dispose();
+    }
+
+    private void dequeue(PendingWrite write) {
+        pendingChunks.remove(write.position, write.chunk);
+    }
+
+    private void retryFailedWrites() {
+        lastRetry = System.currentTimeMillis();
+        for (int i = failedWrites.size(); i > 0; i--) {
+            PendingWrite write = failedWrites.poll();
+            failedWriteCount.decrementAndGet();
+            // A newer version of the chunk has been queued and supersedes the failed one
+            if (pendingChunks.get(write.position) == write.chunk) {
+                write(write);
+            }
+        }
+    }
+
+    private void write(PendingWrite write) {
+        long start = System.nanoTime();
+        write.chunk.lock();
+        try {
+            store.put(write.chunk);
+        } catch (Exception e) {
+            // The chunk has already been evicted, keep serving it until a retry succeeds so it is not lost
+            logger.error("Failed to write chunk {}, retrying later", write.position, e);
+            if (failedWrites.isEmpty()) {
+                lastRetry = System.currentTimeMillis();
+            }
+            failedWrites.add(write);
+            failedWriteCount.incrementAndGet();
+            return;
+        } finally {
+            write.chunk.unlock();
+        }
+        dequeue(write);
+        long end = System.nanoTime();
+        chunksWritten.incrementAndGet();
+        averageWriteTime += LATENCY_SMOOTHING * ((end - start) / 1000000.0 - averageWriteTime);
+        averageFlushLatency += LATENCY_SMOOTHING * ((end - write.queueTime) / 1000000.0 - averageFlushLatency);
+    }
+
+    private static class PendingWrite {
+        private final Chunk chunk;
+        private final Vector3i position;
+        private final long queueTime;
+
+        public PendingWrite(Chunk chunk) {
+            this.chunk = chunk;
+            this.position = chunk.getPos();
+            this.queueTime = System.nanoTime();
+        }
+    }
+}
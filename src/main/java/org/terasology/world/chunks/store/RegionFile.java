@@ -0,0 +1,214 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.chunks.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.BitSet;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * RegionFile stores up to {@code REGION_SIZE * REGION_SIZE} serialized chunks in a single file.
+ * <p/>
+ * The file starts with one header sector holding the allocation table. Every entry is an int containing the
+ * index of the first data sector of a chunk in the upper 24 bits and the number of sectors it occupies in the
+ * lower 8 bits. A data record starts with the length of the payload in bytes, followed by the payload itself.
+ * <p/>
+ * The allocation table is accessed through a memory mapped buffer, payloads are read and written through
+ * positional {@code FileChannel} operations. All methods are synchronized, so a region file can be shared
+ * between threads.
+ *
+ * @see org.terasology.world.chunks.store.ChunkStoreRegionFile
+ */
+public class RegionFile {
+
+    public static final int REGION_POWER = 5;
+    public static final int REGION_SIZE = 1 << REGION_POWER;
+    public static final int REGION_MASK = REGION_SIZE - 1;
+
+    public static final int SECTOR_SIZE = 4096;
+    public static final int MAX_SECTORS_PER_CHUNK = 0xff;
+    public static final int HEADER_SECTORS = 1;
+
+    private static final int RECORD_HEADER_SIZE = 4;
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final BitSet usedSectors = new BitSet();
+    private int sectorCount;
+
+    public RegionFile(File file) throws IOException {
+        this.file = Preconditions.checkNotNull(file, "The parameter 'file' must not be null");
+        this.raf = new RandomAccessFile(file, "rw");
+        this.channel = raf.getChannel();
+        try {
+            if (channel.size() < HEADER_SECTORS * SECTOR_SIZE) {
+                channel.write(ByteBuffer.allocate(HEADER_SECTORS * SECTOR_SIZE - (int) channel.size()), channel.size());
+            }
+            header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SECTORS * SECTOR_SIZE);
+            sectorCount = (int) ((channel.size() + SECTOR_SIZE - 1) / SECTOR_SIZE);
+            usedSectors.set(0, HEADER_SECTORS);
+            for (int i = 0; i < REGION_SIZE * REGION_SIZE; i++) {
+                final int entry = header.getInt(i * 4);
+                if (entry != 0) {
+                    final int first = sectorOf(entry);
+                    final int count = countOf(entry);
+                    if (first < HEADER_SECTORS || first + count > sectorCount) {
+                        // Drop entries pointing outside of the file, they are the remains of an interrupted write
+                        header.putInt(i * 4, 0);
+                    } else {
+                        usedSectors.set(first, first + count);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public static int getIndex(int x, int z) {
+        return (x & REGION_MASK) + ((z & REGION_MASK) << REGION_POWER);
+    }
+
+    public synchronized boolean contains(int index) {
+        return header.getInt(index * 4) != 0;
+    }
+
+    /**
+     * Reads the payload stored for the given index.
+     *
+     * @param index The index of the chunk within this region, see {@link #getIndex(int, int)}
+     * @return The payload, or null if nothing is stored for the index
+     * @throws IOException
+     */
+    public synchronized byte[] read(int index) throws IOException {
+        final int entry = header.getInt(index * 4);
+        if (entry == 0) {
+            return null;
+        }
+        final long offset = (long) sectorOf(entry) * SECTOR_SIZE;
+        final ByteBuffer lengthBuffer = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        readFully(lengthBuffer, offset);
+        lengthBuffer.flip();
+        final int length = lengthBuffer.getInt();
+        if (length <= 0 || length + RECORD_HEADER_SIZE > countOf(entry) * SECTOR_SIZE) {
+            throw new IOException("Corrupt chunk record at index " + index + " in region file " + file);
+        }
+        final byte[] data = new byte[length];
+        readFully(ByteBuffer.wrap(data), offset + RECORD_HEADER_SIZE);
+        return data;
+    }
+
+    /**
+     * Writes the payload for the given index. The record is rewritten in place if it still fits into the
+     * sectors already allocated for the index, otherwise a new run of sectors is allocated.
+     *
+     * @param index The index of the chunk within this region, see {@link #getIndex(int, int)}
+     * @param data The payload
+     * @throws IOException
+     */
+    public synchronized void write(int index, byte[] data) throws IOException {
+        Preconditions.checkNotNull(data, "The parameter 'data' must not be null");
+        final int needed = (data.length + RECORD_HEADER_SIZE + SECTOR_SIZE - 1) / SECTOR_SIZE;
+        if (needed > MAX_SECTORS_PER_CHUNK) {
+            throw new IOException("Chunk record of " + data.length + " bytes exceeds the maximum record size of region file " + file);
+        }
+
+        final int entry = header.getInt(index * 4);
+        int first = sectorOf(entry);
+        final int count = countOf(entry);
+        if (entry == 0 || count != needed) {
+            if (entry != 0) {
+                usedSectors.clear(first, first + count);
+            }
+            first = allocate(needed);
+        }
+
+        final ByteBuffer record = ByteBuffer.allocate(needed * SECTOR_SIZE);
+        record.putInt(data.length);
+        record.put(data);
+        record.rewind();
+        final long offset = (long) first * SECTOR_SIZE;
+        while (record.hasRemaining()) {
+            channel.write(record, offset + record.position());
+        }
+        header.putInt(index * 4, (first << 8) | needed);
+    }
+
+    /**
+     * @return The size of this region file in bytes
+     */
+    public synchronized long size() {
+        return (long) sectorCount * SECTOR_SIZE;
+    }
+
+    public synchronized void flush() throws IOException {
+        header.force();
+        channel.force(false);
+    }
+
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            raf.close();
+        }
+    }
+
+    private int allocate(int count) {
+        int start = usedSectors.nextClearBit(HEADER_SECTORS);
+        while (start < sectorCount) {
+            final int end = usedSectors.nextSetBit(start);
+            if (end < 0 || end - start >= count) {
+                break;
+            }
+            start = usedSectors.nextClearBit(end);
+        }
+        usedSectors.set(start, start + count);
+        if (start + count > sectorCount) {
+            sectorCount = start + count;
+        }
+        return start;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of region file " + file);
+            }
+        }
+    }
+
+    private static int sectorOf(int entry) {
+        return entry >>> 8;
+    }
+
+    private static int countOf(int entry) {
+        return entry & 0xff;
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.world.generator;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A chunk generator which can split the generation of a single chunk into subtasks, so idle cores can help when
+ * only few chunks are generated at once.
+ */
+public interface ParallelChunkGenerator extends ChunkGenerator {
+
+    /**
+     * The generated chunk must not depend on the executor.
+     *
+     * @param executor The executor to run subtasks on, or null to generate on the calling thread only
+     */
+    void setSubtaskExecutor(ExecutorService executor);
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.generator.core;
+
+import java.util.List;
+import java.util.Map;
+
+import org.terasology.performanceMonitor.PerformanceMonitor;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Collects the time spent in each chunk generator and the number of chunks generated. Generators report from
+ * the chunk processing threads, so all methods are thread safe.
+ */
+public class ChunkGenerationStatistics {
+
+    private static final double SMOOTHING = 0.1;
+    private static final long METRICS_INTERVAL = 1000000000L;
+
+    private final Map<String, Stage> stages = Maps.newLinkedHashMap();
+    private long chunkCount;
+    private long startTime = System.nanoTime();
+
+    private long lastMetricsUpdate = startTime;
+    private long lastChunkCount;
+    private double throughput;
+
+    /**
+     * Records the time one generator took for one chunk.
+     *
+     * @param stage       The name of the generator
+     * @param nanoseconds The time it took
+     */
+    public synchronized void record(String stage, long nanoseconds) {
+        Stage entry = stages.get(stage);
+        if (entry == null) {
+            entry = new Stage();
+            stages.put(stage, entry);
+            entry.average = nanoseconds / 1000000.0;
+        }
+        entry.count++;
+        entry.nanoseconds += nanoseconds;
+        entry.average += SMOOTHING * (nanoseconds / 1000000.0 - entry.average);
+    }
+
+    /**
+     * Counts a chunk which went through all first pass generators.
+     */
+    public synchronized void chunkGenerated() {
+        chunkCount++;
+    }
+
+    /**
+     * @return The names of all generators which reported a time, in the order they first reported
+     */
+    public synchronized List<String> getStageNames() {
+        return Lists.newArrayList(stages.keySet());
+    }
+
+    /**
+     * @return The mean time in ms the generator took per chunk since the last reset
+     */
+    public synchronized double getAverageMillis(String stage) {
+        Stage entry = stages.get(stage);
+        return entry == null || entry.count == 0 ? 0 : entry.nanoseconds / 1000000.0 / entry.count;
+    }
+
+    /**
+     * @return The total time in ms the generator took since the last reset
+     */
+    public synchronized double getTotalMillis(String stage) {
+        Stage entry = stages.get(stage);
+        return entry == null ? 0 : entry.nanoseconds / 1000000.0;
+    }
+
+    public synchronized long getChunkCount() {
+        return chunkCount;
+    }
+
+    /**
+     * @return The number of chunks generated per second of wall time since the last reset
+     */
+    public synchronized double getChunksPerSecond() {
+        long elapsed = System.nanoTime() - startTime;
+        return elapsed <= 0 ? 0 : chunkCount * 1000000000.0 / elapsed;
+    }
+
+    public synchronized void reset() {
+        stages.clear();
+        chunkCount = 0;
+        startTime = System.nanoTime();
+        lastMetricsUpdate = startTime;
+        lastChunkCount = 0;
+        throughput = 0;
+    }
+
+    /**
+     * Publishes the recent generation throughput and the smoothed time per chunk of each generator.
+     */
+    public synchronized void updateMetrics() {
+        long now = System.nanoTime();
+        long elapsed = now - lastMetricsUpdate;
+        if (elapsed >= METRICS_INTERVAL) {
+            throughput = (double) (chunkCount - lastChunkCount) * 1000000000L / elapsed;
+            lastChunkCount = chunkCount;
+            lastMetricsUpdate = now;
+        }
+        PerformanceMonitor.setValue("Chunk generation per second", throughput);
+        for (Map.Entry<String, Stage> entry : stages.entrySet()) {
+            PerformanceMonitor.setValue(entry.getKey() + " (ms)", entry.getValue().average);
+        }
+    }
+
+    private static class Stage {
+        private long count;
+        private long nanoseconds;
+        private double average;
+    }
+}
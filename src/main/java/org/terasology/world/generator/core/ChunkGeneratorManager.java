@@ -17,6 +17,7 @@
 package org.terasology.world.generator.core;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import org.terasology.math.Vector3i;
 import org.terasology.world.WorldBiomeProvider;
@@ -35,10 +36,27 @@ public interface ChunkGeneratorManager {
 
     void setWorldBiomeProvider(WorldBiomeProvider biomeProvider);
 
+    /**
+     * @return The biome provider given to the generators, so the world can share its cached biome data
+     */
+    WorldBiomeProvider getWorldBiomeProvider();
+
+    /**
+     * Hands the executor to all generators which can split a single chunk into subtasks.
+     *
+     * @param executor The executor for the subtasks, or null to generate each chunk on a single thread
+     */
+    void setSubtaskExecutor(ExecutorService executor);
+
     void registerChunkGenerator(BaseChunkGenerator generator);
 
     Chunk generateChunk(Vector3i pos);
 
     void secondPassChunk(Vector3i chunkPos, WorldView view);
 
+    /**
+     * @return The time spent in each generator and the number of chunks generated
+     */
+    ChunkGenerationStatistics getStatistics();
+
 }
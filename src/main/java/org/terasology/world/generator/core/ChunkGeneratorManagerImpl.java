@@ -20,6 +20,10 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.terasology.logic.generators.DefaultGenerators;
 import org.terasology.math.Vector3i;
@@ -28,18 +32,24 @@ import org.terasology.world.WorldView;
 import org.terasology.world.chunks.Chunk;
 import org.terasology.world.generator.BaseChunkGenerator;
 import org.terasology.world.generator.ChunkGenerator;
+import org.terasology.world.generator.ParallelChunkGenerator;
 import org.terasology.world.generator.SecondPassChunkGenerator;
 import org.terasology.world.liquid.LiquidsGenerator;
 
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * @author Immortius
  */
 public class ChunkGeneratorManagerImpl implements ChunkGeneratorManager {
 
+    private static final long SUBTASK_KEEP_ALIVE_SECONDS = 10;
+
     private String worldSeed;
     private WorldBiomeProvider biomeProvider;
+    private ExecutorService subtaskExecutor;
+    private final ChunkGenerationStatistics statistics = new ChunkGenerationStatistics();
     private final List<ChunkGenerator> chunkGenerators = Lists.newArrayList();
     private final List<SecondPassChunkGenerator> secondPassChunkGenerators = Lists.newArrayList();
 
@@ -58,6 +68,20 @@ public class ChunkGeneratorManagerImpl implements ChunkGeneratorManager {
         return chunkGeneratorManager;
     }
 
+    /**
+     * Creates an executor for the subtasks of parallel chunk generators. Its threads stop when idle, so it does
+     * not need to be shut down.
+     *
+     * @param threads The maximum number of threads
+     */
+    public static ExecutorService createSubtaskExecutor(int threads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, SUBTASK_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setNameFormat("Chunk-Generation-%d").setDaemon(true).setPriority(Thread.MIN_PRIORITY).build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     public static ChunkGeneratorManagerImpl buildChunkGenerator(List<String> list) {
         final ChunkGeneratorManagerImpl chunkGeneratorManager = new ChunkGeneratorManagerImpl();
 
@@ -118,10 +142,28 @@ public class ChunkGeneratorManagerImpl implements ChunkGeneratorManager {
         }
     }
 
+    @Override
+    public WorldBiomeProvider getWorldBiomeProvider() {
+        return biomeProvider;
+    }
+
+    @Override
+    public void setSubtaskExecutor(final ExecutorService executor) {
+        subtaskExecutor = executor;
+        for (final ChunkGenerator generator : chunkGenerators) {
+            if (generator instanceof ParallelChunkGenerator) {
+                ((ParallelChunkGenerator) generator).setSubtaskExecutor(executor);
+            }
+        }
+    }
+
     @Override
     public void registerChunkGenerator(final BaseChunkGenerator generator) {
         generator.setWorldBiomeProvider(biomeProvider);
         generator.setWorldSeed(worldSeed);
+        if (generator instanceof ParallelChunkGenerator) {
+            ((ParallelChunkGenerator) generator).setSubtaskExecutor(subtaskExecutor);
+        }
         if (generator instanceof ChunkGenerator) {
             chunkGenerators.add((ChunkGenerator) generator);
         }
@@ -142,15 +184,25 @@ public class ChunkGeneratorManagerImpl implements ChunkGeneratorManager {
     public Chunk generateChunk(final Vector3i pos) {
         final Chunk chunk = new Chunk(pos);
         for (final ChunkGenerator generator : chunkGenerators) {
+            long start = System.nanoTime();
             generator.generateChunk(chunk);
+            statistics.record(generator.getClass().getSimpleName(), System.nanoTime() - start);
         }
+        statistics.chunkGenerated();
         return chunk;
     }
 
     @Override
     public void secondPassChunk(final Vector3i chunkPos, final WorldView view) {
         for (final SecondPassChunkGenerator generator : secondPassChunkGenerators) {
+            long start = System.nanoTime();
             generator.postProcessChunk(chunkPos, view);
+            statistics.record(generator.getClass().getSimpleName() + " second pass", System.nanoTime() - start);
         }
     }
+
+    @Override
+    public ChunkGenerationStatistics getStatistics() {
+        return statistics;
+    }
 }
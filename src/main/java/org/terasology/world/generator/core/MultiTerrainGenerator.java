@@ -17,18 +17,20 @@
 package org.terasology.world.generator.core;
 
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import javax.vecmath.Vector2f;
 
 import org.terasology.math.TeraMath;
 import org.terasology.utilities.EPNoise;
+import org.terasology.utilities.GridNoise;
 import org.terasology.utilities.Noise;
 import org.terasology.utilities.WhiteNoise;
 import org.terasology.world.WorldBiomeProvider;
 import org.terasology.world.block.Block;
 import org.terasology.world.block.management.BlockManager;
 import org.terasology.world.chunks.Chunk;
-import org.terasology.world.generator.ChunkGenerator;
+import org.terasology.world.generator.ParallelChunkGenerator;
 import org.terasology.world.liquid.LiquidData;
 import org.terasology.world.liquid.LiquidType;
 
@@ -37,12 +39,15 @@ import org.terasology.world.liquid.LiquidType;
  * 
  * @author Esa-Petri
  */
-public class MultiTerrainGenerator implements ChunkGenerator {
+public class MultiTerrainGenerator implements ParallelChunkGenerator {
 	private static final int SAMPLE_RATE_3D_HOR = 4;
 	private static final int SAMPLE_RATE_3D_VERT = 4;
 
 	private Noise pGen1, pGen2, pGen3, pGen4, pGen5, pGen8;
+	private GridNoise baseGrid, oceanGrid, riverGrid, mountainGrid, hillGrid,
+			caveGrid;
 	private WorldBiomeProvider biomeProvider;
+	private ExecutorService subtaskExecutor;
 
 	private Block air = BlockManager.getInstance().getAir();
 	private Block mantle = BlockManager.getInstance().getBlock(
@@ -91,6 +96,13 @@ public class MultiTerrainGenerator implements ChunkGenerator {
 			// cave
 			pGen8 = new EPNoise(seed.hashCode() + 7, 0, false);
 
+			baseGrid = new GridNoise(pGen1);
+			oceanGrid = new GridNoise(pGen2);
+			riverGrid = new GridNoise(pGen3);
+			mountainGrid = new GridNoise(pGen4);
+			hillGrid = new GridNoise(pGen5);
+			caveGrid = new GridNoise(pGen8);
+
 			
 			counter = 0;//Integer.MIN_VALUE;
 		}
@@ -101,6 +113,11 @@ public class MultiTerrainGenerator implements ChunkGenerator {
 		this.biomeProvider = biomeProvider;
 	}
 
+	@Override
+	public void setSubtaskExecutor(ExecutorService executor) {
+		subtaskExecutor = executor;
+	}
+
 	@Override
 	public void generateChunk(Chunk c) {
 		double[][][] densityMap = new double[Chunk.SIZE_X + 1][Chunk.SIZE_Y + 1][Chunk.SIZE_Z + 1];
@@ -108,20 +125,33 @@ public class MultiTerrainGenerator implements ChunkGenerator {
 		/*
 		 * Create the density map at a lower sample rate.
 		 */
-		for (int x = 0; x <= Chunk.SIZE_X; x += SAMPLE_RATE_3D_HOR) {
-			for (int z = 0; z <= Chunk.SIZE_Z; z += SAMPLE_RATE_3D_HOR) {
-				for (int y = 0; y <= Chunk.SIZE_Y; y += SAMPLE_RATE_3D_VERT) {
-					densityMap[x][y][z] = calcDensity(c.getBlockWorldPosX(x),
-							y, c.getBlockWorldPosZ(z));
-				}
-			}
-		}
+		fillDensityMap(densityMap, c.getBlockWorldPosX(0), c.getBlockWorldPosZ(0));
 
 		/*
 		 * Trilinear interpolate the missing values.
 		 */
 		triLerpDensityMap(densityMap);
 
+		/*
+		 * Evaluate the cave density for all blocks up to the highest solid one.
+		 */
+		int caveHeight = 0;
+		for (int x = 0; x < Chunk.SIZE_X; x++) {
+			for (int z = 0; z < Chunk.SIZE_Z; z++) {
+				for (int y = Chunk.SIZE_Y - 1; y > caveHeight; y--) {
+					if (densityMap[x][y][z] >= 0) {
+						caveHeight = y;
+						break;
+					}
+				}
+			}
+		}
+		double[] caveDensity = caveGrid.fBm(null, new GridNoise.Axis(
+				c.getBlockWorldPosX(0), 1, Chunk.SIZE_X, 0.02),
+				new GridNoise.Axis(0, 1, caveHeight + 1, 0.02),
+				new GridNoise.Axis(c.getBlockWorldPosZ(0), 1, Chunk.SIZE_Z,
+						0.02), subtaskExecutor);
+
 		/*
 		 * Generate the chunk from the density map.
 		 */
@@ -159,8 +189,8 @@ public class MultiTerrainGenerator implements ChunkGenerator {
 						if (firstBlockHeight == -1)
 							firstBlockHeight = y;
 
-						if (calcCaveDensity(c.getBlockWorldPosX(x), y,
-								c.getBlockWorldPosZ(z)) > -0.7)
+						if (caveDensity[(x * (caveHeight + 1) + y)
+								* Chunk.SIZE_Z + z] > -0.7)
 							GenerateOuterLayer(x, y, z, firstBlockHeight, c,
 									type);
 						else
@@ -173,8 +203,8 @@ public class MultiTerrainGenerator implements ChunkGenerator {
 						if (firstBlockHeight == -1)
 							firstBlockHeight = y;
 
-						if (calcCaveDensity(c.getBlockWorldPosX(x), y,
-								c.getBlockWorldPosZ(z)) > -0.6)
+						if (caveDensity[(x * (caveHeight + 1) + y)
+								* Chunk.SIZE_Z + z] > -0.6)
 							GenerateInnerLayer(x, y, z, c, type);
 						else
 							c.setBlock(x, y, z, air);
@@ -293,23 +323,73 @@ public class MultiTerrainGenerator implements ChunkGenerator {
 		}
 	}
 
+	/**
+	 * Fills the density map at the sample positions. The terms only
+	 * depending on the column are evaluated once per column and the 3D terms
+	 * for all samples at once.
+	 */
+	private void fillDensityMap(double[][][] densityMap, int worldX,
+			int worldZ) {
+		int samplesX = Chunk.SIZE_X / SAMPLE_RATE_3D_HOR + 1;
+		int samplesY = Chunk.SIZE_Y / SAMPLE_RATE_3D_VERT + 1;
+		int samplesZ = Chunk.SIZE_Z / SAMPLE_RATE_3D_HOR + 1;
+
+		double[] base = baseGrid.fBm(null, new GridNoise.Axis(worldX,
+				SAMPLE_RATE_3D_HOR, samplesX, 0.004), new GridNoise.Axis(
+				worldZ, SAMPLE_RATE_3D_HOR, samplesZ, 0.004));
+		double[] ocean = oceanGrid.fBm(null, new GridNoise.Axis(worldX,
+				SAMPLE_RATE_3D_HOR, samplesX, 0.0009), new GridNoise.Axis(
+				worldZ, SAMPLE_RATE_3D_HOR, samplesZ, 0.0009));
+		double[] river = riverGrid.fBm(null, new GridNoise.Axis(worldX,
+				SAMPLE_RATE_3D_HOR, samplesX, 0.0008), new GridNoise.Axis(
+				worldZ, SAMPLE_RATE_3D_HOR, samplesZ, 0.0008));
+		double[] mountains = mountainGrid.fBm(null, new GridNoise.Axis(
+				worldX, SAMPLE_RATE_3D_HOR, samplesX, 0.002),
+				new GridNoise.Axis(0, SAMPLE_RATE_3D_VERT, samplesY, 0.001),
+				new GridNoise.Axis(worldZ, SAMPLE_RATE_3D_HOR, samplesZ, 0.002),
+				subtaskExecutor);
+		double[] hills = hillGrid.fBm(null, new GridNoise.Axis(worldX,
+				SAMPLE_RATE_3D_HOR, samplesX, 0.008), new GridNoise.Axis(0,
+				SAMPLE_RATE_3D_VERT, samplesY, 0.006), new GridNoise.Axis(
+				worldZ, SAMPLE_RATE_3D_HOR, samplesZ, 0.008), subtaskExecutor);
+
+		for (int i = 0; i < samplesX; i++) {
+			for (int k = 0; k < samplesZ; k++) {
+				int column = i * samplesZ + k;
+				double height = baseTerrain(base[column]);
+				double oceanTerrain = oceanTerrain(ocean[column]);
+				double riverTerrain = riverTerrain(river[column]);
+				double mIntens = calcMountainIntensity(worldX + i
+						* SAMPLE_RATE_3D_HOR, worldZ + k * SAMPLE_RATE_3D_HOR);
+
+				for (int j = 0; j < samplesY; j++) {
+					int sample = (i * samplesY + j) * samplesZ + k;
+					densityMap[i * SAMPLE_RATE_3D_HOR][j * SAMPLE_RATE_3D_VERT][k
+							* SAMPLE_RATE_3D_HOR] = calcDensity(j
+							* SAMPLE_RATE_3D_VERT, height, oceanTerrain,
+							riverTerrain, mIntens, mountains[sample],
+							hills[sample]);
+				}
+			}
+		}
+	}
+
 	public double calcDensity(int x, int y, int z) {
 		double height = calcBaseTerrain(x, z);
 		double ocean = calcOceanTerrain(x, z);
 		double river = calcRiverTerrain(x, z);
+		double mIntens = calcMountainIntensity(x, z);
 
-		float temp = biomeProvider.getTemperatureAt(x, z);
-		float humidity = biomeProvider.getHumidityAt(x, z) * temp;
-
-		Vector2f distanceToMountainBiome = new Vector2f(temp - 0.25f,
-				humidity - 0.35f);
-
-		double mIntens = TeraMath
-				.clamp(1.0 - distanceToMountainBiome.length() * 3.0);
+		return calcDensity(y, height, ocean, river, mIntens,
+				pGen4.fBm(x * 0.002, y * 0.001, z * 0.002),
+				pGen5.fBm(x * 0.008, y * 0.006, z * 0.008));
+	}
 
-		
-		double densityMountains = calcMountainDensity(x, y, z) * mIntens;
-		double densityHills = calcHillDensity(x, y, z) * (1.0 - mIntens);
+	private double calcDensity(int y, double height, double ocean,
+			double river, double mIntens, double mountainNoise,
+			double hillNoise) {
+		double densityMountains = mountainDensity(mountainNoise) * mIntens;
+		double densityHills = hillDensity(hillNoise) * (1.0 - mIntens);
 
 		//returned to original
         int plateauArea = (int) (Chunk.SIZE_Y * 0.10);
@@ -322,42 +402,48 @@ public class MultiTerrainGenerator implements ChunkGenerator {
 				* flatten;
 	}
 
+	private double calcMountainIntensity(int x, int z) {
+		float temp = biomeProvider.getTemperatureAt(x, z);
+		float humidity = biomeProvider.getHumidityAt(x, z) * temp;
+
+		Vector2f distanceToMountainBiome = new Vector2f(temp - 0.25f,
+				humidity - 0.35f);
+
+		return TeraMath.clamp(1.0 - distanceToMountainBiome.length() * 3.0);
+	}
+
 	private double calcBaseTerrain(double x, double z) {
-		return TeraMath
-				.clamp((pGen1.fBm(0.004 * x, 0, 0.004 * z) + 1.0) / 2.0);
+		return baseTerrain(pGen1.fBm(0.004 * x, 0, 0.004 * z));
 	}
 
 	private double calcOceanTerrain(double x, double z) {
-		return TeraMath.clamp(pGen2.fBm(0.0009 * x, 0, 0.0009 * z) * 8.0);
+		return oceanTerrain(pGen2.fBm(0.0009 * x, 0, 0.0009 * z));
 	}
 
 	private double calcRiverTerrain(double x, double z) {
-		return TeraMath.clamp((java.lang.Math.sqrt(java.lang.Math.abs(pGen3
-				.fBm(0.0008 * x, 0, 0.0008 * z))) - 0.1) * 7.0);
+		return riverTerrain(pGen3.fBm(0.0008 * x, 0, 0.0008 * z));
 	}
 
-	private double calcMountainDensity(double x, double y, double z) {
-		double x1, y1, z1;
-		x1 = x * 0.002;
-		y1 = y * 0.001;
-		z1 = z * 0.002;
+	private static double baseTerrain(double noise) {
+		return TeraMath.clamp((noise + 1.0) / 2.0);
+	}
 
-		double result = pGen4.fBm(x1, y1, z1);
-		return result > 0.0 ? result : 0;
+	private static double oceanTerrain(double noise) {
+		return TeraMath.clamp(noise * 8.0);
 	}
 
-	private double calcHillDensity(double x, double y, double z) {
-		double x1, y1, z1;
-		x1 = x * 0.008;
-		y1 = y * 0.006;
-		z1 = z * 0.008;
+	private static double riverTerrain(double noise) {
+		return TeraMath.clamp((java.lang.Math.sqrt(java.lang.Math
+				.abs(noise)) - 0.1) * 7.0);
+	}
 
-		double result = pGen5.fBm(x1, y1, z1) - 0.1;
-		return result > 0.0 ? result : 0;
+	private static double mountainDensity(double noise) {
+		return noise > 0.0 ? noise : 0;
 	}
 
-	private double calcCaveDensity(double x, double y, double z) {
-		return pGen8.fBm(x * 0.02, y * 0.02, z * 0.02);
+	private static double hillDensity(double noise) {
+		double result = noise - 0.1;
+		return result > 0.0 ? result : 0;
 	}
 
 	@Override
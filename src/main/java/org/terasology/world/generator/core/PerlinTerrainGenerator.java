@@ -17,28 +17,32 @@
 package org.terasology.world.generator.core;
 
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import javax.vecmath.Vector2f;
 
 import org.terasology.math.TeraMath;
+import org.terasology.utilities.GridNoise;
 import org.terasology.utilities.PerlinNoise;
 import org.terasology.world.WorldBiomeProvider;
 import org.terasology.world.block.Block;
 import org.terasology.world.block.management.BlockManager;
 import org.terasology.world.chunks.Chunk;
-import org.terasology.world.generator.ChunkGenerator;
+import org.terasology.world.generator.ParallelChunkGenerator;
 import org.terasology.world.liquid.LiquidData;
 import org.terasology.world.liquid.LiquidType;
 
 /**
  * @author Immortius
  */
-public class PerlinTerrainGenerator implements ChunkGenerator {
+public class PerlinTerrainGenerator implements ParallelChunkGenerator {
     private static final int SAMPLE_RATE_3D_HOR = 4;
     private static final int SAMPLE_RATE_3D_VERT = 4;
 
     private PerlinNoise _pGen1, _pGen2, _pGen3, _pGen4, _pGen5, _pGen8;
+    private GridNoise _baseGrid, _oceanGrid, _riverGrid, _mountainGrid, _hillGrid, _caveGrid;
     private WorldBiomeProvider biomeProvider;
+    private ExecutorService _subtaskExecutor;
 
     private Block air = BlockManager.getInstance().getAir();
     private Block mantle = BlockManager.getInstance().getBlock("engine:MantleStone");
@@ -65,6 +69,13 @@ public class PerlinTerrainGenerator implements ChunkGenerator {
             _pGen4 = new PerlinNoise(seed.hashCode() + 3);
             _pGen5 = new PerlinNoise(seed.hashCode() + 4);
             _pGen8 = new PerlinNoise(seed.hashCode() + 7);
+
+            _baseGrid = new GridNoise(_pGen1);
+            _oceanGrid = new GridNoise(_pGen2);
+            _riverGrid = new GridNoise(_pGen3);
+            _mountainGrid = new GridNoise(_pGen4);
+            _hillGrid = new GridNoise(_pGen5);
+            _caveGrid = new GridNoise(_pGen8);
         }
     }
 
@@ -73,6 +84,11 @@ public class PerlinTerrainGenerator implements ChunkGenerator {
         this.biomeProvider = biomeProvider;
     }
 
+    @Override
+    public void setSubtaskExecutor(ExecutorService executor) {
+        _subtaskExecutor = executor;
+    }
+
     @Override
     public void generateChunk(Chunk c) {
         double[][][] densityMap = new double[Chunk.SIZE_X + 1][Chunk.SIZE_Y + 1][Chunk.SIZE_Z + 1];
@@ -80,19 +96,33 @@ public class PerlinTerrainGenerator implements ChunkGenerator {
         /*
          * Create the density map at a lower sample rate.
          */
-        for (int x = 0; x <= Chunk.SIZE_X; x += SAMPLE_RATE_3D_HOR) {
-            for (int z = 0; z <= Chunk.SIZE_Z; z += SAMPLE_RATE_3D_HOR) {
-                for (int y = 0; y <= Chunk.SIZE_Y; y += SAMPLE_RATE_3D_VERT) {
-                    densityMap[x][y][z] = calcDensity(c.getBlockWorldPosX(x), y, c.getBlockWorldPosZ(z));
-                }
-            }
-        }
+        fillDensityMap(densityMap, c.getBlockWorldPosX(0), c.getBlockWorldPosZ(0));
 
         /*
          * Trilinear interpolate the missing values.
          */
         triLerpDensityMap(densityMap);
 
+        /*
+         * Evaluate the cave density for all blocks up to the highest solid one.
+         */
+        int caveHeight = 0;
+        for (int x = 0; x < Chunk.SIZE_X; x++) {
+            for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                for (int y = Chunk.SIZE_Y - 1; y > caveHeight; y--) {
+                    if (densityMap[x][y][z] >= 0) {
+                        caveHeight = y;
+                        break;
+                    }
+                }
+            }
+        }
+        double[] caveDensity = _caveGrid.fBm(null,
+                new GridNoise.Axis(c.getBlockWorldPosX(0), 1, Chunk.SIZE_X, 0.02),
+                new GridNoise.Axis(0, 1, caveHeight + 1, 0.02),
+                new GridNoise.Axis(c.getBlockWorldPosZ(0), 1, Chunk.SIZE_Z, 0.02),
+                _subtaskExecutor);
+
         /*
          * Generate the chunk from the density map.
          */
@@ -127,7 +157,7 @@ public class PerlinTerrainGenerator implements ChunkGenerator {
                         if (firstBlockHeight == -1)
                             firstBlockHeight = y;
 
-                        if (calcCaveDensity(c.getBlockWorldPosX(x), y, c.getBlockWorldPosZ(z)) > -0.7)
+                        if (caveDensity[(x * (caveHeight + 1) + y) * Chunk.SIZE_Z + z] > -0.7)
                             GenerateOuterLayer(x, y, z, firstBlockHeight, c, type);
                         else
                             c.setBlock(x, y, z, air);
@@ -139,7 +169,7 @@ public class PerlinTerrainGenerator implements ChunkGenerator {
                         if (firstBlockHeight == -1)
                             firstBlockHeight = y;
 
-                        if (calcCaveDensity(c.getBlockWorldPosX(x), y, c.getBlockWorldPosZ(z)) > -0.6)
+                        if (caveDensity[(x * (caveHeight + 1) + y) * Chunk.SIZE_Z + z] > -0.6)
                             GenerateInnerLayer(x, y, z, c, type);
                         else
                             c.setBlock(x, y, z, air);
@@ -226,19 +256,58 @@ public class PerlinTerrainGenerator implements ChunkGenerator {
         }
     }
 
+    /**
+     * Fills the density map at the sample positions. The terms only depending on the column are evaluated once per
+     * column and the 3D terms for all samples at once.
+     */
+    private void fillDensityMap(double[][][] densityMap, int worldX, int worldZ) {
+        int samplesX = Chunk.SIZE_X / SAMPLE_RATE_3D_HOR + 1;
+        int samplesY = Chunk.SIZE_Y / SAMPLE_RATE_3D_VERT + 1;
+        int samplesZ = Chunk.SIZE_Z / SAMPLE_RATE_3D_HOR + 1;
+
+        double[] base = _baseGrid.fBm(null, new GridNoise.Axis(worldX, SAMPLE_RATE_3D_HOR, samplesX, 0.004), new GridNoise.Axis(worldZ, SAMPLE_RATE_3D_HOR, samplesZ, 0.004));
+        double[] ocean = _oceanGrid.fBm(null, new GridNoise.Axis(worldX, SAMPLE_RATE_3D_HOR, samplesX, 0.0009), new GridNoise.Axis(worldZ, SAMPLE_RATE_3D_HOR, samplesZ, 0.0009));
+        double[] river = _riverGrid.fBm(null, new GridNoise.Axis(worldX, SAMPLE_RATE_3D_HOR, samplesX, 0.0008), new GridNoise.Axis(worldZ, SAMPLE_RATE_3D_HOR, samplesZ, 0.0008));
+        double[] mountains = _mountainGrid.fBm(null,
+                new GridNoise.Axis(worldX, SAMPLE_RATE_3D_HOR, samplesX, 0.002),
+                new GridNoise.Axis(0, SAMPLE_RATE_3D_VERT, samplesY, 0.001),
+                new GridNoise.Axis(worldZ, SAMPLE_RATE_3D_HOR, samplesZ, 0.002),
+                _subtaskExecutor);
+        double[] hills = _hillGrid.fBm(null,
+                new GridNoise.Axis(worldX, SAMPLE_RATE_3D_HOR, samplesX, 0.008),
+                new GridNoise.Axis(0, SAMPLE_RATE_3D_VERT, samplesY, 0.006),
+                new GridNoise.Axis(worldZ, SAMPLE_RATE_3D_HOR, samplesZ, 0.008),
+                _subtaskExecutor);
+
+        for (int i = 0; i < samplesX; i++) {
+            for (int k = 0; k < samplesZ; k++) {
+                int column = i * samplesZ + k;
+                double height = baseTerrain(base[column]);
+                double oceanTerrain = oceanTerrain(ocean[column]);
+                double riverTerrain = riverTerrain(river[column]);
+                double mIntens = calcMountainIntensity(worldX + i * SAMPLE_RATE_3D_HOR, worldZ + k * SAMPLE_RATE_3D_HOR);
+
+                for (int j = 0; j < samplesY; j++) {
+                    int sample = (i * samplesY + j) * samplesZ + k;
+                    densityMap[i * SAMPLE_RATE_3D_HOR][j * SAMPLE_RATE_3D_VERT][k * SAMPLE_RATE_3D_HOR] =
+                            calcDensity(j * SAMPLE_RATE_3D_VERT, height, oceanTerrain, riverTerrain, mIntens, mountains[sample], hills[sample]);
+                }
+            }
+        }
+    }
+
     public double calcDensity(int x, int y, int z) {
         double height = calcBaseTerrain(x, z);
         double ocean = calcOceanTerrain(x, z);
         double river = calcRiverTerrain(x, z);
+        double mIntens = calcMountainIntensity(x, z);
 
-        float temp = biomeProvider.getTemperatureAt(x, z);
-        float humidity = biomeProvider.getHumidityAt(x, z) * temp;
-
-        Vector2f distanceToMountainBiome = new Vector2f(temp - 0.25f, humidity - 0.35f);
+        return calcDensity(y, height, ocean, river, mIntens, _pGen4.fBm(x * 0.002, y * 0.001, z * 0.002), _pGen5.fBm(x * 0.008, y * 0.006, z * 0.008));
+    }
 
-        double mIntens = TeraMath.clamp(1.0 - distanceToMountainBiome.length() * 3.0);
-        double densityMountains = calcMountainDensity(x, y, z) * mIntens;
-        double densityHills = calcHillDensity(x, y, z) * (1.0 - mIntens);
+    private double calcDensity(int y, double height, double ocean, double river, double mIntens, double mountainNoise, double hillNoise) {
+        double densityMountains = mountainDensity(mountainNoise) * mIntens;
+        double densityHills = hillDensity(hillNoise) * (1.0 - mIntens);
 
         int plateauArea = (int) (Chunk.SIZE_Y * 0.10);
         double flatten = TeraMath.clamp(((Chunk.SIZE_Y - 16) - y) / plateauArea);
@@ -246,36 +315,46 @@ public class PerlinTerrainGenerator implements ChunkGenerator {
         return -y + (((32.0 + height * 32.0) * TeraMath.clamp(river + 0.25) * TeraMath.clamp(ocean + 0.25)) + densityMountains * 1024.0 + densityHills * 128.0) * flatten;
     }
 
+    private double calcMountainIntensity(int x, int z) {
+        float temp = biomeProvider.getTemperatureAt(x, z);
+        float humidity = biomeProvider.getHumidityAt(x, z) * temp;
+
+        Vector2f distanceToMountainBiome = new Vector2f(temp - 0.25f, humidity - 0.35f);
+
+        return TeraMath.clamp(1.0 - distanceToMountainBiome.length() * 3.0);
+    }
+
     private double calcBaseTerrain(double x, double z) {
-        return TeraMath.clamp((_pGen1.fBm(0.004 * x, 0, 0.004 * z) + 1.0) / 2.0);
+        return baseTerrain(_pGen1.fBm(0.004 * x, 0, 0.004 * z));
     }
 
     private double calcOceanTerrain(double x, double z) {
-        return TeraMath.clamp(_pGen2.fBm(0.0009 * x, 0, 0.0009 * z) * 8.0);
+        return oceanTerrain(_pGen2.fBm(0.0009 * x, 0, 0.0009 * z));
     }
 
     private double calcRiverTerrain(double x, double z) {
-        return TeraMath.clamp((java.lang.Math.sqrt(java.lang.Math.abs(_pGen3.fBm(0.0008 * x, 0, 0.0008 * z))) - 0.1) * 7.0);
+        return riverTerrain(_pGen3.fBm(0.0008 * x, 0, 0.0008 * z));
     }
 
-    private double calcMountainDensity(double x, double y, double z) {
-        double x1, y1, z1;
-        x1 = x * 0.002;y1 = y * 0.001; z1 = z * 0.002;
+    private static double baseTerrain(double noise) {
+        return TeraMath.clamp((noise + 1.0) / 2.0);
+    }
 
-        double result = _pGen4.fBm(x1, y1, z1);
-        return result > 0.0 ? result : 0;
+    private static double oceanTerrain(double noise) {
+        return TeraMath.clamp(noise * 8.0);
     }
 
-    private double calcHillDensity(double x, double y, double z) {
-        double x1, y1, z1;
-        x1 = x * 0.008; y1 = y * 0.006; z1 = z * 0.008;
+    private static double riverTerrain(double noise) {
+        return TeraMath.clamp((java.lang.Math.sqrt(java.lang.Math.abs(noise)) - 0.1) * 7.0);
+    }
 
-        double result = _pGen5.fBm(x1, y1, z1) - 0.1;
-        return result > 0.0 ? result : 0;
+    private static double mountainDensity(double noise) {
+        return noise > 0.0 ? noise : 0;
     }
 
-    private double calcCaveDensity(double x, double y, double z) {
-        return _pGen8.fBm(x * 0.02, y * 0.02, z * 0.02);
+    private static double hillDensity(double noise) {
+        double result = noise - 0.1;
+        return result > 0.0 ? result : 0;
     }
 
     @Override
@@ -0,0 +1,540 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.lighting;
+
+import org.terasology.math.Region3i;
+import org.terasology.math.Side;
+import org.terasology.math.Vector3i;
+import org.terasology.world.WorldView;
+import org.terasology.world.block.Block;
+import org.terasology.world.block.management.BlockManager;
+import org.terasology.world.chunks.Chunk;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Breadth first light propagation over a horizontal grid of chunks.
+ * <p/>
+ * Positions are packed into ints relative to the first block of the grid and queued in {@link LightQueue}s, and the
+ * light values are read and written on the chunks directly. Light is removed with the usual two queue algorithm: the
+ * decrease pass clears all light that may have come through the changed blocks and queues the light found at the
+ * edge of the cleared area, which the increase pass then spreads back in.
+ * <p/>
+ * Sunlight follows the rules of the {@link InternalLightProcessor}: it enters the top of the world at full strength,
+ * keeps full strength while falling through blocks it {@link LightingUtil#doesSunlightRetainsFullStrengthIn retains
+ * full strength in}, and otherwise loses one level per block, only spreading upwards below full strength.
+ *
+ * @see LightPropagator
+ */
+final class LightEngine {
+
+    private static final int TOP_Y = Chunk.SIZE_Y - 1;
+
+    private static final int SHIFT_X = 18;
+    private static final int SHIFT_Z = 8;
+    private static final int MASK_XZ = 0x3FF;
+    private static final int MASK_Y = 0xFF;
+    private static final int MAX_SIZE = MASK_XZ + 1;
+    private static final int SHIFT_LIGHT = 28;
+    private static final int MASK_POS = (1 << SHIFT_LIGHT) - 1;
+    // Marks queued positions whose own light source (the sky or their luminance) has to be applied again
+    private static final int SOURCE = 1 << 31;
+
+    // Per block id flags: 6 bits for the sides light can spread out of, 6 for the sides it can spread into, whether
+    // sunlight retains its strength and the luminance
+    private static final int SHIFT_INTO = 6;
+    private static final int RETAINS_SUNLIGHT = 1 << 12;
+    private static final int SPREAD_FLAGS = (1 << 12) - 1;
+    private static final int SHIFT_LUMINANCE = 16;
+
+    private static final int[] DX = new int[6];
+    private static final int[] DY = new int[6];
+    private static final int[] DZ = new int[6];
+    private static final int[] REVERSE = new int[6];
+
+    static {
+        for (Side side : Side.values()) {
+            DX[side.ordinal()] = side.getVector3i().x;
+            DY[side.ordinal()] = side.getVector3i().y;
+            DZ[side.ordinal()] = side.getVector3i().z;
+            REVERSE[side.ordinal()] = side.reverse().ordinal();
+        }
+    }
+
+    private static final int TOP = Side.TOP.ordinal();
+    private static final int BOTTOM = Side.BOTTOM.ordinal();
+
+    private final Chunk[] chunks;
+    private final int chunksX;
+    private final int sizeX;
+    private final int sizeZ;
+    private final int originX;
+    private final int originZ;
+    private final int[] blockFlags = new int[256];
+
+    private final LightQueue increaseSunlight = new LightQueue();
+    private final LightQueue increaseLight = new LightQueue();
+    private final LightQueue decreaseSunlight = new LightQueue();
+    private final LightQueue decreaseLight = new LightQueue();
+
+    private int minX;
+    private int minY;
+    private int minZ;
+    private int maxX;
+    private int maxY;
+    private int maxZ;
+
+    /**
+     * Creates an engine bound to a single chunk
+     */
+    LightEngine(Chunk chunk) {
+        this(new Chunk[]{chunk}, 1, 1, 0, 0);
+    }
+
+    /**
+     * Creates an engine over all chunks of a world view, addressed by the block positions of the view
+     */
+    LightEngine(WorldView view) {
+        this(chunksOf(view), view.getChunkRegion().size().x, view.getChunkRegion().size().z, view.getBlockRegion().min().x, view.getBlockRegion().min().z);
+    }
+
+    private LightEngine(Chunk[] chunks, int chunksX, int chunksZ, int originX, int originZ) {
+        this.chunks = chunks;
+        this.chunksX = chunksX;
+        this.sizeX = chunksX * Chunk.SIZE_X;
+        this.sizeZ = chunksZ * Chunk.SIZE_Z;
+        this.originX = originX;
+        this.originZ = originZ;
+        Preconditions.checkArgument(fits(sizeX, sizeZ), "Light engine region too large");
+        BlockManager blockManager = BlockManager.getInstance();
+        for (int id = 0; id < blockFlags.length; id++) {
+            blockFlags[id] = flagsOf(blockManager.getBlock((byte) id));
+        }
+        resetAffectedRegion();
+    }
+
+    /**
+     * @return Whether an engine can be created over the given world view
+     */
+    static boolean canCover(WorldView view) {
+        Vector3i size = view.getChunkRegion().size();
+        return fits(size.x * Chunk.SIZE_X, size.z * Chunk.SIZE_Z);
+    }
+
+    private static boolean fits(int sizeX, int sizeZ) {
+        return sizeX <= MAX_SIZE && sizeZ <= MAX_SIZE;
+    }
+
+    private static Chunk[] chunksOf(WorldView view) {
+        Vector3i size = view.getChunkRegion().size();
+        Vector3i min = view.getBlockRegion().min();
+        Chunk[] result = new Chunk[size.x * size.z];
+        for (int z = 0; z < size.z; z++) {
+            for (int x = 0; x < size.x; x++) {
+                result[x + size.x * z] = view.getChunkAtBlock(min.x + x * Chunk.SIZE_X, 0, min.z + z * Chunk.SIZE_Z);
+            }
+        }
+        return result;
+    }
+
+    private static int flagsOf(Block block) {
+        int flags = 0;
+        for (Side side : Side.values()) {
+            if (LightingUtil.canSpreadLightOutOf(block, side)) {
+                flags |= 1 << side.ordinal();
+            }
+            if (LightingUtil.canSpreadLightInto(block, side)) {
+                flags |= 1 << (SHIFT_INTO + side.ordinal());
+            }
+        }
+        if (LightingUtil.doesSunlightRetainsFullStrengthIn(block)) {
+            flags |= RETAINS_SUNLIGHT;
+        }
+        return flags | (block.getLuminance() << SHIFT_LUMINANCE);
+    }
+
+    /**
+     * Lights a chunk that has no light yet, without spreading light past its edges. Only valid for an engine bound
+     * to a single chunk.
+     */
+    void generateInternalLighting() {
+        Preconditions.checkState(chunks.length == 1, "Internal lighting needs an engine bound to a single chunk");
+        Chunk chunk = chunks[0];
+        int airFlags = blockFlags[BlockManager.getInstance().getAir().getId() & 0xFF];
+        int[] tops = new int[Chunk.SIZE_X * Chunk.SIZE_Z];
+
+        // Tunnel sunlight down
+        for (int z = 0; z < Chunk.SIZE_Z; z++) {
+            for (int x = 0; x < Chunk.SIZE_X; x++) {
+                int lastFlags = airFlags;
+                int y = TOP_Y;
+                for (; y >= 0; y--) {
+                    int flags = blockFlags[chunk.getBlockId(x, y, z) & 0xFF];
+                    if (!canSunlightFallInto(lastFlags, flags)) {
+                        break;
+                    }
+                    chunk.setSunlight(x, y, z, Chunk.MAX_LIGHT);
+                    lastFlags = flags;
+                }
+                tops[x + Chunk.SIZE_X * z] = y;
+            }
+        }
+
+        // Spread from the tunnelled cells that have unlit cells below or beside them, and from light sources
+        for (int z = 0; z < Chunk.SIZE_Z; z++) {
+            for (int x = 0; x < Chunk.SIZE_X; x++) {
+                int columnTop = tops[x + Chunk.SIZE_X * z];
+                if (columnTop < TOP_Y) {
+                    increaseSunlight.offer(pack(x, columnTop + 1, z));
+                }
+                int sideTop = columnTop;
+                if (x > 0) {
+                    sideTop = Math.max(sideTop, tops[x - 1 + Chunk.SIZE_X * z]);
+                }
+                if (x < Chunk.SIZE_X - 1) {
+                    sideTop = Math.max(sideTop, tops[x + 1 + Chunk.SIZE_X * z]);
+                }
+                if (z > 0) {
+                    sideTop = Math.max(sideTop, tops[x + Chunk.SIZE_X * (z - 1)]);
+                }
+                if (z < Chunk.SIZE_Z - 1) {
+                    sideTop = Math.max(sideTop, tops[x + Chunk.SIZE_X * (z + 1)]);
+                }
+                for (int y = sideTop; y > columnTop + 1; y--) {
+                    increaseSunlight.offer(pack(x, y, z));
+                }
+                for (int y = 0; y < Chunk.SIZE_Y; y++) {
+                    if ((blockFlags[chunk.getBlockId(x, y, z) & 0xFF] >>> SHIFT_LUMINANCE) > 0) {
+                        increaseLight.offer(pack(x, y, z) | SOURCE);
+                    }
+                }
+            }
+        }
+        spreadSunlight();
+        spreadLight();
+    }
+
+    /**
+     * Spreads the light at the edges of the given chunk into the neighbouring chunks of the engine.
+     *
+     * @param chunkBlockX The x position of the first block of the chunk
+     * @param chunkBlockZ The z position of the first block of the chunk
+     */
+    void propagateOutOfChunk(int chunkBlockX, int chunkBlockZ) {
+        int x0 = chunkBlockX - originX;
+        int z0 = chunkBlockZ - originZ;
+        int x1 = x0 + Chunk.SIZE_X - 1;
+        int z1 = z0 + Chunk.SIZE_Z - 1;
+        int front = Side.FRONT.ordinal();
+        int back = Side.BACK.ordinal();
+        int left = Side.LEFT.ordinal();
+        int right = Side.RIGHT.ordinal();
+        for (int y = 0; y < Chunk.SIZE_Y; y++) {
+            for (int x = x0; x <= x1; x++) {
+                propagateAcross(x, y, z0, front);
+                propagateAcross(x, y, z1, back);
+            }
+            for (int z = z0; z <= z1; z++) {
+                propagateAcross(x0, y, z, left);
+                propagateAcross(x1, y, z, right);
+            }
+        }
+        spreadSunlight();
+        spreadLight();
+    }
+
+    private void propagateAcross(int x, int y, int z, int side) {
+        int adjX = x + DX[side];
+        int adjZ = z + DZ[side];
+        if (!isInBounds(adjX, adjZ)) {
+            return;
+        }
+        int flags = flags(x, y, z);
+        if ((flags & (1 << side)) == 0) {
+            return;
+        }
+        int adjFlags = flags(adjX, y, adjZ);
+        if ((adjFlags & (1 << (SHIFT_INTO + REVERSE[side]))) == 0) {
+            return;
+        }
+        int sunlight = sunlight(x, y, z);
+        if (sunlight > 1 && sunlight(adjX, y, adjZ) < sunlight - 1) {
+            setSunlight(adjX, y, adjZ, sunlight - 1);
+            increaseSunlight.offer(pack(adjX, y, adjZ));
+        }
+        int light = light(x, y, z);
+        if (light > 1 && light(adjX, y, adjZ) < light - 1) {
+            setLight(adjX, y, adjZ, light - 1);
+            increaseLight.offer(pack(adjX, y, adjZ));
+        }
+    }
+
+    /**
+     * Queues the relighting for a block that has changed from oldType to type. The relighting happens on
+     * {@link #propagate()}, so several changes can be relit together.
+     */
+    void blockChanged(int blockX, int blockY, int blockZ, Block type, Block oldType) {
+        int x = blockX - originX;
+        int z = blockZ - originZ;
+        if (!isInBounds(x, z) || blockY < 0 || blockY > TOP_Y) {
+            return;
+        }
+        int newFlags = flagsOf(type);
+        int oldFlags = flagsOf(oldType);
+        if (newFlags == oldFlags) {
+            return;
+        }
+        int lost = oldFlags & ~newFlags;
+        if ((lost & (SPREAD_FLAGS | RETAINS_SUNLIGHT)) != 0) {
+            int sunlight = sunlight(x, blockY, z);
+            if (sunlight > 0) {
+                setSunlight(x, blockY, z, 0);
+                decreaseSunlight.offer(pack(x, blockY, z) | (sunlight << SHIFT_LIGHT));
+            }
+        }
+        if ((lost & SPREAD_FLAGS) != 0 || type.getLuminance() < oldType.getLuminance()) {
+            int light = light(x, blockY, z);
+            if (light > 0) {
+                setLight(x, blockY, z, 0);
+                decreaseLight.offer(pack(x, blockY, z) | (light << SHIFT_LIGHT));
+            }
+        }
+        // The block and its neighbours spread light again under the new rules
+        int pos = pack(x, blockY, z);
+        increaseSunlight.offer(pos | SOURCE);
+        increaseLight.offer(pos | SOURCE);
+        for (int side = 0; side < 6; side++) {
+            int adjX = x + DX[side];
+            int adjY = blockY + DY[side];
+            int adjZ = z + DZ[side];
+            if (isInBounds(adjX, adjZ) && adjY >= 0 && adjY <= TOP_Y) {
+                int adjPos = pack(adjX, adjY, adjZ);
+                increaseSunlight.offer(adjPos);
+                increaseLight.offer(adjPos);
+            }
+        }
+    }
+
+    /**
+     * Runs the decrease and increase passes for all queued changes
+     */
+    void propagate() {
+        clearSunlight();
+        clearLight();
+        spreadSunlight();
+        spreadLight();
+    }
+
+    /**
+     * @return The region of all blocks whose light has been written since the last reset, in the block positions
+     *         of the engine
+     */
+    Region3i getAffectedRegion() {
+        if (minX > maxX) {
+            return Region3i.EMPTY;
+        }
+        return Region3i.createFromMinMax(new Vector3i(minX + originX, minY, minZ + originZ), new Vector3i(maxX + originX, maxY, maxZ + originZ));
+    }
+
+    void resetAffectedRegion() {
+        minX = minY = minZ = Integer.MAX_VALUE;
+        maxX = maxY = maxZ = Integer.MIN_VALUE;
+    }
+
+    private void spreadSunlight() {
+        while (!increaseSunlight.isEmpty()) {
+            int entry = increaseSunlight.poll();
+            int x = (entry & MASK_POS) >>> SHIFT_X;
+            int y = entry & MASK_Y;
+            int z = (entry >>> SHIFT_Z) & MASK_XZ;
+            int flags = flags(x, y, z);
+            int light = sunlight(x, y, z);
+            if ((entry & SOURCE) != 0 && y == TOP_Y && light < Chunk.MAX_LIGHT && (flags & RETAINS_SUNLIGHT) != 0 && (flags & (1 << (SHIFT_INTO + TOP))) != 0) {
+                light = Chunk.MAX_LIGHT;
+                setSunlight(x, y, z, light);
+            }
+            if (light <= 1) {
+                continue;
+            }
+            for (int side = 0; side < 6; side++) {
+                if ((flags & (1 << side)) == 0 || (side == TOP && light == Chunk.MAX_LIGHT)) {
+                    continue;
+                }
+                int adjX = x + DX[side];
+                int adjY = y + DY[side];
+                int adjZ = z + DZ[side];
+                if (!isInBounds(adjX, adjZ) || adjY < 0 || adjY > TOP_Y) {
+                    continue;
+                }
+                int adjFlags = flags(adjX, adjY, adjZ);
+                if ((adjFlags & (1 << (SHIFT_INTO + REVERSE[side]))) == 0) {
+                    continue;
+                }
+                int adjLight = (side == BOTTOM && light == Chunk.MAX_LIGHT && (adjFlags & RETAINS_SUNLIGHT) != 0) ? Chunk.MAX_LIGHT : light - 1;
+                if (sunlight(adjX, adjY, adjZ) < adjLight) {
+                    setSunlight(adjX, adjY, adjZ, adjLight);
+                    increaseSunlight.offer(pack(adjX, adjY, adjZ));
+                }
+            }
+        }
+    }
+
+    private void spreadLight() {
+        while (!increaseLight.isEmpty()) {
+            int entry = increaseLight.poll();
+            int x = (entry & MASK_POS) >>> SHIFT_X;
+            int y = entry & MASK_Y;
+            int z = (entry >>> SHIFT_Z) & MASK_XZ;
+            int flags = flags(x, y, z);
+            int light = light(x, y, z);
+            int luminance = flags >>> SHIFT_LUMINANCE;
+            if ((entry & SOURCE) != 0 && luminance > light) {
+                light = luminance;
+                setLight(x, y, z, light);
+            }
+            if (light <= 1) {
+                continue;
+            }
+            for (int side = 0; side < 6; side++) {
+                if ((flags & (1 << side)) == 0) {
+                    continue;
+                }
+                int adjX = x + DX[side];
+                int adjY = y + DY[side];
+                int adjZ = z + DZ[side];
+                if (!isInBounds(adjX, adjZ) || adjY < 0 || adjY > TOP_Y) {
+                    continue;
+                }
+                if ((flags(adjX, adjY, adjZ) & (1 << (SHIFT_INTO + REVERSE[side]))) != 0 && light(adjX, adjY, adjZ) < light - 1) {
+                    setLight(adjX, adjY, adjZ, light - 1);
+                    increaseLight.offer(pack(adjX, adjY, adjZ));
+                }
+            }
+        }
+    }
+
+    private void clearSunlight() {
+        while (!decreaseSunlight.isEmpty()) {
+            int entry = decreaseSunlight.poll();
+            int light = entry >>> SHIFT_LIGHT;
+            int x = (entry & MASK_POS) >>> SHIFT_X;
+            int y = entry & MASK_Y;
+            int z = (entry >>> SHIFT_Z) & MASK_XZ;
+            for (int side = 0; side < 6; side++) {
+                int adjX = x + DX[side];
+                int adjY = y + DY[side];
+                int adjZ = z + DZ[side];
+                if (!isInBounds(adjX, adjZ) || adjY < 0 || adjY > TOP_Y) {
+                    continue;
+                }
+                int adjLight = sunlight(adjX, adjY, adjZ);
+                if (adjLight == 0) {
+                    continue;
+                }
+                int adjPos = pack(adjX, adjY, adjZ);
+                // Full strength sunlight below full strength sunlight has fallen through this block
+                if (adjLight < light || (side == BOTTOM && light == Chunk.MAX_LIGHT && adjLight == Chunk.MAX_LIGHT)) {
+                    setSunlight(adjX, adjY, adjZ, 0);
+                    decreaseSunlight.offer(adjPos | (adjLight << SHIFT_LIGHT));
+                    if (adjY == TOP_Y) {
+                        increaseSunlight.offer(adjPos | SOURCE);
+                    }
+                } else {
+                    increaseSunlight.offer(adjPos);
+                }
+            }
+        }
+    }
+
+    private void clearLight() {
+        while (!decreaseLight.isEmpty()) {
+            int entry = decreaseLight.poll();
+            int light = entry >>> SHIFT_LIGHT;
+            int x = (entry & MASK_POS) >>> SHIFT_X;
+            int y = entry & MASK_Y;
+            int z = (entry >>> SHIFT_Z) & MASK_XZ;
+            for (int side = 0; side < 6; side++) {
+                int adjX = x + DX[side];
+                int adjY = y + DY[side];
+                int adjZ = z + DZ[side];
+                if (!isInBounds(adjX, adjZ) || adjY < 0 || adjY > TOP_Y) {
+                    continue;
+                }
+                int adjLight = light(adjX, adjY, adjZ);
+                if (adjLight == 0) {
+                    continue;
+                }
+                int adjPos = pack(adjX, adjY, adjZ);
+                if (adjLight < light) {
+                    setLight(adjX, adjY, adjZ, 0);
+                    decreaseLight.offer(adjPos | (adjLight << SHIFT_LIGHT));
+                    if ((flags(adjX, adjY, adjZ) >>> SHIFT_LUMINANCE) > 0) {
+                        increaseLight.offer(adjPos | SOURCE);
+                    }
+                } else {
+                    increaseLight.offer(adjPos);
+                }
+            }
+        }
+    }
+
+    private static boolean canSunlightFallInto(int fromFlags, int toFlags) {
+        return (fromFlags & (1 << BOTTOM)) != 0 && (toFlags & (1 << (SHIFT_INTO + TOP))) != 0 && (toFlags & RETAINS_SUNLIGHT) != 0;
+    }
+
+    private static int pack(int x, int y, int z) {
+        return (x << SHIFT_X) | (z << SHIFT_Z) | y;
+    }
+
+    private boolean isInBounds(int x, int z) {
+        return x >= 0 && x < sizeX && z >= 0 && z < sizeZ;
+    }
+
+    private Chunk chunk(int x, int z) {
+        return chunks[(x >> Chunk.POWER_X) + chunksX * (z >> Chunk.POWER_Z)];
+    }
+
+    private int flags(int x, int y, int z) {
+        return blockFlags[chunk(x, z).getBlockId(x & Chunk.INNER_CHUNK_POS_FILTER_X, y, z & Chunk.INNER_CHUNK_POS_FILTER_Z) & 0xFF];
+    }
+
+    private int sunlight(int x, int y, int z) {
+        return chunk(x, z).getSunlight(x & Chunk.INNER_CHUNK_POS_FILTER_X, y, z & Chunk.INNER_CHUNK_POS_FILTER_Z);
+    }
+
+    private int light(int x, int y, int z) {
+        return chunk(x, z).getLight(x & Chunk.INNER_CHUNK_POS_FILTER_X, y, z & Chunk.INNER_CHUNK_POS_FILTER_Z);
+    }
+
+    private void setSunlight(int x, int y, int z, int value) {
+        chunk(x, z).setSunlight(x & Chunk.INNER_CHUNK_POS_FILTER_X, y, z & Chunk.INNER_CHUNK_POS_FILTER_Z, (byte) value);
+        markAffected(x, y, z);
+    }
+
+    private void setLight(int x, int y, int z, int value) {
+        chunk(x, z).setLight(x & Chunk.INNER_CHUNK_POS_FILTER_X, y, z & Chunk.INNER_CHUNK_POS_FILTER_Z, (byte) value);
+        markAffected(x, y, z);
+    }
+
+    private void markAffected(int x, int y, int z) {
+        minX = Math.min(minX, x);
+        minY = Math.min(minY, y);
+        minZ = Math.min(minZ, z);
+        maxX = Math.max(maxX, x);
+        maxY = Math.max(maxY, y);
+        maxZ = Math.max(maxZ, z);
+    }
+}
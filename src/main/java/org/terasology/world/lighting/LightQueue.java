@@ -0,0 +1,77 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.lighting;
+
+import java.util.Arrays;
+
+/**
+ * A growable FIFO ring buffer of ints, used to queue packed block positions during light propagation.
+ */
+final class LightQueue {
+
+    private int[] elements;
+    private int head;
+    private int size;
+
+    LightQueue() {
+        this(1024);
+    }
+
+    /**
+     * @param initialCapacity Must be a power of two
+     */
+    LightQueue(int initialCapacity) {
+        elements = new int[initialCapacity];
+    }
+
+    public void offer(int value) {
+        if (size == elements.length) {
+            grow();
+        }
+        elements[(head + size) & (elements.length - 1)] = value;
+        size++;
+    }
+
+    /**
+     * @return The oldest value in the queue. The queue must not be empty.
+     */
+    public int poll() {
+        int value = elements[head];
+        head = (head + 1) & (elements.length - 1);
+        size--;
+        return value;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    private void grow() {
+        int[] grown = Arrays.copyOf(elements, elements.length * 2);
+        // Move the wrapped part behind the old end so the queue is contiguous again
+        System.arraycopy(elements, 0, grown, elements.length, head);
+        elements = grown;
+    }
+}
@@ -52,7 +52,7 @@ public final class LightingUtil {
                 if (newBlocked && !oldBlocked) {
                     return PropagationComparison.MORE_RESTRICTED;
                 }
-                permit = oldBlocked && !newBlocked;
+                permit |= oldBlocked && !newBlocked;
             }
             if (permit) {
                 return PropagationComparison.MORE_PERMISSIVE;
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.liquid;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import org.terasology.math.TeraMath;
+import org.terasology.math.Vector3i;
+import org.terasology.world.chunks.Chunk;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * A set of block positions awaiting liquid simulation, grouped by chunk. Each chunk keeps a bitset over its blocks,
+ * so adding a position which is already active costs nothing.
+ * <p/>
+ * Cells are stored by their index within the chunk, x + SIZE_X * (z + SIZE_Z * y). This class is not thread safe.
+ */
+class ActiveLiquidCells {
+
+    private static final int CELLS_PER_CHUNK = Chunk.SIZE_X * Chunk.SIZE_Y * Chunk.SIZE_Z;
+
+    private final Map<Vector3i, BitSet> chunks = Maps.newLinkedHashMap();
+    private int size;
+
+    // The chunk of the last added cell, as neighbouring cells are usually added together
+    private BitSet lastCells;
+    private int lastChunkX;
+    private int lastChunkZ;
+
+    public static int cellIndex(int x, int y, int z) {
+        return TeraMath.calcBlockPosX(x) + Chunk.SIZE_X * (TeraMath.calcBlockPosZ(z) + Chunk.SIZE_Z * y);
+    }
+
+    public static int cellX(int index) {
+        return index % Chunk.SIZE_X;
+    }
+
+    public static int cellY(int index) {
+        return index / (Chunk.SIZE_X * Chunk.SIZE_Z);
+    }
+
+    public static int cellZ(int index) {
+        return (index / Chunk.SIZE_X) % Chunk.SIZE_Z;
+    }
+
+    /**
+     * Activates the block at the given world position. Positions above or below the world are ignored.
+     */
+    public void add(int x, int y, int z) {
+        if (y < 0 || y >= Chunk.SIZE_Y) {
+            return;
+        }
+        int chunkX = TeraMath.calcChunkPosX(x);
+        int chunkZ = TeraMath.calcChunkPosZ(z);
+        if (lastCells == null || chunkX != lastChunkX || chunkZ != lastChunkZ) {
+            Vector3i chunkPos = new Vector3i(chunkX, 0, chunkZ);
+            BitSet cells = chunks.get(chunkPos);
+            if (cells == null) {
+                cells = new BitSet(CELLS_PER_CHUNK);
+                chunks.put(chunkPos, cells);
+            }
+            lastCells = cells;
+            lastChunkX = chunkX;
+            lastChunkZ = chunkZ;
+        }
+        int index = cellIndex(x, y, z);
+        if (!lastCells.get(index)) {
+            lastCells.set(index);
+            size++;
+        }
+    }
+
+    /**
+     * Activates all cells which are active in other
+     */
+    public void addAll(ActiveLiquidCells other) {
+        for (Map.Entry<Vector3i, BitSet> entry : other.chunks.entrySet()) {
+            BitSet cells = chunks.get(entry.getKey());
+            if (cells == null) {
+                chunks.put(entry.getKey(), (BitSet) entry.getValue().clone());
+                size += entry.getValue().cardinality();
+            } else {
+                size -= cells.cardinality();
+                cells.or(entry.getValue());
+                size += cells.cardinality();
+            }
+        }
+    }
+
+    /**
+     * Removes up to max active cells of the given chunk, in index order.
+     *
+     * @param chunkPos The position of the chunk
+     * @param cells    Receives the indices of the removed cells
+     * @param max      The maximum number of cells to remove
+     * @return The number of removed cells
+     */
+    public int poll(Vector3i chunkPos, int[] cells, int max) {
+        BitSet active = chunks.get(chunkPos);
+        if (active == null) {
+            return 0;
+        }
+        int count = 0;
+        for (int index = active.nextSetBit(0); index >= 0 && count < max; index = active.nextSetBit(index + 1)) {
+            active.clear(index);
+            cells[count++] = index;
+        }
+        size -= count;
+        if (active.isEmpty()) {
+            removeChunk(chunkPos);
+        }
+        return count;
+    }
+
+    /**
+     * Deactivates all cells of the given chunk
+     */
+    public void removeChunk(Vector3i chunkPos) {
+        BitSet removed = chunks.remove(chunkPos);
+        if (removed != null) {
+            size -= removed.cardinality();
+            if (removed == lastCells) {
+                lastCells = null;
+            }
+        }
+    }
+
+    /**
+     * @return The positions of all chunks with active cells, in the order they were first activated
+     */
+    public List<Vector3i> getChunks() {
+        return Lists.newArrayList(chunks.keySet());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        chunks.clear();
+        lastCells = null;
+        size = 0;
+    }
+}
@@ -58,6 +58,27 @@ public class LiquidData {
         return type.convertToByte(depth);
     }
 
+    /**
+     * @return The depth of a liquid state packed as by {@link #toByte()}
+     */
+    public static byte getDepth(byte packed) {
+        return (byte) (packed & LIQUID_DEPTH_FILTER);
+    }
+
+    /**
+     * @return The type of a liquid state packed as by {@link #toByte()}
+     */
+    public static LiquidType getType(byte packed) {
+        return LiquidType.getTypeForByte(packed);
+    }
+
+    /**
+     * @return Whether the two packed liquid states are equal, in the same way as {@link #equals(Object)}
+     */
+    public static boolean isSameState(byte a, byte b) {
+        return a == b || (getDepth(a) == 0 && getDepth(b) == 0);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
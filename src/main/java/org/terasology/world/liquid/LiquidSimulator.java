@@ -15,48 +15,53 @@
  */
 package org.terasology.world.liquid;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.List;
+import java.util.Queue;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.terasology.world.block.BlockComponent;
+import org.terasology.componentSystem.UpdateSubscriberSystem;
 import org.terasology.components.world.WorldComponent;
+import org.terasology.config.Config;
 import org.terasology.entitySystem.EntityRef;
 import org.terasology.entitySystem.EventHandlerSystem;
 import org.terasology.entitySystem.ReceiveEvent;
 import org.terasology.entitySystem.RegisterComponentSystem;
 import org.terasology.game.CoreRegistry;
-import org.terasology.math.Region3i;
 import org.terasology.math.Side;
-import org.terasology.math.TeraMath;
 import org.terasology.math.Vector3i;
+import org.terasology.performanceMonitor.PerformanceMonitor;
 import org.terasology.world.BlockChangedEvent;
+import org.terasology.world.BlockUpdate;
 import org.terasology.world.WorldProvider;
 import org.terasology.world.WorldView;
 import org.terasology.world.block.Block;
+import org.terasology.world.block.BlockComponent;
 import org.terasology.world.block.management.BlockManager;
 import org.terasology.world.chunks.Chunk;
 import org.terasology.world.chunks.ChunkReadyEvent;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Queues;
 
 /**
  * Rough draft of Minecraft-like behavior of liquids. Will be replaced with some
  * more fancy stuff later on.
+ * <p/>
+ * Liquids are simulated in fixed ticks on the main thread. Block changes activate the changed block and its
+ * neighbours for the next tick, and each tick simulates at most the configured number of active cells, chunk by
+ * chunk under a single lock. Cells left over are simulated in the following ticks. Newly available chunks are
+ * reviewed for liquid out of date a few layers at a time, within a budget of cells per tick as well.
  *
  * @author Benjamin Glatzel <benjamin.glatzel@me.com>
  */
 @RegisterComponentSystem
-public class LiquidSimulator implements EventHandlerSystem {
+public class LiquidSimulator implements EventHandlerSystem, UpdateSubscriberSystem {
 
-    private static int NUM_THREADS = 2;
     private static byte MAX_LIQUID_DEPTH = 0x7;
     public static final int PROPAGATION_DELAY = 200;
-
-    private static final Logger logger = LoggerFactory.getLogger(LiquidSimulator.class);
+    /* Reviewing a cell only reads the liquid around it, which is cheaper than simulating it */
+    private static final int REVIEWED_CELLS_PER_SIMULATED_CELL = 32;
+    /* A layer of a reviewed chunk includes the border shared with its neighbours */
+    private static final int REVIEW_LAYER_CELLS = (Chunk.SIZE_X + 2) * (Chunk.SIZE_Z + 2);
 
     private WorldProvider world;
     private Block air;
@@ -65,8 +70,21 @@ public class LiquidSimulator implements EventHandlerSystem {
     private Block dirt;
     private Block water;
     private Block lava;
-    private BlockingQueue<LiquidSimulationTask> blockQueue;
-    private ExecutorService executor;
+
+    // Cells to simulate this tick, and cells activated during it which are simulated from the next tick on
+    private ActiveLiquidCells activeCells = new ActiveLiquidCells();
+    private ActiveLiquidCells nextCells = new ActiveLiquidCells();
+    private Queue<Vector3i> chunksToReview = Queues.newArrayDeque();
+    // The chunk under review and the next layer of it to review
+    private Vector3i reviewedChunk;
+    private int reviewedLayer;
+    private int cellsPerTick;
+    private int reviewedCellsPerTick;
+    private int[] cellBuffer;
+    // The cells of a chunk whose liquid changed during its simulation and their previous liquid states
+    private int[] changedCells;
+    private byte[] previousStates;
+    private float timeSinceTick;
 
     @Override
     public void initialise() {
@@ -78,166 +96,260 @@ public class LiquidSimulator implements EventHandlerSystem {
         water = BlockManager.getInstance().getBlock("engine:Water");
         lava = BlockManager.getInstance().getBlock("engine:Lava");
 
-        blockQueue = Queues.newLinkedBlockingQueue();
-
-        executor = Executors.newFixedThreadPool(NUM_THREADS);
-        for (int i = 0; i < NUM_THREADS; ++i) {
-            executor.execute(new Runnable() {
-                @Override
-                public void run() {
-                    Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
-                    while (true) {
-                        try {
-                            LiquidSimulationTask task = blockQueue.take();
-                            if (task.shutdownThread()) {
-                                break;
-                            }
-                            task.run();
-                        } catch (InterruptedException e) {
-                            logger.debug("Interrupted");
-                        } catch (Exception e) {
-                            logger.error("Error in water simulation", e);
-                        }
-                    }
-                }
-            });
-        }
+        cellsPerTick = Math.max(1, CoreRegistry.get(Config.class).getSystem().getLiquidCellsPerTick());
+        reviewedCellsPerTick = cellsPerTick * REVIEWED_CELLS_PER_SIMULATED_CELL;
+        cellBuffer = new int[cellsPerTick];
+        changedCells = new int[cellsPerTick];
+        previousStates = new byte[cellsPerTick];
     }
 
     @Override
     public void shutdown() {
-        executor.shutdown();
-        for (int i = 0; i < NUM_THREADS; ++i) {
-            blockQueue.offer(new LiquidSimulationTask() {
-                @Override
-                public boolean shutdownThread() {
-                    return true;
-                }
+        activeCells.clear();
+        nextCells.clear();
+        chunksToReview.clear();
+        reviewedChunk = null;
+    }
 
-                @Override
-                public void run() {
-                }
-            });
+    @Override
+    public void update(float delta) {
+        timeSinceTick += delta;
+        if (timeSinceTick * 1000 >= PROPAGATION_DELAY) {
+            timeSinceTick = 0;
+            long start = System.nanoTime();
+            tick();
+            PerformanceMonitor.setValue("Liquid tick time (ms)", (System.nanoTime() - start) / 1000000.0);
         }
-        try {
-            executor.awaitTermination(1, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException e) {
-            logger.error("Interrupted awaiting shutdown");
+        PerformanceMonitor.setValue("Liquid active cells", activeCells.size() + nextCells.size());
+        PerformanceMonitor.setValue("Liquid active chunks", activeCells.getChunks().size());
+    }
+
+    private void tick() {
+        activeCells.addAll(nextCells);
+        nextCells.clear();
+
+        int reviewBudget = reviewedCellsPerTick;
+        while (reviewBudget > 0) {
+            if (reviewedChunk == null) {
+                reviewedChunk = chunksToReview.poll();
+                reviewedLayer = 0;
+                if (reviewedChunk == null) {
+                    break;
+                }
+            }
+            int endLayer = Math.min(Chunk.SIZE_Y, reviewedLayer + Math.max(1, reviewBudget / REVIEW_LAYER_CELLS));
+            if (!reviewChunk(reviewedChunk, reviewedLayer, endLayer)) {
+                endLayer = Chunk.SIZE_Y;
+            }
+            reviewBudget -= (endLayer - reviewedLayer) * REVIEW_LAYER_CELLS;
+            reviewedLayer = endLayer;
+            if (reviewedLayer == Chunk.SIZE_Y) {
+                reviewedChunk = null;
+            }
         }
-        if (blockQueue.isEmpty()) {
-            executor.shutdownNow();
+
+        int budget = cellsPerTick;
+        for (Vector3i chunkPos : activeCells.getChunks()) {
+            if (budget <= 0) {
+                break;
+            }
+            budget -= simulateChunk(chunkPos, budget);
         }
     }
 
     @ReceiveEvent(components = WorldComponent.class)
     public void chunkReady(ChunkReadyEvent event, EntityRef worldEntity) {
-        blockQueue.offer(new ReviewChunk(event.getChunkPos()));
+        chunksToReview.offer(event.getChunkPos());
     }
 
     @ReceiveEvent(components = BlockComponent.class)
     public void blockChanged(BlockChangedEvent event, EntityRef blockEntity) {
+        Vector3i pos = event.getBlockPosition();
         if (!event.getNewType().isLiquid()) {
-            LiquidData currentState = world.getLiquid(event.getBlockPosition());
+            LiquidData currentState = world.getLiquid(pos);
             if (currentState.getDepth() > 0) {
-                world.setLiquid(event.getBlockPosition(), new LiquidData(), currentState);
+                world.setLiquid(pos, new LiquidData(), currentState);
             }
             if (event.getNewType().isPenetrable()) {
-                blockQueue.offer(new SimulateBlock(event.getBlockPosition(), world.getTime() + PROPAGATION_DELAY));
-            }
-            for (Side side : Side.values()) {
-                Vector3i adjPos = new Vector3i(event.getBlockPosition());
-                adjPos.add(side.getVector3i());
-                blockQueue.offer(new SimulateBlock(adjPos, world.getTime() + PROPAGATION_DELAY));
+                nextCells.add(pos.x, pos.y, pos.z);
             }
         } else {
-            LiquidData currentState = world.getLiquid(event.getBlockPosition());
+            LiquidData currentState = world.getLiquid(pos);
             if (currentState.getDepth() == 0) {
-                world.setLiquid(event.getBlockPosition(), new LiquidData((water.equals(event.getNewType())) ? LiquidType.WATER : LiquidType.LAVA, MAX_LIQUID_DEPTH), currentState);
+                world.setLiquid(pos, new LiquidData((water.equals(event.getNewType())) ? LiquidType.WATER : LiquidType.LAVA, MAX_LIQUID_DEPTH), currentState);
             }
+        }
+        activateNeighbours(pos.x, pos.y, pos.z);
+    }
+
+    private void activateNeighbours(int x, int y, int z) {
+        for (Side side : Side.values()) {
+            Vector3i dir = side.getVector3i();
+            nextCells.add(x + dir.x, y + dir.y, z + dir.z);
+        }
+    }
+
+    /**
+     * Simulates up to budget active cells of a chunk, under a single lock of the chunks around it
+     *
+     * @return The number of simulated cells
+     */
+    private int simulateChunk(Vector3i chunkPos, int budget) {
+        WorldView view = world.getWorldViewAround(chunkPos);
+        if (view == null || !view.isValidView()) {
+            // The cells are found again by the review once the chunk and its neighbours are ready
+            activeCells.removeChunk(chunkPos);
+            return 0;
+        }
 
-            for (Side side : Side.values()) {
-                Vector3i adjPos = new Vector3i(event.getBlockPosition());
-                adjPos.add(side.getVector3i());
-                blockQueue.offer(new SimulateBlock(adjPos, world.getTime() + PROPAGATION_DELAY));
+        int count = activeCells.poll(chunkPos, cellBuffer, Math.min(budget, cellBuffer.length));
+        int baseX = chunkPos.x * Chunk.SIZE_X;
+        int baseZ = chunkPos.z * Chunk.SIZE_Z;
+        List<BlockUpdate> blockUpdates = Lists.newArrayList();
+        int changed = 0;
+        view.lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                int index = cellBuffer[i];
+                int x = baseX + ActiveLiquidCells.cellX(index);
+                int y = ActiveLiquidCells.cellY(index);
+                int z = baseZ + ActiveLiquidCells.cellZ(index);
+                byte previousState = view.getRawLiquid(x, y, z);
+                if (simulate(x, y, z, view, blockUpdates)) {
+                    changedCells[changed] = index;
+                    previousStates[changed] = previousState;
+                    changed++;
+                }
             }
+            if (!blockUpdates.isEmpty() && !world.setBlocks(blockUpdates)) {
+                // The block changes are applied entirely or not at all. Without them the liquid is out of sync with
+                // the blocks, so it is reverted and the cells are simulated again in the next tick.
+                for (int i = changed - 1; i >= 0; i--) {
+                    int x = baseX + ActiveLiquidCells.cellX(changedCells[i]);
+                    int y = ActiveLiquidCells.cellY(changedCells[i]);
+                    int z = baseZ + ActiveLiquidCells.cellZ(changedCells[i]);
+                    view.setRawLiquid(x, y, z, previousStates[i], view.getRawLiquid(x, y, z));
+                    nextCells.add(x, y, z);
+                }
+            }
+        } finally {
+            view.unlock();
         }
+        return count;
     }
 
-    public void simulate(Vector3i blockPos, WorldView view) {
-        Block block = view.getBlock(blockPos);
-        LiquidData current = view.getLiquid(blockPos);
-        LiquidData newState = calcStateFor(blockPos, view);
-        if (!newState.equals(current)) {
-            view.lock();
-            try {
-                if (view.isValidView() && world.setLiquid(blockPos, newState, current)) {
-                    if (newState.getDepth() > 0) {
-                        world.setBlock(blockPos, ((newState.getType() == LiquidType.WATER) ? water : lava), block);
-                        Vector3i belowBlockPos = new Vector3i(blockPos.x, blockPos.y - 1, blockPos.z);
-                        Block belowType = world.getBlock(belowBlockPos);
-                        if (grass.equals(belowType) || snow.equals(belowType)) {
-                            world.setBlock(belowBlockPos, dirt, belowType);
-                        }
-                    } else {
-                        world.setBlock(blockPos, air, block);
+    /**
+     * Updates the liquid of a cell and gathers the block changes following from it
+     *
+     * @return Whether the liquid of the cell changed
+     */
+    private boolean simulate(int x, int y, int z, WorldView view, List<BlockUpdate> blockUpdates) {
+        byte current = view.getRawLiquid(x, y, z);
+        byte newState = calcRawStateFor(x, y, z, view);
+        if (LiquidData.isSameState(newState, current) || !view.setRawLiquid(x, y, z, newState, current)) {
+            return false;
+        }
+        activateNeighbours(x, y, z);
+
+        Block block = view.getBlock(x, y, z);
+        if (LiquidData.getDepth(newState) > 0) {
+            Block liquidBlock = (LiquidData.getType(newState) == LiquidType.WATER) ? water : lava;
+            if (block != liquidBlock) {
+                blockUpdates.add(new BlockUpdate(new Vector3i(x, y, z), liquidBlock, block));
+            }
+            Block belowType = view.getBlock(x, y - 1, z);
+            if (grass.equals(belowType) || snow.equals(belowType)) {
+                blockUpdates.add(new BlockUpdate(new Vector3i(x, y - 1, z), dirt, belowType));
+            }
+        } else if (block != air) {
+            blockUpdates.add(new BlockUpdate(new Vector3i(x, y, z), air, block));
+        }
+        return true;
+    }
+
+    /**
+     * Activates every block of the given layers of a newly available chunk whose liquid state is out of date
+     *
+     * @return False if the chunk is no longer available
+     */
+    private boolean reviewChunk(Vector3i chunkPos, int minY, int maxY) {
+        WorldView view = world.getLocalView(chunkPos);
+        if (view == null) {
+            return false;
+        }
+        int baseX = chunkPos.x * Chunk.SIZE_X;
+        int baseZ = chunkPos.z * Chunk.SIZE_Z;
+        for (int y = minY; y < maxY; y++) {
+            for (int z = -1; z <= Chunk.SIZE_Z; z++) {
+                for (int x = -1; x <= Chunk.SIZE_X; x++) {
+                    if (!LiquidData.isSameState(calcRawStateFor(x, y, z, view), view.getRawLiquid(x, y, z))) {
+                        nextCells.add(baseX + x, y, baseZ + z);
                     }
                 }
-            } finally {
-                view.unlock();
             }
         }
+        return true;
     }
 
     public static LiquidData calcStateFor(Vector3i pos, WorldView worldView) {
-        Block block = worldView.getBlock(pos);
+        return new LiquidData(calcRawStateFor(pos.x, pos.y, pos.z, worldView));
+    }
+
+    /**
+     * Calculates the liquid state a block should have, from the liquid around it
+     *
+     * @return The liquid state, packed as by {@link LiquidData#toByte()}
+     */
+    public static byte calcRawStateFor(int x, int y, int z, WorldView worldView) {
+        Block block = worldView.getBlock(x, y, z);
         if (isLiquidBlocking(block)) {
-            return new LiquidData();
+            return 0;
         }
 
         // Check if full/source location
-        LiquidData currentState = worldView.getLiquid(pos);
-        if (currentState.getDepth() == MAX_LIQUID_DEPTH) {
+        byte currentState = worldView.getRawLiquid(x, y, z);
+        if (LiquidData.getDepth(currentState) == MAX_LIQUID_DEPTH) {
             return currentState;
         }
 
-        LiquidData aboveState = worldView.getLiquid(pos.x, pos.y + 1, pos.z);
-        if (aboveState.getDepth() > 0) {
-            return new LiquidData(aboveState.getType(), MAX_LIQUID_DEPTH - 1);
+        byte aboveState = worldView.getRawLiquid(x, y + 1, z);
+        if (LiquidData.getDepth(aboveState) > 0) {
+            return LiquidData.getType(aboveState).convertToByte((byte) (MAX_LIQUID_DEPTH - 1));
         }
 
-        LiquidData h1 = new LiquidData();
-        LiquidData h2 = new LiquidData();
+        byte h1 = 0;
+        byte h2 = 0;
         for (Side side : Side.horizontalSides()) {
-            Vector3i adjPos = new Vector3i(side.getVector3i());
-            adjPos.add(pos);
-            Block supportingBlock = worldView.getBlock(adjPos.x, adjPos.y - 1, adjPos.z);
+            int adjX = x + side.getVector3i().x;
+            int adjZ = z + side.getVector3i().z;
+            Block supportingBlock = worldView.getBlock(adjX, y - 1, adjZ);
 
             // TODO: Improve supporting block calculation (needs to not include grass, but include liquids)
             if (!supportingBlock.isPenetrable()) {
-                LiquidData state = getOutgoingLiquid(adjPos, worldView);
-                if (state.getType() != currentState.getType() || state.getDepth() >= currentState.getDepth()) {
-                    if (state.getDepth() > h1.getDepth()) {
+                byte state = getOutgoingLiquid(adjX, y, adjZ, worldView);
+                if (LiquidData.getType(state) != LiquidData.getType(currentState) || LiquidData.getDepth(state) >= LiquidData.getDepth(currentState)) {
+                    if (LiquidData.getDepth(state) > LiquidData.getDepth(h1)) {
                         h2 = h1;
                         h1 = state;
-                    } else if (state.getDepth() > h2.getDepth()) {
+                    } else if (LiquidData.getDepth(state) > LiquidData.getDepth(h2)) {
                         h2 = state;
                     }
                 }
             }
         }
 
-        if (h1.getDepth() > 0) {
-            if (h1.getType() == h2.getType() || h2.getDepth() == 0) {
-                return new LiquidData(h1.getType(), h1.getDepth());
+        if (LiquidData.getDepth(h1) > 0) {
+            if (LiquidData.getType(h1) == LiquidData.getType(h2) || LiquidData.getDepth(h2) == 0) {
+                return h1;
             } else {
-                byte finalDepth = (byte) (h1.getDepth() - h2.getDepth());
+                byte finalDepth = (byte) (LiquidData.getDepth(h1) - LiquidData.getDepth(h2));
                 if (finalDepth > 0) {
-                    return new LiquidData(h1.getType(), finalDepth);
+                    return LiquidData.getType(h1).convertToByte(finalDepth);
                 }
             }
         }
 
-        return new LiquidData();
+        return 0;
     }
 
     /**
@@ -256,85 +368,28 @@ public class LiquidSimulator implements EventHandlerSystem {
             {0, 0, 1, 1, 1, 1, 2, 2}
     };
 
-    private static LiquidData getOutgoingLiquid(Vector3i pos, WorldView worldView) {
-        LiquidData currentState = worldView.getLiquid(pos);
-        if (currentState.getDepth() == 0) {
-            return new LiquidData();
+    private static byte getOutgoingLiquid(int x, int y, int z, WorldView worldView) {
+        byte currentState = worldView.getRawLiquid(x, y, z);
+        byte depth = LiquidData.getDepth(currentState);
+        if (depth == 0) {
+            return 0;
         }
 
         int availableSpaces = 0;
         for (Side side : Side.horizontalSides()) {
-            Vector3i adjPos = new Vector3i(pos);
-            adjPos.add(side.getVector3i());
-            Block block = worldView.getBlock(pos);
+            Block block = worldView.getBlock(x, y, z);
             if (block.isPenetrable()) {
-                LiquidData adjState = worldView.getLiquid(adjPos);
-                if (adjState.getDepth() < currentState.getDepth()) {
+                byte adjState = worldView.getRawLiquid(x + side.getVector3i().x, y, z + side.getVector3i().z);
+                if (LiquidData.getDepth(adjState) < depth) {
                     availableSpaces++;
                 }
             }
         }
 
-        return new LiquidData(currentState.getType(), OUTGOING_FLOW[availableSpaces][currentState.getDepth()]);
+        return LiquidData.getType(currentState).convertToByte(OUTGOING_FLOW[availableSpaces][depth]);
     }
 
     private static boolean isLiquidBlocking(Block block) {
         return !block.isPenetrable();
     }
-
-    private class SimulateBlock implements LiquidSimulationTask{
-
-        private Vector3i blockPos;
-        private long waitForTime;
-
-        public SimulateBlock(Vector3i blockPos, long time) {
-            this.blockPos = blockPos;
-            this.waitForTime = time;
-        }
-
-        @Override
-        public boolean shutdownThread() {
-            return false;
-        }
-
-        @Override
-        public void run() {
-            if (world.getTime() < waitForTime) {
-                blockQueue.offer(this);
-            } else if (world.isBlockActive(blockPos)) {
-                WorldView view = world.getWorldViewAround(TeraMath.calcChunkPos(blockPos));
-                if (view != null && view.isValidView()) {
-                    simulate(blockPos, view);
-                }
-            }
-        }
-    }
-
-    private class ReviewChunk implements LiquidSimulationTask {
-        private Vector3i chunkPos;
-
-        public ReviewChunk(Vector3i chunkPos) {
-            this.chunkPos = chunkPos;
-        }
-
-        @Override
-        public boolean shutdownThread() {
-            return false;
-        }
-
-        @Override
-        public void run() {
-            WorldView view = world.getLocalView(chunkPos);
-            if (view != null) {
-                for (Vector3i pos : Region3i.createFromMinAndSize(new Vector3i(-1, 0, -1), new Vector3i(Chunk.SIZE_X + 2, Chunk.SIZE_Y, Chunk.SIZE_Z + 2))) {
-                    LiquidData state = view.getLiquid(pos);
-                    LiquidData newState = calcStateFor(pos, view);
-                    if (!newState.equals(state)) {
-                        blockQueue.offer(new SimulateBlock(view.toWorldPos(pos), 0));
-                    }
-                }
-            }
-        }
-    }
-
 }
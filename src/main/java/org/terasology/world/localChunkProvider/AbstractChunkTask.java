@@ -31,6 +31,10 @@ public abstract class AbstractChunkTask implements ChunkTask {
         this.provider = provider;
     }
 
+    @Override
+    public void cancel() {
+    }
+
     @Override
     public boolean isShutdownRequest() {
         return false;
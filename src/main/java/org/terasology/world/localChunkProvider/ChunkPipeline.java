@@ -0,0 +1,348 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.localChunkProvider;
+
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.math.Vector3i;
+import org.terasology.performanceMonitor.PerformanceMonitor;
+import org.terasology.world.chunks.Chunk;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Tracks the readiness of the chunks moving through the generation pipeline.
+ * <p/>
+ * A chunk in a given state can advance once all of its eight horizontal neighbours are available and have
+ * reached at least that state (for {@code ADJACENCY_GENERATION_PENDING} they only need to be available).
+ * Instead of rechecking the neighbourhood whenever something changes, every chunk keeps a counter per state
+ * of how many of its neighbours have reached it. The counters are updated when chunks are added, advance or
+ * are removed, and the handler is notified exactly when the counter for the current state of a chunk is
+ * satisfied.
+ * <p/>
+ * The handler is never called while the pipeline is locked. A stage reported to the handler is not reported
+ * again until the chunk advanced through {@link #stateChanged(Vector3i, Chunk.State)} or the stage was given
+ * back through {@link #stageAborted(Vector3i, int)} or {@link #stageCancelled(Vector3i, int)}.
+ * <p/>
+ * Every tracked chunk gets a new generation, which is passed along with its stages. Calls for a stage carry
+ * that generation, so a task queued before the chunk was removed and added back cannot act on the new entry.
+ */
+public class ChunkPipeline {
+
+    public interface Handler {
+
+        /**
+         * Called when all neighbours of the chunk reached the state the chunk is in, so it can advance.
+         *
+         * @param generation The generation of the chunk entry, to be passed back when the stage starts or is given back
+         */
+        void stageReady(Vector3i pos, Chunk.State state, int generation);
+
+        /**
+         * Called when the chunk and all of its neighbours are complete. This is called again only if one of the
+         * neighbours was removed and added back in the meantime.
+         */
+        void chunkReady(Vector3i pos);
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkPipeline.class);
+
+    private static final Vector3i[] NEIGHBOURS = {
+            new Vector3i(-1, 0, -1), new Vector3i(0, 0, -1), new Vector3i(1, 0, -1),
+            new Vector3i(-1, 0, 0), new Vector3i(1, 0, 0),
+            new Vector3i(-1, 0, 1), new Vector3i(0, 0, 1), new Vector3i(1, 0, 1)
+    };
+    private static final Chunk.State[] STATES = Chunk.State.values();
+    private static final int COMPLETE = Chunk.State.COMPLETE.ordinal();
+    private static final String[] STAGE_NAMES = {"Adjacency generation", "Internal lighting", "Light propagation", "Light connectivity"};
+
+    private static final double SMOOTHING = 0.1;
+    private static final long METRICS_INTERVAL = 1000000000L;
+
+    private final Handler handler;
+    private final Map<Vector3i, Entry> entries = Maps.newHashMap();
+    private final Vector3i neighbourPos = new Vector3i();
+    private int nextGeneration;
+
+    private final int[] chunksInState = new int[STATES.length];
+    private final StageMetrics[] stages = new StageMetrics[COMPLETE];
+    private long lastMetricsUpdate = System.nanoTime();
+
+    public ChunkPipeline(Handler handler) {
+        this.handler = Preconditions.checkNotNull(handler, "The parameter 'handler' must not be null");
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new StageMetrics(STAGE_NAMES[i]);
+        }
+    }
+
+    /**
+     * Starts tracking a chunk which has been added to the cache.
+     */
+    public void chunkAdded(Vector3i pos, Chunk.State state) {
+        List<Entry> ready = Lists.newArrayList();
+        synchronized (this) {
+            if (entries.containsKey(pos)) {
+                logger.warn("Chunk {} is already tracked by the pipeline", pos);
+                return;
+            }
+            Entry entry = new Entry(pos, state, nextGeneration++);
+            for (Vector3i offset : NEIGHBOURS) {
+                Entry neighbour = getNeighbour(pos, offset);
+                if (neighbour != null) {
+                    entry.addReadyNeighbour(-1, neighbour.state.ordinal());
+                    neighbour.addReadyNeighbour(-1, state.ordinal());
+                    neighbour.aborted = false;
+                    checkReady(neighbour, ready);
+                }
+            }
+            entries.put(entry.pos, entry);
+            chunksInState[state.ordinal()]++;
+            checkReady(entry, ready);
+        }
+        dispatch(ready);
+    }
+
+    /**
+     * Stops tracking a chunk which has been removed from the cache.
+     */
+    public synchronized void chunkRemoved(Vector3i pos) {
+        Entry entry = entries.remove(pos);
+        if (entry == null) {
+            return;
+        }
+        chunksInState[entry.state.ordinal()]--;
+        for (Vector3i offset : NEIGHBOURS) {
+            Entry neighbour = getNeighbour(pos, offset);
+            if (neighbour != null) {
+                neighbour.removeReadyNeighbour(entry.state.ordinal());
+            }
+        }
+    }
+
+    /**
+     * Marks the start of the work on the stage which was reported ready for the chunk.
+     *
+     * @return Whether the stage is still current. If not, the chunk has been removed since the stage was
+     *         reported and the work must be skipped.
+     */
+    public synchronized boolean stageStarted(Vector3i pos, int generation) {
+        Entry entry = getScheduled(pos, generation);
+        if (entry == null) {
+            return false;
+        }
+        entry.stageStarted = System.nanoTime();
+        return true;
+    }
+
+    /**
+     * Gives back a stage reported ready which could not be processed. It is not reported again until the chunk
+     * or one of its neighbours changes state or is added, since retrying right away would likely fail the same way.
+     */
+    public synchronized void stageAborted(Vector3i pos, int generation) {
+        Entry entry = getScheduled(pos, generation);
+        if (entry != null) {
+            entry.scheduled = false;
+            entry.aborted = true;
+        }
+    }
+
+    /**
+     * Gives back a stage reported ready which was dropped because the chunk left all cache regions. Unlike an
+     * aborted stage it is reported again once the chunk is reviewed through {@link #review(Vector3i)}.
+     */
+    public synchronized void stageCancelled(Vector3i pos, int generation) {
+        Entry entry = getScheduled(pos, generation);
+        if (entry != null) {
+            entry.scheduled = false;
+        }
+    }
+
+    /**
+     * Reports the current stage of the chunk if it is ready, not already reported and not aborted.
+     */
+    public void review(Vector3i pos) {
+        List<Entry> ready = Lists.newArrayList();
+        synchronized (this) {
+            Entry entry = entries.get(pos);
+            if (entry == null) {
+                return;
+            }
+            checkReady(entry, ready);
+        }
+        dispatch(ready);
+    }
+
+    /**
+     * Advances a chunk to the given state, completing the stage it was in.
+     */
+    public void stateChanged(Vector3i pos, Chunk.State state) {
+        List<Entry> ready = Lists.newArrayList();
+        synchronized (this) {
+            Entry entry = entries.get(pos);
+            if (entry == null) {
+                return;
+            }
+            int oldState = entry.state.ordinal();
+            if (state.ordinal() <= oldState) {
+                logger.warn("Chunk {} cannot go back from {} to {}", pos, entry.state, state);
+                return;
+            }
+            long now = System.nanoTime();
+            stages[oldState].completed(now - entry.stageEntered, entry.stageStarted == 0 ? 0 : now - entry.stageStarted);
+            chunksInState[oldState]--;
+            chunksInState[state.ordinal()]++;
+            entry.state = state;
+            entry.scheduled = false;
+            entry.aborted = false;
+            entry.stageEntered = now;
+            entry.stageStarted = 0;
+            for (Vector3i offset : NEIGHBOURS) {
+                Entry neighbour = getNeighbour(pos, offset);
+                if (neighbour != null) {
+                    neighbour.addReadyNeighbour(oldState, state.ordinal());
+                    neighbour.aborted = false;
+                    checkReady(neighbour, ready);
+                }
+            }
+            checkReady(entry, ready);
+        }
+        dispatch(ready);
+    }
+
+    /**
+     * @return The state of the chunk as known to the pipeline, or null if the chunk is not tracked
+     */
+    public synchronized Chunk.State getState(Vector3i pos) {
+        Entry entry = entries.get(pos);
+        return entry == null ? null : entry.state;
+    }
+
+    /**
+     * Publishes the number of chunks in each state, and the latency, run time and throughput of each stage.
+     */
+    public synchronized void updateMetrics() {
+        long now = System.nanoTime();
+        long elapsed = now - lastMetricsUpdate;
+        boolean updateThroughput = elapsed >= METRICS_INTERVAL;
+        for (int i = 0; i < stages.length; i++) {
+            StageMetrics stage = stages[i];
+            if (updateThroughput) {
+                stage.throughput = (double) (stage.completedCount - stage.lastCompletedCount) * 1000000000L / elapsed;
+                stage.lastCompletedCount = stage.completedCount;
+            }
+            PerformanceMonitor.setValue(stage.name + " waiting", chunksInState[i]);
+            PerformanceMonitor.setValue(stage.name + " latency (ms)", stage.latency);
+            PerformanceMonitor.setValue(stage.name + " run time (ms)", stage.runTime);
+            PerformanceMonitor.setValue(stage.name + " per second", stage.throughput);
+        }
+        if (updateThroughput) {
+            lastMetricsUpdate = now;
+        }
+    }
+
+    private Entry getNeighbour(Vector3i pos, Vector3i offset) {
+        neighbourPos.set(pos.x + offset.x, pos.y + offset.y, pos.z + offset.z);
+        return entries.get(neighbourPos);
+    }
+
+    /**
+     * @return The entry of the chunk if it is of the given generation and its stage is reported, otherwise null
+     */
+    private Entry getScheduled(Vector3i pos, int generation) {
+        Entry entry = entries.get(pos);
+        if (entry == null || entry.generation != generation || !entry.scheduled) {
+            return null;
+        }
+        return entry;
+    }
+
+    private void checkReady(Entry entry, List<Entry> ready) {
+        int state = entry.state.ordinal();
+        if (entry.scheduled || entry.aborted || entry.readyNeighbours[state] < NEIGHBOURS.length) {
+            return;
+        }
+        entry.scheduled = true;
+        ready.add(new Entry(entry.pos, entry.state, entry.generation));
+    }
+
+    private void dispatch(List<Entry> ready) {
+        for (Entry entry : ready) {
+            if (entry.state.ordinal() == COMPLETE) {
+                handler.chunkReady(entry.pos);
+            } else {
+                handler.stageReady(entry.pos, entry.state, entry.generation);
+            }
+        }
+    }
+
+    private static class Entry {
+        private final Vector3i pos;
+        private final int generation;
+        private Chunk.State state;
+        /* The number of neighbours which reached at least the state of the same ordinal */
+        private final int[] readyNeighbours = new int[STATES.length];
+        private boolean scheduled;
+        /* Set when the reported stage was aborted, until the chunk or one of its neighbours changes */
+        private boolean aborted;
+        private long stageEntered = System.nanoTime();
+        private long stageStarted;
+
+        public Entry(Vector3i pos, Chunk.State state, int generation) {
+            this.pos = new Vector3i(pos);
+            this.state = state;
+            this.generation = generation;
+        }
+
+        public void addReadyNeighbour(int oldState, int newState) {
+            for (int i = oldState + 1; i <= newState; i++) {
+                readyNeighbours[i]++;
+            }
+        }
+
+        public void removeReadyNeighbour(int state) {
+            for (int i = 0; i <= state; i++) {
+                readyNeighbours[i]--;
+            }
+            if (this.state.ordinal() == COMPLETE && readyNeighbours[COMPLETE] < NEIGHBOURS.length) {
+                scheduled = false;
+            }
+        }
+    }
+
+    private static class StageMetrics {
+        private final String name;
+        private long completedCount;
+        private long lastCompletedCount;
+        private double latency;
+        private double runTime;
+        private double throughput;
+
+        public StageMetrics(String name) {
+            this.name = name;
+        }
+
+        public void completed(long latencyNanos, long runTimeNanos) {
+            completedCount++;
+            latency += SMOOTHING * (latencyNanos / 1000000.0 - latency);
+            runTime += SMOOTHING * (runTimeNanos / 1000000.0 - runTime);
+        }
+    }
+}
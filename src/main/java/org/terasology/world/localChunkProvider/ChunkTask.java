@@ -26,6 +26,11 @@ public interface ChunkTask {
 
     void enact();
 
+    /**
+     * Called instead of {@link #enact()} if the task's chunk left all cache regions before the task was run.
+     */
+    void cancel();
+
     boolean isShutdownRequest();
 
     Vector3i getPosition();
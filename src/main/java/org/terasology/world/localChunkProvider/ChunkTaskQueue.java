@@ -0,0 +1,172 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.localChunkProvider;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+import org.terasology.math.Region3i;
+import org.terasology.math.Vector3i;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+/**
+ * A task queue for the chunk processing threads which hands out the tasks closest to a cache region first.
+ * <p/>
+ * Tasks are bucketed by their distance ring around the nearest region center, as of the last call to
+ * {@link #setRegions(Collection, Collection)}. Offering and taking tasks never locks, consumers only block
+ * while the queue is empty. Moving a region only rebuckets the queued tasks, and tasks for chunks which are
+ * no longer inside of any region are cancelled instead of being run.
+ * <p/>
+ * Shutdown requests are never cancelled and are handed out before any other task.
+ */
+public class ChunkTaskQueue {
+
+    public static final int RINGS = 64;
+
+    private final Queue<ChunkTask>[] buckets;
+    /* One permit per task in the buckets, acquired by consumers before they look for a task */
+    private final Semaphore available = new Semaphore(0);
+    private volatile Priorities priorities = new Priorities(Lists.<Region3i>newArrayList(), Lists.<Vector3i>newArrayList());
+
+    @SuppressWarnings("unchecked")
+    public ChunkTaskQueue() {
+        buckets = new Queue[RINGS];
+        for (int i = 0; i < RINGS; i++) {
+            buckets[i] = new ConcurrentLinkedQueue<ChunkTask>();
+        }
+    }
+
+    public boolean offer(ChunkTask task) {
+        Preconditions.checkNotNull(task, "The parameter 'task' must not be null");
+        buckets[getRing(task, priorities)].offer(task);
+        available.release();
+        return true;
+    }
+
+    /**
+     * Retrieves the queued task closest to a region, waiting until one is available. Tasks for chunks outside
+     * of all regions are cancelled on the way.
+     */
+    public ChunkTask take() throws InterruptedException {
+        available.acquire();
+        while (true) {
+            ChunkTask task = pollBuckets();
+            if (task == null) {
+                // The tasks are being rebucketed, the task this permit belongs to will turn up again shortly
+                Thread.yield();
+                continue;
+            }
+            if (task.isShutdownRequest() || priorities.contains(task.getPosition())) {
+                return task;
+            }
+            task.cancel();
+            available.acquire();
+        }
+    }
+
+    /**
+     * Updates the regions and the centers the tasks are prioritized by, rebuckets the queued tasks and cancels
+     * those outside of all regions.
+     */
+    public synchronized void setRegions(Collection<Region3i> regions, Collection<Vector3i> centers) {
+        Priorities newPriorities = new Priorities(regions, centers);
+        priorities = newPriorities;
+
+        List<ChunkTask> tasks = Lists.newArrayListWithCapacity(size());
+        for (Queue<ChunkTask> bucket : buckets) {
+            ChunkTask task;
+            while ((task = bucket.poll()) != null) {
+                tasks.add(task);
+            }
+        }
+        for (ChunkTask task : tasks) {
+            // A consumer may already hold the permit of the task, it will then cancel the task itself
+            if (!task.isShutdownRequest() && !newPriorities.contains(task.getPosition()) && available.tryAcquire()) {
+                task.cancel();
+            } else {
+                buckets[getRing(task, newPriorities)].offer(task);
+            }
+        }
+    }
+
+    /**
+     * @return The number of queued tasks
+     */
+    public int size() {
+        return available.availablePermits();
+    }
+
+    private ChunkTask pollBuckets() {
+        for (Queue<ChunkTask> bucket : buckets) {
+            ChunkTask task = bucket.poll();
+            if (task != null) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private int getRing(ChunkTask task, Priorities current) {
+        if (task.isShutdownRequest()) {
+            return 0;
+        }
+        return Math.min(current.distance(task.getPosition()), RINGS - 1);
+    }
+
+    /**
+     * Immutable snapshot of the regions and their centers.
+     */
+    private static class Priorities {
+        private final Region3i[] regions;
+        private final int[] centers;
+
+        public Priorities(Collection<Region3i> regions, Collection<Vector3i> centers) {
+            this.regions = regions.toArray(new Region3i[regions.size()]);
+            this.centers = new int[centers.size() * 3];
+            int i = 0;
+            for (Vector3i center : centers) {
+                this.centers[i++] = center.x;
+                this.centers[i++] = center.y;
+                this.centers[i++] = center.z;
+            }
+        }
+
+        public boolean contains(Vector3i pos) {
+            for (Region3i region : regions) {
+                if (region.encompasses(pos.x, pos.y, pos.z)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public int distance(Vector3i pos) {
+            int distance = Integer.MAX_VALUE;
+            for (int i = 0; i < centers.length; i += 3) {
+                int dist = Math.abs(pos.x - centers[i]) + Math.abs(pos.y - centers[i + 1]) + Math.abs(pos.z - centers[i + 2]);
+                if (dist < distance) {
+                    distance = dist;
+                }
+            }
+            return distance;
+        }
+    }
+}
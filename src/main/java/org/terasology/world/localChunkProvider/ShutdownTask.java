@@ -28,6 +28,10 @@ public class ShutdownTask implements ChunkTask {
     public void enact() {
     }
 
+    @Override
+    public void cancel() {
+    }
+
     @Override
     public boolean isShutdownRequest() {
         return true;
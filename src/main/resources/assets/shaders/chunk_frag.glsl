@@ -107,6 +107,14 @@ void main(){
 
     vec2 texCoord = gl_TexCoord[0].xy;
 
+#ifdef GREEDY_MESHING
+    /* MERGED FACES STORE THEIR ATLAS TILE IN THE INTEGER PART AND REPEAT IT ONCE PER BLOCK */
+    if (texCoord.x >= 1.0) {
+        vec2 tile = floor(texCoord / 64.0);
+        texCoord = tile * TEXTURE_OFFSET + fract(texCoord - tile * 64.0) * TEXTURE_OFFSET_WIDTH;
+    }
+#endif
+
     vec3 normalizedVPos = -normalize(vertexViewPos.xyz);
 
 #ifdef FEATURE_TRANSPARENT_PASS
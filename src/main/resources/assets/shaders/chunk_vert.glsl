@@ -110,14 +110,21 @@ void main()
 	gl_TexCoord[0] = gl_MultiTexCoord0;
 	blockHint = int(gl_TexCoord[0].z);
 
+#ifdef COMPACT_CHUNK_VERTICES
+    // The light values are stored in the secondary color and the position is scaled by its w component
+    gl_TexCoord[1] = gl_SecondaryColor;
+
+	vertexWorldPos = vec4(gl_Vertex.xyz / gl_Vertex.w, 1.0);
+#else
     gl_TexCoord[1] = gl_MultiTexCoord1;
 
 	vertexWorldPos = gl_Vertex;
+#endif
 
 #if defined (DYNAMIC_SHADOWS)
 	vertexLightProjPos =
 	    lightViewProjMatrix
-	    * vec4(vertexWorldPos.x + chunkPositionRelToLightCamera.x, gl_Vertex.y + chunkPositionRelToLightCamera.y, gl_Vertex.z + chunkPositionRelToLightCamera.z, gl_Vertex.w);
+	    * vec4(vertexWorldPos.x + chunkPositionRelToLightCamera.x, vertexWorldPos.y + chunkPositionRelToLightCamera.y, vertexWorldPos.z + chunkPositionRelToLightCamera.z, vertexWorldPos.w);
 #endif
 
 	vertexViewPos = gl_ModelViewMatrix * vertexWorldPos;
@@ -127,7 +134,12 @@ void main()
 	isUpside = (gl_Normal.y > 0.9) ? 1.0 : 0.0;
 
     normal = gl_NormalMatrix * gl_Normal;
+#ifdef COMPACT_CHUNK_VERTICES
+    // The color is stored scaled down to fit into unsigned bytes
+    gl_FrontColor = gl_Color * COMPACT_COLOR_SCALE;
+#else
     gl_FrontColor = gl_Color;
+#endif
 
 #ifdef FLICKERING_LIGHT
 	flickeringLightOffset = smoothTriangleWave(timeToTick(time, 0.5)) / 64.0;
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2012  Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.componentSystem.items;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.terasology.components.InventoryComponent;
+import org.terasology.components.ItemComponent;
+import org.terasology.entitySystem.EntityManager;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.events.inventory.ReceiveItemEvent;
+import org.terasology.game.bootstrap.EntitySystemBuilder;
+import org.terasology.logic.mod.ModManager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class InventorySystemTest {
+
+    private EntityManager entityManager;
+    private static ModManager modManager;
+
+    @BeforeClass
+    public static void commonSetup() {
+        modManager = new ModManager();
+    }
+
+    @Before
+    public void setup() {
+        EntitySystemBuilder builder = new EntitySystemBuilder();
+
+        entityManager = builder.build(modManager);
+        entityManager.getEventSystem().registerEventHandler(new InventorySystem());
+    }
+
+    @Test
+    public void slotOfDestroyedItemIsReused() {
+        EntityRef inventoryEntity = entityManager.create(new InventoryComponent(2));
+        EntityRef first = createItem("first");
+        EntityRef second = createItem("second");
+        inventoryEntity.send(new ReceiveItemEvent(first));
+        inventoryEntity.send(new ReceiveItemEvent(second));
+
+        // Consumed items are destroyed without clearing their slot
+        first.destroy();
+        assertFalse(first.exists());
+
+        EntityRef third = createItem("third");
+        inventoryEntity.send(new ReceiveItemEvent(third));
+
+        InventoryComponent inventory = inventoryEntity.getComponent(InventoryComponent.class);
+        assertEquals(third, inventory.itemSlots.get(0));
+        assertEquals(second, inventory.itemSlots.get(1));
+        assertEquals(inventoryEntity, third.getComponent(ItemComponent.class).container);
+    }
+
+    private EntityRef createItem(String name) {
+        ItemComponent item = new ItemComponent();
+        item.name = name;
+        return entityManager.create(item);
+    }
+}
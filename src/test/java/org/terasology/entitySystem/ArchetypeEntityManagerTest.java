@@ -0,0 +1,30 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem;
+
+import org.terasology.game.bootstrap.EntitySystemBuilder;
+import org.terasology.logic.mod.ModManager;
+
+/**
+ * Runs the entity manager tests against an entity manager with archetype storage.
+ */
+public class ArchetypeEntityManagerTest extends PojoEntityManagerTest {
+
+    @Override
+    protected PersistableEntityManager buildEntityManager(ModManager modManager) {
+        return new EntitySystemBuilder().build(modManager, true);
+    }
+}
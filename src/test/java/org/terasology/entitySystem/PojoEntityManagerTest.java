@@ -3,7 +3,9 @@ package org.terasology.entitySystem;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -12,6 +14,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import javax.vecmath.Vector3f;
+
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -45,9 +49,13 @@ public class PojoEntityManagerTest {
 
     @Before
     public void setup() {
+        entityManager = buildEntityManager(modManager);
+    }
+
+    protected PersistableEntityManager buildEntityManager(ModManager modManager) {
         EntitySystemBuilder builder = new EntitySystemBuilder();
 
-        entityManager = builder.build(modManager);
+        return builder.build(modManager);
     }
     
     @Test
@@ -114,6 +122,70 @@ public class PojoEntityManagerTest {
         assertNull(entity.getComponent(IntegerComponent.class));
     }
 
+    @Test
+    public void destroyedEntityRefStaysInvalidWhenIdReused() {
+        EntityRef destroyed = entityManager.create(new StringComponent("destroyed"));
+        int id = destroyed.getId();
+        destroyed.destroy();
+
+        EntityRef reused = entityManager.create(new StringComponent("reused"));
+        assertEquals(id, reused.getId());
+        assertFalse(destroyed.exists());
+        assertNull(destroyed.getComponent(StringComponent.class));
+        assertFalse(destroyed.equals(reused));
+
+        destroyed.destroy();
+        assertTrue(reused.exists());
+        assertEquals("reused", reused.getComponent(StringComponent.class).value);
+    }
+
+    @Test
+    public void entityRefsOfAnEntityAreShared() {
+        EntityRef entity = entityManager.create(new StringComponent());
+        assertSame(entity, entityManager.iteratorEntities(StringComponent.class).iterator().next());
+        assertSame(entity, entityManager.createEntityRefWithId(entity.getId()));
+    }
+
+    @Test
+    public void destroyedEntityRefEqualsNull() {
+        EntityRef entity = entityManager.create(new StringComponent());
+        EntityRef other = entityManager.create(new StringComponent());
+        assertFalse(entity.equals(EntityRef.NULL));
+        entity.destroy();
+        other.destroy();
+        assertEquals(EntityRef.NULL, entity);
+        assertEquals(entity, EntityRef.NULL);
+        assertEquals(entity, other);
+        assertEquals(EntityRef.NULL.hashCode(), entity.hashCode());
+        assertEquals(0, Lists.newArrayList(entity).indexOf(EntityRef.NULL));
+    }
+
+    @Test
+    public void entityRefWithUnknownIdDoesNotGrowEntityTable() {
+        assertEquals(EntityRef.NULL, entityManager.createEntityRefWithId(-1));
+        EntityRef forward = entityManager.createEntityRefWithId(Integer.MAX_VALUE - 1);
+        assertFalse(forward.exists());
+
+        EntityRef loaded = entityManager.createEntityRefWithId(5000);
+        entityManager.createEntityWithId(5000, Lists.<Component>newArrayList(new StringComponent("loaded")));
+        assertTrue(loaded.exists());
+        assertEquals("loaded", loaded.getComponent(StringComponent.class).value);
+    }
+
+    @Test
+    public void activeEntitiesCounted() {
+        EntityRef first = entityManager.create();
+        entityManager.create(new StringComponent());
+        assertEquals(2, entityManager.getActiveEntities());
+        first.destroy();
+        first.destroy();
+        assertEquals(1, entityManager.getActiveEntities());
+        entityManager.create();
+        assertEquals(2, entityManager.getActiveEntities());
+        entityManager.clear();
+        assertEquals(0, entityManager.getActiveEntities());
+    }
+
     @Test
     public void iterateComponents() {
         EntityRef entity = entityManager.create();
@@ -290,4 +362,178 @@ public class PojoEntityManagerTest {
         assertFalse(test1.getComponent(StringComponent.class) == (test2.getComponent(StringComponent.class)));
     }
 
+    @Test
+    public void prefabChangesAppliedToNewEntities() {
+        Prefab prefab = entityManager.getPrefabManager().createPrefab("myprefab");
+        prefab.setComponent(new StringComponent("Test"));
+        entityManager.create(prefab);
+        prefab.setComponent(new IntegerComponent(3));
+        prefab.getComponent(StringComponent.class).value = "Changed";
+
+        EntityRef entity = entityManager.create(prefab);
+        assertEquals("Changed", entity.getComponent(StringComponent.class).value);
+        assertEquals(3, entity.getComponent(IntegerComponent.class).value);
+
+        prefab.removeComponent(StringComponent.class);
+        assertNull(entityManager.create(prefab).getComponent(StringComponent.class));
+    }
+
+    @Test
+    public void parentPrefabChangesAppliedToNewEntities() {
+        Prefab parent = entityManager.getPrefabManager().createPrefab("parent");
+        parent.setComponent(new StringComponent("Test"));
+        Prefab child = entityManager.getPrefabManager().createPrefab("child");
+        child.addParent(parent);
+        assertEquals("Test", entityManager.create(child).getComponent(StringComponent.class).value);
+
+        parent.setComponent(new IntegerComponent(3));
+        EntityRef entity = entityManager.create(child);
+        assertEquals("Test", entity.getComponent(StringComponent.class).value);
+        assertEquals(3, entity.getComponent(IntegerComponent.class).value);
+        assertEquals("child", entity.getComponent(EntityInfoComponent.class).parentPrefab);
+    }
+
+    @Test
+    public void createManyEntitiesAtPositions() {
+        Prefab prefab = entityManager.getPrefabManager().createPrefab("myprefab");
+        prefab.setComponent(new LocationComponent());
+        prefab.setComponent(new StringComponent("Test"));
+        List<Vector3f> positions = Lists.newArrayList(new Vector3f(1, 2, 3), new Vector3f(4, 5, 6));
+
+        List<EntityRef> entities = entityManager.createMany(prefab, positions);
+
+        assertEquals(2, entities.size());
+        for (int i = 0; i < positions.size(); i++) {
+            assertEquals(positions.get(i), entities.get(i).getComponent(LocationComponent.class).getWorldPosition());
+            assertEquals("Test", entities.get(i).getComponent(StringComponent.class).value);
+        }
+        assertNotSame(entities.get(0).getComponent(StringComponent.class), entities.get(1).getComponent(StringComponent.class));
+        assertEquals(2, entityManager.getComponentCount(StringComponent.class));
+    }
+
+    @Test
+    public void createManyEntitiesSendsAddEventsOnceAllExist() {
+        Prefab prefab = entityManager.getPrefabManager().createPrefab("myprefab");
+        prefab.setComponent(new StringComponent("Test"));
+        AddedEntityHandler handler = new AddedEntityHandler();
+        entityManager.getEventSystem().registerEventHandler(handler);
+
+        List<EntityRef> entities = entityManager.createMany(prefab, 3);
+
+        assertEquals(entities, handler.added);
+        assertEquals(Lists.newArrayList(3, 3, 3), handler.existingEntities);
+    }
+
+    @Test
+    public void queryContainsExistingEntities() {
+        EntityRef both = entityManager.create(new StringComponent(), new IntegerComponent());
+        entityManager.create(new StringComponent());
+        EntityQuery query = entityManager.query(StringComponent.class, IntegerComponent.class);
+        assertEquals(Lists.newArrayList(both), Lists.newArrayList(query));
+        assertTrue(query.contains(both));
+        assertFalse(query.getAdded().iterator().hasNext());
+    }
+
+    @Test
+    public void queryUpdatedWhenComponentsChange() {
+        EntityQuery query = entityManager.query(StringComponent.class, IntegerComponent.class);
+        query.getAdded();
+        EntityRef entity = entityManager.create(new StringComponent());
+        assertEquals(0, query.size());
+
+        entity.addComponent(new IntegerComponent());
+        assertEquals(1, query.size());
+        assertEquals(entity, query.get(0));
+        assertEquals(Lists.newArrayList(entity), Lists.newArrayList(query.getAdded()));
+
+        query.clearChanges();
+        entity.removeComponent(StringComponent.class);
+        assertEquals(0, query.size());
+        assertFalse(query.getAdded().iterator().hasNext());
+        assertEquals(Lists.newArrayList(entity), Lists.newArrayList(query.getRemoved()));
+    }
+
+    @Test
+    public void queryUpdatedWhenEntityDestroyed() {
+        EntityQuery query = entityManager.query(StringComponent.class);
+        EntityRef first = entityManager.create(new StringComponent("first"));
+        EntityRef second = entityManager.create(new StringComponent("second"));
+        query.getRemoved();
+
+        first.destroy();
+        assertEquals(1, query.size());
+        assertEquals(second, query.get(0));
+        assertFalse(query.contains(first));
+        assertEquals(1, Lists.newArrayList(query.getRemoved()).size());
+    }
+
+    @Test
+    public void entityAddedAndRemovedBetweenClearsNotReported() {
+        EntityQuery query = entityManager.query(StringComponent.class);
+        query.getAdded();
+        EntityRef first = entityManager.create(new StringComponent());
+        EntityRef second = entityManager.create(new StringComponent());
+        first.destroy();
+        assertEquals(Lists.newArrayList(second), Lists.newArrayList(query.getAdded()));
+        second.destroy();
+        assertFalse(query.getAdded().iterator().hasNext());
+        assertFalse(query.getRemoved().iterator().hasNext());
+    }
+
+    @Test
+    public void iteratingQueryWhileDestroyingEntities() {
+        EntityQuery query = entityManager.query(StringComponent.class);
+        for (int i = 0; i < 10; i++) {
+            entityManager.create(new StringComponent());
+        }
+        int iterated = 0;
+        for (EntityRef entity : query) {
+            entity.destroy();
+            iterated++;
+        }
+        assertEquals(10, iterated);
+        assertEquals(0, query.size());
+
+        entityManager.create(new StringComponent());
+        Iterator<EntityRef> iterator = query.iterator();
+        assertTrue(iterator.hasNext());
+        iterator.next();
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void queryChangesNotRecordedUntilRequested() {
+        EntityQuery query = entityManager.query(StringComponent.class);
+        entityManager.create(new StringComponent()).destroy();
+        entityManager.create(new StringComponent());
+        assertFalse(query.getAdded().iterator().hasNext());
+        assertFalse(query.getRemoved().iterator().hasNext());
+    }
+
+    @Test
+    public void disposedQueryNotUpdated() {
+        EntityQuery query = entityManager.query(StringComponent.class);
+        query.dispose();
+        entityManager.create(new StringComponent());
+        assertEquals(0, query.size());
+    }
+
+    public class AddedEntityHandler implements EventHandlerSystem {
+        List<EntityRef> added = Lists.newArrayList();
+        List<Integer> existingEntities = Lists.newArrayList();
+
+        @ReceiveEvent(components = StringComponent.class)
+        public void onAdded(AddComponentEvent event, EntityRef entity) {
+            added.add(entity);
+            existingEntities.add(entityManager.getComponentCount(StringComponent.class));
+        }
+
+        @Override
+        public void initialise() {
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
 }
@@ -9,6 +9,7 @@ import org.junit.Test;
 import org.terasology.entitySystem.metadata.ComponentLibrary;
 import org.terasology.entitySystem.metadata.ComponentLibraryImpl;
 import org.terasology.entitySystem.pojo.PojoEntityManager;
+import org.terasology.entitySystem.event.ChangedComponentEvent;
 import org.terasology.entitySystem.pojo.PojoEventSystem;
 import org.terasology.entitySystem.pojo.PojoPrefabManager;
 import org.terasology.entitySystem.stubs.IntegerComponent;
@@ -146,6 +147,111 @@ public class PojoEventSystemTests {
         assertEquals(1, handler.receivedList.size());
     }
     
+    @Test
+    public void testHandlerRegisteredAfterSendingEvent() {
+        entity.addComponent(new StringComponent());
+        TestEventHandler handlerNormal = new TestEventHandler();
+        eventSystem.registerEventHandler(handlerNormal);
+        eventSystem.send(entity, new TestEvent());
+
+        TestHighPriorityEventHandler handlerHigh = new TestHighPriorityEventHandler();
+        handlerHigh.cancel = true;
+        eventSystem.registerEventHandler(handlerHigh);
+        eventSystem.send(entity, new TestEvent());
+
+        assertEquals(1, handlerNormal.receivedList.size());
+        assertEquals(1, handlerHigh.receivedList.size());
+    }
+
+    @Test
+    public void testSendPublicEvent() {
+        entity.addComponent(new StringComponent());
+        entity.addComponent(new IntegerComponent());
+        TestPublicEventHandler handler = new TestPublicEventHandler();
+        eventSystem.registerEventHandler(handler);
+
+        TestPublicEvent event = new TestPublicEvent();
+        eventSystem.send(entity, event);
+        eventSystem.send(entity, event, entity.getComponent(IntegerComponent.class));
+
+        assertEquals(Lists.newArrayList("string", "integer", "integer"), event.handledBy);
+    }
+
+    @Test
+    public void testExceptionInHandlerIsNotPropagated() {
+        entity.addComponent(new StringComponent());
+        TestPublicEventHandler handler = new TestPublicEventHandler();
+        eventSystem.registerEventHandler(handler);
+
+        TestPublicEvent event = new TestPublicEvent();
+        event.fail = true;
+        eventSystem.send(entity, event);
+
+        assertEquals(Lists.newArrayList("string"), event.handledBy);
+    }
+
+    @Test
+    public void testDeferredDeliveryCoalescesComponentChanges() {
+        eventSystem = new PojoEventSystem(true);
+        entityManager.setEventSystem(eventSystem);
+        TestChangedComponentHandler handler = new TestChangedComponentHandler();
+        eventSystem.registerEventHandler(handler);
+        IntegerComponent component = entity.addComponent(new IntegerComponent());
+        EntityRef other = entityManager.create(new IntegerComponent());
+
+        for (int i = 0; i < 3; i++) {
+            component.value = i;
+            entity.saveComponent(component);
+            other.saveComponent(other.getComponent(IntegerComponent.class));
+        }
+        assertEquals(0, handler.changed.size());
+
+        eventSystem.process();
+        assertEquals(Lists.newArrayList(entity, other), handler.changed);
+        assertEquals(Lists.newArrayList(2, 0), handler.values);
+
+        eventSystem.process();
+        assertEquals(2, handler.changed.size());
+    }
+
+    @Test
+    public void testDeferredChangeNotSentForRemovedComponent() {
+        eventSystem = new PojoEventSystem(true);
+        entityManager.setEventSystem(eventSystem);
+        TestChangedComponentHandler handler = new TestChangedComponentHandler();
+        eventSystem.registerEventHandler(handler);
+        IntegerComponent component = entity.addComponent(new IntegerComponent());
+
+        entity.saveComponent(component);
+        entity.removeComponent(IntegerComponent.class);
+        eventSystem.process();
+
+        assertEquals(0, handler.changed.size());
+    }
+
+    @Test
+    public void testEventsFromOtherThreadsSentOnProcess() throws InterruptedException {
+        entity.addComponent(new StringComponent());
+        TestEventHandler handler = new TestEventHandler();
+        eventSystem.registerEventHandler(handler);
+
+        final TestEvent event = new TestEvent();
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 10000; i++) {
+                    entity.send(event);
+                }
+            }
+        };
+        thread.start();
+        thread.join();
+        assertEquals(0, handler.receivedList.size());
+
+        eventSystem.process();
+        assertEquals(10000, handler.receivedList.size());
+    }
+
     private static class TestEvent extends AbstractEvent {
         
     }
@@ -232,6 +338,35 @@ public class PojoEventSystemTests {
         }
     }
 
+    public static class TestPublicEvent extends AbstractEvent {
+        List<String> handledBy = Lists.newArrayList();
+        boolean fail = false;
+    }
+
+    public static class TestPublicEventHandler implements EventHandlerSystem {
+
+        @ReceiveEvent(components = StringComponent.class, priority = EventPriority.PRIORITY_HIGH)
+        public void handleStringEvent(TestPublicEvent event, EntityRef entity) {
+            event.handledBy.add("string");
+            if (event.fail) {
+                throw new IllegalStateException("Failing as requested");
+            }
+        }
+
+        @ReceiveEvent(components = IntegerComponent.class)
+        public boolean handleIntegerEvent(TestPublicEvent event, EntityRef entity) {
+            return event.handledBy.add("integer");
+        }
+
+        public void initialise() {
+
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+
     public static class TestCompoundComponentEventHandler implements EventHandlerSystem {
 
         List<Received> receivedList = Lists.newArrayList();
@@ -260,5 +395,24 @@ public class PojoEventSystemTests {
         }
     }
 
+    public static class TestChangedComponentHandler implements EventHandlerSystem {
+
+        List<EntityRef> changed = Lists.newArrayList();
+        List<Integer> values = Lists.newArrayList();
+
+        @ReceiveEvent(components = IntegerComponent.class)
+        public void onChanged(ChangedComponentEvent event, EntityRef entity) {
+            changed.add(entity);
+            values.add(entity.getComponent(IntegerComponent.class).value);
+        }
+
+        public void initialise() {
+
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
 
 }
@@ -16,9 +16,19 @@
 
 package org.terasology.entitySystem.metadata;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import javax.vecmath.Vector3f;
 
 import org.junit.Test;
+import org.terasology.entitySystem.Component;
+import org.terasology.entitySystem.metadata.extension.Vector3fTypeHandler;
+import org.terasology.entitySystem.stubs.GetterSetterComponent;
+import org.terasology.entitySystem.stubs.IntegerComponent;
 import org.terasology.entitySystem.stubs.StringComponent;
 import org.terasology.entitySystem.stubs.UnsupportedTypeComponent;
 
@@ -45,4 +55,57 @@ public class ComponentMetadataTest {
         assertNull(metadata.getField("value3"));
     }
 
+    @Test
+    public void copyComponentWithPublicFields() {
+        ComponentLibrary lib = new ComponentLibraryImpl();
+        lib.registerComponentClass(IntegerComponent.class);
+        lib.registerComponentClass(StringComponent.class);
+        assertEquals(new IntegerComponent(7), lib.copy(new IntegerComponent(7)));
+        assertEquals(new StringComponent("test"), lib.copy(new StringComponent("test")));
+    }
+
+    @Test
+    public void copyComponentWithGetterAndSetter() {
+        ComponentLibrary lib = new ComponentLibraryImpl();
+        lib.registerTypeHandler(Vector3f.class, new Vector3fTypeHandler());
+        lib.registerComponentClass(GetterSetterComponent.class);
+        GetterSetterComponent component = new GetterSetterComponent();
+        component.setValue(new Vector3f(1, 2, 3));
+        GetterSetterComponent copy = lib.copy(component);
+        assertTrue(component.getterUsed);
+        assertTrue(copy.setterUsed);
+        assertEquals(new Vector3f(1, 2, 3), copy.getValue());
+        assertNotSame(component.getValue(), copy.getValue());
+    }
+
+    @Test
+    public void accessFieldsWithAndWithoutPublicAccess() throws Exception {
+        ComponentLibrary lib = new ComponentLibraryImpl();
+        lib.registerComponentClass(PrivateFieldComponent.class);
+        ComponentMetadata<PrivateFieldComponent> metadata = lib.getMetadata(PrivateFieldComponent.class);
+        PrivateFieldComponent component = metadata.newInstance();
+        metadata.getField("privateValue").setValue(component, 3);
+        metadata.getField("publicValue").setValue(component, 4L);
+        metadata.getField("finalValue").setValue(component, 5.0f);
+        assertEquals(3, metadata.getField("privateValue").getValue(component));
+        assertEquals(4L, metadata.getField("publicValue").getValue(component));
+        assertEquals(5.0f, metadata.getField("finalValue").getValue(component));
+
+        PrivateFieldComponent copy = metadata.clone(component);
+        assertEquals(3, copy.privateValue);
+        assertEquals(4L, copy.publicValue);
+        assertEquals(5.0f, copy.finalValue, 0.0f);
+        assertFalse(copy == component);
+    }
+
+    public static class PrivateFieldComponent implements Component {
+        private int privateValue;
+        public long publicValue;
+        public final float finalValue;
+
+        public PrivateFieldComponent() {
+            finalValue = 0;
+        }
+    }
+
 }
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.terasology.entitySystem.EntityInfoComponent;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.entitySystem.PersistableEntityManager;
+import org.terasology.entitySystem.Prefab;
+import org.terasology.entitySystem.stubs.IntegerComponent;
+import org.terasology.entitySystem.stubs.StringComponent;
+import org.terasology.game.bootstrap.EntitySystemBuilder;
+import org.terasology.logic.mod.ModManager;
+import org.terasology.protobuf.EntityData;
+
+public class WorldPersisterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static ModManager modManager;
+
+    private PersistableEntityManager entityManager;
+    private WorldPersister worldPersister;
+    private EntityPersisterHelper persisterHelper;
+
+    private EntityRef plainEntity;
+    private EntityRef prefabEntity;
+    private int notPersistedId;
+    private int destroyedId;
+
+    @BeforeClass
+    public static void setupClass() {
+        modManager = new ModManager();
+    }
+
+    @Before
+    public void setup() {
+        entityManager = new EntitySystemBuilder().build(modManager);
+        entityManager.getComponentLibrary().registerComponentClass(StringComponent.class);
+        entityManager.getComponentLibrary().registerComponentClass(IntegerComponent.class);
+        worldPersister = new WorldPersister(entityManager);
+        persisterHelper = new EntityPersisterHelperImpl(entityManager);
+
+        Prefab prefab = entityManager.getPrefabManager().createPrefab("test:prefab");
+        prefab.setComponent(new StringComponent("Prefab"));
+
+        plainEntity = entityManager.create(new StringComponent("Plain"), new IntegerComponent(3));
+        prefabEntity = entityManager.create(prefab);
+        prefabEntity.addComponent(new IntegerComponent(4));
+        EntityRef notPersisted = entityManager.create(new StringComponent("Not persisted"));
+        notPersisted.setPersisted(false);
+        notPersistedId = notPersisted.getId();
+        EntityRef destroyed = entityManager.create(new StringComponent("Destroyed"));
+        destroyedId = destroyed.getId();
+        destroyed.destroy();
+    }
+
+    @Test
+    public void binaryRoundTrip() throws IOException {
+        assertRoundTrip(WorldPersister.SaveFormat.Binary);
+    }
+
+    @Test
+    public void jsonRoundTrip() throws IOException {
+        assertRoundTrip(WorldPersister.SaveFormat.JSON);
+    }
+
+    @Test
+    public void textRoundTrip() throws IOException {
+        assertRoundTrip(WorldPersister.SaveFormat.Text);
+    }
+
+    @Test
+    public void binarySaveIsWorldMessage() throws IOException {
+        File file = folder.newFile("world.dat");
+        worldPersister.save(file, WorldPersister.SaveFormat.Binary);
+
+        EntityData.World world = parseWorld(file);
+        assertEquals(2, world.getEntityCount());
+        assertEquals(entityManager.getNextId(), world.getNextEntityId());
+        assertTrue(world.getFreedEntityIdList().contains(notPersistedId));
+        assertTrue(world.getFreedEntityIdList().contains(destroyedId));
+    }
+
+    @Test
+    public void loadsBinaryWorldMessage() throws IOException {
+        File file = folder.newFile("world.dat");
+        persisterHelper.setUsingLookupTables(true);
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            persisterHelper.serializeWorld().writeTo(out);
+        } finally {
+            out.close();
+        }
+        assertLoads(file, WorldPersister.SaveFormat.Binary);
+    }
+
+    @Test
+    public void loadsJsonWorldMessage() throws IOException {
+        File file = folder.newFile("world.json");
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file)));
+        try {
+            EntityDataJSONFormat.write(persisterHelper.serializeWorld(), writer);
+        } finally {
+            writer.close();
+        }
+        assertLoads(file, WorldPersister.SaveFormat.JSON);
+    }
+
+    private void assertRoundTrip(WorldPersister.SaveFormat format) throws IOException {
+        File file = folder.newFile("world");
+        worldPersister.save(file, format);
+        assertLoads(file, format);
+    }
+
+    private void assertLoads(File file, WorldPersister.SaveFormat format) throws IOException {
+        int nextId = entityManager.getNextId();
+        worldPersister.load(file, format);
+
+        assertEquals(2, entityManager.getActiveEntities());
+        assertEquals(nextId, entityManager.getNextId());
+        assertTrue(entityManager.getFreedIds().contains(notPersistedId));
+        assertTrue(entityManager.getFreedIds().contains(destroyedId));
+
+        EntityRef plain = entityManager.createEntityRefWithId(plainEntity.getId());
+        assertEquals(new StringComponent("Plain"), plain.getComponent(StringComponent.class));
+        assertEquals(3, plain.getComponent(IntegerComponent.class).value);
+        assertFalse(plain.hasComponent(EntityInfoComponent.class));
+
+        EntityRef fromPrefab = entityManager.createEntityRefWithId(prefabEntity.getId());
+        assertEquals(new StringComponent("Prefab"), fromPrefab.getComponent(StringComponent.class));
+        assertEquals(4, fromPrefab.getComponent(IntegerComponent.class).value);
+        assertEquals("test:prefab", fromPrefab.getComponent(EntityInfoComponent.class).parentPrefab);
+    }
+
+    private EntityData.World parseWorld(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            return EntityData.World.parseFrom(in);
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.pojo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import gnu.trove.iterator.TIntIterator;
+import gnu.trove.iterator.TIntObjectIterator;
+import gnu.trove.set.TIntSet;
+import gnu.trove.set.hash.TIntHashSet;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+import org.terasology.entitySystem.Component;
+import org.terasology.entitySystem.stubs.EntityRefComponent;
+import org.terasology.entitySystem.stubs.GetterSetterComponent;
+import org.terasology.entitySystem.stubs.IntegerComponent;
+import org.terasology.entitySystem.stubs.StringComponent;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+public class ArchetypeComponentTableTest {
+
+    private static final int ENTITIES = 200;
+
+    @SuppressWarnings("unchecked")
+    private static final Class<? extends Component>[] TYPES = new Class[] {StringComponent.class, IntegerComponent.class, EntityRefComponent.class, GetterSetterComponent.class};
+
+    @Test
+    public void removingEntityMovesLastEntityOfArchetype() {
+        ArchetypeComponentTable table = new ArchetypeComponentTable();
+        StringComponent first = new StringComponent("first");
+        StringComponent last = new StringComponent("last");
+        table.put(1, first);
+        table.put(2, new StringComponent("middle"));
+        table.put(3, last);
+        table.remove(2);
+        assertSame(first, table.get(1, StringComponent.class));
+        assertNull(table.get(2, StringComponent.class));
+        assertSame(last, table.get(3, StringComponent.class));
+        assertEquals(2, table.getComponentCount(StringComponent.class));
+        assertEquals(2, table.numEntities());
+    }
+
+    @Test
+    public void addingAndRemovingComponentsReusesArchetypes() {
+        ArchetypeComponentTable table = new ArchetypeComponentTable();
+        for (int id = 1; id < 10; id++) {
+            table.put(id, new StringComponent());
+            table.put(id, new IntegerComponent());
+            table.remove(id, StringComponent.class);
+        }
+        assertEquals(3, table.getArchetypeCount());
+        assertEquals(0, table.getComponentCount(StringComponent.class));
+        assertEquals(9, table.getComponentCount(IntegerComponent.class));
+    }
+
+    @Test
+    public void matchesComponentTableUnderRandomChanges() {
+        Random random = new Random(1234);
+        ComponentTable expected = new ComponentTable();
+        ArchetypeComponentTable actual = new ArchetypeComponentTable();
+        for (int i = 0; i < 20000; i++) {
+            int id = 1 + random.nextInt(ENTITIES);
+            int operation = random.nextInt(10);
+            if (operation < 6) {
+                Component component = createComponent(TYPES[random.nextInt(TYPES.length)], i);
+                assertSame(expected.put(id, component), actual.put(id, component));
+            } else if (operation < 9) {
+                Class<? extends Component> type = TYPES[random.nextInt(TYPES.length)];
+                assertSame(expected.remove(id, type), actual.remove(id, type));
+            } else {
+                expected.remove(id);
+                actual.remove(id);
+            }
+        }
+        assertSameContents(expected, actual);
+    }
+
+    private Component createComponent(Class<? extends Component> type, int value) {
+        if (type == StringComponent.class) {
+            return new StringComponent(String.valueOf(value));
+        }
+        if (type == IntegerComponent.class) {
+            IntegerComponent component = new IntegerComponent();
+            component.value = value;
+            return component;
+        }
+        if (type == EntityRefComponent.class) {
+            return new EntityRefComponent();
+        }
+        return new GetterSetterComponent();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void assertSameContents(ComponentStore expected, ComponentStore actual) {
+        assertEquals(expected.numEntities(), actual.numEntities());
+        assertEquals(toSet(expected.entityIdIterator()), toSet(actual.entityIdIterator()));
+        for (Class<? extends Component> type : TYPES) {
+            assertEquals(expected.getComponentCount(type), actual.getComponentCount(type));
+            assertEquals(toMap(expected.componentIterator(type)), toMap(actual.componentIterator(type)));
+            for (int id = 1; id <= ENTITIES; id++) {
+                assertSame(expected.get(id, type), actual.get(id, type));
+            }
+        }
+        for (int id = 1; id <= ENTITIES; id++) {
+            assertEquals(Sets.newIdentityHashSet(), difference(expected.iterateComponents(id), actual.iterateComponents(id)));
+        }
+        for (int first = 0; first < TYPES.length; first++) {
+            for (int second = first + 1; second < TYPES.length; second++) {
+                assertEquals(new TIntHashSet(expected.findEntities(TYPES[first], TYPES[second])), new TIntHashSet(actual.findEntities(TYPES[first], TYPES[second])));
+            }
+        }
+    }
+
+    private TIntSet toSet(TIntIterator iterator) {
+        TIntSet result = new TIntHashSet();
+        while (iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+
+    private Map<Integer, Component> toMap(TIntObjectIterator<? extends Component> iterator) {
+        Map<Integer, Component> result = Maps.newHashMap();
+        while (iterator != null && iterator.hasNext()) {
+            iterator.advance();
+            result.put(iterator.key(), iterator.value());
+        }
+        return result;
+    }
+
+    private Set<Component> difference(Iterable<Component> expected, Iterable<Component> actual) {
+        Set<Component> result = Sets.newIdentityHashSet();
+        for (Component component : expected) {
+            result.add(component);
+        }
+        for (Component component : actual) {
+            if (!result.remove(component)) {
+                result.add(component);
+            }
+        }
+        return result;
+    }
+}
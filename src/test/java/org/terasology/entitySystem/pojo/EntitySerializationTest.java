@@ -56,8 +56,7 @@ public class EntitySerializationTest {
     @Before
     public void setup() {
 
-        EntitySystemBuilder builder = new EntitySystemBuilder();
-        entityManager = builder.build(modManager);
+        entityManager = buildEntityManager(modManager);
         entityManager.getComponentLibrary().registerComponentClass(GetterSetterComponent.class);
         entityManager.getComponentLibrary().registerComponentClass(StringComponent.class);
         entityManager.getComponentLibrary().registerComponentClass(IntegerComponent.class);
@@ -66,6 +65,11 @@ public class EntitySerializationTest {
         prefabManager = entityManager.getPrefabManager();
     }
 
+    protected PersistableEntityManager buildEntityManager(ModManager modManager) {
+        EntitySystemBuilder builder = new EntitySystemBuilder();
+        return builder.build(modManager);
+    }
+
     @Test
     public void testGetterSetterUtilization() throws Exception {
         ComponentMetadata info = new ComponentMetadata(GetterSetterComponent.class);
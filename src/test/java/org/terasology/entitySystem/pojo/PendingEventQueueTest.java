@@ -0,0 +1,111 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.pojo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+import org.terasology.entitySystem.AbstractEvent;
+import org.terasology.entitySystem.EntityRef;
+
+import com.google.common.collect.Lists;
+
+public class PendingEventQueueTest {
+
+    @Test
+    public void eventsArePolledInOrderWhenRingOverflows() {
+        PendingEventQueue queue = new PendingEventQueue(4);
+        List<PendingEvent> events = Lists.newArrayList();
+        for (int i = 0; i < 10; i++) {
+            PendingEvent event = new PendingEvent(EntityRef.NULL, new OrderedEvent(i));
+            events.add(event);
+            queue.offer(event);
+        }
+        assertEquals(10, queue.size());
+        for (int i = 0; i < 3; i++) {
+            assertSame(events.get(i), queue.poll());
+        }
+        for (int i = 10; i < 13; i++) {
+            PendingEvent event = new PendingEvent(EntityRef.NULL, new OrderedEvent(i));
+            events.add(event);
+            queue.offer(event);
+        }
+        for (int i = 3; i < 13; i++) {
+            assertSame(events.get(i), queue.poll());
+        }
+        assertNull(queue.poll());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void eventsOfEachProducerArePolledInOrder() throws InterruptedException {
+        final int producers = 4;
+        final int eventsPerProducer = 50000;
+        final PendingEventQueue queue = new PendingEventQueue(256);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = Lists.newArrayList();
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < eventsPerProducer; i++) {
+                        queue.offer(new PendingEvent(EntityRef.NULL, new OrderedEvent(producer * eventsPerProducer + i)));
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+
+        int[] next = new int[producers];
+        int polled = 0;
+        while (polled < producers * eventsPerProducer) {
+            PendingEvent event = queue.poll();
+            if (event == null) {
+                Thread.yield();
+                continue;
+            }
+            int value = ((OrderedEvent) event.getEvent()).value;
+            int producer = value / eventsPerProducer;
+            assertEquals(next[producer]++, value % eventsPerProducer);
+            polled++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(queue.poll());
+    }
+
+    private static class OrderedEvent extends AbstractEvent {
+        private final int value;
+
+        public OrderedEvent(int value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.game;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.terasology.componentSystem.ComponentAccess;
+import org.terasology.componentSystem.UpdateSubscriberSystem;
+import org.terasology.entitySystem.AbstractEvent;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.entitySystem.EventReceiver;
+import org.terasology.entitySystem.EventSystem;
+import org.terasology.entitySystem.event.ChangedComponentEvent;
+import org.terasology.entitySystem.metadata.ComponentLibraryImpl;
+import org.terasology.entitySystem.pojo.PojoEntityManager;
+import org.terasology.entitySystem.pojo.PojoEventSystem;
+import org.terasology.entitySystem.pojo.PojoPrefabManager;
+import org.terasology.entitySystem.stubs.EntityRefComponent;
+import org.terasology.entitySystem.stubs.IntegerComponent;
+import org.terasology.entitySystem.stubs.StringComponent;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class UpdateSchedulerTest {
+
+    private UpdateScheduler scheduler;
+
+    @Before
+    public void setup() {
+        scheduler = new UpdateScheduler(4);
+    }
+
+    @After
+    public void teardown() {
+        scheduler.clear();
+        CoreRegistry.put(EventSystem.class, null);
+    }
+
+    @Test
+    public void systemsWithoutAccessUpdatedInOrder() {
+        UpdateSubscriberSystem first = new ExclusiveSystem();
+        UpdateSubscriberSystem second = new ExclusiveSystem();
+        scheduler.add(first);
+        scheduler.add(second);
+        assertEquals(stages(stage(first), stage(second)), scheduler.getStages());
+    }
+
+    @Test
+    public void nonConflictingSystemsShareStage() {
+        UpdateSubscriberSystem readsString = new ReadsStringSystem();
+        UpdateSubscriberSystem writesInteger = new WritesIntegerSystem();
+        UpdateSubscriberSystem readsString2 = new ReadsStringSystem();
+        scheduler.add(readsString);
+        scheduler.add(writesInteger);
+        scheduler.add(readsString2);
+        assertEquals(stages(stage(readsString, writesInteger, readsString2)), scheduler.getStages());
+    }
+
+    @Test
+    public void conflictingSystemsUpdatedInRegistrationOrder() {
+        UpdateSubscriberSystem writesString = new WritesStringSystem();
+        UpdateSubscriberSystem readsString = new ReadsStringSystem();
+        UpdateSubscriberSystem writesInteger = new WritesIntegerSystem();
+        UpdateSubscriberSystem writesStringAndEntityRef = new WritesStringAndEntityRefSystem();
+        scheduler.add(writesString);
+        scheduler.add(readsString);
+        scheduler.add(writesInteger);
+        scheduler.add(writesStringAndEntityRef);
+        assertEquals(stages(stage(writesString, writesInteger), stage(readsString), stage(writesStringAndEntityRef)), scheduler.getStages());
+    }
+
+    @Test
+    public void systemWithoutAccessSeparatesStages() {
+        UpdateSubscriberSystem readsString = new ReadsStringSystem();
+        UpdateSubscriberSystem exclusive = new ExclusiveSystem();
+        UpdateSubscriberSystem writesInteger = new WritesIntegerSystem();
+        scheduler.add(readsString);
+        scheduler.add(exclusive);
+        scheduler.add(writesInteger);
+        assertEquals(stages(stage(readsString), stage(exclusive), stage(writesInteger)), scheduler.getStages());
+    }
+
+    @Test
+    public void allSystemsUpdatedEachFrame() {
+        List<CountingSystem> systems = Lists.newArrayList();
+        for (int i = 0; i < 8; i++) {
+            CountingSystem system = new CountingSystem();
+            systems.add(system);
+            scheduler.add(system);
+        }
+        scheduler.update(0.5f);
+        scheduler.update(0.5f);
+        Set<Thread> threads = Sets.newHashSet();
+        for (CountingSystem system : systems) {
+            assertEquals(2, system.updates);
+            assertEquals(1.0f, system.time, 0.0001f);
+            threads.add(system.thread);
+        }
+        assertTrue(threads.size() > 1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void failureOfParallelSystemRethrown() {
+        scheduler.add(new CountingSystem());
+        scheduler.add(new FailingSystem());
+        scheduler.update(0.5f);
+    }
+
+    @Test
+    public void eventsOfParallelSystemsHandledAfterStage() {
+        ComponentLibraryImpl componentLibrary = new ComponentLibraryImpl();
+        PojoEntityManager entityManager = new PojoEntityManager(componentLibrary, new PojoPrefabManager(componentLibrary));
+        PojoEventSystem eventSystem = new PojoEventSystem();
+        entityManager.setEventSystem(eventSystem);
+        CoreRegistry.put(EventSystem.class, eventSystem);
+        EntityRef entity = entityManager.create();
+        entity.addComponent(new StringComponent());
+        entity.addComponent(new IntegerComponent(0));
+
+        final List<Integer> handledValues = Lists.newArrayList();
+        eventSystem.registerEventReceiver(new EventReceiver<TestEvent>() {
+            @Override
+            public void onEvent(TestEvent event, EntityRef entity) {
+                handledValues.add(entity.getComponent(IntegerComponent.class).value);
+            }
+        }, TestEvent.class, StringComponent.class);
+
+        // The handler reads the component the other system of the stage writes
+        scheduler.add(new SendingSystem(entity));
+        scheduler.add(new IncrementingSystem(entity));
+        scheduler.update(0.5f);
+
+        assertEquals(1, scheduler.getStages().size());
+        assertEquals(Lists.newArrayList(1), handledValues);
+    }
+
+    @Test
+    public void deferredChangesDeliveredAfterSequentialStage() {
+        ComponentLibraryImpl componentLibrary = new ComponentLibraryImpl();
+        PojoEntityManager entityManager = new PojoEntityManager(componentLibrary, new PojoPrefabManager(componentLibrary));
+        PojoEventSystem eventSystem = new PojoEventSystem(true);
+        entityManager.setEventSystem(eventSystem);
+        CoreRegistry.put(EventSystem.class, eventSystem);
+        final EntityRef entity = entityManager.create(new IntegerComponent(0));
+
+        final List<Integer> handledValues = Lists.newArrayList();
+        eventSystem.registerEventReceiver(new EventReceiver<ChangedComponentEvent>() {
+            @Override
+            public void onEvent(ChangedComponentEvent event, EntityRef entity) {
+                handledValues.add(entity.getComponent(IntegerComponent.class).value);
+            }
+        }, ChangedComponentEvent.class, IntegerComponent.class);
+
+        final List<Integer> handledBeforeSecondStage = Lists.newArrayList();
+        scheduler.add(new ExclusiveSystem() {
+            @Override
+            public void update(float delta) {
+                IntegerComponent component = entity.getComponent(IntegerComponent.class);
+                component.value++;
+                entity.saveComponent(component);
+            }
+        });
+        scheduler.add(new ExclusiveSystem() {
+            @Override
+            public void update(float delta) {
+                handledBeforeSecondStage.addAll(handledValues);
+            }
+        });
+        scheduler.update(0.5f);
+
+        assertEquals(2, scheduler.getStages().size());
+        assertEquals(Lists.newArrayList(1), handledBeforeSecondStage);
+    }
+
+    private List<List<UpdateSubscriberSystem>> stages(List<UpdateSubscriberSystem>... stages) {
+        return Lists.newArrayList(stages);
+    }
+
+    private List<UpdateSubscriberSystem> stage(UpdateSubscriberSystem... systems) {
+        return Lists.newArrayList(systems);
+    }
+
+    private abstract static class StubSystem implements UpdateSubscriberSystem {
+        @Override
+        public void update(float delta) {
+        }
+
+        @Override
+        public void initialise() {
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+
+    private static class ExclusiveSystem extends StubSystem {
+    }
+
+    @ComponentAccess(reads = {StringComponent.class})
+    private static class ReadsStringSystem extends StubSystem {
+    }
+
+    @ComponentAccess(writes = {StringComponent.class})
+    private static class WritesStringSystem extends StubSystem {
+    }
+
+    @ComponentAccess(writes = {IntegerComponent.class})
+    private static class WritesIntegerSystem extends StubSystem {
+    }
+
+    @ComponentAccess(writes = {StringComponent.class, EntityRefComponent.class})
+    private static class WritesStringAndEntityRefSystem extends StubSystem {
+    }
+
+    @ComponentAccess(reads = {StringComponent.class})
+    private static class CountingSystem extends StubSystem {
+        private int updates;
+        private float time;
+        private volatile Thread thread;
+
+        @Override
+        public void update(float delta) {
+            updates++;
+            time += delta;
+            thread = Thread.currentThread();
+            try {
+                // Give the other threads time to pick up their systems
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @ComponentAccess(reads = {StringComponent.class})
+    private static class SendingSystem extends StubSystem {
+        private final EntityRef entity;
+
+        public SendingSystem(EntityRef entity) {
+            this.entity = entity;
+        }
+
+        @Override
+        public void update(float delta) {
+            entity.send(new TestEvent());
+        }
+    }
+
+    @ComponentAccess(writes = {IntegerComponent.class})
+    private static class IncrementingSystem extends StubSystem {
+        private final EntityRef entity;
+
+        public IncrementingSystem(EntityRef entity) {
+            this.entity = entity;
+        }
+
+        @Override
+        public void update(float delta) {
+            try {
+                // Leave the event time to be handled while the component is being written
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            entity.getComponent(IntegerComponent.class).value++;
+        }
+    }
+
+    private static class TestEvent extends AbstractEvent {
+    }
+
+    @ComponentAccess(reads = {IntegerComponent.class})
+    private static class FailingSystem extends StubSystem {
+        @Override
+        public void update(float delta) {
+            throw new IllegalStateException();
+        }
+    }
+}
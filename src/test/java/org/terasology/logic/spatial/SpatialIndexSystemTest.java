@@ -0,0 +1,256 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.logic.spatial;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import javax.vecmath.Vector3f;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.terasology.components.world.LocationComponent;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.entitySystem.PersistableEntityManager;
+import org.terasology.game.bootstrap.EntitySystemBuilder;
+import org.terasology.logic.mod.ModManager;
+import org.terasology.math.AABB;
+import org.terasology.model.structures.ViewFrustum;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class SpatialIndexSystemTest {
+
+    private static ModManager modManager;
+
+    private PersistableEntityManager entityManager;
+    private SpatialIndexSystem spatialIndex;
+
+    @BeforeClass
+    public static void setupClass() {
+        modManager = new ModManager();
+    }
+
+    @Before
+    public void setup() {
+        entityManager = new EntitySystemBuilder().build(modManager);
+        spatialIndex = new SpatialIndexSystem();
+        entityManager.getEventSystem().registerEventHandler(spatialIndex);
+        spatialIndex.initialise();
+    }
+
+    @Test
+    public void existingEntitiesIndexedOnInitialise() {
+        EntityRef entity = entityManager.create(new LocationComponent(new Vector3f(1, 2, 3)));
+        SpatialIndexSystem other = new SpatialIndexSystem();
+        other.initialise();
+        assertEquals(Sets.newHashSet(entity), findInRadius(other, new Vector3f(1, 2, 3), 1));
+    }
+
+    @Test
+    public void createdEntityIndexedOnUpdate() {
+        EntityRef entity = entityManager.create(new LocationComponent(new Vector3f(1, 2, 3)));
+        assertEquals(0, spatialIndex.size());
+        spatialIndex.update(0);
+        assertEquals(1, spatialIndex.size());
+        assertEquals(Sets.newHashSet(entity), findInRadius(spatialIndex, new Vector3f(1, 2, 3), 1));
+    }
+
+    @Test
+    public void movedEntityFoundAtNewPosition() {
+        EntityRef entity = entityManager.create(new LocationComponent(new Vector3f(1, 2, 3)));
+        spatialIndex.update(0);
+        LocationComponent location = entity.getComponent(LocationComponent.class);
+        location.setWorldPosition(new Vector3f(100, 2, -100));
+        entity.saveComponent(location);
+        spatialIndex.update(0);
+        assertTrue(findInRadius(spatialIndex, new Vector3f(1, 2, 3), 10).isEmpty());
+        assertEquals(Sets.newHashSet(entity), findInRadius(spatialIndex, new Vector3f(100, 2, -100), 1));
+    }
+
+    @Test
+    public void destroyedEntityRemoved() {
+        EntityRef entity = entityManager.create(new LocationComponent(new Vector3f(1, 2, 3)));
+        spatialIndex.update(0);
+        entity.destroy();
+        assertTrue(findInRadius(spatialIndex, new Vector3f(1, 2, 3), 1).isEmpty());
+        spatialIndex.update(0);
+        assertEquals(0, spatialIndex.size());
+    }
+
+    @Test
+    public void entityWithRemovedLocationRemoved() {
+        EntityRef entity = entityManager.create(new LocationComponent(new Vector3f(1, 2, 3)));
+        spatialIndex.update(0);
+        entity.removeComponent(LocationComponent.class);
+        spatialIndex.update(0);
+        assertEquals(0, spatialIndex.size());
+        assertTrue(findInRadius(spatialIndex, new Vector3f(1, 2, 3), 1).isEmpty());
+    }
+
+    @Test
+    public void overlappingQueriesKeepTheirPositions() {
+        entityManager.create(new LocationComponent(new Vector3f(1, 2, 3)));
+        entityManager.create(new LocationComponent(new Vector3f(100, 2, -100)));
+        spatialIndex.update(0);
+
+        final List<Vector3f> outerPositions = Lists.newArrayList();
+        spatialIndex.findInRadius(new Vector3f(1, 2, 3), 1, new SpatialQueryCallback() {
+            @Override
+            public boolean visit(EntityRef entity, Vector3f position) {
+                // A second query runs while the first one is visiting an entity
+                spatialIndex.findInRadius(new Vector3f(100, 2, -100), 1, new SpatialQueryCallback() {
+                    @Override
+                    public boolean visit(EntityRef entity, Vector3f position) {
+                        return true;
+                    }
+                });
+                outerPositions.add(new Vector3f(position));
+                return true;
+            }
+        });
+        assertEquals(Lists.newArrayList(new Vector3f(1, 2, 3)), outerPositions);
+    }
+
+    @Test
+    public void childMovedWithParent() {
+        EntityRef parent = entityManager.create(new LocationComponent(new Vector3f(0, 0, 0)));
+        EntityRef child = entityManager.create(new LocationComponent(new Vector3f(1, 0, 0)));
+        LocationComponent parentLocation = parent.getComponent(LocationComponent.class);
+        parentLocation.addChild(child, parent);
+        parent.saveComponent(parentLocation);
+        spatialIndex.update(0);
+
+        parentLocation.setWorldPosition(new Vector3f(50, 0, 0));
+        parent.saveComponent(parentLocation);
+        spatialIndex.update(0);
+        assertEquals(Sets.newHashSet(child), findInRadius(spatialIndex, new Vector3f(51, 0, 0), 0.5f));
+    }
+
+    @Test
+    public void queriesMatchScanningAllEntities() {
+        Random random = new Random(42);
+        List<EntityRef> entities = Lists.newArrayList();
+        for (int i = 0; i < 2000; i++) {
+            entities.add(entityManager.create(new LocationComponent(randomPosition(random, 200))));
+        }
+        spatialIndex.update(0);
+        for (int i = 0; i < 100; i++) {
+            Vector3f center = randomPosition(random, 250);
+            float radius = random.nextFloat() * (i % 10 == 0 ? 400 : 40);
+            Set<EntityRef> expected = Sets.newHashSet();
+            for (EntityRef entity : entities) {
+                Vector3f position = entity.getComponent(LocationComponent.class).getWorldPosition();
+                position.sub(center);
+                if (position.lengthSquared() <= radius * radius) {
+                    expected.add(entity);
+                }
+            }
+            assertEquals(expected, findInRadius(spatialIndex, center, radius));
+
+            AABB region = AABB.createCenterExtent(center, new Vector3f(radius, radius / 2, radius));
+            expected.clear();
+            for (EntityRef entity : entities) {
+                if (region.contains(entity.getComponent(LocationComponent.class).getWorldPosition())) {
+                    expected.add(entity);
+                }
+            }
+            assertEquals(expected, findInRegion(spatialIndex, region));
+        }
+    }
+
+    @Test
+    public void frustumQueryRelativeToCamera() {
+        EntityRef inFront = entityManager.create(new LocationComponent(new Vector3f(105, 0, 0)));
+        entityManager.create(new LocationComponent(new Vector3f(95, 0, 0)));
+        spatialIndex.update(0);
+        final Set<EntityRef> found = Sets.newHashSet();
+        spatialIndex.findInFrustum(new PositiveXFrustum(), new Vector3f(100, 0, 0), new SpatialQueryCallback() {
+            @Override
+            public boolean visit(EntityRef entity, Vector3f position) {
+                found.add(entity);
+                return true;
+            }
+        });
+        assertEquals(Sets.newHashSet(inFront), found);
+    }
+
+    @Test
+    public void queryStoppedByCallback() {
+        for (int i = 0; i < 10; i++) {
+            entityManager.create(new LocationComponent(new Vector3f(i, 0, 0)));
+        }
+        spatialIndex.update(0);
+        final int[] visited = {0};
+        spatialIndex.findInRadius(new Vector3f(), 100, new SpatialQueryCallback() {
+            @Override
+            public boolean visit(EntityRef entity, Vector3f position) {
+                visited[0]++;
+                return visited[0] < 3;
+            }
+        });
+        assertEquals(3, visited[0]);
+    }
+
+    private Vector3f randomPosition(Random random, float range) {
+        return new Vector3f((random.nextFloat() * 2 - 1) * range, (random.nextFloat() * 2 - 1) * range, (random.nextFloat() * 2 - 1) * range);
+    }
+
+    private Set<EntityRef> findInRadius(SpatialIndex index, Vector3f center, float radius) {
+        final Set<EntityRef> result = Sets.newHashSet();
+        index.findInRadius(center, radius, new SpatialQueryCallback() {
+            @Override
+            public boolean visit(EntityRef entity, Vector3f position) {
+                result.add(entity);
+                return true;
+            }
+        });
+        return result;
+    }
+
+    private Set<EntityRef> findInRegion(SpatialIndex index, AABB region) {
+        final Set<EntityRef> result = Sets.newHashSet();
+        index.findInRegion(region, new SpatialQueryCallback() {
+            @Override
+            public boolean visit(EntityRef entity, Vector3f position) {
+                result.add(entity);
+                return true;
+            }
+        });
+        return result;
+    }
+
+    /**
+     * A frustum containing everything in front of the camera along the x axis.
+     */
+    private static class PositiveXFrustum extends ViewFrustum {
+        @Override
+        public boolean intersects(double x, double y, double z) {
+            return x > 0;
+        }
+
+        @Override
+        public boolean intersects(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+            return maxX > 0;
+        }
+    }
+}
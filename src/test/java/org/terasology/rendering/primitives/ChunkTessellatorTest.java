@@ -0,0 +1,336 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.rendering.primitives;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+import javax.vecmath.Vector2f;
+import javax.vecmath.Vector3f;
+import javax.vecmath.Vector4f;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.terasology.math.Direction;
+import org.terasology.math.Region3i;
+import org.terasology.math.Side;
+import org.terasology.math.Vector3i;
+import org.terasology.world.WorldBiomeProvider;
+import org.terasology.world.WorldView;
+import org.terasology.world.block.Block;
+import org.terasology.world.block.BlockPart;
+import org.terasology.world.block.BlockUri;
+import org.terasology.world.block.management.BlockManager;
+import org.terasology.world.block.shapes.BlockMeshPart;
+import org.terasology.world.chunks.Chunk;
+
+/**
+ * Checks the lighting of the tessellated vertices against the per vertex world view sampling the tessellator
+ * used before it sampled a snapshot of the chunk neighbourhood, and the compact vertex format against the
+ * default one.
+ */
+public class ChunkTessellatorTest {
+
+    private static final int FLOATS_PER_VERTEX = 16;
+    private static final int SEGMENT_HEIGHT = 32;
+
+    private RandomWorldView view;
+    private WorldBiomeProvider biomeProvider;
+
+    @Before
+    public void setup() {
+        Block solid = createCube("test:solid", false);
+        Block glass = createCube("test:glass", true);
+        Block shadowlessGlass = createCube("test:shadowlessGlass", true);
+        shadowlessGlass.setShadowCasting(false);
+        // Color offsets above 1 as used by the red leaves
+        Block tinted = createCube("test:tinted", false);
+        tinted.setColorOffset(new Vector4f(2.0f, 0.0f, 0.5f, 1.0f));
+        view = new RandomWorldView(new Block[] {BlockManager.getInstance().getAir(), solid, solid, glass, shadowlessGlass, tinted}, 42);
+        biomeProvider = new ConstantBiomeProvider();
+    }
+
+    @Test
+    public void lightingMatchesWorldViewSampling() {
+        assertLightingMatches(new ChunkTessellator(biomeProvider, false));
+    }
+
+    @Test
+    public void greedyLightingMatchesWorldViewSampling() {
+        assertLightingMatches(new ChunkTessellator(biomeProvider, true));
+    }
+
+    @Test
+    public void compactVerticesMatchDefaultVertices() {
+        ChunkTessellator defaultTessellator = new ChunkTessellator(biomeProvider, false, ChunkMesh.VERTEX_FORMAT.DEFAULT);
+        ChunkTessellator compactTessellator = new ChunkTessellator(biomeProvider, false, ChunkMesh.VERTEX_FORMAT.COMPACT);
+        ChunkMesh defaultMesh = defaultTessellator.generateMesh(view, new Vector3i(0, 0, 0), SEGMENT_HEIGHT, Chunk.SIZE_Y - SEGMENT_HEIGHT);
+        ChunkMesh compactMesh = compactTessellator.generateMesh(view, new Vector3i(0, 0, 0), SEGMENT_HEIGHT, Chunk.SIZE_Y - SEGMENT_HEIGHT);
+
+        int vertices = 0;
+        int brightVertices = 0;
+        for (int m = 0; m < defaultMesh._vertexElements.length; m++) {
+            FloatBuffer expected = defaultMesh._vertexElements[m].finalVertices.asFloatBuffer();
+            ByteBuffer actual = compactMesh._vertexElements[m].finalVertices;
+            assertEquals(expected.limit() / FLOATS_PER_VERTEX * ChunkMesh.VERTEX_FORMAT.COMPACT.getStride(), actual.limit());
+            assertEquals(defaultMesh._vertexElements[m].finalIndices, compactMesh._vertexElements[m].finalIndices);
+
+            for (int i = 0, j = 0; i < expected.limit(); i += FLOATS_PER_VERTEX, j += ChunkMesh.VERTEX_FORMAT.COMPACT.getStride(), vertices++) {
+                float scale = actual.getShort(j + 6);
+                for (int k = 0; k < 3; k++) {
+                    assertEquals(expected.get(i + k), actual.getShort(j + 2 * k) / scale, 0.5f / ChunkMesh.COMPACT_POSITION_SCALE);
+                    assertEquals(expected.get(i + 3 + k), actual.getFloat(j + 8 + 4 * k), 0f);
+                    assertEquals(expected.get(i + 6 + k), (actual.get(j + 20 + k) & 0xFF) / 255f, 1f / 255f);
+                    assertEquals(expected.get(i + 13 + k), actual.get(j + 28 + k) / 127f, 1f / 127f);
+                }
+                for (int k = 0; k < 4; k++) {
+                    float colorScale = ChunkMesh.COMPACT_COLOR_SCALE;
+                    assertEquals(expected.get(i + 9 + k), (actual.get(j + 24 + k) & 0xFF) / 255f * colorScale, colorScale / 255f);
+                }
+                if (expected.get(i + 9) > 1f) {
+                    brightVertices++;
+                }
+            }
+        }
+        assertTrue(vertices > 1000);
+        assertTrue(brightVertices > 0);
+    }
+
+    private void assertLightingMatches(ChunkTessellator tessellator) {
+        float[] expected = new float[3];
+        int vertices = 0;
+        for (int offset = 0; offset < Chunk.SIZE_Y; offset += SEGMENT_HEIGHT * 3) {
+            ChunkMesh mesh = tessellator.generateMesh(view, new Vector3i(0, 0, 0), SEGMENT_HEIGHT, offset);
+            for (ChunkMesh.VertexElements elements : mesh._vertexElements) {
+                FloatBuffer buffer = elements.finalVertices.asFloatBuffer();
+                for (int i = 0; i < buffer.limit(); i += FLOATS_PER_VERTEX, vertices++) {
+                    Vector3f vertexPos = new Vector3f(buffer.get(i), buffer.get(i + 1), buffer.get(i + 2));
+                    Vector3f normal = new Vector3f(buffer.get(i + 13), buffer.get(i + 14), buffer.get(i + 15));
+                    calcLightingValuesForVertexPos(view, vertexPos, expected, normal);
+                    for (int j = 0; j < 3; j++) {
+                        assertEquals("Vertex " + vertexPos + " lighting " + j, Float.floatToIntBits(expected[j]), Float.floatToIntBits(buffer.get(i + 6 + j)));
+                    }
+                }
+            }
+        }
+        assertTrue(vertices > 1000);
+    }
+
+    /**
+     * The per vertex lighting as the tessellator calculated it from the world view.
+     */
+    private static void calcLightingValuesForVertexPos(WorldView worldView, Vector3f vertexPos, float[] output, Vector3f normal) {
+        float[] lights = new float[8];
+        float[] blockLights = new float[8];
+        Block[] blocks = new Block[4];
+
+        Direction dir = Direction.inDirection(normal);
+        switch (dir) {
+            case LEFT:
+            case RIGHT:
+                blocks[0] = worldView.getBlock((vertexPos.x + 0.8f * normal.x), (vertexPos.y + 0.1f), (vertexPos.z + 0.1f));
+                blocks[1] = worldView.getBlock((vertexPos.x + 0.8f * normal.x), (vertexPos.y + 0.1f), (vertexPos.z - 0.1f));
+                blocks[2] = worldView.getBlock((vertexPos.x + 0.8f * normal.x), (vertexPos.y - 0.1f), (vertexPos.z - 0.1f));
+                blocks[3] = worldView.getBlock((vertexPos.x + 0.8f * normal.x), (vertexPos.y - 0.1f), (vertexPos.z + 0.1f));
+                break;
+            case FORWARD:
+            case BACKWARD:
+                blocks[0] = worldView.getBlock((vertexPos.x + 0.1f), (vertexPos.y + 0.1f), (vertexPos.z + 0.8f * normal.z));
+                blocks[1] = worldView.getBlock((vertexPos.x + 0.1f), (vertexPos.y - 0.1f), (vertexPos.z + 0.8f * normal.z));
+                blocks[2] = worldView.getBlock((vertexPos.x - 0.1f), (vertexPos.y - 0.1f), (vertexPos.z + 0.8f * normal.z));
+                blocks[3] = worldView.getBlock((vertexPos.x - 0.1f), (vertexPos.y + 0.1f), (vertexPos.z + 0.8f * normal.z));
+                break;
+            default:
+                blocks[0] = worldView.getBlock((vertexPos.x + 0.1f), (vertexPos.y + 0.8f * normal.y), (vertexPos.z + 0.1f));
+                blocks[1] = worldView.getBlock((vertexPos.x + 0.1f), (vertexPos.y + 0.8f * normal.y), (vertexPos.z - 0.1f));
+                blocks[2] = worldView.getBlock((vertexPos.x - 0.1f), (vertexPos.y + 0.8f * normal.y), (vertexPos.z - 0.1f));
+                blocks[3] = worldView.getBlock((vertexPos.x - 0.1f), (vertexPos.y + 0.8f * normal.y), (vertexPos.z + 0.1f));
+                break;
+        }
+
+        lights[0] = worldView.getSunlight((vertexPos.x + 0.1f), (vertexPos.y + 0.8f), (vertexPos.z + 0.1f));
+        lights[1] = worldView.getSunlight((vertexPos.x + 0.1f), (vertexPos.y + 0.8f), (vertexPos.z - 0.1f));
+        lights[2] = worldView.getSunlight((vertexPos.x - 0.1f), (vertexPos.y + 0.8f), (vertexPos.z - 0.1f));
+        lights[3] = worldView.getSunlight((vertexPos.x - 0.1f), (vertexPos.y + 0.8f), (vertexPos.z + 0.1f));
+
+        lights[4] = worldView.getSunlight((vertexPos.x + 0.1f), (vertexPos.y - 0.1f), (vertexPos.z + 0.1f));
+        lights[5] = worldView.getSunlight((vertexPos.x + 0.1f), (vertexPos.y - 0.1f), (vertexPos.z - 0.1f));
+        lights[6] = worldView.getSunlight((vertexPos.x - 0.1f), (vertexPos.y - 0.1f), (vertexPos.z - 0.1f));
+        lights[7] = worldView.getSunlight((vertexPos.x - 0.1f), (vertexPos.y - 0.1f), (vertexPos.z + 0.1f));
+
+        blockLights[0] = worldView.getLight((vertexPos.x + 0.1f), (vertexPos.y + 0.8f), (vertexPos.z + 0.1f));
+        blockLights[1] = worldView.getLight((vertexPos.x + 0.1f), (vertexPos.y + 0.8f), (vertexPos.z - 0.1f));
+        blockLights[2] = worldView.getLight((vertexPos.x - 0.1f), (vertexPos.y + 0.8f), (vertexPos.z - 0.1f));
+        blockLights[3] = worldView.getLight((vertexPos.x - 0.1f), (vertexPos.y + 0.8f), (vertexPos.z + 0.1f));
+
+        blockLights[4] = worldView.getLight((vertexPos.x + 0.1f), (vertexPos.y - 0.1f), (vertexPos.z + 0.1f));
+        blockLights[5] = worldView.getLight((vertexPos.x + 0.1f), (vertexPos.y - 0.1f), (vertexPos.z - 0.1f));
+        blockLights[6] = worldView.getLight((vertexPos.x - 0.1f), (vertexPos.y - 0.1f), (vertexPos.z - 0.1f));
+        blockLights[7] = worldView.getLight((vertexPos.x - 0.1f), (vertexPos.y - 0.1f), (vertexPos.z + 0.1f));
+
+        float resultLight = 0;
+        float resultBlockLight = 0;
+        int counterLight = 0;
+        int counterBlockLight = 0;
+
+        int occCounter = 0;
+        int occCounterBillboard = 0;
+        for (int i = 0; i < 8; i++) {
+            if (lights[i] > 0) {
+                resultLight += lights[i];
+                counterLight++;
+            }
+            if (blockLights[i] > 0) {
+                resultBlockLight += blockLights[i];
+                counterBlockLight++;
+            }
+
+            if (i < 4) {
+                Block b = blocks[i];
+
+                if (b.isShadowCasting() && !b.isTranslucent()) {
+                    occCounter++;
+                } else if (b.isShadowCasting()) {
+                    occCounterBillboard++;
+                }
+            }
+        }
+
+        double resultAmbientOcclusion = (Math.pow(0.40, occCounter) + Math.pow(0.80, occCounterBillboard)) / 2.0;
+
+        if (counterLight == 0)
+            output[0] = 0;
+        else
+            output[0] = resultLight / counterLight / 15f;
+
+        if (counterBlockLight == 0)
+            output[1] = 0;
+        else
+            output[1] = resultBlockLight / counterBlockLight / 15f;
+
+        output[2] = (float) resultAmbientOcclusion;
+    }
+
+    private static Block createCube(String uri, boolean translucent) {
+        Block block = new Block();
+        block.setUri(new BlockUri(uri));
+        block.setTranslucent(translucent);
+        for (Side side : Side.values()) {
+            block.setMeshPart(BlockPart.fromSide(side), createFace(side));
+            block.setFullSide(side, true);
+        }
+        return block;
+    }
+
+    private static BlockMeshPart createFace(Side side) {
+        Vector3i normal = side.getVector3i();
+        Vector3f u = normal.x != 0 ? new Vector3f(0, 1, 0) : new Vector3f(1, 0, 0);
+        Vector3f v = new Vector3f();
+        v.cross(new Vector3f(normal.x, normal.y, normal.z), u);
+        Vector3f[] vertices = new Vector3f[4];
+        Vector3f[] normals = new Vector3f[4];
+        Vector2f[] texCoords = new Vector2f[4];
+        float[][] corners = {{-0.5f, -0.5f}, {0.5f, -0.5f}, {0.5f, 0.5f}, {-0.5f, 0.5f}};
+        for (int i = 0; i < 4; i++) {
+            vertices[i] = new Vector3f(normal.x * 0.5f + corners[i][0] * u.x + corners[i][1] * v.x,
+                    normal.y * 0.5f + corners[i][0] * u.y + corners[i][1] * v.y,
+                    normal.z * 0.5f + corners[i][0] * u.z + corners[i][1] * v.z);
+            normals[i] = new Vector3f(normal.x, normal.y, normal.z);
+            texCoords[i] = new Vector2f((corners[i][0] + 0.5f) * Block.TEXTURE_OFFSET_WIDTH, (corners[i][1] + 0.5f) * Block.TEXTURE_OFFSET_WIDTH);
+        }
+        return new BlockMeshPart(vertices, normals, texCoords, new int[] {0, 1, 2, 0, 2, 3});
+    }
+
+    /**
+     * A world view over the chunk at the origin and its neighbours, filled with random blocks and light.
+     */
+    private static class RandomWorldView extends WorldView {
+        private static final int MIN = -Chunk.SIZE_X;
+        private static final int SIZE = 3 * Chunk.SIZE_X;
+
+        private final Block[] blocks = new Block[SIZE * SIZE * Chunk.SIZE_Y];
+        private final byte[] sunlight = new byte[blocks.length];
+        private final byte[] light = new byte[blocks.length];
+
+        public RandomWorldView(Block[] palette, long seed) {
+            super(new Chunk[9], Region3i.createFromCenterExtents(new Vector3i(0, 0, 0), new Vector3i(1, 0, 1)), Vector3i.one());
+            Random random = new Random(seed);
+            for (int i = 0; i < blocks.length; i++) {
+                blocks[i] = palette[random.nextInt(palette.length)];
+                sunlight[i] = (byte) Math.max(0, random.nextInt(Chunk.MAX_LIGHT + 6) - 5);
+                light[i] = (byte) Math.max(0, random.nextInt(Chunk.MAX_LIGHT + 11) - 10);
+            }
+        }
+
+        @Override
+        public Block getBlock(int blockX, int blockY, int blockZ) {
+            int index = indexOf(blockX, blockY, blockZ);
+            return index < 0 ? BlockManager.getInstance().getAir() : blocks[index];
+        }
+
+        @Override
+        public byte getSunlight(int blockX, int blockY, int blockZ) {
+            int index = indexOf(blockX, blockY, blockZ);
+            return index < 0 ? 0 : sunlight[index];
+        }
+
+        @Override
+        public byte getLight(int blockX, int blockY, int blockZ) {
+            int index = indexOf(blockX, blockY, blockZ);
+            return index < 0 ? 0 : light[index];
+        }
+
+        private int indexOf(int x, int y, int z) {
+            x -= MIN;
+            z -= MIN;
+            if (x < 0 || y < 0 || z < 0 || x >= SIZE || y >= Chunk.SIZE_Y || z >= SIZE) {
+                return -1;
+            }
+            return (x * SIZE + z) * Chunk.SIZE_Y + y;
+        }
+    }
+
+    private static class ConstantBiomeProvider implements WorldBiomeProvider {
+        @Override
+        public float getHumidityAt(int x, int z) {
+            return 0.5f;
+        }
+
+        @Override
+        public float getTemperatureAt(int x, int z) {
+            return 0.5f;
+        }
+
+        @Override
+        public float getFog(float time) {
+            return 0;
+        }
+
+        @Override
+        public Biome getBiomeAt(int x, int z) {
+            return Biome.PLAINS;
+        }
+
+        @Override
+        public Biome getBiomeAt(float x, float z) {
+            return Biome.PLAINS;
+        }
+    }
+}
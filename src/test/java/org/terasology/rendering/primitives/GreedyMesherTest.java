@@ -0,0 +1,186 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.rendering.primitives;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.vecmath.Vector2f;
+import javax.vecmath.Vector3f;
+import javax.vecmath.Vector4f;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.terasology.math.Region3i;
+import org.terasology.math.Side;
+import org.terasology.math.Vector3i;
+import org.terasology.world.WorldView;
+import org.terasology.world.block.Block;
+import org.terasology.world.block.BlockPart;
+import org.terasology.world.block.BlockUri;
+import org.terasology.world.block.management.BlockManager;
+import org.terasology.world.block.shapes.BlockMeshPart;
+import org.terasology.world.chunks.Chunk;
+
+/**
+ * Checks which faces the greedy mesher merges into quads.
+ */
+public class GreedyMesherTest {
+
+    private static final int MESH_HEIGHT = 4;
+
+    private Block stone;
+    private SolidWorldView view;
+
+    @Before
+    public void setup() {
+        stone = createCube("test:stone");
+        view = new SolidWorldView(stone);
+    }
+
+    @Test
+    public void slabIsOneQuadPerSide() {
+        for (int x = 0; x < Chunk.SIZE_X; x++) {
+            for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                view.setSolid(x, 1, z);
+            }
+        }
+
+        ChunkMesh mesh = meshExposedFaces();
+        for (Side side : Side.values()) {
+            assertEquals(side.toString(), 1, countQuads(mesh, side));
+        }
+        ChunkMesh.VertexElements elements = mesh._vertexElements[ChunkMesh.RENDER_TYPE.OPAQUE.getIndex()];
+        assertEquals(6 * 4, elements.vertCount);
+        assertEquals(6 * 6, elements.indices.size());
+    }
+
+    @Test
+    public void rowAlongWallIsMergedDespiteOcclusionAcrossIt() {
+        for (int x = 0; x < Chunk.SIZE_X; x++) {
+            for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                view.setSolid(x, 1, z);
+            }
+        }
+        // The wall reaches past the mesh, so the occlusion it casts only changes across the row next to it
+        for (int x = -1; x <= Chunk.SIZE_X; x++) {
+            view.setSolid(x, 2, 0);
+        }
+
+        // The wall top, the row next to the wall and the rest of the slab
+        assertEquals(3, countQuads(meshExposedFaces(), Side.TOP));
+    }
+
+    private ChunkMesh meshExposedFaces() {
+        LightingSnapshot lighting = new LightingSnapshot(view, -1, -1, -1, Chunk.SIZE_X + 2, MESH_HEIGHT + 2, Chunk.SIZE_Z + 2);
+        GreedyMesher mesher = new GreedyMesher(lighting, Chunk.SIZE_X, MESH_HEIGHT, Chunk.SIZE_Z, 0);
+        for (int x = 0; x < Chunk.SIZE_X; x++) {
+            for (int y = 0; y < MESH_HEIGHT; y++) {
+                for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                    if (view.getBlock(x, y, z) != stone) {
+                        continue;
+                    }
+                    for (Side side : Side.values()) {
+                        Vector3i dir = side.getVector3i();
+                        if (view.getBlock(x + dir.x, y + dir.y, z + dir.z) != stone) {
+                            assertTrue(mesher.add(stone, side, x, y, z, new Vector4f(1, 1, 1, 1), ChunkMesh.RENDER_TYPE.OPAQUE, 0));
+                        }
+                    }
+                }
+            }
+        }
+        ChunkMesh mesh = new ChunkMesh();
+        mesher.appendTo(mesh);
+        return mesh;
+    }
+
+    private static int countQuads(ChunkMesh mesh, Side side) {
+        ChunkMesh.VertexElements elements = mesh._vertexElements[ChunkMesh.RENDER_TYPE.OPAQUE.getIndex()];
+        Vector3i normal = side.getVector3i();
+        int quads = 0;
+        for (int i = 0; i < elements.vertCount; i += 4) {
+            if (elements.normals.get(3 * i) == normal.x && elements.normals.get(3 * i + 1) == normal.y
+                    && elements.normals.get(3 * i + 2) == normal.z) {
+                quads++;
+            }
+        }
+        return quads;
+    }
+
+    private static Block createCube(String uri) {
+        Block block = new Block();
+        block.setUri(new BlockUri(uri));
+        for (Side side : Side.values()) {
+            block.setMeshPart(BlockPart.fromSide(side), createFace(side));
+            block.setFullSide(side, true);
+        }
+        return block;
+    }
+
+    private static BlockMeshPart createFace(Side side) {
+        Vector3i normal = side.getVector3i();
+        Vector3f u = normal.x != 0 ? new Vector3f(0, 1, 0) : new Vector3f(1, 0, 0);
+        Vector3f v = new Vector3f();
+        v.cross(new Vector3f(normal.x, normal.y, normal.z), u);
+        Vector3f[] vertices = new Vector3f[4];
+        Vector3f[] normals = new Vector3f[4];
+        Vector2f[] texCoords = new Vector2f[4];
+        float[][] corners = {{-0.5f, -0.5f}, {0.5f, -0.5f}, {0.5f, 0.5f}, {-0.5f, 0.5f}};
+        for (int i = 0; i < 4; i++) {
+            vertices[i] = new Vector3f(normal.x * 0.5f + corners[i][0] * u.x + corners[i][1] * v.x,
+                    normal.y * 0.5f + corners[i][0] * u.y + corners[i][1] * v.y,
+                    normal.z * 0.5f + corners[i][0] * u.z + corners[i][1] * v.z);
+            normals[i] = new Vector3f(normal.x, normal.y, normal.z);
+            texCoords[i] = new Vector2f((corners[i][0] + 0.5f) * Block.TEXTURE_OFFSET_WIDTH, (corners[i][1] + 0.5f) * Block.TEXTURE_OFFSET_WIDTH);
+        }
+        return new BlockMeshPart(vertices, normals, texCoords, new int[] {0, 1, 2, 0, 2, 3});
+    }
+
+    /**
+     * A world view of air in full sunlight with some solid blocks.
+     */
+    private static class SolidWorldView extends WorldView {
+        private final Block solid;
+        private final Set<Vector3i> solidPositions = new HashSet<Vector3i>();
+
+        public SolidWorldView(Block solid) {
+            super(new Chunk[9], Region3i.createFromCenterExtents(new Vector3i(0, 0, 0), new Vector3i(1, 0, 1)), Vector3i.one());
+            this.solid = solid;
+        }
+
+        public void setSolid(int x, int y, int z) {
+            solidPositions.add(new Vector3i(x, y, z));
+        }
+
+        @Override
+        public Block getBlock(int blockX, int blockY, int blockZ) {
+            return solidPositions.contains(new Vector3i(blockX, blockY, blockZ)) ? solid : BlockManager.getInstance().getAir();
+        }
+
+        @Override
+        public byte getSunlight(int blockX, int blockY, int blockZ) {
+            return solidPositions.contains(new Vector3i(blockX, blockY, blockZ)) ? 0 : Chunk.MAX_LIGHT;
+        }
+
+        @Override
+        public byte getLight(int blockX, int blockY, int blockZ) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.rendering.world;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class MeshUpdateQueueTest {
+
+    private MeshUpdateQueue<String> queue;
+
+    @Before
+    public void setup() {
+        queue = new MeshUpdateQueue<String>();
+    }
+
+    @Test
+    public void lowestPriorityFirst() throws InterruptedException {
+        queue.offer("far", 10);
+        queue.offer("near", 1);
+        queue.offer("middle", 5);
+        assertEquals("near", take().getKey());
+        assertEquals("middle", take().getKey());
+        assertEquals("far", take().getKey());
+        assertNull(take());
+    }
+
+    @Test
+    public void repeatedUpdatesAreCoalesced() throws InterruptedException {
+        assertTrue(queue.offer("a", 1));
+        assertFalse(queue.offer("a", 1));
+        assertTrue(queue.offer("b", 5));
+        assertFalse(queue.offer("a", 10));
+        assertEquals(2, queue.size());
+        assertEquals("b", take().getKey());
+        assertEquals("a", take().getKey());
+        assertNull(take());
+    }
+
+    @Test
+    public void runningKeyIsDeferredUntilCompleted() throws InterruptedException {
+        queue.offer("a", 1);
+        MeshUpdateQueue.Update<String> update = take();
+        assertTrue(queue.offer("a", 1));
+        assertFalse(queue.offer("a", 2));
+        assertNull(take());
+        assertTrue(queue.complete(update));
+        assertEquals("a", take().getKey());
+    }
+
+    @Test
+    public void cancelledUpdatesDoNotComplete() throws InterruptedException {
+        queue.offer("a", 1);
+        queue.offer("b", 2);
+        MeshUpdateQueue.Update<String> update = take();
+        assertTrue(queue.cancel("a"));
+        assertTrue(queue.cancel("b"));
+        assertFalse(queue.isRunning(update));
+        assertFalse(queue.complete(update));
+        assertNull(take());
+    }
+
+    @Test
+    public void retainAllCancelsOtherKeys() throws InterruptedException {
+        queue.offer("a", 1);
+        queue.offer("b", 2);
+        queue.offer("c", 3);
+        MeshUpdateQueue.Update<String> update = take();
+        queue.retainAll(Arrays.asList("c"));
+        assertFalse(queue.complete(update));
+        assertEquals(1, queue.size());
+        assertEquals("c", take().getKey());
+    }
+
+    private MeshUpdateQueue.Update<String> take() throws InterruptedException {
+        return queue.poll(0, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.utilities;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+public class GridNoiseTest {
+
+    @Test
+    public void perlinGridIsBitIdenticalToFBm() {
+        Random random = new Random(42);
+        for (int run = 0; run < 50; run++) {
+            PerlinNoise noise = new PerlinNoise(random.nextInt());
+            noise.setOctaves(1 + random.nextInt(10));
+            assertSameAsFBm(noise, randomAxis(random), randomAxis(random), randomAxis(random));
+        }
+    }
+
+    @Test
+    public void perlinPlaneIsBitIdenticalToFBm() {
+        Random random = new Random(7);
+        PerlinNoise noise = new PerlinNoise(1234);
+        for (int run = 0; run < 50; run++) {
+            GridNoise.Axis x = randomAxis(random);
+            GridNoise.Axis z = randomAxis(random);
+            assertSameAsFBm(noise, x, new GridNoise.Axis(0, 1, 1, 1.0), z);
+        }
+    }
+
+    @Test
+    public void followsOctaveChanges() {
+        PerlinNoise noise = new PerlinNoise(99);
+        GridNoise grid = new GridNoise(noise);
+        GridNoise.Axis axis = new GridNoise.Axis(-20, 3, 15, 0.05);
+        grid.fBm(null, axis, axis, axis);
+        noise.setOctaves(3);
+        assertSameAsFBm(grid, axis, axis, axis);
+    }
+
+    @Test
+    public void otherNoiseIsEvaluatedPerSample() {
+        Random random = new Random(3);
+        assertSameAsFBm(new SimplexNoise(17), randomAxis(random), randomAxis(random), randomAxis(random));
+        assertSameAsFBm(new EPNoise(17, 2, false), randomAxis(random), randomAxis(random), randomAxis(random));
+    }
+
+    @Test
+    public void parallelSlicesMatchSequentialGrid() {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Random random = new Random(11);
+            for (int run = 0; run < 20; run++) {
+                GridNoise grid = new GridNoise(run % 2 == 0 ? new PerlinNoise(random.nextInt()) : new SimplexNoise(random.nextInt()));
+                GridNoise.Axis x = randomAxis(random);
+                GridNoise.Axis y = randomAxis(random);
+                GridNoise.Axis z = randomAxis(random);
+                double[] sequential = grid.fBm(null, x, y, z);
+                double[] parallel = grid.fBm(new double[sequential.length + 5], x, y, z, executor);
+                assertEquals(Arrays.toString(sequential), Arrays.toString(Arrays.copyOf(parallel, sequential.length)));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private GridNoise.Axis randomAxis(Random random) {
+        double[] scales = {0.0005, 0.002, 0.02, 0.37, 1.0, 3.5};
+        return new GridNoise.Axis(random.nextInt(200000) - 100000, 1 + random.nextInt(4), 1 + random.nextInt(12), scales[random.nextInt(scales.length)]);
+    }
+
+    private void assertSameAsFBm(Noise noise, GridNoise.Axis x, GridNoise.Axis y, GridNoise.Axis z) {
+        assertSameAsFBm(new GridNoise(noise), x, y, z);
+    }
+
+    private void assertSameAsFBm(GridNoise grid, GridNoise.Axis x, GridNoise.Axis y, GridNoise.Axis z) {
+        double[] values = grid.fBm(null, x, y, z);
+        int index = 0;
+        for (int i = 0; i < x.getSize(); i++) {
+            for (int j = 0; j < y.getSize(); j++) {
+                for (int k = 0; k < z.getSize(); k++) {
+                    double expected = grid.getNoise().fBm(x.get(i), y.get(j), z.get(k));
+                    assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits(values[index++]));
+                }
+            }
+        }
+    }
+}
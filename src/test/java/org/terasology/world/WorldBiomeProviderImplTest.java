@@ -0,0 +1,46 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.terasology.math.TeraMath;
+import org.terasology.utilities.PerlinNoise;
+
+public class WorldBiomeProviderImplTest {
+
+    private static final String SEED = "biomes";
+
+    @Test
+    public void cachedColumnsMatchDirectEvaluation() {
+        WorldBiomeProviderImpl biomeProvider = new WorldBiomeProviderImpl(SEED);
+        PerlinNoise temperature = new PerlinNoise(SEED.hashCode() + 5);
+        PerlinNoise humidity = new PerlinNoise(SEED.hashCode() + 6);
+        for (int x = -40; x < 40; x += 3) {
+            for (int z = -40; z < 40; z += 7) {
+                int worldX = x * 251;
+                int worldZ = z * 97;
+                assertEquals(unitRange(temperature.fBm(worldX * 0.0005, 0, 0.0005 * worldZ)), biomeProvider.getTemperatureAt(worldX, worldZ), 0);
+                assertEquals(unitRange(humidity.fBm(worldX * 0.0005, 0, 0.0005 * worldZ)), biomeProvider.getHumidityAt(worldX, worldZ), 0);
+            }
+        }
+    }
+
+    private float unitRange(double noise) {
+        return (float) TeraMath.clamp((noise + 1.0f) / 2.0f);
+    }
+}
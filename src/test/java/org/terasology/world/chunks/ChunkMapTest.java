@@ -0,0 +1,154 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.chunks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.terasology.config.Config;
+import org.terasology.game.CoreRegistry;
+import org.terasology.math.Vector3i;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class ChunkMapTest {
+
+    private static final int MAX_HORIZONTAL = (1 << 27) - 1;
+    private static final int MIN_HORIZONTAL = -(1 << 27);
+
+    @BeforeClass
+    public static void setupConfig() {
+        if (CoreRegistry.get(Config.class) == null) {
+            CoreRegistry.put(Config.class, new Config());
+        }
+    }
+
+    @Test
+    public void packingKeepsComponentsApart() {
+        int[] values = {MIN_HORIZONTAL, -2, -1, 0, 1, MAX_HORIZONTAL};
+        int[] heights = {0, 1, 127, 255};
+        Set<Long> keys = Sets.newHashSet();
+        for (int x : values) {
+            for (int y : heights) {
+                for (int z : values) {
+                    assertTrue(keys.add(ChunkMap.pack(x, y, z)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void packingWrapsOutsideTheRange() {
+        assertEquals(ChunkMap.pack(MIN_HORIZONTAL, 0, 0), ChunkMap.pack(MAX_HORIZONTAL + 1, 0, 0));
+        assertEquals(ChunkMap.pack(0, 0, -1), ChunkMap.pack(0, 0, (1 << 28) - 1));
+        assertEquals(ChunkMap.pack(0, -1, 0), ChunkMap.pack(0, 255, 0));
+        assertFalse(ChunkMap.pack(-1, 0, 0) == ChunkMap.pack(0, 0, -1));
+    }
+
+    @Test
+    public void getsChunksAtNegativeAndBoundaryPositions() {
+        ChunkMap map = new ChunkMap(4);
+        List<Chunk> chunks = Lists.newArrayList();
+        int[] values = {MIN_HORIZONTAL, -1, 0, MAX_HORIZONTAL};
+        for (int x : values) {
+            for (int z : values) {
+                Chunk chunk = new Chunk(new Vector3i(x, 0, z));
+                assertNull(map.putIfAbsent(chunk));
+                chunks.add(chunk);
+            }
+        }
+        assertEquals(chunks.size(), map.size());
+        for (Chunk chunk : chunks) {
+            assertSame(chunk, map.get(chunk.getPos()));
+            assertTrue(map.containsKey(chunk.getPos().x, chunk.getPos().y, chunk.getPos().z));
+        }
+        assertNull(map.get(new Vector3i(1, 0, 1)));
+    }
+
+    @Test
+    public void putIfAbsentKeepsExistingChunk() {
+        ChunkMap map = new ChunkMap();
+        Chunk first = new Chunk(new Vector3i(3, 0, -7));
+        Chunk second = new Chunk(new Vector3i(3, 0, -7));
+        assertNull(map.putIfAbsent(first));
+        assertSame(first, map.putIfAbsent(second));
+        assertSame(first, map.get(new Vector3i(3, 0, -7)));
+        assertEquals(1, map.size());
+
+        assertSame(first, map.remove(new Vector3i(3, 0, -7)));
+        assertNull(map.putIfAbsent(second));
+        assertSame(second, map.get(new Vector3i(3, 0, -7)));
+    }
+
+    @Test
+    public void removeKeepsOtherChunksOfTheBucket() {
+        ChunkMap map = new ChunkMap(2);
+        List<Chunk> chunks = Lists.newArrayList();
+        for (int i = -50; i < 50; i++) {
+            Chunk chunk = new Chunk(new Vector3i(i, 0, i * 3));
+            map.putIfAbsent(chunk);
+            chunks.add(chunk);
+        }
+        for (int i = 0; i < chunks.size(); i += 2) {
+            assertSame(chunks.get(i), map.remove(chunks.get(i).getPos()));
+        }
+        assertNull(map.remove(chunks.get(0).getPos()));
+        assertEquals(50, map.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            assertEquals(i % 2 == 1, map.containsKey(chunks.get(i).getPos()));
+        }
+    }
+
+    @Test
+    public void iteratesAllChunks() {
+        ChunkMap map = new ChunkMap(2);
+        Set<Chunk> expected = Sets.newIdentityHashSet();
+        for (int x = -10; x < 10; x++) {
+            for (int z = -10; z < 10; z++) {
+                Chunk chunk = new Chunk(new Vector3i(x, 0, z));
+                map.putIfAbsent(chunk);
+                expected.add(chunk);
+            }
+        }
+        expected.remove(map.remove(new Vector3i(0, 0, 0)));
+
+        Set<Chunk> actual = Sets.newIdentityHashSet();
+        for (Chunk chunk : map) {
+            assertTrue(actual.add(chunk));
+        }
+        assertEquals(map.size(), actual.size());
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void clearRemovesAllChunks() {
+        ChunkMap map = new ChunkMap();
+        map.putIfAbsent(new Chunk(new Vector3i(1, 0, 1)));
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.iterator().hasNext());
+        assertNull(map.get(new Vector3i(1, 0, 1)));
+    }
+}
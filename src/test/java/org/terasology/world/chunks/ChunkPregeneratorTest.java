@@ -0,0 +1,115 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.chunks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.terasology.config.Config;
+import org.terasology.game.CoreRegistry;
+import org.terasology.math.Region3i;
+import org.terasology.math.Vector3i;
+import org.terasology.world.chunks.store.ChunkStoreUncompressed;
+import org.terasology.world.generator.core.ChunkGeneratorManagerImpl;
+
+import com.google.common.collect.Sets;
+
+public class ChunkPregeneratorTest {
+
+    private ChunkGeneratorManagerImpl generator;
+    private RecordingStore store;
+    private ChunkPregenerator pregenerator;
+
+    @BeforeClass
+    public static void setupConfig() {
+        if (CoreRegistry.get(Config.class) == null) {
+            CoreRegistry.put(Config.class, new Config());
+        }
+    }
+
+    @Before
+    public void setup() {
+        generator = new ChunkGeneratorManagerImpl();
+        store = new RecordingStore();
+        pregenerator = new ChunkPregenerator(generator, store, 2);
+    }
+
+    @Test
+    public void areaStoredComplete() {
+        Region3i area = Region3i.createFromMinAndSize(new Vector3i(-2, 0, 0), new Vector3i(3, 1, 2));
+        pregenerator.generate(area);
+
+        Region3i generated = area.expand(new Vector3i(4, 0, 4));
+        for (Vector3i pos : generated) {
+            assertTrue(pos.toString(), store.contains(pos));
+            assertEquals(pos.toString(), area.encompasses(pos), store.get(pos).getChunkState() == Chunk.State.COMPLETE);
+        }
+        assertEquals(generated.size().x * generated.size().z, store.positions.size());
+        assertEquals(store.positions.size(), generator.getStatistics().getChunkCount());
+    }
+
+    @Test
+    public void storedChunksLoadedInsteadOfGenerated() {
+        Chunk stored = new Chunk(new Vector3i(0, 0, 0));
+        store.put(stored);
+        Region3i area = Region3i.createFromMinAndSize(new Vector3i(0, 0, 0), new Vector3i(1, 1, 1));
+        pregenerator.generate(area);
+
+        assertSame(stored, store.get(new Vector3i(0, 0, 0)));
+        assertEquals(Chunk.State.COMPLETE, stored.getChunkState());
+        assertEquals(store.positions.size() - 1, generator.getStatistics().getChunkCount());
+    }
+
+    @Test
+    public void chunksStoredBandByBand() {
+        Region3i area = Region3i.createFromMinAndSize(new Vector3i(0, 0, 0), new Vector3i(20, 1, 1));
+        pregenerator.generate(area);
+
+        long generated = generator.getStatistics().getChunkCount();
+        assertTrue(store.generatedBeforeFirstPut > 0);
+        assertTrue("Chunks were only stored after all were generated", store.generatedBeforeFirstPut < generated);
+        assertFalse(store.storedTwice);
+        for (Vector3i pos : area) {
+            assertEquals(Chunk.State.COMPLETE, store.get(pos).getChunkState());
+        }
+    }
+
+    /**
+     * Remembers how many chunks had been generated when the first chunk was stored, and whether a chunk was stored
+     * more than once.
+     */
+    private class RecordingStore extends ChunkStoreUncompressed {
+        private final Set<Vector3i> positions = Sets.newHashSet();
+        private long generatedBeforeFirstPut = -1;
+        private boolean storedTwice;
+
+        @Override
+        public void put(Chunk c) {
+            if (generatedBeforeFirstPut < 0) {
+                generatedBeforeFirstPut = generator.getStatistics().getChunkCount();
+            }
+            storedTwice |= !positions.add(c.getPos());
+            super.put(c);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.chunks.blockdata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import org.terasology.world.chunks.deflate.TeraPaletteDeflator;
+
+public class TeraPaletteArray8BitTest {
+
+    private static final int SIZE_X = 16;
+    private static final int SIZE_Y = 40;
+    private static final int SIZE_Z = 16;
+
+    @Test
+    public void matchesDenseArrayUnderRandomWrites() {
+        Random random = new Random(42);
+        TeraArray expected = new TeraDenseArray8Bit(SIZE_X, SIZE_Y, SIZE_Z);
+        TeraArray actual = new TeraPaletteArray8Bit(SIZE_X, SIZE_Y, SIZE_Z);
+        for (int i = 0; i < 20000; i++) {
+            int x = random.nextInt(SIZE_X);
+            int y = random.nextInt(SIZE_Y);
+            int z = random.nextInt(SIZE_Z);
+            // Few distinct values at first, then enough to force direct sections
+            int value = random.nextInt(i < 5000 ? 3 : (i < 10000 ? 12 : 256)) - 128;
+            assertEquals(expected.set(x, y, z, value), actual.set(x, y, z, value));
+        }
+        assertEqualContents(expected, actual);
+    }
+
+    @Test
+    public void setWithExpectedValue() {
+        TeraArray array = new TeraPaletteArray8Bit(SIZE_X, SIZE_Y, SIZE_Z);
+        assertTrue(array.set(1, 2, 3, 5, 0));
+        assertFalse(array.set(1, 2, 3, 7, 0));
+        assertEquals(5, array.get(1, 2, 3));
+        assertEquals(0, array.get(3, 2, 1));
+    }
+
+    @Test
+    public void encodeAndDecode() {
+        TeraArray array = createRandomArray(new Random(7));
+        TeraArrays arrays = TeraArrays.getInstance();
+        TeraArray decoded = arrays.decode(arrays.encode(array));
+        assertTrue(decoded instanceof TeraPaletteArray8Bit);
+        assertEqualContents(array, decoded);
+    }
+
+    @Test
+    public void deflatesDenseArrayWithFewValues() {
+        TeraArray dense = new TeraDenseArray8Bit(SIZE_X, SIZE_Y, SIZE_Z);
+        for (int y = 0; y < SIZE_Y; y++) {
+            dense.set(y % SIZE_X, y, 0, y % 3);
+        }
+        TeraArray deflated = new TeraPaletteDeflator().deflate(dense);
+        assertTrue(deflated instanceof TeraPaletteArray8Bit);
+        assertTrue(deflated.getEstimatedMemoryConsumptionInBytes() < dense.getEstimatedMemoryConsumptionInBytes());
+        assertEqualContents(dense, deflated);
+    }
+
+    @Test
+    public void deflationRemovesUnusedPaletteValues() {
+        TeraPaletteArray8Bit array = new TeraPaletteArray8Bit(SIZE_X, SIZE_Y, SIZE_Z);
+        for (int value = 1; value < 10; value++) {
+            array.set(0, 0, 0, value);
+        }
+        TeraPaletteDeflator deflator = new TeraPaletteDeflator();
+        TeraArray deflated = array.deflate(deflator);
+        assertNotNull(deflated);
+        assertTrue(deflated.getEstimatedMemoryConsumptionInBytes() < array.getEstimatedMemoryConsumptionInBytes());
+        assertEqualContents(array, deflated);
+        assertNull(deflated.deflate(deflator));
+    }
+
+    @Test
+    public void copyIsIndependent() {
+        TeraArray array = createRandomArray(new Random(3));
+        TeraArray copy = array.copy();
+        assertEqualContents(array, copy);
+        copy.set(0, 0, 0, array.get(0, 0, 0) + 1);
+        assertFalse(array.get(0, 0, 0) == copy.get(0, 0, 0));
+    }
+
+    @Test
+    public void readersSeeValidValuesWhileSectionsWiden() throws InterruptedException {
+        final TeraPaletteArray8Bit array = new TeraPaletteArray8Bit(SIZE_X, SIZE_Y, SIZE_Z);
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (writing.get()) {
+                        for (int z = 0; z < SIZE_Z; z++) {
+                            for (int x = 0; x < SIZE_X; x++) {
+                                int value = array.get(x, 0, z);
+                                if (value < 0 || value >= 32) {
+                                    throw new AssertionError("Read invalid value " + value);
+                                }
+                            }
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            }
+        });
+        reader.start();
+        // Grows the palette of the section through every width up to direct storage
+        for (int value = 1; value < 32; value++) {
+            for (int z = 0; z < SIZE_Z; z++) {
+                for (int x = 0; x < SIZE_X; x++) {
+                    array.set(x, 0, z, (x + z + value) % (value + 1));
+                }
+            }
+        }
+        writing.set(false);
+        reader.join();
+        assertNull(failure.get());
+    }
+
+    private TeraArray createRandomArray(Random random) {
+        TeraArray array = new TeraPaletteArray8Bit(SIZE_X, SIZE_Y, SIZE_Z);
+        for (int y = 0; y < SIZE_Y; y++) {
+            int values = 1 << (y % 6);
+            for (int z = 0; z < SIZE_Z; z++) {
+                for (int x = 0; x < SIZE_X; x++) {
+                    array.set(x, y, z, random.nextInt(values));
+                }
+            }
+        }
+        return array;
+    }
+
+    private void assertEqualContents(TeraArray expected, TeraArray actual) {
+        for (int y = 0; y < SIZE_Y; y++) {
+            for (int z = 0; z < SIZE_Z; z++) {
+                for (int x = 0; x < SIZE_X; x++) {
+                    assertEquals(expected.get(x, y, z), actual.get(x, y, z));
+                }
+            }
+        }
+    }
+}
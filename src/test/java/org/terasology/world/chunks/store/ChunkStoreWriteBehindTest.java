@@ -0,0 +1,234 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.chunks.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.terasology.config.Config;
+import org.terasology.game.CoreRegistry;
+import org.terasology.math.Vector3i;
+import org.terasology.world.chunks.Chunk;
+import org.terasology.world.chunks.ChunkStore;
+
+import com.google.common.collect.Maps;
+
+public class ChunkStoreWriteBehindTest {
+
+    private GatedStore store;
+    private ChunkStoreWriteBehind writeBehind;
+
+    @BeforeClass
+    public static void setupConfig() {
+        if (CoreRegistry.get(Config.class) == null) {
+            CoreRegistry.put(Config.class, new Config());
+        }
+    }
+
+    @Before
+    public void setup() {
+        store = new GatedStore();
+        writeBehind = new ChunkStoreWriteBehind(store, 1);
+    }
+
+    @After
+    public void teardown() {
+        store.open();
+        writeBehind.shutdown();
+    }
+
+    @Test
+    public void getReturnsCopyOfQueuedChunk() throws InterruptedException {
+        writeBehind.put(new Chunk(new Vector3i(0, 0, 0)));
+        store.awaitWriteStarted();
+        Chunk chunk = new Chunk(new Vector3i(1, 0, 2));
+        writeBehind.put(chunk);
+
+        assertTrue(writeBehind.contains(chunk.getPos()));
+        Chunk pending = writeBehind.get(chunk.getPos());
+        assertNotNull(pending);
+        assertNotSame(chunk, pending);
+        assertEquals(chunk.getPos(), pending.getPos());
+        assertFalse(store.contains(chunk.getPos()));
+    }
+
+    @Test
+    public void offerFailsWhileQueueIsFull() throws InterruptedException {
+        Chunk writing = new Chunk(new Vector3i(0, 0, 0));
+        Chunk queued = new Chunk(new Vector3i(1, 0, 0));
+        Chunk rejected = new Chunk(new Vector3i(2, 0, 0));
+        writeBehind.put(writing);
+        store.awaitWriteStarted();
+        assertTrue(writeBehind.offer(queued));
+
+        assertFalse(writeBehind.offer(rejected));
+        assertFalse(writeBehind.contains(rejected.getPos()));
+        assertTrue(writeBehind.contains(writing.getPos()));
+        assertTrue(writeBehind.contains(queued.getPos()));
+        assertEquals(0, writeBehind.getRemainingCapacity());
+    }
+
+    @Test
+    public void offerKeepsPreviousPendingChunkWhenRejected() throws InterruptedException {
+        Chunk writing = new Chunk(new Vector3i(0, 0, 0));
+        writeBehind.put(writing);
+        store.awaitWriteStarted();
+        writeBehind.put(new Chunk(new Vector3i(1, 0, 0)));
+
+        assertFalse(writeBehind.offer(new Chunk(new Vector3i(0, 0, 0))));
+        assertTrue(writeBehind.contains(writing.getPos()));
+    }
+
+    @Test
+    public void putWaitsWhileQueueIsFull() throws InterruptedException {
+        writeBehind.put(new Chunk(new Vector3i(0, 0, 0)));
+        store.awaitWriteStarted();
+        writeBehind.put(new Chunk(new Vector3i(1, 0, 0)));
+
+        final Chunk waiting = new Chunk(new Vector3i(2, 0, 0));
+        Thread putter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeBehind.put(waiting);
+            }
+        });
+        putter.start();
+        putter.join(200);
+        assertTrue(putter.isAlive());
+
+        store.open();
+        putter.join(5000);
+        assertFalse(putter.isAlive());
+        writeBehind.shutdown();
+        assertTrue(store.contains(waiting.getPos()));
+    }
+
+    @Test
+    public void shutdownFlushesQueue() {
+        store.open();
+        for (int i = 0; i < 10; i++) {
+            writeBehind.put(new Chunk(new Vector3i(i, 0, 0)));
+        }
+        writeBehind.shutdown();
+
+        assertEquals(10, writeBehind.getChunksWritten());
+        assertEquals(0, writeBehind.getQueueDepth());
+        for (int i = 0; i < 10; i++) {
+            assertTrue(store.contains(new Vector3i(i, 0, 0)));
+        }
+    }
+
+    @Test
+    public void failedWriteStaysRetrievable() {
+        store.open();
+        Vector3i pos = new Vector3i(3, 0, 3);
+        store.failing = pos;
+        writeBehind.put(new Chunk(pos));
+        writeBehind.put(new Chunk(new Vector3i(4, 0, 4)));
+        writeBehind.shutdown();
+
+        assertFalse(store.contains(pos));
+        assertTrue(writeBehind.contains(pos));
+        Chunk pending = writeBehind.get(pos);
+        assertNotNull(pending);
+        assertEquals(pos, pending.getPos());
+        assertEquals(1, writeBehind.getFailedWriteCount());
+        assertTrue(store.contains(new Vector3i(4, 0, 4)));
+    }
+
+    @Test
+    public void failedWriteIsRetriedOnShutdown() throws InterruptedException {
+        store.open();
+        Vector3i pos = new Vector3i(3, 0, 3);
+        store.failing = pos;
+        writeBehind.put(new Chunk(pos));
+        store.awaitWriteFailed();
+        store.failing = null;
+        writeBehind.shutdown();
+
+        assertTrue(store.contains(pos));
+        assertEquals(0, writeBehind.getFailedWriteCount());
+        assertEquals(1, writeBehind.getChunksWritten());
+    }
+
+    /**
+     * Holds up writes until it is opened, and signals when the first write started and when a write failed.
+     */
+    private static class GatedStore implements ChunkStore {
+        private final Map<Vector3i, Chunk> chunks = Maps.newConcurrentMap();
+        private final CountDownLatch gate = new CountDownLatch(1);
+        private final CountDownLatch writeStarted = new CountDownLatch(1);
+        private final CountDownLatch writeFailed = new CountDownLatch(1);
+        private volatile Vector3i failing;
+
+        public void open() {
+            gate.countDown();
+        }
+
+        public void awaitWriteStarted() throws InterruptedException {
+            assertTrue(writeStarted.await(5, TimeUnit.SECONDS));
+        }
+
+        public void awaitWriteFailed() throws InterruptedException {
+            assertTrue(writeFailed.await(5, TimeUnit.SECONDS));
+        }
+
+        @Override
+        public Chunk get(Vector3i position) {
+            return chunks.get(position);
+        }
+
+        @Override
+        public void put(Chunk c) {
+            writeStarted.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (c.getPos().equals(failing)) {
+                writeFailed.countDown();
+                throw new IllegalStateException("Write failed");
+            }
+            chunks.put(c.getPos(), c);
+        }
+
+        @Override
+        public boolean contains(Vector3i position) {
+            return chunks.containsKey(position);
+        }
+
+        @Override
+        public float size() {
+            return chunks.size();
+        }
+
+        @Override
+        public void dispose() {
+        }
+    }
+}
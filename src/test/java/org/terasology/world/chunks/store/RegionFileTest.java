@@ -0,0 +1,107 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.chunks.store;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RegionFileTest {
+
+    private File file;
+    private RegionFile region;
+
+    @Before
+    public void setup() throws IOException {
+        file = File.createTempFile("regionFileTest", RegionFileTest.class.getSimpleName());
+        region = new RegionFile(file);
+    }
+
+    @After
+    public void teardown() throws IOException {
+        region.close();
+        file.delete();
+    }
+
+    @Test
+    public void emptyRegion() throws IOException {
+        assertFalse(region.contains(0));
+        assertNull(region.read(0));
+        assertEquals(RegionFile.HEADER_SECTORS * RegionFile.SECTOR_SIZE, region.size());
+    }
+
+    @Test
+    public void readWrittenData() throws IOException {
+        byte[] data = createData(100, 1);
+        region.write(RegionFile.getIndex(3, 5), data);
+        assertTrue(region.contains(RegionFile.getIndex(3, 5)));
+        assertArrayEquals(data, region.read(RegionFile.getIndex(3, 5)));
+    }
+
+    @Test
+    public void negativeChunkPositionsMapIntoRegion() {
+        assertEquals(RegionFile.getIndex(RegionFile.REGION_SIZE - 1, 0), RegionFile.getIndex(-1, 0));
+        assertEquals(RegionFile.getIndex(0, RegionFile.REGION_SIZE - 1), RegionFile.getIndex(0, -1));
+    }
+
+    @Test
+    public void growingRecordIsRelocated() throws IOException {
+        byte[] small = createData(100, 1);
+        byte[] other = createData(100, 2);
+        byte[] large = createData(3 * RegionFile.SECTOR_SIZE, 3);
+        region.write(0, small);
+        region.write(1, other);
+        region.write(0, large);
+        assertArrayEquals(large, region.read(0));
+        assertArrayEquals(other, region.read(1));
+    }
+
+    @Test
+    public void freedSectorsAreReused() throws IOException {
+        region.write(0, createData(3 * RegionFile.SECTOR_SIZE, 1));
+        region.write(1, createData(100, 2));
+        long size = region.size();
+        region.write(0, createData(100, 3));
+        region.write(2, createData(100, 4));
+        assertEquals(size, region.size());
+    }
+
+    @Test
+    public void dataSurvivesReopening() throws IOException {
+        byte[] data = createData(5000, 7);
+        region.write(RegionFile.getIndex(31, 31), data);
+        region.close();
+        region = new RegionFile(file);
+        assertArrayEquals(data, region.read(RegionFile.getIndex(31, 31)));
+    }
+
+    private byte[] createData(int length, int seed) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i * 31 + seed);
+        }
+        return data;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.generator.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class ChunkGenerationStatisticsTest {
+
+    private ChunkGenerationStatistics statistics;
+
+    @Before
+    public void setup() {
+        statistics = new ChunkGenerationStatistics();
+    }
+
+    @Test
+    public void stagesListedInOrderOfFirstRecord() {
+        statistics.record("Terrain", 1000000);
+        statistics.record("Forest", 1000000);
+        statistics.record("Terrain", 1000000);
+        assertEquals(Arrays.asList("Terrain", "Forest"), statistics.getStageNames());
+    }
+
+    @Test
+    public void timesSummedAndAveragedPerStage() {
+        statistics.record("Terrain", 1000000);
+        statistics.record("Terrain", 3000000);
+        statistics.record("Forest", 500000);
+        assertEquals(4.0, statistics.getTotalMillis("Terrain"), 0.000001);
+        assertEquals(2.0, statistics.getAverageMillis("Terrain"), 0.000001);
+        assertEquals(0.5, statistics.getAverageMillis("Forest"), 0.000001);
+    }
+
+    @Test
+    public void unknownStageTookNoTime() {
+        assertEquals(0.0, statistics.getTotalMillis("Terrain"), 0);
+        assertEquals(0.0, statistics.getAverageMillis("Terrain"), 0);
+    }
+
+    @Test
+    public void chunksCounted() {
+        statistics.chunkGenerated();
+        statistics.chunkGenerated();
+        assertEquals(2, statistics.getChunkCount());
+        assertTrue(statistics.getChunksPerSecond() > 0);
+    }
+
+    @Test
+    public void resetClearsStagesAndChunks() {
+        statistics.record("Terrain", 1000000);
+        statistics.chunkGenerated();
+        statistics.reset();
+        assertTrue(statistics.getStageNames().isEmpty());
+        assertEquals(0.0, statistics.getTotalMillis("Terrain"), 0);
+        assertEquals(0, statistics.getChunkCount());
+        assertEquals(0.0, statistics.getChunksPerSecond(), 0);
+    }
+
+    @Test
+    public void recordsFromSeveralThreadsAllCounted() throws Exception {
+        final int recordsPerThread = 10000;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> tasks = Lists.newArrayList();
+            for (int i = 0; i < 4; i++) {
+                tasks.add(executor.submit(new Callable<Object>() {
+                    @Override
+                    public Object call() {
+                        for (int j = 0; j < recordsPerThread; j++) {
+                            statistics.record("Terrain", 1000);
+                            statistics.chunkGenerated();
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(4 * recordsPerThread, statistics.getChunkCount());
+        assertEquals(4 * recordsPerThread * 0.001, statistics.getTotalMillis("Terrain"), 0.000001);
+    }
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.lighting;
+
+import java.util.Collection;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.math.Side;
+import org.terasology.math.Region3i;
+import org.terasology.math.Vector3i;
+import org.terasology.world.WorldView;
+import org.terasology.world.block.Block;
+import org.terasology.world.block.management.BlockManager;
+import org.terasology.world.chunks.Chunk;
+
+import com.google.common.collect.Lists;
+
+/**
+ * The recursive internal lighting and the wave based propagation out of a chunk that {@link LightEngine} replaced,
+ * kept to check that the engine lights chunks the same way.
+ */
+class LegacyLightProcessor {
+    private static final Logger logger = LoggerFactory.getLogger(LegacyLightProcessor.class);
+
+    private WorldView worldView;
+
+    LegacyLightProcessor(WorldView worldView) {
+        this.worldView = worldView;
+    }
+
+    public static void generateInternalLighting(Chunk chunk) {
+        int top = Chunk.SIZE_Y - 1;
+
+        short[] tops = new short[Chunk.SIZE_X * Chunk.SIZE_Z];
+
+        // Tunnel light down
+        for (int x = 0; x < Chunk.SIZE_X; x++) {
+            for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                Block lastBlock = BlockManager.getInstance().getAir();
+                int y = top;
+                for (; y >= 0; y--) {
+                    Block block = chunk.getBlock(x,y,z);
+                    if (LightingUtil.doesSunlightRetainsFullStrengthIn(block) && LightingUtil.canSpreadLightOutOf(lastBlock, Side.BOTTOM) && LightingUtil.canSpreadLightInto(block, Side.TOP)) {
+                        chunk.setSunlight(x, y, z, Chunk.MAX_LIGHT);
+                        lastBlock = block;
+                    } else {
+                        break;
+                    }
+                }
+                tops[x + Chunk.SIZE_X * z] = (short) y;
+            }
+        }
+
+        for (int x = 0; x < Chunk.SIZE_X; x++) {
+            for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                if (tops[x + Chunk.SIZE_X * z] < top) {
+                    Block block = chunk.getBlock(x, tops[x + Chunk.SIZE_X * z] + 1, z);
+                    spreadSunlightInternal(chunk, x, tops[x + Chunk.SIZE_X * z] + 1, z, block);
+                }
+                for (int y = top; y >= 0; y--) {
+                    Block block = chunk.getBlock(x, y, z);
+                    if (y > tops[x + Chunk.SIZE_X * z] && ((x > 0 && tops[(x - 1) + Chunk.SIZE_X * z] >= y) ||
+                            (x < Chunk.SIZE_X - 1 && tops[(x + 1) + Chunk.SIZE_X * z] >= y) ||
+                            (z > 0 && tops[x + Chunk.SIZE_X * (z - 1)] >= y) ||
+                            (z < Chunk.SIZE_Z - 1 && tops[x + Chunk.SIZE_X * (z + 1)] >= y))) {
+                        spreadSunlightInternal(chunk, x, y, z, block);
+                    }
+                    if (block.getLuminance() > 0) {
+                        chunk.setLight(x, y, z, block.getLuminance());
+                        spreadLightInternal(chunk, x, y, z, block);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void spreadLightInternal(Chunk chunk, int x, int y, int z, Block block) {
+        byte lightValue = chunk.getLight(x, y, z);
+        if (lightValue <= 1) return;
+
+        // TODO: use custom bounds checked iterator for this
+        for (Side adjDir : Side.values()) {
+            int adjX = x + adjDir.getVector3i().x;
+            int adjY = y + adjDir.getVector3i().y;
+            int adjZ = z + adjDir.getVector3i().z;
+            if (chunk.isInBounds(adjX, adjY, adjZ)) {
+                byte adjLightValue = chunk.getLight(adjX, adjY, adjZ);
+                Block adjBlock = chunk.getBlock(adjX, adjY, adjZ);
+                if (adjLightValue < lightValue - 1 && LightingUtil.canSpreadLightOutOf(block, adjDir) && LightingUtil.canSpreadLightInto(adjBlock, adjDir.reverse())) {
+                    chunk.setLight(adjX, adjY, adjZ, (byte) (lightValue - 1));
+                    spreadLightInternal(chunk, adjX, adjY, adjZ, adjBlock);
+                }
+            }
+        }
+    }
+
+    private static void spreadSunlightInternal(Chunk chunk, int x, int y, int z, Block block) {
+        byte lightValue = chunk.getSunlight(x, y, z);
+
+        if (y > 0 && LightingUtil.canSpreadLightOutOf(block, Side.BOTTOM)) {
+            Block adjBlock = chunk.getBlock(x, y - 1, z);
+            if (chunk.getSunlight(x, y - 1, z) < lightValue - 1 && LightingUtil.canSpreadLightInto(adjBlock, Side.TOP)) {
+                chunk.setSunlight(x, y - 1, z, (byte) (lightValue - 1));
+                spreadSunlightInternal(chunk, x, y - 1, z, adjBlock);
+            }
+        }
+
+        if (y < Chunk.SIZE_Y && lightValue < Chunk.MAX_LIGHT && LightingUtil.canSpreadLightOutOf(block, Side.TOP)) {
+            Block adjBlock = chunk.getBlock(x, y + 1, z);
+            if (chunk.getSunlight(x, y + 1, z) < lightValue - 1 && LightingUtil.canSpreadLightInto(adjBlock, Side.BOTTOM)) {
+                chunk.setSunlight(x, y + 1, z, (byte) (lightValue - 1));
+                spreadSunlightInternal(chunk, x, y + 1, z, adjBlock);
+            }
+        }
+
+        if (lightValue <= 1) return;
+
+        for (Side adjDir : Side.horizontalSides()) {
+            int adjX = x + adjDir.getVector3i().x;
+            int adjZ = z + adjDir.getVector3i().z;
+
+            if (chunk.isInBounds(adjX, y, adjZ) && LightingUtil.canSpreadLightOutOf(block, adjDir)) {
+                byte adjLightValue = chunk.getSunlight(adjX, y, adjZ);
+                Block adjBlock = chunk.getBlock(adjX, y, adjZ);
+                if (adjLightValue < lightValue - 1 && LightingUtil.canSpreadLightInto(adjBlock, adjDir.reverse())) {
+                    chunk.setSunlight(adjX, y, adjZ, (byte) (lightValue - 1));
+                    spreadSunlightInternal(chunk, adjX, y, adjZ, adjBlock);
+                }
+            }
+        }
+    }
+
+    /**
+     * Propagates light out of the central chunk of the world view, "connecting" it to the surrounding chunks
+     * <p/>
+     * This expects the light propagator to be set up with a 3x3 world view offset so the center chunk is accessed as(0,0,0)
+     */
+    public void propagateOutOfTargetChunk() {
+        int maxX = Chunk.SIZE_X - 1;
+        int maxZ = Chunk.SIZE_Z - 1;
+        // Iterate over the blocks on the horizontal sides
+        for (int y = 0; y < Chunk.SIZE_Y; y++) {
+            for (int x = 0; x < Chunk.SIZE_X; x++) {
+                propagateSunlightFrom(x, y, 0, Side.FRONT);
+                propagateSunlightFrom(x, y, maxZ, Side.BACK);
+                propagateLightFrom(x, y, 0, Side.FRONT);
+                propagateLightFrom(x, y, maxZ, Side.BACK);
+            }
+            for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                propagateSunlightFrom(0, y, z, Side.LEFT);
+                propagateSunlightFrom(maxX, y, z, Side.RIGHT);
+                propagateLightFrom(0, y, z, Side.LEFT);
+                propagateLightFrom(maxX, y, z, Side.RIGHT);
+            }
+        }
+    }
+
+    private Region3i pushSunlight(int x, int y, int z, byte lightLevel) {
+        Collection<Vector3i> currentWave = Lists.newArrayList();
+        Collection<Vector3i> nextWave = Lists.newArrayList();
+        nextWave.add(new Vector3i(x, y, z));
+        // First drop MAX_LIGHT until it is blocked
+        if (lightLevel == Chunk.MAX_LIGHT && worldView.getSunlight(x, y - 1, z) < Chunk.MAX_LIGHT) {
+            Block lastBlock = BlockManager.getInstance().getAir();
+            for (int columnY = y - 1; columnY >= 0; columnY--) {
+                Block block = worldView.getBlock(x, columnY, z);
+                if (LightingUtil.canSpreadLightOutOf(lastBlock, Side.BOTTOM) && LightingUtil.canSpreadLightInto(block, Side.TOP) && LightingUtil.doesSunlightRetainsFullStrengthIn(block)) {
+                    worldView.setSunlight(x, columnY, z, lightLevel);
+                    lastBlock = block;
+                    nextWave.add(new Vector3i(x, columnY, z));
+                } else {
+                    break;
+                }
+            }
+        }
+
+        // Spread the sunlight
+        Region3i affectedRegion = Region3i.createFromMinAndSize(new Vector3i(x, y, z), Vector3i.one());
+        while (lightLevel > 1 && !nextWave.isEmpty()) {
+            Collection<Vector3i> temp = currentWave;
+            currentWave = nextWave;
+            nextWave = temp;
+            nextWave.clear();
+
+            // Only move sunlight up if it is below max light
+            if (lightLevel < Chunk.MAX_LIGHT) {
+                for (Vector3i pos : currentWave) {
+                    // Move sunlight up
+                    if (pos.y < Chunk.SIZE_Y - 2) {
+                        Vector3i adjPos = new Vector3i(pos.x, pos.y + 1, pos.z);
+                        Block block = worldView.getBlock(pos);
+                        Block adjBlock = worldView.getBlock(adjPos);
+                        if (LightingUtil.canSpreadLightOutOf(block, Side.TOP) && LightingUtil.canSpreadLightInto(adjBlock, Side.BOTTOM)) {
+                            byte adjLight = worldView.getSunlight(adjPos);
+                            if (adjLight < lightLevel - 1) {
+                                worldView.setSunlight(adjPos, (byte) (lightLevel - 1));
+                                nextWave.add(adjPos);
+                                affectedRegion = affectedRegion.expandToContain(adjPos);
+                            }
+                        }
+                    }
+                }
+            }
+            for (Vector3i pos : currentWave) {
+                // Move sunlight down
+                if (pos.y > 0) {
+                    Vector3i adjPos = new Vector3i(pos.x, pos.y - 1, pos.z);
+                    Block block = worldView.getBlock(pos);
+                    Block adjBlock = worldView.getBlock(adjPos);
+                    if (LightingUtil.canSpreadLightOutOf(block, Side.BOTTOM) && LightingUtil.canSpreadLightInto(adjBlock, Side.TOP)) {
+                        byte adjLight = worldView.getSunlight(adjPos);
+                        if (adjLight < lightLevel - 1) {
+                            worldView.setSunlight(adjPos, (byte) (lightLevel - 1));
+                            nextWave.add(adjPos);
+                            affectedRegion = affectedRegion.expandToContain(adjPos);
+                        }
+                    }
+                }
+            }
+            // Move sunlight sideways
+            for (Vector3i pos : currentWave) {
+                for (Side side : Side.horizontalSides()) {
+                    Vector3i adjPos = new Vector3i(pos);
+                    adjPos.add(side.getVector3i());
+
+                    try {
+                        Block block = worldView.getBlock(pos);
+                        Block adjBlock = worldView.getBlock(adjPos);
+
+                        if (LightingUtil.canSpreadLightOutOf(block, side) && LightingUtil.canSpreadLightInto(adjBlock, side.reverse())) {
+                            byte adjLight = worldView.getSunlight(adjPos);
+                            if (adjLight < lightLevel - 1) {
+                                worldView.setSunlight(adjPos, (byte) (lightLevel - 1));
+                                nextWave.add(adjPos);
+                                affectedRegion = affectedRegion.expandToContain(adjPos);
+                            }
+                        }
+                    } catch (ArrayIndexOutOfBoundsException e) {
+                        logger.error("Pushing Light {} {} {} failed", new Vector3i(x, y, z), lightLevel, worldView.getChunkRegion(), e);
+                    }
+                }
+            }
+            lightLevel--;
+        }
+        return affectedRegion;
+    }
+
+    private Region3i pushLight(int x, int y, int z, byte lightLevel) {
+        Collection<Vector3i> currentWave = Lists.newArrayList();
+        Collection<Vector3i> nextWave = Lists.newArrayList();
+        nextWave.add(new Vector3i(x, y, z));
+
+        Region3i affectedRegion = Region3i.createFromMinAndSize(new Vector3i(x, y, z), Vector3i.one());
+
+        while (lightLevel > 1 && !nextWave.isEmpty()) {
+            Collection<Vector3i> temp = currentWave;
+            currentWave = nextWave;
+            nextWave = temp;
+            nextWave.clear();
+
+            for (Vector3i pos : currentWave) {
+                for (Side side : Side.values()) {
+                    Vector3i adjPos = new Vector3i(pos);
+                    adjPos.add(side.getVector3i());
+                    if (adjPos.y < 0 || adjPos.y >= Chunk.SIZE_Y) {
+                        continue;
+                    }
+
+                    Block block = worldView.getBlock(pos);
+                    Block adjBlock = worldView.getBlock(adjPos);
+                    if (LightingUtil.canSpreadLightOutOf(block, side) && LightingUtil.canSpreadLightInto(adjBlock, side.reverse())) {
+                        byte adjLight = worldView.getLight(adjPos);
+                        if (adjLight < lightLevel - 1) {
+                            worldView.setLight(adjPos, (byte) (lightLevel - 1));
+                            nextWave.add(adjPos);
+                            affectedRegion = affectedRegion.expandToContain(adjPos);
+                        }
+                    }
+                }
+            }
+            lightLevel--;
+        }
+        return affectedRegion;
+    }
+
+    private void propagateSunlightFrom(int blockX, int blockY, int blockZ, Side side) {
+        byte lightLevel = worldView.getSunlight(blockX, blockY, blockZ);
+        Vector3i adjSide = new Vector3i(blockX, blockY, blockZ);
+        adjSide.add(side.getVector3i());
+        Block block = worldView.getBlock(blockX, blockY, blockZ);
+        Block adjBlock = worldView.getBlock(adjSide);
+        if (lightLevel > 1 && worldView.getSunlight(adjSide) < lightLevel - 1 && LightingUtil.canSpreadLightOutOf(block, side) && LightingUtil.canSpreadLightInto(adjBlock, side.reverse())) {
+            worldView.setSunlight(adjSide, (byte) (lightLevel - 1));
+            pushSunlight(adjSide.x, adjSide.y, adjSide.z, (byte) (lightLevel - 1));
+        }
+    }
+
+    private void propagateLightFrom(int blockX, int blockY, int blockZ, Side side) {
+        byte lightLevel = worldView.getLight(blockX, blockY, blockZ);
+        Vector3i adjSide = new Vector3i(blockX, blockY, blockZ);
+        adjSide.add(side.getVector3i());
+        Block block = worldView.getBlock(blockX, blockY, blockZ);
+        Block adjBlock = worldView.getBlock(adjSide);
+        if (lightLevel > 1 && worldView.getLight(adjSide) < lightLevel - 1 && LightingUtil.canSpreadLightOutOf(block, side) && LightingUtil.canSpreadLightInto(adjBlock, side.reverse())) {
+            worldView.setLight(adjSide, (byte) (lightLevel - 1));
+            pushLight(adjSide.x, adjSide.y, adjSide.z, (byte) (lightLevel - 1));
+        }
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.lighting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.terasology.config.Config;
+import org.terasology.game.CoreRegistry;
+import org.terasology.math.Region3i;
+import org.terasology.math.Side;
+import org.terasology.math.Vector3i;
+import org.terasology.world.BlockUpdate;
+import org.terasology.world.WorldView;
+import org.terasology.world.block.Block;
+import org.terasology.world.block.BlockUri;
+import org.terasology.world.block.family.SymmetricFamily;
+import org.terasology.world.block.management.BlockManager;
+import org.terasology.world.chunks.Chunk;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Compares the light engine with the processors it replaced and with relighting from scratch, on random terrain.
+ */
+public class LightEngineTest {
+
+    // Blocks are only placed below this height, the legacy processors misbehave when light spreads into the top rows
+    private static final int BUILD_HEIGHT = Chunk.SIZE_Y - 16;
+    private static final Region3i CHUNK_REGION = Region3i.createFromCenterExtents(new Vector3i(0, 0, 0), new Vector3i(1, 0, 1));
+    private static final Vector3i OFFSET = new Vector3i(1, 1, 1);
+
+    private Block air;
+    private Block stone;
+    private Block glass;
+    private Block water;
+    private Block slab;
+    private Block torch;
+    private Block lamp;
+
+    @BeforeClass
+    public static void setupConfig() {
+        if (CoreRegistry.get(Config.class) == null) {
+            CoreRegistry.put(Config.class, new Config());
+        }
+    }
+
+    @Before
+    public void setup() {
+        air = BlockManager.getInstance().getAir();
+        stone = register("stone", false);
+        for (Side side : Side.values()) {
+            stone.setFullSide(side, true);
+        }
+        glass = register("glass", true);
+        for (Side side : Side.values()) {
+            glass.setFullSide(side, true);
+        }
+        water = register("water", true);
+        water.setLiquid(true);
+        slab = register("slab", false);
+        slab.setFullSide(Side.BOTTOM, true);
+        torch = register("torch", false);
+        torch.setLuminance(Chunk.MAX_LIGHT);
+        lamp = register("lamp", false);
+        lamp.setLuminance((byte) 8);
+        for (Side side : Side.values()) {
+            lamp.setFullSide(side, true);
+        }
+    }
+
+    private Block register(String name, boolean translucent) {
+        Block block = new Block();
+        block.setDisplayName(name);
+        block.setUri(new BlockUri("lightengine:" + name));
+        block.setTranslucent(translucent);
+        BlockManager.getInstance().addBlockFamily(new SymmetricFamily(block.getURI(), block), true);
+        return block;
+    }
+
+    @Test
+    public void internalLightingMatchesRecursiveProcessor() {
+        Random random = new Random(42);
+        for (int i = 0; i < 20; i++) {
+            Chunk expected = new Chunk(0, 0, 0);
+            fillRandomly(expected, random, false);
+            Chunk actual = new Chunk(expected);
+
+            LegacyLightProcessor.generateInternalLighting(expected);
+            InternalLightProcessor.generateInternalLighting(actual);
+            assertSameLighting(expected, actual);
+        }
+    }
+
+    @Test
+    public void propagationOutOfChunkMatchesWaveProcessor() {
+        Random random = new Random(43);
+        for (int i = 0; i < 5; i++) {
+            Chunk[] expected = createChunks();
+            Chunk[] actual = new Chunk[expected.length];
+            for (int c = 0; c < expected.length; c++) {
+                fillRandomly(expected[c], random, false);
+                LegacyLightProcessor.generateInternalLighting(expected[c]);
+                actual[c] = new Chunk(expected[c]);
+            }
+
+            new LegacyLightProcessor(new WorldView(expected, CHUNK_REGION, OFFSET)).propagateOutOfTargetChunk();
+            new LightPropagator(new WorldView(actual, CHUNK_REGION, OFFSET)).propagateOutOfTargetChunk();
+            for (int c = 0; c < expected.length; c++) {
+                assertSameLighting(expected[c], actual[c]);
+            }
+        }
+    }
+
+    @Test
+    public void blockChangesMatchRelightingFromScratch() {
+        Random random = new Random(44);
+        Block[] palette = {air, air, stone, stone, glass, water, slab, torch, lamp};
+        Chunk[] chunks = createChunks();
+        for (Chunk chunk : chunks) {
+            fillRandomly(chunk, random, true);
+        }
+        WorldView view = new WorldView(chunks, CHUNK_REGION, OFFSET);
+        lightFromScratch(chunks);
+        Region3i blockRegion = view.getBlockRegion();
+
+        for (int i = 0; i < 60; i++) {
+            Vector3i pos = new Vector3i(blockRegion.min().x + random.nextInt(blockRegion.size().x), random.nextInt(BUILD_HEIGHT), blockRegion.min().z + random.nextInt(blockRegion.size().z));
+            if (random.nextBoolean()) {
+                // Change the highest block of the column, where most sunlight changes happen
+                pos.y = BUILD_HEIGHT - 1;
+                while (pos.y > 0 && view.getBlock(pos) == air) {
+                    pos.y--;
+                }
+            }
+            Block oldType = view.getBlock(pos);
+            Block type = palette[random.nextInt(palette.length)];
+            view.setBlock(pos, type, oldType);
+
+            Chunk[] before = copyChunks(chunks);
+            Region3i affected = new LightPropagator(view).update(pos, type, oldType);
+            assertChangesWithin(affected, new WorldView(before, CHUNK_REGION, OFFSET), view);
+
+            if (i % 5 == 4) {
+                Chunk[] relit = copyBlocks(chunks);
+                lightFromScratch(relit);
+                for (int c = 0; c < chunks.length; c++) {
+                    assertSameLighting(relit[c], chunks[c]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void batchedBlockChangesMatchRelightingFromScratch() {
+        Random random = new Random(45);
+        Block[] palette = {air, air, stone, stone, glass, water, slab, torch, lamp};
+        Chunk[] chunks = createChunks();
+        for (Chunk chunk : chunks) {
+            fillRandomly(chunk, random, true);
+        }
+        WorldView view = new WorldView(chunks, CHUNK_REGION, OFFSET);
+        lightFromScratch(chunks);
+        Region3i blockRegion = view.getBlockRegion();
+
+        for (int i = 0; i < 8; i++) {
+            // Changes are clustered, so that they interact with each other's light
+            Vector3i center = new Vector3i(blockRegion.min().x + random.nextInt(blockRegion.size().x), 0, blockRegion.min().z + random.nextInt(blockRegion.size().z));
+            List<BlockUpdate> updates = Lists.newArrayList();
+            for (int j = 0; j < 50; j++) {
+                Vector3i pos = new Vector3i(center.x + random.nextInt(9) - 4, 0, center.z + random.nextInt(9) - 4);
+                if (!blockRegion.encompasses(pos)) {
+                    continue;
+                }
+                pos.y = BUILD_HEIGHT - 1;
+                while (pos.y > 0 && view.getBlock(pos) == air) {
+                    pos.y--;
+                }
+                pos.y = Math.max(0, pos.y - random.nextInt(3));
+                Block oldType = view.getBlock(pos);
+                Block type = palette[random.nextInt(palette.length)];
+                view.setBlock(pos, type, oldType);
+                updates.add(new BlockUpdate(pos, type, oldType));
+            }
+
+            Chunk[] before = copyChunks(chunks);
+            Region3i affected = new LightPropagator(view).update(BlockUpdate.coalesce(updates));
+            assertChangesWithin(affected, new WorldView(before, CHUNK_REGION, OFFSET), view);
+
+            Chunk[] relit = copyBlocks(chunks);
+            lightFromScratch(relit);
+            for (int c = 0; c < chunks.length; c++) {
+                assertSameLighting(relit[c], chunks[c]);
+            }
+        }
+    }
+
+    @Test
+    public void viewsWiderThanTheEngineCannotBePropagated() {
+        assertTrue(LightPropagator.canPropagate(new WorldView(createChunks(), CHUNK_REGION, OFFSET)));
+
+        Region3i wideRegion = Region3i.createFromMinAndSize(new Vector3i(0, 0, 0), new Vector3i(65, 1, 1));
+        assertFalse(LightPropagator.canPropagate(new WorldView(new Chunk[65], wideRegion, new Vector3i(0, 0, 0))));
+    }
+
+    private void fillRandomly(Chunk chunk, Random random, boolean dimLights) {
+        int ground = 30 + random.nextInt(60);
+        for (int x = 0; x < Chunk.SIZE_X; x++) {
+            for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                int height = ground + random.nextInt(8);
+                for (int y = 0; y < BUILD_HEIGHT; y++) {
+                    int roll = random.nextInt(100);
+                    Block block = air;
+                    if (y < height) {
+                        block = (roll < 20) ? air : (roll < 22) ? torch : (roll < 25) ? water : (roll < 28) ? slab : stone;
+                    } else if (y < height + 6 && roll < 30) {
+                        block = (roll < 10) ? glass : (roll < 20) ? water : (roll < 25) ? slab : stone;
+                    } else if (roll == 0) {
+                        block = (y % 2 == 0) ? stone : glass;
+                    }
+                    if (dimLights && block == torch && roll % 2 == 0) {
+                        block = lamp;
+                    }
+                    chunk.setBlock(x, y, z, block);
+                }
+            }
+        }
+    }
+
+    private Chunk[] createChunks() {
+        Chunk[] chunks = new Chunk[CHUNK_REGION.size().x * CHUNK_REGION.size().z];
+        int index = 0;
+        for (int z = CHUNK_REGION.min().z; z <= CHUNK_REGION.max().z; z++) {
+            for (int x = CHUNK_REGION.min().x; x <= CHUNK_REGION.max().x; x++) {
+                chunks[index++] = new Chunk(x, 0, z);
+            }
+        }
+        return chunks;
+    }
+
+    private Chunk[] copyChunks(Chunk[] chunks) {
+        Chunk[] result = new Chunk[chunks.length];
+        for (int i = 0; i < chunks.length; i++) {
+            result[i] = new Chunk(chunks[i]);
+        }
+        return result;
+    }
+
+    private Chunk[] copyBlocks(Chunk[] chunks) {
+        Chunk[] result = createChunks();
+        for (int i = 0; i < chunks.length; i++) {
+            for (int x = 0; x < Chunk.SIZE_X; x++) {
+                for (int y = 0; y < Chunk.SIZE_Y; y++) {
+                    for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                        result[i].setBlock(x, y, z, chunks[i].getBlock(x, y, z));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private void lightFromScratch(Chunk[] chunks) {
+        for (Chunk chunk : chunks) {
+            InternalLightProcessor.generateInternalLighting(chunk);
+        }
+        LightEngine engine = new LightEngine(new WorldView(chunks, CHUNK_REGION, OFFSET));
+        for (Chunk chunk : chunks) {
+            engine.propagateOutOfChunk(chunk.getPos().x * Chunk.SIZE_X, chunk.getPos().z * Chunk.SIZE_Z);
+        }
+    }
+
+    private void assertChangesWithin(Region3i affected, WorldView before, WorldView after) {
+        for (Vector3i pos : after.getBlockRegion()) {
+            if (before.getSunlight(pos) != after.getSunlight(pos) || before.getLight(pos) != after.getLight(pos)) {
+                assertTrue(pos + " changed outside of " + affected, affected.encompasses(pos));
+            }
+        }
+    }
+
+    private void assertSameLighting(Chunk expected, Chunk actual) {
+        for (int x = 0; x < Chunk.SIZE_X; x++) {
+            for (int y = 0; y < Chunk.SIZE_Y; y++) {
+                for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                    Vector3i pos = expected.getBlockWorldPos(x, y, z);
+                    assertEquals("Sunlight at " + pos, expected.getSunlight(x, y, z), actual.getSunlight(x, y, z));
+                    assertEquals("Light at " + pos, expected.getLight(x, y, z), actual.getLight(x, y, z));
+                }
+            }
+        }
+    }
+}
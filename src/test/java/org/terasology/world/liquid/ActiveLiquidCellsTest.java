@@ -0,0 +1,100 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.liquid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.terasology.config.Config;
+import org.terasology.game.CoreRegistry;
+import org.terasology.math.Vector3i;
+import org.terasology.world.chunks.Chunk;
+
+public class ActiveLiquidCellsTest {
+
+    @BeforeClass
+    public static void setupConfig() {
+        if (CoreRegistry.get(Config.class) == null) {
+            CoreRegistry.put(Config.class, new Config());
+        }
+    }
+
+    @Test
+    public void addingActiveCellsIsIgnored() {
+        ActiveLiquidCells cells = new ActiveLiquidCells();
+        cells.add(1, 2, 3);
+        cells.add(1, 2, 3);
+        cells.add(-1, 2, 3);
+        cells.add(1, 2, 3);
+        assertEquals(2, cells.size());
+        assertEquals(2, cells.getChunks().size());
+    }
+
+    @Test
+    public void cellsOutsideOfTheWorldAreIgnored() {
+        ActiveLiquidCells cells = new ActiveLiquidCells();
+        cells.add(0, -1, 0);
+        cells.add(0, Chunk.SIZE_Y, 0);
+        assertTrue(cells.isEmpty());
+    }
+
+    @Test
+    public void pollReturnsCellsOfChunkUpToMax() {
+        ActiveLiquidCells cells = new ActiveLiquidCells();
+        for (int x = 0; x < 10; x++) {
+            cells.add(-Chunk.SIZE_X + x, 5, 2 * Chunk.SIZE_Z + 7);
+        }
+        cells.add(0, 0, 0);
+        Vector3i chunkPos = new Vector3i(-1, 0, 2);
+        assertEquals(chunkPos, cells.getChunks().get(0));
+
+        int[] polled = new int[10];
+        assertEquals(6, cells.poll(chunkPos, polled, 6));
+        assertEquals(5, cells.size());
+        for (int i = 0; i < 6; i++) {
+            assertEquals(i, ActiveLiquidCells.cellX(polled[i]));
+            assertEquals(5, ActiveLiquidCells.cellY(polled[i]));
+            assertEquals(7, ActiveLiquidCells.cellZ(polled[i]));
+        }
+        assertEquals(4, cells.poll(chunkPos, polled, 10));
+        assertEquals(1, cells.size());
+        assertEquals(1, cells.getChunks().size());
+    }
+
+    @Test
+    public void addAllMergesCells() {
+        ActiveLiquidCells cells = new ActiveLiquidCells();
+        cells.add(0, 0, 0);
+        cells.add(1, 0, 0);
+        ActiveLiquidCells other = new ActiveLiquidCells();
+        other.add(1, 0, 0);
+        other.add(2, 0, 0);
+        other.add(Chunk.SIZE_X, 0, 0);
+        cells.addAll(other);
+        assertEquals(4, cells.size());
+
+        List<Vector3i> chunks = cells.getChunks();
+        assertEquals(2, chunks.size());
+        cells.removeChunk(chunks.get(0));
+        assertEquals(1, cells.size());
+        cells.add(3, 0, 0);
+        assertEquals(2, cells.size());
+    }
+}
@@ -18,9 +18,12 @@ package org.terasology.world.liquid;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.Random;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.terasology.math.Region3i;
+import org.terasology.math.Side;
 import org.terasology.math.Vector3i;
 import org.terasology.world.WorldView;
 import org.terasology.world.block.Block;
@@ -90,4 +93,119 @@ public class LiquidSimulationTest {
         view.setLiquid(new Vector3i(0, 2, 0), new LiquidData(), new LiquidData(LiquidType.WATER, 3));
         assertEquals(new LiquidData(), LiquidSimulator.calcStateFor(new Vector3i(0, 1, 0), view));
     }
+
+    @Test
+    public void rawStateMatchesPreviousCalculation() {
+        Block ground = register("ground", false);
+        Block space = register("space", true);
+
+        Random random = new Random(42);
+        for (int x = -Chunk.SIZE_X + 1; x < 2 * Chunk.SIZE_X - 1; ++x) {
+            for (int z = -Chunk.SIZE_Z + 1; z < 2 * Chunk.SIZE_Z - 1; ++z) {
+                view.setBlock(x, 0, z, ground, view.getBlock(x, 0, z));
+                for (int y = 1; y < 5; y++) {
+                    int roll = random.nextInt(10);
+                    view.setBlock(x, y, z, (roll < 2) ? ground : space, air);
+                    if (roll >= 2 && roll < 7) {
+                        LiquidType type = (roll == 6) ? LiquidType.LAVA : LiquidType.WATER;
+                        view.setLiquid(new Vector3i(x, y, z), new LiquidData(type, 1 + random.nextInt(7)), new LiquidData());
+                    }
+                }
+            }
+        }
+        for (int x = -Chunk.SIZE_X + 2; x < 2 * Chunk.SIZE_X - 2; ++x) {
+            for (int z = -Chunk.SIZE_Z + 2; z < 2 * Chunk.SIZE_Z - 2; ++z) {
+                for (int y = 1; y < 4; y++) {
+                    Vector3i pos = new Vector3i(x, y, z);
+                    assertEquals(pos.toString(), previousCalcStateFor(pos, view), LiquidSimulator.calcStateFor(pos, view));
+                }
+            }
+        }
+    }
+
+    private Block register(String name, boolean penetrable) {
+        Block block = new Block();
+        block.setDisplayName(name);
+        block.setUri(new BlockUri("liquidtest:" + name));
+        block.setPenetrable(penetrable);
+        BlockManager.getInstance().addBlockFamily(new SymmetricFamily(block.getURI(), block), true);
+        return block;
+    }
+
+    /**
+     * The state calculation as it was before it was moved to packed liquid states
+     */
+    private static LiquidData previousCalcStateFor(Vector3i pos, WorldView worldView) {
+        if (!worldView.getBlock(pos).isPenetrable()) {
+            return new LiquidData();
+        }
+
+        LiquidData currentState = worldView.getLiquid(pos);
+        if (currentState.getDepth() == 7) {
+            return currentState;
+        }
+
+        LiquidData aboveState = worldView.getLiquid(pos.x, pos.y + 1, pos.z);
+        if (aboveState.getDepth() > 0) {
+            return new LiquidData(aboveState.getType(), 6);
+        }
+
+        LiquidData h1 = new LiquidData();
+        LiquidData h2 = new LiquidData();
+        for (Side side : Side.horizontalSides()) {
+            Vector3i adjPos = new Vector3i(side.getVector3i());
+            adjPos.add(pos);
+            Block supportingBlock = worldView.getBlock(adjPos.x, adjPos.y - 1, adjPos.z);
+            if (!supportingBlock.isPenetrable()) {
+                LiquidData state = previousOutgoingLiquid(adjPos, worldView);
+                if (state.getType() != currentState.getType() || state.getDepth() >= currentState.getDepth()) {
+                    if (state.getDepth() > h1.getDepth()) {
+                        h2 = h1;
+                        h1 = state;
+                    } else if (state.getDepth() > h2.getDepth()) {
+                        h2 = state;
+                    }
+                }
+            }
+        }
+
+        if (h1.getDepth() > 0) {
+            if (h1.getType() == h2.getType() || h2.getDepth() == 0) {
+                return new LiquidData(h1.getType(), h1.getDepth());
+            } else {
+                byte finalDepth = (byte) (h1.getDepth() - h2.getDepth());
+                if (finalDepth > 0) {
+                    return new LiquidData(h1.getType(), finalDepth);
+                }
+            }
+        }
+        return new LiquidData();
+    }
+
+    private static final byte[][] OUTGOING_FLOW = new byte[][]{
+            {0, 0, 0, 0, 0, 0, 0, 0},
+            {0, 0, 1, 2, 3, 4, 5, 6},
+            {0, 0, 1, 2, 2, 3, 3, 4},
+            {0, 0, 1, 1, 1, 2, 2, 3},
+            {0, 0, 1, 1, 1, 1, 2, 2}
+    };
+
+    private static LiquidData previousOutgoingLiquid(Vector3i pos, WorldView worldView) {
+        LiquidData currentState = worldView.getLiquid(pos);
+        if (currentState.getDepth() == 0) {
+            return new LiquidData();
+        }
+
+        int availableSpaces = 0;
+        for (Side side : Side.horizontalSides()) {
+            Vector3i adjPos = new Vector3i(pos);
+            adjPos.add(side.getVector3i());
+            if (worldView.getBlock(pos).isPenetrable()) {
+                if (worldView.getLiquid(adjPos).getDepth() < currentState.getDepth()) {
+                    availableSpaces++;
+                }
+            }
+        }
+        return new LiquidData(currentState.getType(), OUTGOING_FLOW[availableSpaces][currentState.getDepth()]);
+    }
 }
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.localChunkProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.terasology.math.Region3i;
+import org.terasology.math.Vector3i;
+import org.terasology.world.chunks.Chunk;
+
+import com.google.common.collect.Lists;
+
+public class ChunkPipelineTest {
+
+    private static final Vector3i CENTER = new Vector3i(0, 0, 0);
+
+    private List<Vector3i> readyStages;
+    private List<Chunk.State> readyStates;
+    private List<Integer> readyGenerations;
+    private List<Vector3i> readyChunks;
+    private ChunkPipeline pipeline;
+
+    @Before
+    public void setup() {
+        readyStages = Lists.newArrayList();
+        readyStates = Lists.newArrayList();
+        readyGenerations = Lists.newArrayList();
+        readyChunks = Lists.newArrayList();
+        pipeline = new ChunkPipeline(new ChunkPipeline.Handler() {
+            @Override
+            public void stageReady(Vector3i pos, Chunk.State state, int generation) {
+                readyStages.add(pos);
+                readyStates.add(state);
+                readyGenerations.add(generation);
+            }
+
+            @Override
+            public void chunkReady(Vector3i pos) {
+                readyChunks.add(pos);
+            }
+        });
+    }
+
+    @Test
+    public void stageReadyOnceAllNeighboursAreAvailable() {
+        for (Vector3i pos : neighbourhood(CENTER)) {
+            if (!pos.equals(new Vector3i(1, 0, 1))) {
+                pipeline.chunkAdded(pos, Chunk.State.ADJACENCY_GENERATION_PENDING);
+            }
+        }
+        assertTrue(readyStages.isEmpty());
+        pipeline.chunkAdded(new Vector3i(1, 0, 1), Chunk.State.ADJACENCY_GENERATION_PENDING);
+        assertEquals(Lists.newArrayList(CENTER), readyStages);
+        assertEquals(Chunk.State.ADJACENCY_GENERATION_PENDING, readyStates.get(0));
+    }
+
+    @Test
+    public void stageReadyOnceAllNeighboursReachedState() {
+        for (Vector3i pos : neighbourhood(CENTER)) {
+            pipeline.chunkAdded(pos, Chunk.State.LIGHT_PROPAGATION_PENDING);
+        }
+        pipeline.stateChanged(CENTER, Chunk.State.FULL_LIGHT_CONNECTIVITY_PENDING);
+        readyStages.clear();
+        readyStates.clear();
+
+        for (Vector3i pos : neighbourhood(CENTER)) {
+            if (!pos.equals(CENTER)) {
+                assertTrue(readyStages.isEmpty());
+                pipeline.stateChanged(pos, Chunk.State.FULL_LIGHT_CONNECTIVITY_PENDING);
+            }
+        }
+        assertEquals(Lists.newArrayList(CENTER), readyStages);
+        assertEquals(Chunk.State.FULL_LIGHT_CONNECTIVITY_PENDING, readyStates.get(0));
+    }
+
+    @Test
+    public void stageIsReportedOnlyOnce() {
+        for (Vector3i pos : neighbourhood(CENTER)) {
+            pipeline.chunkAdded(pos, Chunk.State.INTERNAL_LIGHT_GENERATION_PENDING);
+        }
+        pipeline.chunkRemoved(new Vector3i(1, 0, 1));
+        pipeline.chunkAdded(new Vector3i(1, 0, 1), Chunk.State.INTERNAL_LIGHT_GENERATION_PENDING);
+        assertEquals(1, readyStages.size());
+    }
+
+    @Test
+    public void abortedStageWaitsForRemovedNeighbour() {
+        for (Vector3i pos : neighbourhood(CENTER)) {
+            pipeline.chunkAdded(pos, Chunk.State.INTERNAL_LIGHT_GENERATION_PENDING);
+        }
+        int generation = readyGenerations.get(readyStages.indexOf(CENTER));
+        readyStages.clear();
+        pipeline.chunkRemoved(new Vector3i(-1, 0, 0));
+        pipeline.stageAborted(CENTER, generation);
+        assertTrue(readyStages.isEmpty());
+        pipeline.chunkAdded(new Vector3i(-1, 0, 0), Chunk.State.ADJACENCY_GENERATION_PENDING);
+        assertTrue(readyStages.isEmpty());
+        pipeline.stateChanged(new Vector3i(-1, 0, 0), Chunk.State.INTERNAL_LIGHT_GENERATION_PENDING);
+        assertTrue(readyStages.contains(CENTER));
+    }
+
+    @Test
+    public void abortedStageWaitsForChange() {
+        for (Vector3i pos : neighbourhood(CENTER)) {
+            pipeline.chunkAdded(pos, Chunk.State.INTERNAL_LIGHT_GENERATION_PENDING);
+        }
+        int generation = readyGenerations.get(readyStages.indexOf(CENTER));
+        readyStages.clear();
+        pipeline.stageAborted(CENTER, generation);
+        pipeline.review(CENTER);
+        assertTrue(readyStages.isEmpty());
+
+        pipeline.stateChanged(new Vector3i(1, 0, 0), Chunk.State.LIGHT_PROPAGATION_PENDING);
+        assertEquals(Lists.newArrayList(CENTER), readyStages);
+    }
+
+    @Test
+    public void staleStageIsIgnored() {
+        for (Vector3i pos : neighbourhood(CENTER)) {
+            pipeline.chunkAdded(pos, Chunk.State.INTERNAL_LIGHT_GENERATION_PENDING);
+        }
+        int staleGeneration = readyGenerations.get(readyStages.indexOf(CENTER));
+        pipeline.chunkRemoved(CENTER);
+        readyStages.clear();
+        readyGenerations.clear();
+        pipeline.chunkAdded(CENTER, Chunk.State.INTERNAL_LIGHT_GENERATION_PENDING);
+        assertEquals(Lists.newArrayList(CENTER), readyStages);
+        int generation = readyGenerations.get(0);
+
+        assertFalse(pipeline.stageStarted(CENTER, staleGeneration));
+        pipeline.stageAborted(CENTER, staleGeneration);
+        pipeline.stageCancelled(CENTER, staleGeneration);
+        pipeline.review(CENTER);
+        assertEquals(1, readyStages.size());
+
+        assertTrue(pipeline.stageStarted(CENTER, generation));
+        pipeline.stateChanged(CENTER, Chunk.State.LIGHT_PROPAGATION_PENDING);
+        assertFalse(pipeline.stageStarted(CENTER, staleGeneration));
+    }
+
+    @Test
+    public void chunkReadyOnceNeighbourhoodComplete() {
+        for (Vector3i pos : neighbourhood(CENTER)) {
+            pipeline.chunkAdded(pos, Chunk.State.COMPLETE);
+        }
+        assertEquals(Lists.newArrayList(CENTER), readyChunks);
+
+        pipeline.chunkRemoved(new Vector3i(0, 0, 1));
+        pipeline.chunkAdded(new Vector3i(0, 0, 1), Chunk.State.FULL_LIGHT_CONNECTIVITY_PENDING);
+        assertEquals(1, readyChunks.size());
+        pipeline.stateChanged(new Vector3i(0, 0, 1), Chunk.State.COMPLETE);
+        assertEquals(Lists.newArrayList(CENTER, CENTER), readyChunks);
+    }
+
+    private Region3i neighbourhood(Vector3i pos) {
+        return Region3i.createFromCenterExtents(pos, new Vector3i(1, 0, 1));
+    }
+}
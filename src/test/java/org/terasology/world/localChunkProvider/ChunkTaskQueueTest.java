@@ -0,0 +1,101 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.localChunkProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.terasology.math.Region3i;
+import org.terasology.math.Vector3i;
+import org.terasology.world.chunks.ChunkProvider;
+
+import com.google.common.collect.Lists;
+
+public class ChunkTaskQueueTest {
+
+    private ChunkTaskQueue queue;
+    private List<Vector3i> cancelled;
+
+    @Before
+    public void setup() {
+        queue = new ChunkTaskQueue();
+        cancelled = Lists.newArrayList();
+        setCenter(new Vector3i(0, 0, 0));
+    }
+
+    @Test
+    public void closestTaskFirst() throws InterruptedException {
+        queue.offer(new Task(new Vector3i(5, 0, 0)));
+        queue.offer(new Task(new Vector3i(1, 0, 1)));
+        queue.offer(new Task(new Vector3i(0, 0, 0)));
+        assertEquals(new Vector3i(0, 0, 0), queue.take().getPosition());
+        assertEquals(new Vector3i(1, 0, 1), queue.take().getPosition());
+        assertEquals(new Vector3i(5, 0, 0), queue.take().getPosition());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void tasksAreReprioritizedWhenRegionsMove() throws InterruptedException {
+        queue.offer(new Task(new Vector3i(0, 0, 0)));
+        queue.offer(new Task(new Vector3i(6, 0, 0)));
+        setCenter(new Vector3i(6, 0, 0));
+        assertEquals(new Vector3i(6, 0, 0), queue.take().getPosition());
+    }
+
+    @Test
+    public void tasksOutsideOfAllRegionsAreCancelled() throws InterruptedException {
+        queue.offer(new Task(new Vector3i(0, 0, 0)));
+        queue.offer(new Task(new Vector3i(20, 0, 0)));
+        setCenter(new Vector3i(20, 0, 0));
+        assertEquals(Lists.newArrayList(new Vector3i(0, 0, 0)), cancelled);
+        assertEquals(1, queue.size());
+        assertEquals(new Vector3i(20, 0, 0), queue.take().getPosition());
+    }
+
+    @Test
+    public void shutdownRequestsAreNeverCancelled() throws InterruptedException {
+        queue.offer(new Task(new Vector3i(0, 0, 0)));
+        queue.offer(new ShutdownTask());
+        queue.setRegions(Lists.<Region3i>newArrayList(), Lists.<Vector3i>newArrayList());
+        assertTrue(queue.take().isShutdownRequest());
+        assertEquals(1, cancelled.size());
+    }
+
+    private void setCenter(Vector3i center) {
+        queue.setRegions(Arrays.asList(Region3i.createFromCenterExtents(center, new Vector3i(8, 0, 8))), Arrays.asList(center));
+    }
+
+    private class Task extends AbstractChunkTask {
+
+        public Task(Vector3i position) {
+            super(position, (ChunkProvider) null);
+        }
+
+        @Override
+        public void enact() {
+        }
+
+        @Override
+        public void cancel() {
+            cancelled.add(getPosition());
+        }
+    }
+}